@@ -23,7 +23,8 @@ import org.oscim.layers.tile.MapTile;
 import org.oscim.tiling.ITileDataSink;
 import org.oscim.tiling.OverzoomDataSink;
 import org.oscim.tiling.QueryResult;
-import org.oscim.tiling.source.mvt.TileDecoder;
+import org.oscim.tiling.source.StringTable;
+import org.oscim.tiling.source.mvt.MvtTileDecoder;
 
 import java.io.ByteArrayInputStream;
 import java.util.Collections;
@@ -43,11 +44,12 @@ public class MBTilesMvtTileDataSource extends MBTilesTileDataSource {
     private static final String WHERE_FORMAT = "zoom_level=%d AND tile_column=%d AND tile_row=%d";
 
     private final String mLanguage;
+    private final StringTable mStringTable = new StringTable();
 
-    private final ThreadLocal<TileDecoder> mThreadLocalDecoders = new ThreadLocal<TileDecoder>() {
+    private final ThreadLocal<MvtTileDecoder> mThreadLocalDecoders = new ThreadLocal<MvtTileDecoder>() {
         @Override
-        protected TileDecoder initialValue() {
-            return new TileDecoder(mLanguage);
+        protected MvtTileDecoder initialValue() {
+            return new MvtTileDecoder(mLanguage, mStringTable);
         }
     };
 
@@ -42,10 +42,16 @@ public class TileCache implements ITileCache {
     class CacheTileReader implements TileReader {
         final InputStream mInputStream;
         final Tile mTile;
+        final Metadata mMetadata;
 
         public CacheTileReader(Tile tile, InputStream is) {
+            this(tile, is, Metadata.NONE);
+        }
+
+        public CacheTileReader(Tile tile, InputStream is, Metadata metadata) {
             mTile = tile;
             mInputStream = is;
+            mMetadata = metadata;
         }
 
         @Override
@@ -57,11 +63,17 @@ public class TileCache implements ITileCache {
         public InputStream getInputStream() {
             return mInputStream;
         }
+
+        @Override
+        public Metadata getMetadata() {
+            return mMetadata;
+        }
     }
 
     class CacheTileWriter implements TileWriter {
         final ByteArrayOutputStream mOutputStream;
         final Tile mTile;
+        Metadata mMetadata = Metadata.NONE;
 
         CacheTileWriter(Tile tile, ByteArrayOutputStream os) {
             mTile = tile;
@@ -78,9 +90,14 @@ public class TileCache implements ITileCache {
             return mOutputStream;
         }
 
+        @Override
+        public void setMetadata(Metadata metadata) {
+            mMetadata = metadata;
+        }
+
         @Override
         public void complete(boolean success) {
-            saveTile(mTile, mOutputStream, success);
+            saveTile(mTile, mOutputStream, success, mMetadata);
         }
     }
 
@@ -117,9 +134,9 @@ public class TileCache implements ITileCache {
                 " WHERE x=? AND y=? AND z = ?");
 
         mStmtPutTile = mDatabase.compileStatement("" +
-                "INSERT INTO " + TABLE_NAME +
-                " (x, y, z, time, last_access, data)" +
-                " VALUES(?,?,?,?,?,?)");
+                "INSERT OR REPLACE INTO " + TABLE_NAME +
+                " (x, y, z, time, last_access, data, etag, last_modified, expires)" +
+                " VALUES(?,?,?,?,?,?,?,?,?)");
 
         //mStmtUpdateTile = mDatabase.compileStatement("" +
         //        "UPDATE " + TABLE_NAME +
@@ -146,13 +163,16 @@ public class TileCache implements ITileCache {
     static final String COLUMN_TIME = "time";
     static final String COLUMN_ACCESS = "last_access";
     static final String COLUMN_DATA = "data";
+    static final String COLUMN_ETAG = "etag";
+    static final String COLUMN_LAST_MODIFIED = "last_modified";
+    static final String COLUMN_EXPIRES = "expires";
 
     //static final String COLUMN_SIZE = "size";
 
     class SQLiteHelper extends SQLiteOpenHelper {
 
         //private static final String DATABASE_NAME = "tile.db";
-        private static final int DATABASE_VERSION = 1;
+        private static final int DATABASE_VERSION = 2;
 
         private static final String TILE_SCHEMA =
                 "CREATE TABLE "
@@ -164,6 +184,9 @@ public class TileCache implements ITileCache {
                         //+ COLUMN_SIZE + " LONG NOT NULL,"
                         + COLUMN_ACCESS + " LONG NOT NULL,"
                         + COLUMN_DATA + " BLOB,"
+                        + COLUMN_ETAG + " TEXT,"
+                        + COLUMN_LAST_MODIFIED + " LONG NOT NULL DEFAULT 0,"
+                        + COLUMN_EXPIRES + " LONG NOT NULL DEFAULT 0,"
                         + "PRIMARY KEY(x,y,z));";
 
         public SQLiteHelper(Context context, String dbName) {
@@ -178,6 +201,15 @@ public class TileCache implements ITileCache {
 
         @Override
         public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            if (oldVersion == 1 && newVersion == 2) {
+                /* keep cached tiles, they have no metadata */
+                db.execSQL("ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + COLUMN_ETAG + " TEXT");
+                db.execSQL("ALTER TABLE " + TABLE_NAME + " ADD COLUMN "
+                        + COLUMN_LAST_MODIFIED + " LONG NOT NULL DEFAULT 0");
+                db.execSQL("ALTER TABLE " + TABLE_NAME + " ADD COLUMN "
+                        + COLUMN_EXPIRES + " LONG NOT NULL DEFAULT 0");
+                return;
+            }
             log.fine("drop table");
             db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
             onCreate(db);
@@ -190,6 +222,10 @@ public class TileCache implements ITileCache {
     }
 
     public void saveTile(Tile tile, ByteArrayOutputStream data, boolean success) {
+        saveTile(tile, data, success, Metadata.NONE);
+    }
+
+    public void saveTile(Tile tile, ByteArrayOutputStream data, boolean success, Metadata metadata) {
         byte[] bytes = null;
 
         if (success)
@@ -213,6 +249,12 @@ public class TileCache implements ITileCache {
             mStmtPutTile.bindLong(4, 0);
             mStmtPutTile.bindLong(5, 0);
             mStmtPutTile.bindBlob(6, bytes);
+            if (metadata.etag != null)
+                mStmtPutTile.bindString(7, metadata.etag);
+            else
+                mStmtPutTile.bindNull(7);
+            mStmtPutTile.bindLong(8, metadata.lastModified);
+            mStmtPutTile.bindLong(9, metadata.expires);
 
             mStmtPutTile.execute();
             mStmtPutTile.clearBindings();
@@ -255,7 +297,8 @@ public class TileCache implements ITileCache {
         mQueryVals[1] = String.valueOf(tile.tileX);
         mQueryVals[2] = String.valueOf(tile.tileY);
 
-        Cursor cursor = mDatabase.rawQuery("SELECT " + COLUMN_DATA +
+        Cursor cursor = mDatabase.rawQuery("SELECT " + COLUMN_DATA + ", " + COLUMN_ETAG + ", "
+                + COLUMN_LAST_MODIFIED + ", " + COLUMN_EXPIRES +
                 " FROM " + TABLE_NAME +
                 " WHERE z=? AND x=? AND y=?", mQueryVals);
 
@@ -268,12 +311,15 @@ public class TileCache implements ITileCache {
         }
 
         InputStream in = new ByteArrayInputStream(cursor.getBlob(0));
+        Metadata metadata = Metadata.NONE;
+        if (!cursor.isNull(1) || cursor.getLong(2) != 0 || cursor.getLong(3) != 0)
+            metadata = new Metadata(cursor.getString(1), cursor.getLong(2), cursor.getLong(3));
         cursor.close();
 
         if (dbg)
             log.fine("load tile " + tile);
 
-        return new CacheTileReader(tile, in);
+        return new CacheTileReader(tile, in, metadata);
     }
 
     @Override
@@ -89,7 +89,7 @@ public class OSciMap2TileSource extends UrlTileSource {
         public boolean decode(Tile tile, ITileDataSink sink, InputStream is)
                 throws IOException {
 
-            readUnsignedInt(is, buffer);
+            readMessageLength(is);
 
             setInputStream(is);
 
@@ -23,6 +23,7 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import org.oscim.core.Tile;
+import org.oscim.tiling.ITileCache;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -42,6 +43,10 @@ public class OkHttpEngine implements HttpEngine {
     private InputStream mInputStream;
     private byte[] mCachedData;
 
+    private ITileCache.Metadata mConditional;
+    private ITileCache.Metadata mMetadata = ITileCache.Metadata.NONE;
+    private boolean mNotModified;
+
     public static class OkHttpFactory implements HttpEngine.Factory {
         private final OkHttpClient.Builder mClientBuilder;
 
@@ -66,6 +71,8 @@ public class OkHttpEngine implements HttpEngine {
 
     @Override
     public InputStream read() throws IOException {
+        if (mInputStream == null && !mNotModified)
+            throw new IOException("No response");
         return mInputStream;
     }
 
@@ -80,9 +87,27 @@ public class OkHttpEngine implements HttpEngine {
                     .url(url);
             for (Entry<String, String> opt : mTileSource.getRequestHeader().entrySet())
                 builder.addHeader(opt.getKey(), opt.getValue());
+            ITileCache.Metadata conditional = mConditional;
+            mConditional = null;
+            if (conditional != null) {
+                if (conditional.etag != null)
+                    builder.header(HttpCacheHeaders.IF_NONE_MATCH, conditional.etag);
+                if (conditional.lastModified != 0)
+                    builder.header(HttpCacheHeaders.IF_MODIFIED_SINCE,
+                            HttpCacheHeaders.formatDate(conditional.lastModified));
+            }
+            mNotModified = false;
+            mInputStream = null;
             Request request = builder.build();
             Response response = mClient.newCall(request).execute();
-            if (mTileSource.tileCache != null) {
+            mMetadata = HttpCacheHeaders.parse(response.header("ETag"), response.header("Last-Modified"),
+                    response.header("Cache-Control"), response.header("Expires"),
+                    System.currentTimeMillis());
+            if (response.code() == 304) {
+                response.close();
+                mCachedData = null;
+                mNotModified = true;
+            } else if (mTileSource.tileCache != null) {
                 mCachedData = response.body().bytes();
                 mInputStream = new ByteArrayInputStream(mCachedData);
             } else
@@ -92,6 +117,16 @@ public class OkHttpEngine implements HttpEngine {
         }
     }
 
+    @Override
+    public void setConditional(ITileCache.Metadata metadata) {
+        mConditional = metadata;
+    }
+
+    @Override
+    public ITileCache.Metadata getMetadata() {
+        return mMetadata;
+    }
+
     @Override
     public void close() {
         if (mInputStream == null)
@@ -0,0 +1,375 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.oscim.core.Tile;
+import org.oscim.layers.tile.JobQueue;
+import org.oscim.layers.tile.MapTile;
+import org.oscim.tiling.ITileCache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous tile fetching with OkHttp.
+ * <p/>
+ * Requests are enqueued on a shared {@link OkHttpClient}, which keeps many of
+ * them in flight over pooled keep-alive (or HTTP/2) connections. Identical
+ * urls which are in flight at the same time are fetched once, also when they
+ * are requested by different layers using the same pipeline.
+ * <p/>
+ * The {@link HttpEngine}s created by this factory only block in
+ * {@link HttpEngine#read()} until the response has arrived. To keep more
+ * requests in flight than there are loader threads, register a
+ * {@link #prefetcher(UrlTileSource, int)} on the {@link JobQueue} of the layer:
+ * <pre>
+ * OkHttpPipeline pipeline = new OkHttpPipeline(new OkHttpClient.Builder(), 16);
+ * tileSource.setHttpEngine(pipeline);
+ * layer.getManager().getJobQueue().setListener(pipeline.prefetcher(tileSource, 16));
+ * </pre>
+ * Prefetched requests of tiles which are not queued anymore are canceled.
+ */
+public class OkHttpPipeline implements HttpEngine.Factory {
+
+    private static final Logger log = Logger.getLogger(OkHttpPipeline.class.getName());
+
+    public static final int DEFAULT_MAX_REQUESTS = 16;
+
+    private final OkHttpClient mClient;
+
+    /* requests in flight or completed but not yet read, guarded by this */
+    private final HashMap<String, Fetch> mFetches = new HashMap<>();
+
+    public OkHttpPipeline() {
+        this(new OkHttpClient.Builder(), DEFAULT_MAX_REQUESTS);
+    }
+
+    /**
+     * @param clientBuilder the client configuration.
+     * @param maxRequests   the maximum number of requests in flight.
+     */
+    public OkHttpPipeline(OkHttpClient.Builder clientBuilder, int maxRequests) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequests);
+        mClient = clientBuilder.dispatcher(dispatcher).build();
+    }
+
+    @Override
+    public HttpEngine create(UrlTileSource tileSource) {
+        return new Engine(tileSource);
+    }
+
+    /**
+     * @param tileSource  the tile source of the layer.
+     * @param maxPrefetch the maximum number of queued jobs to fetch ahead.
+     * @return a listener for the {@link JobQueue} of the layer which fetches
+     * the data of the next jobs.
+     */
+    public JobQueue.Listener prefetcher(UrlTileSource tileSource, int maxPrefetch) {
+        return new Prefetcher(tileSource, maxPrefetch);
+    }
+
+    /**
+     * @return the number of requests in flight or not yet read.
+     */
+    public synchronized int getPending() {
+        return mFetches.size();
+    }
+
+    /**
+     * One request, shared by all engines and prefetchers which want its url.
+     */
+    static final class Fetch implements Callback {
+        final String url;
+        Call call;
+
+        /* guarded by the pipeline */
+        int refs;
+        boolean prefetched;
+
+        /* guarded by this */
+        boolean done;
+        byte[] data;
+        IOException error;
+        ITileCache.Metadata metadata = ITileCache.Metadata.NONE;
+
+        Fetch(String url) {
+            this.url = url;
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) {
+            byte[] data = null;
+            IOException error = null;
+            ITileCache.Metadata metadata = HttpCacheHeaders.parse(response.header("ETag"),
+                    response.header("Last-Modified"), response.header("Cache-Control"),
+                    response.header("Expires"), System.currentTimeMillis());
+            try {
+                ResponseBody body = response.body();
+                if (response.code() == 304)
+                    data = null;
+                else if (!response.isSuccessful() || body == null)
+                    error = new IOException("HTTP Error: " + response.code() + " " + url);
+                else
+                    data = body.bytes();
+            } catch (IOException e) {
+                error = e;
+            } finally {
+                response.close();
+            }
+            complete(data, error, metadata);
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            complete(null, e, ITileCache.Metadata.NONE);
+        }
+
+        synchronized void complete(byte[] data, IOException error, ITileCache.Metadata metadata) {
+            this.data = data;
+            this.error = error;
+            this.metadata = metadata;
+            this.done = true;
+            notifyAll();
+        }
+    }
+
+    private Fetch start(String url, UrlTileSource tileSource) {
+        Fetch fetch = mFetches.get(url);
+        if (fetch != null)
+            return fetch;
+
+        fetch = new Fetch(url);
+        mFetches.put(url, fetch);
+        enqueue(fetch, tileSource, null);
+        return fetch;
+    }
+
+    private void enqueue(Fetch fetch, UrlTileSource tileSource, ITileCache.Metadata conditional) {
+        Request.Builder builder = new Request.Builder().url(fetch.url);
+        for (Entry<String, String> opt : tileSource.getRequestHeader().entrySet())
+            builder.addHeader(opt.getKey(), opt.getValue());
+        if (conditional != null) {
+            if (conditional.etag != null)
+                builder.header(HttpCacheHeaders.IF_NONE_MATCH, conditional.etag);
+            if (conditional.lastModified != 0)
+                builder.header(HttpCacheHeaders.IF_MODIFIED_SINCE,
+                        HttpCacheHeaders.formatDate(conditional.lastModified));
+        }
+        fetch.call = mClient.newCall(builder.build());
+        fetch.call.enqueue(fetch);
+    }
+
+    synchronized Fetch acquire(String url, UrlTileSource tileSource, ITileCache.Metadata conditional) {
+        if (conditional != null && conditional.hasValidator()) {
+            /* the response may be empty, not shared with other requests */
+            Fetch fetch = new Fetch(url);
+            fetch.refs++;
+            enqueue(fetch, tileSource, conditional);
+            return fetch;
+        }
+        Fetch fetch = start(url, tileSource);
+        fetch.refs++;
+        /* the engine takes over a prefetched request */
+        fetch.prefetched = false;
+        return fetch;
+    }
+
+    synchronized void release(Fetch fetch) {
+        fetch.refs--;
+        drop(fetch);
+    }
+
+    /**
+     * Forgets a fetch which is not wanted anymore, canceling the request
+     * when still in flight.
+     */
+    private void drop(Fetch fetch) {
+        if (fetch.refs > 0 || fetch.prefetched)
+            return;
+        if (mFetches.get(fetch.url) == fetch)
+            mFetches.remove(fetch.url);
+        fetch.call.cancel();
+    }
+
+    private final class Prefetcher implements JobQueue.Listener {
+        private final UrlTileSource mTileSource;
+        private final MapTile[] mJobs;
+        private Set<Fetch> mPrefetched = new HashSet<>();
+
+        Prefetcher(UrlTileSource tileSource, int maxPrefetch) {
+            mTileSource = tileSource;
+            mJobs = new MapTile[maxPrefetch];
+        }
+
+        @Override
+        public void onJobsChanged(JobQueue queue) {
+            int cnt = queue.peek(mJobs);
+            Set<Fetch> prefetched = new HashSet<>();
+            synchronized (OkHttpPipeline.this) {
+                for (int i = 0; i < cnt; i++) {
+                    String url = mTileSource.getTileUrl(mJobs[i]);
+                    mJobs[i] = null;
+                    Fetch fetch = mFetches.get(url);
+                    if (fetch == null) {
+                        fetch = start(url, mTileSource);
+                        fetch.prefetched = true;
+                    }
+                    if (fetch.prefetched)
+                        prefetched.add(fetch);
+                }
+                /* tiles which are not queued anymore */
+                for (Fetch fetch : mPrefetched) {
+                    if (fetch.prefetched && !prefetched.contains(fetch)) {
+                        fetch.prefetched = false;
+                        drop(fetch);
+                    }
+                }
+            }
+            mPrefetched = prefetched;
+        }
+    }
+
+    private final class Engine implements HttpEngine {
+        private final UrlTileSource mTileSource;
+        private volatile Fetch mFetch;
+        private byte[] mData;
+        private volatile boolean mClosed;
+        private ITileCache.Metadata mConditional;
+        private ITileCache.Metadata mMetadata = ITileCache.Metadata.NONE;
+
+        Engine(UrlTileSource tileSource) {
+            mTileSource = tileSource;
+        }
+
+        @Override
+        public void sendRequest(Tile tile) throws IOException {
+            if (tile == null)
+                throw new IllegalArgumentException("Tile cannot be null.");
+
+            releaseFetch();
+            mClosed = false;
+            mData = null;
+            mMetadata = ITileCache.Metadata.NONE;
+            Fetch fetch = acquire(mTileSource.getTileUrl(tile), mTileSource, mConditional);
+            synchronized (this) {
+                mFetch = fetch;
+            }
+            mConditional = null;
+        }
+
+        @Override
+        public void setConditional(ITileCache.Metadata metadata) {
+            mConditional = metadata;
+        }
+
+        @Override
+        public ITileCache.Metadata getMetadata() {
+            return mMetadata;
+        }
+
+        @Override
+        public InputStream read() throws IOException {
+            Fetch fetch = mFetch;
+            if (fetch == null)
+                throw new IOException("No request");
+
+            synchronized (fetch) {
+                while (!fetch.done && !mClosed) {
+                    try {
+                        fetch.wait();
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                }
+                if (!fetch.done)
+                    throw new InterruptedIOException("closed");
+                if (fetch.error != null)
+                    throw fetch.error;
+                mData = fetch.data;
+                mMetadata = fetch.metadata;
+            }
+            /* not modified */
+            if (mData == null)
+                return null;
+            return new ByteArrayInputStream(mData);
+        }
+
+        @Override
+        public void setCache(OutputStream os) {
+            if (mData == null)
+                return;
+            try {
+                os.write(mData);
+            } catch (IOException e) {
+                log.fine(e.toString());
+            }
+        }
+
+        @Override
+        public boolean requestCompleted(boolean success) {
+            releaseFetch();
+            mData = null;
+            return success;
+        }
+
+        @Override
+        public void close() {
+            mClosed = true;
+            Fetch fetch = takeFetch();
+            if (fetch != null) {
+                /* wake up a blocking read */
+                synchronized (fetch) {
+                    fetch.notifyAll();
+                }
+                /* stop waiting for the shared request, it is canceled
+                 * when no other engine or prefetcher wants it */
+                release(fetch);
+            }
+        }
+
+        private void releaseFetch() {
+            Fetch fetch = takeFetch();
+            if (fetch != null)
+                release(fetch);
+        }
+
+        /**
+         * Detaches the fetch, so that a concurrent close() and
+         * requestCompleted() release it only once.
+         */
+        private synchronized Fetch takeFetch() {
+            Fetch fetch = mFetch;
+            mFetch = null;
+            return fetch;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source;
+
+import org.oscim.core.BoundingBox;
+import org.oscim.tiling.cache.FileTileCache;
+import org.oscim.tiling.source.OkHttpEngine.OkHttpFactory;
+import org.oscim.tiling.source.bitmap.BitmapTileSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * Headless command line tool to seed tiles of a region for offline use.
+ * <p/>
+ * Usage: {@code TileSeederCli <url> <minLat,minLon,maxLat,maxLon> <zoomMin> <zoomMax> <cacheDir> [threads] [cacheSizeMB]}
+ * <p/>
+ * The url contains the tile path with {X}, {Y} and {Z} placeholders, e.g.
+ * {@code https://tile.openstreetmap.org/{Z}/{X}/{Y}.png}. Tiles are written to
+ * a {@link FileTileCache} in {@code <cacheDir>}, which an application reads by
+ * setting a FileTileCache of this directory as cache of its tile source.
+ * Running the tool again resumes an interrupted run. The cache size should
+ * hold all tiles of the region, otherwise the oldest tiles are evicted.
+ */
+public class TileSeederCli {
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 5) {
+            System.err.println("Usage: TileSeederCli <url> <minLat,minLon,maxLat,maxLon>"
+                    + " <zoomMin> <zoomMax> <cacheDir> [threads] [cacheSizeMB]");
+            System.exit(1);
+        }
+
+        int path = args[0].indexOf('{');
+        if (path < 0)
+            path = args[0].length();
+        path = args[0].lastIndexOf('/', path);
+
+        FileTileCache cache;
+        try {
+            cache = new FileTileCache(new File(args[4]));
+        } catch (IOException e) {
+            System.err.println("Cannot open cache: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        if (args.length > 6)
+            cache.setCacheSize(Long.parseLong(args[6]) * 1024 * 1024);
+
+        UrlTileSource tileSource = BitmapTileSource.builder()
+                .url(args[0].substring(0, path))
+                .tilePath(args[0].substring(path))
+                .httpFactory(new OkHttpFactory())
+                .build();
+        tileSource.setHttpRequestHeaders(Collections.singletonMap("User-Agent", "vtm-seeder"));
+        tileSource.setCache(cache);
+
+        String[] bbox = args[1].split(",");
+        BoundingBox box = new BoundingBox(Double.parseDouble(bbox[0]), Double.parseDouble(bbox[1]),
+                Double.parseDouble(bbox[2]), Double.parseDouble(bbox[3]));
+
+        final TileSeeder seeder = new TileSeeder(tileSource);
+        if (args.length > 5)
+            seeder.setThreads(Integer.parseInt(args[5]));
+        seeder.setListener(new TileSeeder.Listener() {
+            @Override
+            public void onProgress(TileSeeder.Stats stats) {
+                System.out.println(stats);
+            }
+        }, 1000);
+
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                seeder.cancel();
+            }
+        });
+
+        TileSeeder.Stats stats = seeder.seed(box, Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+        cache.flush();
+        System.exit(stats.failed > 0 ? 2 : 0);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.mbtiles;
+
+import org.oscim.core.BoundingBox;
+import org.sqlite.SQLiteConfig;
+
+import java.io.Closeable;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Read-only connections to an MBTiles database.
+ * <p/>
+ * Connections are opened on demand and kept for reuse when they are
+ * released, so that each tile loader can hold its own connection and
+ * prepared statements.
+ */
+public class MBTilesDatabase implements Closeable {
+
+    private static final Logger log = Logger.getLogger(MBTilesDatabase.class.getName());
+
+    /**
+     * Default maximum number of idle connections.
+     */
+    public static final int MAX_IDLE = 8;
+
+    private static final String SELECT_METADATA = "SELECT name, value FROM metadata";
+
+    private final String mUrl;
+    private final SQLiteConfig mConfig;
+    private final int mMaxIdle;
+    private final Map<String, String> mMetadata = new HashMap<>();
+
+    /* guarded by this */
+    private final ArrayDeque<Connection> mIdle = new ArrayDeque<>();
+    private boolean mClosed;
+
+    /**
+     * @param path the path to the MBTiles database.
+     */
+    public MBTilesDatabase(String path) throws SQLException {
+        this(path, MAX_IDLE);
+    }
+
+    /**
+     * @param path    the path to the MBTiles database.
+     * @param maxIdle maximum number of connections kept for reuse.
+     */
+    public MBTilesDatabase(String path, int maxIdle) throws SQLException {
+        if (!new File(path).isFile())
+            throw new SQLException("MBTiles database not found: " + path);
+
+        mUrl = "jdbc:sqlite:" + path;
+        mConfig = new SQLiteConfig();
+        mConfig.setReadOnly(true);
+        mMaxIdle = maxIdle;
+
+        Connection connection = acquire();
+        try {
+            Statement statement = connection.createStatement();
+            try {
+                ResultSet rs = statement.executeQuery(SELECT_METADATA);
+                while (rs.next())
+                    mMetadata.put(rs.getString(1), rs.getString(2));
+            } finally {
+                statement.close();
+            }
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        release(connection);
+    }
+
+    /**
+     * @return an idle or new connection, to be passed to {@link #release(Connection)}.
+     */
+    public Connection acquire() throws SQLException {
+        synchronized (this) {
+            if (mClosed)
+                throw new SQLException("MBTiles database is closed");
+            Connection connection = mIdle.poll();
+            if (connection != null)
+                return connection;
+        }
+        return DriverManager.getConnection(mUrl, mConfig.toProperties());
+    }
+
+    /**
+     * Keeps the connection for reuse or closes it. Statements of the
+     * connection must be closed before.
+     */
+    public void release(Connection connection) {
+        if (connection == null)
+            return;
+        synchronized (this) {
+            if (!mClosed && mIdle.size() < mMaxIdle) {
+                mIdle.push(connection);
+                return;
+            }
+        }
+        close(connection);
+    }
+
+    private static void close(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.fine(e.toString());
+        }
+    }
+
+    /**
+     * Closes the idle connections, connections in use are closed when they
+     * are released.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            mClosed = true;
+            for (Connection connection : mIdle)
+                close(connection);
+            mIdle.clear();
+        }
+    }
+
+    /**
+     * @return the value of the metadata table, or null.
+     */
+    public String getMetadata(String name) {
+        return mMetadata.get(name);
+    }
+
+    /**
+     * @return the tile format, e.g. 'pbf' or 'png'.
+     */
+    public String getFormat() {
+        return mMetadata.get("format");
+    }
+
+    public int getMinZoom(int defaultZoom) {
+        String minZoom = mMetadata.get("minzoom");
+        return minZoom != null ? Integer.parseInt(minZoom.trim()) : defaultZoom;
+    }
+
+    public int getMaxZoom(int defaultZoom) {
+        String maxZoom = mMetadata.get("maxzoom");
+        return maxZoom != null ? Integer.parseInt(maxZoom.trim()) : defaultZoom;
+    }
+
+    public BoundingBox getBounds() {
+        String bounds = mMetadata.get("bounds");
+        if (bounds == null)
+            return null;
+        String[] split = bounds.split(",");
+        double w = Double.parseDouble(split[0]);
+        double s = Double.parseDouble(split[1]);
+        double e = Double.parseDouble(split[2]);
+        double n = Double.parseDouble(split[3]);
+        return new BoundingBox(s, w, n, e);
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.mbtiles;
+
+import org.oscim.layers.tile.MapTile;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.tiling.ITileDataSource;
+import org.oscim.tiling.QueryResult;
+import org.oscim.tiling.source.ITileDecoder;
+import org.oscim.utils.ByteBufferInputStream;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the tiles of an MBTiles database for one tile loader.
+ * <p/>
+ * The data source holds a connection with a prepared statement while it is
+ * used. Gzip compressed tiles are inflated into a buffer of the data source
+ * which is reused for all tiles, uncompressed and inflated tiles are passed
+ * to the decoder without copying.
+ */
+public class MBTilesTileDataSource implements ITileDataSource {
+
+    private static final Logger log = Logger.getLogger(MBTilesTileDataSource.class.getName());
+
+    static final String SELECT_TILE =
+            "SELECT tile_data FROM tiles WHERE zoom_level=? AND tile_column=? AND tile_row=?";
+
+    /* gzip header flags */
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+
+    private final MBTilesTileSource mTileSource;
+    private final MBTilesDatabase mDatabase;
+    private final ITileDecoder mTileDecoder;
+
+    private Connection mConnection;
+    private PreparedStatement mStatement;
+
+    private final Inflater mInflater = new Inflater(true);
+    private byte[] mBuffer = new byte[1 << 16];
+
+    public MBTilesTileDataSource(MBTilesTileSource tileSource, ITileDecoder tileDecoder) {
+        mTileSource = tileSource;
+        mDatabase = tileSource.getDatabase();
+        mTileDecoder = tileDecoder;
+    }
+
+    @Override
+    public void query(MapTile tile, ITileDataSink sink) {
+        QueryResult res = QueryResult.FAILED;
+        try {
+            byte[] data = mTileSource.takePrefetched(tile);
+            if (data == null)
+                data = readTile(tile);
+
+            if (data == null) {
+                res = QueryResult.TILE_NOT_FOUND;
+            } else {
+                ByteBuffer buf;
+                if (isGzip(data))
+                    buf = ByteBuffer.wrap(mBuffer, 0, inflate(data));
+                else
+                    buf = ByteBuffer.wrap(data);
+
+                if (mTileDecoder.decode(tile, sink, new ByteBufferInputStream(buf)))
+                    res = QueryResult.SUCCESS;
+            }
+        } catch (SQLException e) {
+            log.severe(tile + " " + e);
+            /* reconnect for the next tile */
+            closeConnection(false);
+        } catch (Exception e) {
+            log.severe(tile + " " + e);
+        } finally {
+            sink.completed(res);
+        }
+    }
+
+    private byte[] readTile(MapTile tile) throws SQLException {
+        if (mStatement == null) {
+            mConnection = mDatabase.acquire();
+            mStatement = mConnection.prepareStatement(SELECT_TILE);
+        }
+        mStatement.setInt(1, tile.zoomLevel);
+        mStatement.setInt(2, tile.tileX);
+        mStatement.setInt(3, MBTilesTileSource.tmsY(tile.zoomLevel, tile.tileY));
+
+        ResultSet rs = mStatement.executeQuery();
+        try {
+            return rs.next() ? rs.getBytes(1) : null;
+        } finally {
+            rs.close();
+        }
+    }
+
+    private static boolean isGzip(byte[] data) {
+        return data.length > 10 && (data[0] & 0xff) == 0x1f && (data[1] & 0xff) == 0x8b;
+    }
+
+    /**
+     * Inflate the gzip data into mBuffer. The checksum is not verified.
+     *
+     * @return number of inflated bytes.
+     */
+    private int inflate(byte[] data) throws IOException {
+        int flags = data[3] & 0xff;
+        int pos = 10;
+        if ((flags & FEXTRA) != 0)
+            pos += 2 + ((data[pos] & 0xff) | (data[pos + 1] & 0xff) << 8);
+        if ((flags & FNAME) != 0)
+            while (data[pos++] != 0) ;
+        if ((flags & FCOMMENT) != 0)
+            while (data[pos++] != 0) ;
+        if ((flags & FHCRC) != 0)
+            pos += 2;
+
+        Inflater inflater = mInflater;
+        inflater.reset();
+        inflater.setInput(data, pos, data.length - pos);
+
+        int size = 0;
+        try {
+            while (!inflater.finished()) {
+                if (size == mBuffer.length)
+                    mBuffer = Arrays.copyOf(mBuffer, size * 2);
+                int len = inflater.inflate(mBuffer, size, mBuffer.length - size);
+                if (len == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new EOFException("truncated gzip data");
+                size += len;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e.toString());
+        }
+        return size;
+    }
+
+    /**
+     * @param reuse true when the connection can be passed to other
+     *              data sources.
+     */
+    private void closeConnection(boolean reuse) {
+        if (mConnection == null)
+            return;
+        try {
+            if (mStatement != null)
+                mStatement.close();
+        } catch (SQLException e) {
+            log.fine(e.toString());
+            reuse = false;
+        }
+        if (reuse) {
+            mDatabase.release(mConnection);
+        } else {
+            try {
+                mConnection.close();
+            } catch (SQLException e) {
+                log.fine(e.toString());
+            }
+        }
+        mStatement = null;
+        mConnection = null;
+    }
+
+    @Override
+    public void dispose() {
+        closeConnection(true);
+        mInflater.end();
+    }
+
+    @Override
+    public void cancel() {
+    }
+}
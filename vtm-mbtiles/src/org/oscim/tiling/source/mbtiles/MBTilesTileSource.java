@@ -0,0 +1,370 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.mbtiles;
+
+import org.oscim.core.BoundingBox;
+import org.oscim.layers.tile.JobQueue;
+import org.oscim.layers.tile.MapTile;
+import org.oscim.tiling.ITileDataSource;
+import org.oscim.tiling.OverzoomTileDataSource;
+import org.oscim.tiling.TileSource;
+import org.oscim.tiling.source.ITileDecoder;
+import org.oscim.tiling.source.StringTable;
+import org.oscim.tiling.source.bitmap.BitmapTileSource;
+import org.oscim.tiling.source.mvt.MvtTileDecoder;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * A tile source for MBTiles databases, read through JDBC.
+ * <p/>
+ * Vector tiles ('pbf') are decoded by {@link MvtTileDecoder}, raster tiles
+ * by {@link BitmapTileSource.TileDecoder}. Tiles beyond the maximum zoom level
+ * of the database are overzoomed.
+ * <p/>
+ * To read the tiles of all queued jobs with one query, register a
+ * {@link #prefetcher(int)} on the {@link JobQueue} of the layer:
+ * <pre>
+ * layer.getManager().getJobQueue().setListener(tileSource.prefetcher(64));
+ * </pre>
+ */
+public class MBTilesTileSource extends TileSource {
+
+    private static final Logger log = Logger.getLogger(MBTilesTileSource.class.getName());
+
+    public static final List<String> SUPPORTED_FORMATS = Arrays.asList("pbf", "png", "jpg", "jpeg", "webp");
+
+    /**
+     * Maximum number of tiles read with one query.
+     */
+    public static final int MAX_PREFETCH = 256;
+
+    private static final String SELECT_TILES =
+            "SELECT zoom_level, tile_column, tile_row, tile_data FROM tiles WHERE ";
+    private static final String WHERE_TILE = "(zoom_level=? AND tile_column=? AND tile_row=?)";
+
+    private static final long MASK = (1L << 28) - 1;
+
+    private final String mPath;
+    private final String mLanguage;
+    private final StringTable mStringTable = new StringTable();
+
+    private MBTilesDatabase mDatabase;
+    private boolean mVector;
+    private Prefetcher mPrefetcher;
+
+    /* the maximum number of prefetched tiles which were not taken yet */
+    private volatile int mMaxPrefetched = 2 * MAX_PREFETCH;
+
+    /* tiles read by the prefetcher, the oldest first, guarded by itself */
+    private final LinkedHashMap<Long, byte[]> mPrefetched = new LinkedHashMap<Long, byte[]>() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+            return size() > mMaxPrefetched;
+        }
+    };
+
+    /**
+     * @param path the path to the MBTiles database.
+     */
+    public MBTilesTileSource(String path) {
+        this(path, "");
+    }
+
+    /**
+     * @param path     the path to the MBTiles database.
+     * @param language the language of the names of vector tiles, e.g. 'en'.
+     */
+    public MBTilesTileSource(String path, String language) {
+        mPath = path;
+        mLanguage = language != null ? language : "";
+    }
+
+    /**
+     * @return the opened database, or null.
+     */
+    public MBTilesDatabase getDatabase() {
+        return mDatabase;
+    }
+
+    public BoundingBox getBounds() {
+        return mDatabase != null ? mDatabase.getBounds() : null;
+    }
+
+    @Override
+    public ITileDataSource getDataSource() {
+        if (mDatabase == null)
+            throw new IllegalStateException("not open: " + mPath);
+
+        ITileDecoder decoder;
+        if (mVector)
+            decoder = new MvtTileDecoder(mLanguage, mStringTable);
+        else
+            decoder = new BitmapTileSource.TileDecoder();
+
+        return new OverzoomTileDataSource(new MBTilesTileDataSource(this, decoder), mOverZoom, mOverzoomCache);
+    }
+
+    @Override
+    public OpenResult open() {
+        if (mDatabase != null)
+            return OpenResult.SUCCESS;
+
+        MBTilesDatabase database;
+        try {
+            database = new MBTilesDatabase(mPath);
+        } catch (SQLException e) {
+            log.severe(e.toString());
+            return new OpenResult(e.toString());
+        }
+
+        String format = database.getFormat();
+        if (!SUPPORTED_FORMATS.contains(format)) {
+            database.close();
+            return new OpenResult("unsupported MBTiles format " + format);
+        }
+
+        mVector = "pbf".equals(format);
+        mZoomMin = database.getMinZoom(mZoomMin);
+        mOverZoom = database.getMaxZoom(mOverZoom);
+        mDatabase = database;
+        return OpenResult.SUCCESS;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (mPrefetcher != null) {
+                mPrefetcher.stop();
+                mPrefetcher = null;
+            }
+        }
+        if (mDatabase != null) {
+            mDatabase.close();
+            mDatabase = null;
+        }
+        synchronized (mPrefetched) {
+            mPrefetched.clear();
+        }
+    }
+
+    /**
+     * Returns a listener which reads the tiles of the queued jobs with one
+     * query on a background thread. The data sources then take the tiles
+     * without querying the database. Replaces the prefetcher of a previous
+     * call.
+     * <p/>
+     * Prefetched tiles are kept until they are taken, or until twice
+     * maxTiles newer tiles were prefetched.
+     *
+     * @param maxTiles the maximum number of queued jobs to prefetch, at most
+     *                 {@link #MAX_PREFETCH}.
+     */
+    public synchronized JobQueue.Listener prefetcher(int maxTiles) {
+        if (mPrefetcher != null)
+            mPrefetcher.stop();
+        maxTiles = Math.max(1, Math.min(maxTiles, MAX_PREFETCH));
+        mMaxPrefetched = 2 * maxTiles;
+        mPrefetcher = new Prefetcher(maxTiles);
+        return mPrefetcher;
+    }
+
+    static long key(int zoom, int x, int y) {
+        return (long) zoom << 56 | (long) x << 28 | y;
+    }
+
+    /**
+     * @return the row of the tile, MBTiles rows are numbered from south.
+     */
+    static int tmsY(int zoom, int y) {
+        return (1 << zoom) - 1 - y;
+    }
+
+    /**
+     * @return the prefetched data of the tile, or null.
+     */
+    byte[] takePrefetched(MapTile tile) {
+        synchronized (mPrefetched) {
+            if (mPrefetched.isEmpty())
+                return null;
+            return mPrefetched.remove(key(tile.zoomLevel, tile.tileX, tile.tileY));
+        }
+    }
+
+    /**
+     * @return the number of prefetched tiles which were not taken yet.
+     */
+    int getPrefetchedCount() {
+        synchronized (mPrefetched) {
+            return mPrefetched.size();
+        }
+    }
+
+    /**
+     * Read the tiles which have not been prefetched yet. Tiles which are not
+     * requested anymore are kept, a loader may have taken their job already;
+     * the oldest tiles are dropped when the limit is exceeded.
+     *
+     * @param keys the tiles to prefetch, see {@link #key(int, int, int)}.
+     */
+    void prefetch(long[] keys, int cnt) throws SQLException {
+        MBTilesDatabase database = mDatabase;
+        if (database == null)
+            return;
+
+        Set<Long> requested = new HashSet<>();
+        long[] missing = new long[cnt];
+        int numMissing = 0;
+        synchronized (mPrefetched) {
+            for (int i = 0; i < cnt; i++) {
+                /* overzoomed jobs may map to the same tile */
+                if (!requested.add(keys[i]))
+                    continue;
+                byte[] data = mPrefetched.remove(keys[i]);
+                if (data != null)
+                    mPrefetched.put(keys[i], data);
+                else
+                    missing[numMissing++] = keys[i];
+            }
+        }
+        if (numMissing == 0)
+            return;
+
+        StringBuilder sql = new StringBuilder(SELECT_TILES);
+        for (int i = 0; i < numMissing; i++) {
+            if (i > 0)
+                sql.append(" OR ");
+            sql.append(WHERE_TILE);
+        }
+
+        Connection connection = database.acquire();
+        try {
+            PreparedStatement statement = connection.prepareStatement(sql.toString());
+            try {
+                for (int i = 0; i < numMissing; i++) {
+                    long key = missing[i];
+                    int zoom = (int) (key >>> 56);
+                    statement.setInt(i * 3 + 1, zoom);
+                    statement.setInt(i * 3 + 2, (int) (key >>> 28 & MASK));
+                    statement.setInt(i * 3 + 3, tmsY(zoom, (int) (key & MASK)));
+                }
+                ResultSet rs = statement.executeQuery();
+                while (rs.next()) {
+                    int zoom = rs.getInt(1);
+                    long key = key(zoom, rs.getInt(2), tmsY(zoom, rs.getInt(3)));
+                    byte[] data = rs.getBytes(4);
+                    synchronized (mPrefetched) {
+                        mPrefetched.put(key, data);
+                    }
+                }
+                rs.close();
+            } finally {
+                statement.close();
+            }
+        } finally {
+            database.release(connection);
+        }
+    }
+
+    private final class Prefetcher implements JobQueue.Listener, Runnable {
+        private final MapTile[] mJobs;
+
+        /* guarded by this */
+        private final long[] mPending;
+        private int mNumPending;
+        private boolean mChanged;
+        private boolean mStopped;
+        private Thread mThread;
+
+        Prefetcher(int maxTiles) {
+            mJobs = new MapTile[maxTiles];
+            mPending = new long[maxTiles];
+        }
+
+        @Override
+        public synchronized void onJobsChanged(JobQueue queue) {
+            int cnt = queue.peek(mJobs);
+            int n = 0;
+            for (int i = 0; i < cnt; i++) {
+                MapTile t = mJobs[i];
+                mJobs[i] = null;
+
+                /* like OverzoomTileDataSource */
+                int zoom = t.zoomLevel;
+                int diff = zoom - mOverZoom;
+                if (diff > 0)
+                    zoom = mOverZoom;
+                else
+                    diff = 0;
+                if (zoom >= mZoomMin)
+                    mPending[n++] = key(zoom, t.tileX >> diff, t.tileY >> diff);
+            }
+            mNumPending = n;
+            mChanged = true;
+
+            if (mStopped)
+                return;
+            if (mThread == null) {
+                mThread = new Thread(this, "MBTilesPrefetcher");
+                mThread.setDaemon(true);
+                mThread.start();
+            }
+            notifyAll();
+        }
+
+        synchronized void stop() {
+            mStopped = true;
+            notifyAll();
+        }
+
+        @Override
+        public void run() {
+            long[] keys = new long[mPending.length];
+            try {
+                while (true) {
+                    int cnt;
+                    synchronized (this) {
+                        while (!mChanged && !mStopped)
+                            wait();
+                        if (mStopped)
+                            break;
+                        mChanged = false;
+                        cnt = mNumPending;
+                        System.arraycopy(mPending, 0, keys, 0, cnt);
+                    }
+                    try {
+                        prefetch(keys, cnt);
+                    } catch (SQLException e) {
+                        log.severe(e.toString());
+                    }
+                }
+            } catch (InterruptedException e) {
+                log.fine("interrupted");
+            }
+        }
+    }
+}
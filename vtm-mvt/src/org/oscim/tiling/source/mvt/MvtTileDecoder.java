@@ -0,0 +1,568 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.mvt;
+
+import org.oscim.core.GeometryBuffer.GeometryType;
+import org.oscim.core.MapElement;
+import org.oscim.core.Tag;
+import org.oscim.core.TagSet;
+import org.oscim.core.Tile;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.tiling.source.PbfDecoder;
+import org.oscim.tiling.source.StringTable;
+import org.oscim.utils.Parameters;
+import org.oscim.utils.geom.SimplifyDP;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Streaming decoder for Mapbox Vector Tiles.
+ * <p/>
+ * Geometry commands are decoded directly into one MapElement which is passed
+ * to the sink feature by feature. Keys and values are resolved once per layer.
+ * The elements are the same as of the JTS based {@link TileDecoder}, except
+ * that rings are not checked for self-intersections and polygons are
+ * simplified with Douglas-Peucker.
+ */
+public class MvtTileDecoder extends PbfDecoder {
+
+    private static final int TAG_TILE_LAYERS = 3;
+
+    private static final int TAG_LAYER_NAME = 1;
+    private static final int TAG_LAYER_FEATURES = 2;
+    private static final int TAG_LAYER_KEYS = 3;
+    private static final int TAG_LAYER_VALUES = 4;
+    private static final int TAG_LAYER_EXTENT = 5;
+
+    private static final int TAG_FEATURE_TAGS = 2;
+    private static final int TAG_FEATURE_TYPE = 3;
+    private static final int TAG_FEATURE_GEOMETRY = 4;
+
+    private static final int TAG_VALUE_STRING = 1;
+    private static final int TAG_VALUE_FLOAT = 2;
+    private static final int TAG_VALUE_DOUBLE = 3;
+    private static final int TAG_VALUE_INT = 4;
+    private static final int TAG_VALUE_UINT = 5;
+    private static final int TAG_VALUE_SINT = 6;
+    private static final int TAG_VALUE_BOOL = 7;
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_FIXED64 = 1;
+    private static final int WIRE_LENGTH = 2;
+    private static final int WIRE_FIXED32 = 5;
+
+    private static final int GEOM_POINT = 1;
+    private static final int GEOM_LINE = 2;
+    private static final int GEOM_POLYGON = 3;
+
+    private static final int CMD_MOVE_TO = 1;
+    private static final int CMD_LINE_TO = 2;
+    private static final int CMD_CLOSE_PATH = 7;
+
+    /* how keys are added to the tags of a feature */
+    private static final int KEY_TAG = 0;
+    private static final int KEY_NAME = 1;
+    private static final int KEY_LOCALE_NAME = 2;
+    private static final int KEY_IGNORE = 3;
+
+    private static final int DEFAULT_EXTENT = 4096;
+
+    private final String mLocale;
+    private final MapElement mElem;
+    private final SimplifyDP mSimplify = new SimplifyDP();
+
+    /* keys and values of the current layer */
+    private String[] mKeys = new String[64];
+    private int[] mKeyTypes = new int[64];
+    private int mNumKeys;
+
+    private String[] mValues = new String[256];
+    private boolean[] mValueInterned = new boolean[256];
+    private int mNumValues;
+
+    /* buffer positions of the features of the current layer */
+    private int[] mFeatures = new int[256];
+
+    /* key and value indices of the current feature */
+    private int[] mTags = new int[64];
+
+    /* coordinates of the current ring */
+    private int[] mRing = new int[256];
+
+    private Tile mTile;
+    private ITileDataSink mSink;
+    private float mScale;
+
+    public MvtTileDecoder() {
+        this("");
+    }
+
+    public MvtTileDecoder(String locale) {
+        this(locale, new StringTable());
+    }
+
+    /**
+     * @param locale      language of the name tags, e.g. 'name:en'.
+     * @param stringTable table of keys and values shared with the other
+     *                    decoders of the tile source.
+     */
+    public MvtTileDecoder(String locale, StringTable stringTable) {
+        mLocale = locale;
+        mElem = new MapElement();
+        mElem.layer = 5;
+        setStringTable(stringTable);
+    }
+
+    @Override
+    public boolean decode(Tile tile, ITileDataSink sink, InputStream is)
+            throws IOException {
+
+        setInputStream(is);
+        mTile = tile;
+        mSink = sink;
+
+        int val;
+        while (hasData() && (val = decodeVarint32()) > 0) {
+            if ((val >>> 3) == TAG_TILE_LAYERS && (val & 7) == WIRE_LENGTH)
+                decodeLayer();
+            else
+                skip(val & 7);
+        }
+        mSink = null;
+        return true;
+    }
+
+    private void skip(int wireType) throws IOException {
+        int bytes;
+        switch (wireType) {
+            case WIRE_VARINT:
+                decodeVarint64();
+                return;
+            case WIRE_FIXED64:
+                bytes = 8;
+                break;
+            case WIRE_LENGTH:
+                bytes = decodeVarint32();
+                break;
+            case WIRE_FIXED32:
+                bytes = 4;
+                break;
+            default:
+                error(mTile + " invalid wire type " + wireType);
+                return;
+        }
+        if (fillBuffer(bytes) < bytes)
+            error(mTile + " invalid message size");
+        bufferPos += bytes;
+    }
+
+    private void decodeLayer() throws IOException {
+        int bytes = decodeVarint32();
+
+        /* keep the whole layer in the buffer, features are decoded
+         * when keys and values are known */
+        if (fillBuffer(bytes) < bytes)
+            error(mTile + " invalid layer size");
+
+        int offset = position() - bufferPos;
+        int end = bufferPos + bytes;
+
+        String name = null;
+        int extent = DEFAULT_EXTENT;
+        int numFeatures = 0;
+        mNumKeys = 0;
+        mNumValues = 0;
+
+        while (bufferPos < end) {
+            int val = decodeVarint32();
+            int wireType = val & 7;
+
+            switch (val >>> 3) {
+                case TAG_LAYER_NAME:
+                    name = decodeString();
+                    break;
+
+                case TAG_LAYER_FEATURES:
+                    if (wireType != WIRE_LENGTH) {
+                        skip(wireType);
+                        break;
+                    }
+                    if (numFeatures == mFeatures.length)
+                        mFeatures = Arrays.copyOf(mFeatures, numFeatures * 2);
+                    mFeatures[numFeatures++] = bufferPos;
+                    skip(wireType);
+                    break;
+
+                case TAG_LAYER_KEYS:
+                    addKey(decodeString());
+                    break;
+
+                case TAG_LAYER_VALUES:
+                    addValue(decodeValue());
+                    break;
+
+                case TAG_LAYER_EXTENT:
+                    extent = decodeVarint32();
+                    break;
+
+                default:
+                    skip(wireType);
+                    break;
+            }
+        }
+        if (bufferPos != end || position() - bufferPos != offset)
+            error(mTile + " invalid layer");
+
+        mScale = (float) (extent > 0 ? extent : DEFAULT_EXTENT) / Tile.SIZE;
+        Tag layer = new Tag("layer", name);
+
+        for (int i = 0; i < numFeatures; i++) {
+            bufferPos = mFeatures[i];
+            decodeFeature(layer);
+        }
+        bufferPos = end;
+    }
+
+    private void addKey(String key) {
+        int type = KEY_TAG;
+        if (key.startsWith(Tag.KEY_NAME)) {
+            int len = key.length();
+            if (len == 4)
+                type = KEY_NAME;
+            else if (len >= 7 && mLocale.equals(key.substring(5)))
+                type = KEY_LOCALE_NAME;
+            else
+                type = KEY_IGNORE;
+        } else {
+            key = key.intern();
+        }
+        if (mNumKeys == mKeys.length) {
+            mKeys = Arrays.copyOf(mKeys, mNumKeys * 2);
+            mKeyTypes = Arrays.copyOf(mKeyTypes, mNumKeys * 2);
+        }
+        mKeys[mNumKeys] = key;
+        mKeyTypes[mNumKeys] = type;
+        mNumKeys++;
+    }
+
+    private void addValue(String value) {
+        if (mNumValues == mValues.length) {
+            mValues = Arrays.copyOf(mValues, mNumValues * 2);
+            mValueInterned = Arrays.copyOf(mValueInterned, mNumValues * 2);
+        }
+        mValues[mNumValues] = value;
+        mValueInterned[mNumValues] = false;
+        mNumValues++;
+    }
+
+    private String decodeValue() throws IOException {
+        int bytes = decodeVarint32();
+        int end = bufferPos + bytes;
+
+        String value = null;
+        while (bufferPos < end) {
+            int val = decodeVarint32();
+            switch (val >>> 3) {
+                case TAG_VALUE_STRING:
+                    value = decodeString();
+                    break;
+                case TAG_VALUE_FLOAT:
+                    value = String.valueOf(decodeFloat());
+                    break;
+                case TAG_VALUE_DOUBLE:
+                    value = String.valueOf(decodeDouble());
+                    break;
+                case TAG_VALUE_INT:
+                case TAG_VALUE_UINT:
+                    value = String.valueOf(decodeVarint64());
+                    break;
+                case TAG_VALUE_SINT:
+                    long n = decodeVarint64();
+                    value = String.valueOf((n >>> 1) ^ -(n & 1));
+                    break;
+                case TAG_VALUE_BOOL:
+                    value = String.valueOf(decodeVarint64() != 0);
+                    break;
+                default:
+                    skip(val & 7);
+                    break;
+            }
+        }
+        /* like String.valueOf() of a missing value in the JTS decoder */
+        return value == null ? "null" : value;
+    }
+
+    private void decodeFeature(Tag layer) throws IOException {
+        int bytes = decodeVarint32();
+        int end = bufferPos + bytes;
+
+        int type = 0;
+        int numTags = 0;
+        int geomPos = -1;
+        int geomEnd = -1;
+
+        while (bufferPos < end) {
+            int val = decodeVarint32();
+            int wireType = val & 7;
+
+            switch (val >>> 3) {
+                case TAG_FEATURE_TAGS:
+                    if (wireType == WIRE_LENGTH) {
+                        int tagsEnd = decodeVarint32() + bufferPos;
+                        while (bufferPos < tagsEnd)
+                            numTags = addTag(numTags, decodeVarint32Filled());
+                    } else {
+                        numTags = addTag(numTags, decodeVarint32());
+                    }
+                    break;
+
+                case TAG_FEATURE_TYPE:
+                    type = decodeVarint32();
+                    break;
+
+                case TAG_FEATURE_GEOMETRY:
+                    if (wireType != WIRE_LENGTH) {
+                        skip(wireType);
+                        break;
+                    }
+                    geomEnd = decodeVarint32() + bufferPos;
+                    geomPos = bufferPos;
+                    bufferPos = geomEnd;
+                    break;
+
+                default:
+                    skip(wireType);
+                    break;
+            }
+        }
+
+        GeometryType geometryType;
+        if (type == GEOM_POINT)
+            geometryType = GeometryType.POINT;
+        else if (type == GEOM_LINE)
+            geometryType = GeometryType.LINE;
+        else if (type == GEOM_POLYGON)
+            geometryType = GeometryType.POLY;
+        else
+            return;
+
+        if (geomPos < 0 || geomEnd > end)
+            return;
+
+        MapElement e = mElem;
+        e.clear();
+        e.tags.clear();
+        addTags(e.tags, layer, numTags);
+
+        if (!mSink.accept(geometryType, e.tags))
+            return;
+
+        bufferPos = geomPos;
+        boolean ok;
+        if (type == GEOM_POINT)
+            ok = decodePoints(e, geomEnd);
+        else if (type == GEOM_LINE)
+            ok = decodeLines(e, geomEnd);
+        else
+            ok = decodePolygons(e, geomEnd);
+
+        if (!ok)
+            return;
+
+        if (type == GEOM_POLYGON)
+            simplify(e);
+
+        mSink.process(e);
+    }
+
+    private int addTag(int numTags, int index) {
+        if (numTags == mTags.length)
+            mTags = Arrays.copyOf(mTags, numTags * 2);
+        mTags[numTags] = index;
+        return numTags + 1;
+    }
+
+    private void addTags(TagSet tags, Tag layer, int numTags) {
+        tags.add(layer);
+
+        boolean hasName = false;
+        String fallbackName = null;
+
+        for (int i = 0; i < numTags - 1; i += 2) {
+            int key = mTags[i];
+            int value = mTags[i + 1];
+            if (key < 0 || key >= mNumKeys || value < 0 || value >= mNumValues)
+                continue;
+
+            switch (mKeyTypes[key]) {
+                case KEY_NAME:
+                    fallbackName = mValues[value];
+                    break;
+                case KEY_LOCALE_NAME:
+                    hasName = true;
+                    tags.add(new Tag(Tag.KEY_NAME, mValues[value], false));
+                    break;
+                case KEY_IGNORE:
+                    break;
+                default:
+                    if (!mValueInterned[value]) {
+                        mValues[value] = mValues[value].intern();
+                        mValueInterned[value] = true;
+                    }
+                    tags.add(Tag.interned(mKeys[key], mValues[value]));
+                    break;
+            }
+        }
+        if (!hasName && fallbackName != null)
+            tags.add(new Tag(Tag.KEY_NAME, fallbackName, false));
+    }
+
+    private boolean decodePoints(MapElement e, int end) throws IOException {
+        if (bufferPos >= end)
+            return false;
+
+        int cmd = decodeVarint32Filled();
+        int cnt = cmd >>> 3;
+        if ((cmd & 7) != CMD_MOVE_TO || cnt < 1)
+            return false;
+
+        int x = 0, y = 0;
+        for (int i = 0; i < cnt && bufferPos < end; i++) {
+            x += deZigZag(decodeVarint32Filled());
+            y += deZigZag(decodeVarint32Filled());
+            e.startPoints();
+            e.addPoint(x / mScale, y / mScale);
+        }
+        return true;
+    }
+
+    private boolean decodeLines(MapElement e, int end) throws IOException {
+        int x = 0, y = 0;
+        boolean found = false;
+
+        while (bufferPos < end) {
+            int cmd = decodeVarint32Filled();
+            if ((cmd & 7) != CMD_MOVE_TO || (cmd >>> 3) < 1)
+                break;
+            x += deZigZag(decodeVarint32Filled());
+            y += deZigZag(decodeVarint32Filled());
+
+            if (bufferPos >= end)
+                break;
+            cmd = decodeVarint32Filled();
+            int cnt = cmd >>> 3;
+            if ((cmd & 7) != CMD_LINE_TO || cnt < 1)
+                break;
+
+            e.startLine();
+            e.addPoint(x / mScale, y / mScale);
+            for (int i = 0; i < cnt && bufferPos < end; i++) {
+                x += deZigZag(decodeVarint32Filled());
+                y += deZigZag(decodeVarint32Filled());
+                e.addPoint(x / mScale, y / mScale);
+            }
+            found = true;
+        }
+        return found;
+    }
+
+    /**
+     * Classify rings like the V1 ring classifier of the JTS decoder: a ring
+     * with the winding of the current outer ring starts a new polygon, the
+     * others are holes. Rings without area and holes larger than their
+     * outer ring are dropped.
+     */
+    private boolean decodePolygons(MapElement e, int end) throws IOException {
+        int x = 0, y = 0;
+        long outerArea = 0;
+
+        while (bufferPos < end) {
+            int cmd = decodeVarint32Filled();
+            if ((cmd & 7) != CMD_MOVE_TO || (cmd >>> 3) < 1)
+                break;
+            x += deZigZag(decodeVarint32Filled());
+            y += deZigZag(decodeVarint32Filled());
+
+            if (bufferPos >= end)
+                break;
+            cmd = decodeVarint32Filled();
+            int cnt = cmd >>> 3;
+            if ((cmd & 7) != CMD_LINE_TO || cnt < 2)
+                break;
+
+            int[] ring = mRing;
+            if (ring.length < (cnt + 1) * 2)
+                ring = mRing = new int[(cnt + 1) * 2];
+            ring[0] = x;
+            ring[1] = y;
+
+            int n = 2;
+            for (int i = 0; i < cnt && bufferPos < end; i++) {
+                x += deZigZag(decodeVarint32Filled());
+                y += deZigZag(decodeVarint32Filled());
+                ring[n++] = x;
+                ring[n++] = y;
+            }
+
+            if (bufferPos >= end)
+                break;
+            cmd = decodeVarint32Filled();
+            if ((cmd & 7) != CMD_CLOSE_PATH)
+                break;
+
+            long area = signedArea(ring, n);
+            if (area == 0)
+                continue;
+
+            if (outerArea == 0 || (outerArea < 0) == (area < 0)) {
+                outerArea = area;
+                e.startPolygon();
+            } else if (Math.abs(outerArea) < Math.abs(area)) {
+                continue;
+            } else {
+                e.startHole();
+            }
+            for (int i = 0; i < n; i += 2)
+                e.addPoint(ring[i] / mScale, ring[i + 1] / mScale);
+        }
+        return outerArea != 0;
+    }
+
+    /**
+     * @return twice the signed area of the closed ring, exact for tile
+     * coordinates.
+     */
+    private static long signedArea(int[] ring, int n) {
+        long area = 0;
+        for (int i = 0; i < n; i += 2) {
+            int j = (i + 2) % n;
+            area += (long) ring[i] * ring[j + 1] - (long) ring[j] * ring[i + 1];
+        }
+        return area;
+    }
+
+    private void simplify(MapElement e) {
+        if (Parameters.SIMPLIFICATION_TOLERANCE > 0
+                && mTile.zoomLevel >= TileDecoder.SIMPLIFICATION_MIN_ZOOM
+                && mTile.zoomLevel <= TileDecoder.SIMPLIFICATION_MAX_ZOOM
+                && !e.tags.contains(Parameters.SIMPLIFICATION_EXCEPTIONS)) {
+            /* tolerance in tile units, like the JTS decoder */
+            float tolerance = Parameters.SIMPLIFICATION_TOLERANCE * 10 / mScale;
+            mSimplify.simplify(e, tolerance * tolerance);
+        }
+    }
+}
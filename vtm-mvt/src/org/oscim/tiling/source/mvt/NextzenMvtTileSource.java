@@ -16,6 +16,7 @@ package org.oscim.tiling.source.mvt;
 
 import org.oscim.tiling.ITileDataSource;
 import org.oscim.tiling.OverzoomTileDataSource;
+import org.oscim.tiling.source.StringTable;
 import org.oscim.tiling.source.UrlTileDataSource;
 import org.oscim.tiling.source.UrlTileSource;
 
@@ -50,6 +51,7 @@ public class NextzenMvtTileSource extends UrlTileSource {
     }
 
     private final String locale;
+    private final StringTable mStringTable = new StringTable();
 
     public NextzenMvtTileSource(Builder<?> builder) {
         super(builder);
@@ -66,6 +68,6 @@ public class NextzenMvtTileSource extends UrlTileSource {
 
     @Override
     public ITileDataSource getDataSource() {
-        return new OverzoomTileDataSource(new UrlTileDataSource(this, new TileDecoder(locale), getHttpEngine()), mOverZoom);
+        return new OverzoomTileDataSource(new UrlTileDataSource(this, new MvtTileDecoder(locale, mStringTable), getHttpEngine()), mOverZoom, mOverzoomCache);
     }
 }
@@ -20,6 +20,7 @@ package org.oscim.tiling.source.mvt;
 
 import org.oscim.tiling.ITileDataSource;
 import org.oscim.tiling.OverzoomTileDataSource;
+import org.oscim.tiling.source.StringTable;
 import org.oscim.tiling.source.UrlTileDataSource;
 import org.oscim.tiling.source.UrlTileSource;
 
@@ -53,6 +54,7 @@ public class OpenMapTilesMvtTileSource extends UrlTileSource {
     }
 
     private final String locale;
+    private final StringTable mStringTable = new StringTable();
 
     public OpenMapTilesMvtTileSource(Builder<?> builder) {
         super(builder);
@@ -69,6 +71,6 @@ public class OpenMapTilesMvtTileSource extends UrlTileSource {
 
     @Override
     public ITileDataSource getDataSource() {
-        return new OverzoomTileDataSource(new UrlTileDataSource(this, new TileDecoder(locale), getHttpEngine()), mOverZoom);
+        return new OverzoomTileDataSource(new UrlTileDataSource(this, new MvtTileDecoder(locale, mStringTable), getHttpEngine()), mOverZoom, mOverzoomCache);
     }
 }
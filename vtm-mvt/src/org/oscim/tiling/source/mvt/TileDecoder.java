@@ -24,6 +24,7 @@ import edu.colorado.cires.cmg.mvt.adapt.jts.model.JtsLayer;
 import edu.colorado.cires.cmg.mvt.adapt.jts.model.JtsMvt;
 import org.locationtech.jts.geom.*;
 import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
+import org.oscim.core.GeometryBuffer.GeometryType;
 import org.oscim.core.MapElement;
 import org.oscim.core.Tag;
 import org.oscim.core.Tile;
@@ -96,6 +97,9 @@ public class TileDecoder implements ITileDecoder {
             return;
         }
 
+        if (!mTileDataSink.accept(getGeometryType(geometry), mMapElement.tags))
+            return;
+
         boolean err = false;
         if (geometry instanceof Point) {
             mMapElement.startPoints();
@@ -129,6 +133,16 @@ public class TileDecoder implements ITileDecoder {
         }
     }
 
+    private static GeometryType getGeometryType(Geometry geometry) {
+        if (geometry instanceof Point || geometry instanceof MultiPoint)
+            return GeometryType.POINT;
+        if (geometry instanceof LineString || geometry instanceof MultiLineString)
+            return GeometryType.LINE;
+        if (geometry instanceof Polygon || geometry instanceof MultiPolygon)
+            return GeometryType.POLY;
+        return GeometryType.NONE;
+    }
+
     private void processLineString(LineString lineString) {
         mMapElement.startLine();
         processCoordinateArray(lineString.getCoordinates(), false);
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.test;
+
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.GeoPoint;
+import org.oscim.core.GeometryBuffer.GeometryType;
+import org.oscim.core.MapElement;
+import org.oscim.core.MercatorProjection;
+import org.oscim.core.TagSet;
+import org.oscim.gdx.GdxMapApp;
+import org.oscim.layers.tile.MapTile;
+import org.oscim.renderer.bucket.RenderBuckets;
+import org.oscim.theme.styles.AreaStyle;
+import org.oscim.theme.styles.LineStyle;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.tiling.ITileDataSource;
+import org.oscim.tiling.QueryResult;
+import org.oscim.tiling.source.mapfile.MapFileTileSource;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the memory allocated per tile when decoding the tiles around the
+ * center of a map file into RenderBuckets, with and without
+ * {@link RenderBuckets.Pool}. Allocations of the pooled run should stay
+ * close to the ones of decoding alone.
+ * <p/>
+ * Usage: BucketsAllocationBenchmark &lt;mapFile&gt;
+ */
+public class BucketsAllocationBenchmark {
+
+    private static final byte ZOOM = 16;
+    private static final int TILES = 7;
+    private static final int ROUNDS = 10;
+    private static final int LEVELS = 8;
+
+    private enum Mode {
+        DECODE, NEW, POOLED
+    }
+
+    private static com.sun.management.ThreadMXBean sThreadBean;
+
+    public static void main(String[] args) {
+        GdxMapApp.init();
+
+        sThreadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        MapFileTileSource tileSource = new MapFileTileSource();
+        tileSource.setMapFile(MapsforgeTest.getMapFiles(args).get(0).getAbsolutePath());
+        tileSource.open();
+
+        GeoPoint center = tileSource.getMapInfo().boundingBox.getCenterPoint();
+        int cx = MercatorProjection.longitudeToTileX(center.getLongitude(), ZOOM);
+        int cy = MercatorProjection.latitudeToTileY(center.getLatitude(), ZOOM);
+
+        ITileDataSource dataSource = tileSource.getDataSource();
+        Sink sink = new Sink();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            /* first rounds are warm-up */
+            StringBuilder sb = new StringBuilder("round " + round + ":");
+            for (Mode mode : Mode.values()) {
+                sink.mode = mode;
+                long bytes = sThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+                long time = System.nanoTime();
+
+                for (int x = cx - TILES / 2; x <= cx + TILES / 2; x++)
+                    for (int y = cy - TILES / 2; y <= cy + TILES / 2; y++)
+                        dataSource.query(new MapTile(x, y, ZOOM), sink);
+
+                time = System.nanoTime() - time;
+                bytes = sThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - bytes;
+                sb.append(" ").append(mode.name().toLowerCase())
+                        .append(" ").append(bytes / (TILES * TILES) / 1024).append("kB")
+                        .append(" ").append(time / (TILES * TILES) / 1000).append("us");
+            }
+            System.out.println(sb.append(" per tile"));
+        }
+        dataSource.dispose();
+        tileSource.close();
+    }
+
+    static class Sink implements ITileDataSink {
+        final RenderBuckets.Pool pool = new RenderBuckets.Pool(4);
+        final LineStyle line = LineStyle.builder().strokeWidth(2).build();
+        final AreaStyle area = AreaStyle.builder().build();
+
+        Mode mode;
+        RenderBuckets buckets;
+
+        @Override
+        public boolean accept(GeometryType type, TagSet tags) {
+            return true;
+        }
+
+        @Override
+        public void process(MapElement element) {
+            if (mode == Mode.DECODE)
+                return;
+
+            if (buckets == null)
+                buckets = (mode == Mode.POOLED) ? pool.get() : new RenderBuckets();
+
+            /* levels by layer, polygons below lines */
+            int level = 2 * (Math.abs(element.layer) % LEVELS);
+            if (element.isLine())
+                buckets.addLineBucket(level + 1, line).addLine(element);
+            else if (element.isPoly())
+                buckets.addPolygonBucket(level, area).addPolygon(element);
+        }
+
+        @Override
+        public void setTileImage(Bitmap bitmap) {
+        }
+
+        @Override
+        public void completed(QueryResult result) {
+            if (buckets == null)
+                return;
+
+            buckets.prepare();
+            if (mode == Mode.POOLED)
+                buckets = pool.release(buckets);
+            else {
+                buckets.clear();
+                buckets = null;
+            }
+        }
+    }
+}
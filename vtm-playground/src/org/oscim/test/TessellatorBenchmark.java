@@ -0,0 +1,136 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.test;
+
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.GeoPoint;
+import org.oscim.core.GeometryBuffer;
+import org.oscim.core.GeometryBuffer.GeometryType;
+import org.oscim.core.MapElement;
+import org.oscim.core.MercatorProjection;
+import org.oscim.core.TagSet;
+import org.oscim.gdx.GdxMapApp;
+import org.oscim.layers.tile.MapTile;
+import org.oscim.renderer.bucket.VertexData;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.tiling.ITileDataSource;
+import org.oscim.tiling.QueryResult;
+import org.oscim.tiling.source.mapfile.MapFileTileSource;
+import org.oscim.utils.Parameters;
+import org.oscim.utils.Tessellator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the throughput of TessJNI and the pure-Java tessellator on the
+ * building footprints around the center of a map file.
+ * <p/>
+ * Usage: TessellatorBenchmark &lt;mapFile&gt;
+ */
+public class TessellatorBenchmark {
+
+    private static final byte ZOOM = 17;
+    private static final int TILES = 5;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        GdxMapApp.init();
+
+        List<GeometryBuffer> buildings = loadBuildings(MapsforgeTest.getMapFiles(args).get(0));
+        int numPoints = 0;
+        for (GeometryBuffer geom : buildings)
+            numPoints += geom.pointNextPos >> 1;
+        System.out.println(buildings.size() + " buildings, " + numPoints + " points");
+        if (buildings.isEmpty())
+            return;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            /* first rounds are warm-up */
+            long jni = run(buildings, false);
+            long java = run(buildings, true);
+            System.out.println("round " + round
+                    + ": jni " + (jni / buildings.size()) + "ns"
+                    + ", java " + (java / buildings.size()) + "ns per building");
+        }
+    }
+
+    private static long run(List<GeometryBuffer> buildings, boolean java) {
+        Parameters.JAVA_TESSELLATOR = java;
+        VertexData out = new VertexData();
+        int indices = 0;
+
+        long time = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            for (GeometryBuffer geom : buildings) {
+                int numRings = 0;
+                int numPoints = 0;
+                for (int j = 0; j < geom.index.length && geom.index[j] > 0; j++) {
+                    numPoints += geom.index[j];
+                    numRings++;
+                }
+                indices += Tessellator.tessellate(geom.points, 0, numPoints,
+                        geom.index, 0, numRings, 0, out);
+            }
+            out.dispose();
+        }
+        time = (System.nanoTime() - time) / 10;
+
+        if (indices == 0)
+            System.out.println("no triangles");
+        return time;
+    }
+
+    private static List<GeometryBuffer> loadBuildings(File mapFile) {
+        MapFileTileSource tileSource = new MapFileTileSource();
+        tileSource.setMapFile(mapFile.getAbsolutePath());
+        tileSource.open();
+
+        GeoPoint center = tileSource.getMapInfo().boundingBox.getCenterPoint();
+        int cx = MercatorProjection.longitudeToTileX(center.getLongitude(), ZOOM);
+        int cy = MercatorProjection.latitudeToTileY(center.getLatitude(), ZOOM);
+
+        final List<GeometryBuffer> buildings = new ArrayList<>();
+        ITileDataSource dataSource = tileSource.getDataSource();
+        for (int x = cx - TILES / 2; x <= cx + TILES / 2; x++) {
+            for (int y = cy - TILES / 2; y <= cy + TILES / 2; y++) {
+                dataSource.query(new MapTile(x, y, ZOOM), new ITileDataSink() {
+                    @Override
+                    public boolean accept(GeometryType type, TagSet tags) {
+                        return type == GeometryType.POLY && tags.containsKey("building");
+                    }
+
+                    @Override
+                    public void process(MapElement element) {
+                        if (element.isPoly() && element.tags.containsKey("building"))
+                            buildings.add(new GeometryBuffer(element));
+                    }
+
+                    @Override
+                    public void setTileImage(Bitmap bitmap) {
+                    }
+
+                    @Override
+                    public void completed(QueryResult result) {
+                    }
+                });
+            }
+        }
+        dataSource.dispose();
+        tileSource.close();
+        return buildings;
+    }
+}
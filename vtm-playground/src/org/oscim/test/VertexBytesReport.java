@@ -0,0 +1,124 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.test;
+
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.GeoPoint;
+import org.oscim.core.GeometryBuffer.GeometryType;
+import org.oscim.core.MapElement;
+import org.oscim.core.MercatorProjection;
+import org.oscim.core.TagSet;
+import org.oscim.gdx.GdxMapApp;
+import org.oscim.layers.tile.MapTile;
+import org.oscim.renderer.bucket.RenderBucket;
+import org.oscim.renderer.bucket.RenderBuckets;
+import org.oscim.theme.styles.AreaStyle;
+import org.oscim.theme.styles.LineStyle;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.tiling.ITileDataSource;
+import org.oscim.tiling.QueryResult;
+import org.oscim.tiling.source.mapfile.MapFileTileSource;
+import org.oscim.utils.Parameters;
+
+/**
+ * Reports the bytes of vertex and index data per bucket type for the tiles
+ * around the center of a map file, with and without
+ * {@link Parameters#COMPACT_VERTICES}.
+ * <p/>
+ * Usage: VertexBytesReport &lt;mapFile&gt;
+ */
+public class VertexBytesReport {
+
+    private static final byte ZOOM = 16;
+    private static final int TILES = 7;
+    private static final int LEVELS = 8;
+
+    private static final String[] TYPES = {
+            "line", "texline", "polygon", "mesh", "extrusion",
+            "hairline", "symbol", "bitmap", "circle"
+    };
+
+    public static void main(String[] args) {
+        GdxMapApp.init();
+
+        MapFileTileSource tileSource = new MapFileTileSource();
+        tileSource.setMapFile(MapsforgeTest.getMapFiles(args).get(0).getAbsolutePath());
+        tileSource.open();
+
+        GeoPoint center = tileSource.getMapInfo().boundingBox.getCenterPoint();
+        int cx = MercatorProjection.longitudeToTileX(center.getLongitude(), ZOOM);
+        int cy = MercatorProjection.latitudeToTileY(center.getLatitude(), ZOOM);
+
+        ITileDataSource dataSource = tileSource.getDataSource();
+
+        for (boolean compact : new boolean[]{false, true}) {
+            Parameters.COMPACT_VERTICES = compact;
+            Sink sink = new Sink();
+
+            for (int x = cx - TILES / 2; x <= cx + TILES / 2; x++)
+                for (int y = cy - TILES / 2; y <= cy + TILES / 2; y++)
+                    dataSource.query(new MapTile(x, y, ZOOM), sink);
+
+            StringBuilder sb = new StringBuilder(compact ? "compact:" : "default:");
+            for (int type = 0; type <= RenderBucket.CIRCLE; type++) {
+                if (sink.bytes[type] > 0)
+                    sb.append(" ").append(TYPES[type])
+                            .append(" ").append(sink.bytes[type] / 1024).append("kB");
+            }
+            sb.append(", total ").append(sink.total / 1024).append("kB")
+                    .append(", ").append(sink.total / (TILES * TILES) / 1024).append("kB per tile");
+            System.out.println(sb);
+        }
+        Parameters.COMPACT_VERTICES = false;
+
+        dataSource.dispose();
+        tileSource.close();
+    }
+
+    static class Sink implements ITileDataSink {
+        final LineStyle line = LineStyle.builder().strokeWidth(2).build();
+        final AreaStyle area = AreaStyle.builder().build();
+        final long[] bytes = new long[RenderBucket.CIRCLE + 1];
+        long total;
+
+        RenderBuckets buckets = new RenderBuckets();
+
+        @Override
+        public boolean accept(GeometryType type, TagSet tags) {
+            return true;
+        }
+
+        @Override
+        public void process(MapElement element) {
+            /* levels by layer, polygons below lines */
+            int level = 2 * (Math.abs(element.layer) % LEVELS);
+            if (element.isLine())
+                buckets.addLineBucket(level + 1, line).addLine(element);
+            else if (element.isPoly())
+                buckets.addPolygonBucket(level, area).addPolygon(element);
+        }
+
+        @Override
+        public void setTileImage(Bitmap bitmap) {
+        }
+
+        @Override
+        public void completed(QueryResult result) {
+            buckets.prepare();
+            total += buckets.countBytes(bytes);
+            buckets.clear();
+        }
+    }
+}
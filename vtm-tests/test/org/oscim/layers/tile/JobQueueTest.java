@@ -0,0 +1,78 @@
+package org.oscim.layers.tile;
+
+import org.junit.Test;
+import org.oscim.core.MapPosition;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.oscim.layers.tile.MapTile.State.LOADING;
+import static org.oscim.layers.tile.MapTile.State.NONE;
+
+public class JobQueueTest {
+
+    static MapTile makeJob(int x, int y, int z, int serial) {
+        MapTile t = new MapTile(x, y, z);
+        t.setState(LOADING);
+        t.jobSerial = serial;
+        return t;
+    }
+
+    static MapPosition position(int x, int y, int z) {
+        MapPosition pos = new MapPosition();
+        pos.setScale(1 << z);
+        pos.x = (x + 0.5) / (1 << z);
+        pos.y = (y + 0.5) / (1 << z);
+        return pos;
+    }
+
+    @Test
+    public void shouldPollNearestFirst() {
+        JobQueue queue = new JobQueue();
+        MapTile[] jobs = {
+                makeJob(12, 10, 10, 1),
+                makeJob(10, 10, 10, 1),
+                makeJob(14, 10, 10, 1),
+                makeJob(11, 10, 10, 1)
+        };
+
+        assertThat(queue.updateJobs(jobs, jobs.length, 1, position(10, 10, 10))).isTrue();
+
+        assertThat(queue.poll().tileX).isEqualTo(10);
+        assertThat(queue.poll().tileX).isEqualTo(11);
+        assertThat(queue.poll().tileX).isEqualTo(12);
+        assertThat(queue.poll().tileX).isEqualTo(14);
+        assertThat(queue.poll()).isNull();
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void shouldReprioritizeAndDropStaleJobs() {
+        JobQueue queue = new JobQueue();
+        MapTile a = makeJob(10, 10, 10, 1);
+        MapTile b = makeJob(20, 10, 10, 1);
+        MapTile c = makeJob(30, 10, 10, 1);
+        queue.updateJobs(new MapTile[]{a, b, c}, 3, 1, position(10, 10, 10));
+
+        /* viewport moved: a is not requested anymore, b and c are */
+        b.jobSerial = 2;
+        c.jobSerial = 2;
+        MapTile d = makeJob(29, 10, 10, 2);
+        queue.updateJobs(new MapTile[]{d}, 1, 2, position(30, 10, 10));
+
+        assertThat(queue.size()).isEqualTo(3);
+        assertThat(a.state(NONE)).isTrue();
+        assertThat(queue.poll()).isSameAs(c);
+        assertThat(queue.poll()).isSameAs(d);
+        assertThat(queue.poll()).isSameAs(b);
+    }
+
+    @Test
+    public void shouldClearJobs() {
+        JobQueue queue = new JobQueue();
+        MapTile a = makeJob(10, 10, 10, 1);
+        queue.setJobs(new MapTile[]{a});
+        queue.clear();
+
+        assertThat(queue.isEmpty()).isTrue();
+        assertThat(a.state(NONE)).isTrue();
+    }
+}
@@ -0,0 +1,171 @@
+package org.oscim.layers.tile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.oscim.core.MapPosition;
+import org.oscim.core.Tile;
+import org.oscim.map.Animator;
+import org.oscim.map.Map;
+import org.oscim.map.ViewController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyFloat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TileManagerTest {
+
+    private static final int ZOOM = 10;
+
+    private int mTileSize;
+
+    private Animator mAnimator;
+    private TileManager mTileManager;
+
+    private MapPosition mPathStart;
+    private int mPathTiles;
+
+    @Before
+    public void setUp() {
+        /* other tests change the tile size */
+        mTileSize = Tile.SIZE;
+        Tile.SIZE = 256;
+
+        ViewController viewport = mock(ViewController.class);
+        when(viewport.getMinZoomLevel()).thenReturn(0);
+        when(viewport.getMaxZoomLevel()).thenReturn(20);
+        /* view of one tile */
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                float[] box = (float[]) invocation.getArguments()[0];
+                float s = Tile.SIZE / 2 - 1;
+                float[] extents = {s, s, -s, s, -s, -s, s, -s};
+                System.arraycopy(extents, 0, box, 0, 8);
+                return null;
+            }
+        }).when(viewport).getMapExtents(any(float[].class), anyFloat());
+
+        /* animation moving the map by mPathTiles to the right */
+        mAnimator = mock(Animator.class);
+        when(mAnimator.isActive()).thenReturn(true);
+        when(mAnimator.getProgress()).thenReturn(0f);
+        when(mAnimator.predictPosition(anyFloat(), any(MapPosition.class))).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                float progress = (Float) invocation.getArguments()[0];
+                MapPosition pos = (MapPosition) invocation.getArguments()[1];
+                pos.copy(mPathStart);
+                pos.x += progress * mPathTiles / (1 << ZOOM);
+                return true;
+            }
+        });
+
+        Map map = mock(Map.class);
+        when(map.viewport()).thenReturn(viewport);
+        when(map.animator()).thenReturn(mAnimator);
+        when(map.getScreenWidth()).thenReturn(800);
+        when(map.getScreenHeight()).thenReturn(600);
+
+        mTileManager = new TileManager(map, 100);
+    }
+
+    @After
+    public void tearDown() {
+        Tile.SIZE = mTileSize;
+    }
+
+    private static MapPosition position(double tileX) {
+        MapPosition pos = new MapPosition();
+        pos.setScale(1 << ZOOM);
+        pos.x = (tileX + 0.5) / (1 << ZOOM);
+        pos.y = 0.5;
+        return pos;
+    }
+
+    private void animate(MapPosition start, int tiles) {
+        mPathStart = start;
+        mPathTiles = tiles;
+    }
+
+    private List<MapTile> jobs() {
+        List<MapTile> jobs = new ArrayList<>();
+        MapTile tile;
+        while ((tile = mTileManager.getTileJob()) != null)
+            jobs.add(tile);
+        return jobs;
+    }
+
+    private static int countPrefetched(List<MapTile> tiles) {
+        int count = 0;
+        for (MapTile tile : tiles) {
+            if (tile.prefetch)
+                count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void shouldNotPrefetchByDefault() {
+        MapPosition pos = position(512);
+        animate(pos, 8);
+
+        assertThat(mTileManager.update(pos)).isTrue();
+        List<MapTile> jobs = jobs();
+        assertThat(jobs).isNotEmpty();
+        assertThat(countPrefetched(jobs)).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldQueuePredictedTilesAfterVisibleTiles() {
+        mTileManager.setPrefetchBudget(100);
+        MapPosition pos = position(512);
+        animate(pos, 8);
+
+        assertThat(mTileManager.update(pos)).isTrue();
+        List<MapTile> jobs = jobs();
+        int prefetched = countPrefetched(jobs);
+        assertThat(prefetched).isGreaterThan(0);
+
+        /* visible tiles first, then tiles along the path */
+        for (int i = 0; i < jobs.size(); i++)
+            assertThat(jobs.get(i).prefetch).isEqualTo(i >= jobs.size() - prefetched);
+
+        boolean end = false;
+        for (MapTile tile : jobs)
+            end |= tile.prefetch && tile.tileX >= 512 + 8;
+        assertThat(end).isTrue();
+    }
+
+    @Test
+    public void shouldRespectPrefetchBudget() {
+        mTileManager.setPrefetchBudget(2);
+        MapPosition pos = position(512);
+        animate(pos, 16);
+
+        assertThat(mTileManager.update(pos)).isTrue();
+        assertThat(countPrefetched(jobs())).isEqualTo(2);
+
+        /* still requested tiles count against the budget */
+        pos = position(513);
+        animate(pos, 16);
+        mTileManager.update(pos);
+        int prefetched = 0;
+        for (int x = 500; x < 540; x++) {
+            for (int y = (1 << ZOOM) / 2 - 2; y < (1 << ZOOM) / 2 + 2; y++) {
+                MapTile tile = mTileManager.getTile(x, y, ZOOM);
+                if (tile != null && tile.prefetch)
+                    prefetched++;
+            }
+        }
+        assertThat(prefetched).isLessThanOrEqualTo(2);
+    }
+}
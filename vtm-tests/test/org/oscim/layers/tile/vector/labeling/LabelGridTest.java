@@ -0,0 +1,96 @@
+package org.oscim.layers.tile.vector.labeling;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.oscim.backend.CanvasAdapter;
+import org.oscim.theme.styles.TextStyle;
+import org.oscim.utils.geom.OBB2D;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Mockito.RETURNS_MOCKS;
+import static org.mockito.Mockito.mock;
+
+public class LabelGridTest {
+
+    private Field mAdapter;
+    private Object mPrevAdapter;
+
+    @Before
+    public void setUp() throws Exception {
+        /* TextStyle needs paints */
+        mAdapter = CanvasAdapter.class.getDeclaredField("g");
+        mAdapter.setAccessible(true);
+        mPrevAdapter = mAdapter.get(null);
+        mAdapter.set(null, mock(CanvasAdapter.class, RETURNS_MOCKS));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mAdapter.set(null, mPrevAdapter);
+    }
+
+    private static Label label(Random r, TextStyle text, float extent) {
+        Label l = new Label();
+        l.text = text;
+        l.label = "l";
+        l.x = (r.nextFloat() * 2 - 1) * extent;
+        l.y = (r.nextFloat() * 2 - 1) * extent;
+        float dx = r.nextFloat() * 100;
+        float dy = (r.nextFloat() * 2 - 1) * 100;
+        l.x1 = l.x - dx;
+        l.y1 = l.y - dy;
+        l.x2 = l.x + dx;
+        l.y2 = l.y + dy;
+        l.width = 10 + r.nextFloat() * 100;
+        l.bbox = new OBB2D(l.x, l.y, l.x1, l.y1, l.width, 15);
+        return l;
+    }
+
+    @Test
+    public void shouldFindAllOverlappingLabelsInListOrder() {
+        Random r = new Random(1);
+        TextStyle text = TextStyle.builder().build();
+        LabelGrid grid = new LabelGrid();
+
+        /* a second pass reuses the grid */
+        for (int pass = 0; pass < 2; pass++) {
+            grid.clear(1000);
+
+            List<Label> labels = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                /* some labels are beyond the grid */
+                Label l = label(r, text, 1200);
+                grid.insert(l);
+                labels.add(0, l);
+                if (i % 7 == 0)
+                    grid.remove(l);
+            }
+
+            for (int i = 0; i < 200; i++) {
+                Label l = label(r, text, 1200);
+
+                List<Label> expected = new ArrayList<>();
+                for (Label o : labels) {
+                    if (!o.removed && (Label.bboxOverlaps(l, o, 100) || l.bbox.overlaps(o.bbox)))
+                        expected.add(o);
+                }
+
+                int n = grid.searchWay(l, 100);
+                List<Label> found = new ArrayList<>();
+                for (int j = 0; j < n; j++) {
+                    if (expected.contains(grid.results()[j]))
+                        found.add(grid.results()[j]);
+                    else
+                        assertThat(grid.results()[j].removed).isFalse();
+                }
+                assertThat(found).isEqualTo(expected);
+            }
+        }
+    }
+}
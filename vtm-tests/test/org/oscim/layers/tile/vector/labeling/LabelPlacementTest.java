@@ -0,0 +1,232 @@
+package org.oscim.layers.tile.vector.labeling;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.oscim.backend.CanvasAdapter;
+import org.oscim.core.MapPosition;
+import org.oscim.core.Tile;
+import org.oscim.layers.tile.MapTile;
+import org.oscim.layers.tile.TileRenderer;
+import org.oscim.layers.tile.TileSet;
+import org.oscim.layers.tile.ZoomLimiter;
+import org.oscim.map.Map;
+import org.oscim.map.ViewController;
+import org.oscim.renderer.bucket.SymbolBucket;
+import org.oscim.renderer.bucket.SymbolItem;
+import org.oscim.renderer.bucket.TextBucket;
+import org.oscim.renderer.bucket.TextItem;
+import org.oscim.theme.styles.TextStyle;
+import org.oscim.utils.pool.Inlist;
+import org.objenesis.ObjenesisStd;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.RETURNS_MOCKS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.oscim.layers.tile.MapTile.State.LOADING;
+import static org.oscim.layers.tile.MapTile.State.NEW_DATA;
+import static org.oscim.layers.tile.MapTile.State.READY;
+
+public class LabelPlacementTest {
+
+    private static final int ZOOM = 4;
+
+    private Field mAdapter;
+    private Object mPrevAdapter;
+    private int mTileSize;
+
+    private final List<MapTile> mTiles = new ArrayList<>();
+    private LabelPlacement mPlacement;
+    private LabelTask mTask;
+
+    @Before
+    public void setUp() throws Exception {
+        /* other tests change the tile size */
+        mTileSize = Tile.SIZE;
+        Tile.SIZE = 256;
+
+        /* TextStyle needs paints */
+        mAdapter = CanvasAdapter.class.getDeclaredField("g");
+        mAdapter.setAccessible(true);
+        mPrevAdapter = mAdapter.get(null);
+        mAdapter.set(null, mock(CanvasAdapter.class, RETURNS_MOCKS));
+
+        /* view centered on tile 8/8 */
+        final MapPosition pos = new MapPosition();
+        pos.x = (8 * Tile.SIZE + Tile.SIZE / 2) / (double) (Tile.SIZE << ZOOM);
+        pos.y = pos.x;
+        pos.scale = 1 << ZOOM;
+        pos.zoomLevel = ZOOM;
+
+        Map map = mock(Map.class);
+        ViewController viewport = mock(ViewController.class);
+        when(map.viewport()).thenReturn(viewport);
+        when(map.getWidth()).thenReturn(800);
+        when(map.getHeight()).thenReturn(600);
+        when(viewport.getMaxTilt()).thenReturn(65f);
+        when(viewport.getMapPosition(any(MapPosition.class))).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                ((MapPosition) invocation.getArguments()[0]).copy(pos);
+                return true;
+            }
+        });
+
+        TileRenderer renderer = mock(TileRenderer.class);
+        when(renderer.getVisibleTiles(any(TileSet.class), anyBoolean())).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) {
+                TileSet tileSet = (TileSet) invocation.getArguments()[0];
+                tileSet.tiles = mTiles.toArray(new MapTile[mTiles.size()]);
+                tileSet.cnt = mTiles.size();
+                return ZOOM;
+            }
+        });
+
+        ZoomLimiter zoomLimiter = mock(ZoomLimiter.class);
+        when(zoomLimiter.getMinZoom()).thenReturn(0);
+        when(zoomLimiter.getMaxZoom()).thenReturn(20);
+        when(zoomLimiter.getZoomLimit()).thenReturn(20);
+
+        mPlacement = new LabelPlacement(map, renderer, zoomLimiter);
+        mPlacement.setIncremental(true);
+        mTask = task();
+    }
+
+    /**
+     * LabelTask without GL matrices of SymbolBucket and TextBucket
+     */
+    private static LabelTask task() throws Exception {
+        ObjenesisStd objenesis = new ObjenesisStd();
+        SymbolBucket symbols = objenesis.newInstance(SymbolBucket.class);
+        set(SymbolBucket.class, symbols, "mSymbols", new Inlist.List<SymbolItem>());
+
+        LabelTask task = objenesis.newInstance(LabelTask.class);
+        set(LabelTask.class, task, "pos", new MapPosition());
+        set(LabelTask.class, task, "symbolLayer", symbols);
+        set(LabelTask.class, task, "textLayer", mock(TextBucket.class));
+        return task;
+    }
+
+    private static void set(Class<?> type, Object obj, String name, Object value)
+            throws Exception {
+        Field field = type.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(obj, value);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mAdapter.set(null, mPrevAdapter);
+        Tile.SIZE = mTileSize;
+    }
+
+    /**
+     * @param x caption position relative to the tile center
+     */
+    private static MapTile tile(int tileX, String label, int priority, float x) {
+        MapTile tile = new MapTile(tileX, 8, ZOOM);
+        tile.setState(LOADING);
+        tile.setState(NEW_DATA);
+        tile.setState(READY);
+
+        TextStyle text = TextStyle.builder()
+                .isCaption(true)
+                .priority(priority)
+                .build();
+        TextItem ti = TextItem.pool.get();
+        ti.set(Tile.SIZE / 2 + x, Tile.SIZE / 2, label, text);
+        ti.width = 100;
+
+        LabelTileData ld = new LabelTileData();
+        ld.labels.push(ti);
+        tile.addData(LabelLayer.LABEL_DATA, ld);
+        return tile;
+    }
+
+    @Test
+    public void shouldKeepLabelsOfUnchangedTiles() {
+        mTiles.add(tile(7, "a", 0, 0));
+        mTiles.add(tile(8, "b", 0, 0));
+        mTiles.add(tile(9, "c", 0, 0));
+
+        assertThat(mPlacement.updateLabels(mTask)).isTrue();
+        assertThat(mPlacement.getPlacedCount()).isEqualTo(3);
+
+        assertThat(mPlacement.updateLabels(mTask)).isTrue();
+        assertThat(mPlacement.getPlacedCount()).isEqualTo(3);
+        assertThat(mPlacement.getCollisionTests()).isEqualTo(0);
+        assertThat(mPlacement.isPending()).isFalse();
+    }
+
+    @Test
+    public void shouldPlaceNewTilesWhenBudgetIsExceeded() throws Exception {
+        mTiles.add(tile(8, "a", 0, 0));
+        assertThat(mPlacement.updateLabels(mTask)).isTrue();
+        assertThat(mPlacement.getPlacedCount()).isEqualTo(1);
+
+        /* any update exceeds the budget */
+        Field budget = LabelPlacement.class.getDeclaredField("mTimeBudget");
+        budget.setAccessible(true);
+        budget.setLong(mPlacement, 1);
+
+        mTiles.add(tile(7, "b", 0, 0));
+        mTiles.add(tile(9, "c", 0, 0));
+
+        assertThat(mPlacement.updateLabels(mTask)).isTrue();
+        assertThat(mPlacement.getPlacedCount()).isEqualTo(2);
+        assertThat(mPlacement.isPending()).isTrue();
+
+        assertThat(mPlacement.updateLabels(mTask)).isTrue();
+        assertThat(mPlacement.getPlacedCount()).isEqualTo(3);
+        assertThat(mPlacement.isPending()).isFalse();
+    }
+
+    @Test
+    public void shouldRetryLabelsWhenBlockingLabelIsDropped() {
+        MapTile a = tile(8, "a", 5, 0);
+        MapTile b = tile(9, "b", 0, -Tile.SIZE + 50);
+        mTiles.add(a);
+        mTiles.add(b);
+
+        /* b has higher priority and removes a */
+        assertThat(mPlacement.updateLabels(mTask)).isTrue();
+        assertThat(mPlacement.getPlacedCount()).isEqualTo(1);
+        assertThat(mPlacement.getRemovedCount()).isEqualTo(1);
+
+        mTiles.remove(b);
+        assertThat(mPlacement.updateLabels(mTask)).isTrue();
+        assertThat(mPlacement.getPlacedCount()).isEqualTo(1);
+
+        /* and a is kept */
+        assertThat(mPlacement.updateLabels(mTask)).isTrue();
+        assertThat(mPlacement.getPlacedCount()).isEqualTo(1);
+        assertThat(mPlacement.getCollisionTests()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldRetryRejectedLabelsWhenBlockingLabelIsDropped() {
+        MapTile a = tile(8, "a", 0, 0);
+        MapTile b = tile(9, "b", 5, -Tile.SIZE + 50);
+        mTiles.add(a);
+        mTiles.add(b);
+
+        /* a is placed first and b is rejected */
+        assertThat(mPlacement.updateLabels(mTask)).isTrue();
+        assertThat(mPlacement.getPlacedCount()).isEqualTo(1);
+        assertThat(mPlacement.getRejectedCount()).isEqualTo(1);
+
+        mTiles.remove(a);
+        assertThat(mPlacement.updateLabels(mTask)).isTrue();
+        assertThat(mPlacement.getPlacedCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,52 @@
+package org.oscim.renderer.bucket;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class LineBucketCompactTest {
+
+    private static byte[] unpack(short packed) {
+        ByteBuffer buf = ByteBuffer.allocate(2).order(ByteOrder.nativeOrder());
+        buf.putShort(packed);
+        return buf.array();
+    }
+
+    private static short dir(float u, int flag) {
+        return (short) (flag | (int) (u * LineBucket.DIR_SCALE) & 0xFFFFFFFC);
+    }
+
+    @Test
+    public void shouldKeepTextureBitsAndDirection() {
+        float[] dirs = {1, -1, 0.5f, -0.25f, 0, 0.7071f, 3.5f};
+        for (float ux : dirs) {
+            for (float uy : dirs) {
+                for (int flag = 0; flag < 3; flag++) {
+                    byte[] b = unpack(LineBucket.packDir(dir(ux, flag), dir(uy, 2 - flag)));
+
+                    /* decoded like in line_aa.glsl */
+                    assertThat(b[0] & 3).isEqualTo(flag);
+                    assertThat(b[1] & 3).isEqualTo(2 - flag);
+                    float dx = (b[0] - (b[0] & 3)) / LineBucket.COMPACT_DIR_SCALE;
+                    float dy = (b[1] - (b[1] & 3)) / LineBucket.COMPACT_DIR_SCALE;
+                    assertThat(Math.abs(dx - ux)).isLessThanOrEqualTo(1 / 16f + 0.001f);
+                    assertThat(Math.abs(dy - uy)).isLessThanOrEqualTo(1 / 16f + 0.001f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldLimitLongVectors() {
+        byte[] b = unpack(LineBucket.packDir(dir(12, 0), dir(-6, 1)));
+        float dx = (b[0] - (b[0] & 3)) / LineBucket.COMPACT_DIR_SCALE;
+        float dy = (b[1] - (b[1] & 3)) / LineBucket.COMPACT_DIR_SCALE;
+
+        assertThat(dx).isEqualTo(31 / 8f);
+        /* direction is kept */
+        assertThat(Math.abs(dy / dx + 0.5f)).isLessThan(0.05f);
+    }
+}
@@ -0,0 +1,33 @@
+package org.oscim.renderer.bucket;
+
+import org.junit.After;
+import org.junit.Test;
+import org.oscim.core.GeometryBuffer;
+import org.oscim.utils.Parameters;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class MeshBucketTest {
+
+    @After
+    public void tearDown() {
+        Parameters.JAVA_TESSELLATOR = false;
+    }
+
+    @Test
+    public void shouldTessellateEachPolygon() {
+        Parameters.JAVA_TESSELLATOR = true;
+
+        /* two squares, the second one with a hole */
+        GeometryBuffer geom = new GeometryBuffer(new float[]{
+                0, 0, 10, 0, 10, 10, 0, 10,
+                20, 0, 30, 0, 30, 10, 20, 10,
+                22, 2, 22, 4, 24, 4, 24, 2}, new int[]{8, 0, 8, 8, -1});
+
+        MeshBucket bucket = new MeshBucket(0);
+        bucket.addMesh(geom);
+        assertThat(bucket.numVertices).isEqualTo(12);
+        /* two triangles for the first square, eight for the second */
+        assertThat(bucket.numIndices).isEqualTo(3 * (2 + 8));
+    }
+}
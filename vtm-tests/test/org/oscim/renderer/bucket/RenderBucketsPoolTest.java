@@ -0,0 +1,43 @@
+package org.oscim.renderer.bucket;
+
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class RenderBucketsPoolTest {
+
+    @Test
+    public void shouldReuseDisposedBuckets() {
+        RenderBuckets.Pool pool = new RenderBuckets.Pool(4);
+
+        RenderBuckets buckets = pool.get();
+        LineBucket line = buckets.getLineBucket(1);
+        line.scale = 2;
+        line.roundCap = true;
+        line.setExtents(0, 10);
+        PolygonBucket poly = buckets.getPolygonBucket(2);
+
+        buckets.dispose();
+        assertThat(pool.getFill()).isEqualTo(1);
+        assertThat(buckets.get()).isNull();
+
+        RenderBuckets reused = pool.get();
+        assertThat(reused).isSameAs(buckets);
+
+        /* levels may differ from the previous tile */
+        assertThat(reused.getPolygonBucket(0)).isSameAs(poly);
+        LineBucket l = reused.getLineBucket(3);
+        assertThat(l).isSameAs(line);
+        assertThat(l.level).isEqualTo(3);
+        assertThat(l.scale).isEqualTo(1);
+        assertThat(l.roundCap).isFalse();
+        assertThat(l.next).isNull();
+        assertThat(reused.get()).isSameAs(poly);
+
+        /* not recycled without pool */
+        RenderBuckets single = new RenderBuckets();
+        LineBucket other = single.getLineBucket(1);
+        single.dispose();
+        assertThat(single.getLineBucket(1)).isNotSameAs(other);
+    }
+}
@@ -0,0 +1,166 @@
+package org.oscim.theme;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.oscim.core.GeometryBuffer.GeometryType;
+import org.oscim.core.Tag;
+import org.oscim.core.TagSet;
+import org.oscim.theme.styles.LineStyle;
+import org.oscim.theme.styles.RenderStyle;
+import org.xmlpull.v1.XmlPullParser;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class CompiledThemeTest {
+
+    private static final String THEME = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<rendertheme xmlns=\"http://opensciencemap.org/rendertheme\" version=\"1\" map-background=\"#fffcfa\">\n"
+            + "  <!-- comment -->\n"
+            + "  <stylemenu id=\"menu\" defaultvalue=\"base\" defaultlang=\"en\">\n"
+            + "    <layer id=\"base\" visible=\"true\"><name lang=\"en\" value=\"Base &amp; more\"/><cat id=\"roads\"/></layer>\n"
+            + "  </stylemenu>\n"
+            + "  <style-line id=\"road\" stroke=\"#ffffff\" width=\"1.2\"/>\n"
+            + "  <m k=\"highway\" cat=\"roads\">\n"
+            + "    <m v=\"primary|secondary\" zoom-min=\"10\"><line use=\"road\" stroke=\"#ffe000\"/></m>\n"
+            + "    <m v=\"residential\"><line use=\"road\"/></m>\n"
+            + "  </m>\n"
+            + "</rendertheme>\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldReplayXmlEvents() throws Exception {
+        XmlPullParser xml = XmlThemeBuilder.getXmlPullParserFactory().newPullParser();
+        xml.setInput(new ByteArrayInputStream(THEME.getBytes("UTF-8")), null);
+
+        byte[] compiled = CompiledTheme.compile(new ByteArrayInputStream(THEME.getBytes("UTF-8")));
+        assertThat(CompiledTheme.isCompiled(new ByteArrayInputStream(compiled))).isTrue();
+        assertThat(CompiledTheme.isCompiled(new BufferedInputStream(
+                new ByteArrayInputStream(THEME.getBytes("UTF-8"))))).isFalse();
+
+        XmlPullParser parser = XmlThemeBuilder.createPullParser(new ByteArrayInputStream(compiled));
+        assertThat(parser).isInstanceOf(CompiledThemeParser.class);
+
+        List<String> events = events(xml);
+        assertThat(events).contains("<name lang=en value=Base & more>");
+        assertThat(events(parser)).isEqualTo(events);
+    }
+
+    @Test
+    public void shouldCacheBySizeAndModificationTime() throws Exception {
+        File xml = folder.newFile("theme.xml");
+        File cacheDir = new File(folder.getRoot(), "cache");
+        write(xml, THEME);
+
+        CachedRenderTheme theme = new CachedRenderTheme(new ExternalRenderTheme(xml.getPath()), cacheDir);
+        byte[] compiled = read(theme.getRenderThemeAsStream());
+        assertThat(cacheDir.list()).hasSize(1);
+        assertThat(CompiledTheme.isCompiled(new ByteArrayInputStream(compiled))).isTrue();
+
+        /* served from cache */
+        File file = cacheDir.listFiles()[0];
+        assertThat(file.getName()).endsWith("-" + CompiledTheme.VERSION + CachedRenderTheme.FILE_EXTENSION);
+        assertThat(read(theme.getRenderThemeAsStream())).isEqualTo(compiled);
+
+        /* the theme is not read on a cache hit */
+        long modified = xml.lastModified();
+        write(xml, THEME.replace("#ffe000", "#ff0000"));
+        xml.setLastModified(modified);
+        assertThat(read(theme.getRenderThemeAsStream())).isEqualTo(compiled);
+
+        /* corrupt entries are compiled again */
+        write(file, "invalid");
+        byte[] changed = read(theme.getRenderThemeAsStream());
+        assertThat(changed).isNotEqualTo(compiled);
+
+        /* changed theme replaces the entry */
+        write(xml, THEME);
+        xml.setLastModified(modified + 2000);
+        assertThat(read(theme.getRenderThemeAsStream())).isEqualTo(compiled);
+        assertThat(cacheDir.list()).hasSize(1);
+    }
+
+    @Test
+    public void shouldCacheByContentWithoutSource() throws Exception {
+        File xml = folder.newFile("theme.xml");
+        File cacheDir = new File(folder.getRoot(), "cache");
+        write(xml, THEME);
+
+        CachedRenderTheme theme = new CachedRenderTheme(new ExternalRenderTheme(xml.getPath()), null, cacheDir);
+        byte[] compiled = read(theme.getRenderThemeAsStream());
+        assertThat(read(theme.getRenderThemeAsStream())).isEqualTo(compiled);
+        assertThat(cacheDir.list()).hasSize(1);
+
+        /* changed theme */
+        long modified = xml.lastModified();
+        write(xml, THEME.replace("#ffe000", "#ff0000"));
+        xml.setLastModified(modified);
+        assertThat(read(theme.getRenderThemeAsStream())).isNotEqualTo(compiled);
+        assertThat(cacheDir.list()).hasSize(2);
+    }
+
+    @Test
+    public void shouldBuildThemeFromCache() throws Exception {
+        File xml = folder.newFile("theme.xml");
+        write(xml, THEME);
+        File cacheDir = folder.newFolder("cache");
+
+        IRenderTheme expected = XmlThemeBuilder.read(new ExternalRenderTheme(xml.getPath()));
+        XmlThemeBuilder.read(new CachedRenderTheme(new ExternalRenderTheme(xml.getPath()), cacheDir));
+        IRenderTheme cached = XmlThemeBuilder.read(new CachedRenderTheme(new ExternalRenderTheme(xml.getPath()), cacheDir));
+
+        TagSet tags = new TagSet();
+        tags.add(new Tag("highway", "primary"));
+        RenderStyle[] styles = cached.matchElement(GeometryType.LINE, tags, 12);
+        assertThat(styles).hasSize(1);
+        assertThat(((LineStyle) styles[0]).color)
+                .isEqualTo(((LineStyle) expected.matchElement(GeometryType.LINE, tags, 12)[0]).color);
+        assertThat(cached.getMapBackground()).isEqualTo(expected.getMapBackground());
+        assertThat(cached.matchElement(GeometryType.LINE, tags, 8)).isNull();
+    }
+
+    private static List<String> events(XmlPullParser parser) throws Exception {
+        List<String> events = new ArrayList<>();
+        int eventType = parser.getEventType();
+        do {
+            if (eventType == XmlPullParser.START_TAG) {
+                StringBuilder sb = new StringBuilder("<").append(parser.getName());
+                for (int i = 0; i < parser.getAttributeCount(); i++)
+                    sb.append(' ').append(parser.getAttributeName(i))
+                            .append('=').append(parser.getAttributeValue(i));
+                events.add(sb.append('>').toString());
+            } else if (eventType == XmlPullParser.END_TAG) {
+                events.add("</" + parser.getName() + ">");
+            }
+            eventType = parser.next();
+        } while (eventType != XmlPullParser.END_DOCUMENT);
+        return events;
+    }
+
+    private static void write(File file, String content) throws IOException {
+        OutputStream os = new FileOutputStream(file);
+        os.write(content.getBytes("UTF-8"));
+        os.close();
+    }
+
+    private static byte[] read(InputStream is) throws IOException {
+        byte[] data = new byte[is.available()];
+        int n = 0;
+        while (n < data.length)
+            n += is.read(data, n, data.length - n);
+        is.close();
+        return data;
+    }
+}
@@ -0,0 +1,143 @@
+package org.oscim.theme;
+
+import org.junit.Test;
+import org.oscim.core.GeometryBuffer.GeometryType;
+import org.oscim.core.Tag;
+import org.oscim.core.TagSet;
+import org.oscim.theme.rule.Rule;
+import org.oscim.theme.rule.RuleBuilder;
+import org.oscim.theme.styles.RenderStyle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class RenderThemeTest {
+
+    private static final String[] VALUES = {"primary", "secondary", "residential",
+            "service", "track", "path"};
+    private static final GeometryType[] TYPES = {GeometryType.POINT, GeometryType.LINE,
+            GeometryType.POLY};
+
+    @Test
+    public void shouldMatchConcurrently() throws Exception {
+        final RenderTheme theme = createTheme();
+        /* smaller than the number of tag sets, to evict while matching */
+        theme.setMatchingCacheSize(4);
+
+        /* expected results, without cache */
+        final RenderStyle[][][][] expected = new RenderStyle[TYPES.length][VALUES.length][20][];
+        for (int t = 0; t < TYPES.length; t++) {
+            for (int v = 0; v < VALUES.length; v++) {
+                for (int z = 0; z < 20; z++)
+                    expected[t][v][z] = createTheme().matchElement(TYPES[t], tags(v), z);
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int n = 0; n < 4; n++) {
+            final int seed = n;
+            results.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    int errors = 0;
+                    for (int i = 0; i < 20000; i++) {
+                        int t = (i + seed) % TYPES.length;
+                        int v = (i / 3 + seed) % VALUES.length;
+                        int z = (i * 7 + seed) % 20;
+                        RenderStyle[] styles = theme.matchElement(TYPES[t], tags(v), z);
+                        if (!sameStyles(styles, expected[t][v][z]))
+                            errors++;
+                    }
+                    return errors;
+                }
+            }));
+        }
+        for (Future<Integer> result : results)
+            assertThat(result.get()).isEqualTo(0);
+        executor.shutdown();
+
+        assertThat(theme.getMatchingCacheSize()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() {
+        RenderTheme theme = createTheme();
+        theme.setMatchingCacheSize(8);
+
+        RenderStyle[] hot = theme.matchElement(GeometryType.LINE, tags(0), 5);
+        for (int i = 0; i < 100; i++) {
+            TagSet tags = new TagSet();
+            tags.add(new Tag("highway", "primary"));
+            tags.add(new Tag("ref", String.valueOf(i)));
+            theme.matchElement(GeometryType.LINE, tags, 5);
+            assertThat(theme.getMatchingCacheCount(GeometryType.LINE)).isLessThanOrEqualTo(8);
+
+            /* bypass the previous item of the thread */
+            theme.matchElement(GeometryType.LINE, tags(1), 5);
+            assertThat(theme.matchElement(GeometryType.LINE, tags(0), 5)).isSameAs(hot);
+        }
+        assertThat(theme.getMatchingCacheCount(GeometryType.POLY)).isEqualTo(0);
+    }
+
+    private static TagSet tags(int value) {
+        TagSet tags = new TagSet();
+        tags.add(new Tag("highway", VALUES[value]));
+        tags.add(new Tag("name", "Street " + value));
+        return tags;
+    }
+
+    /**
+     * Styles of different themes are compared by rule.
+     */
+    private static boolean sameStyles(RenderStyle[] a, RenderStyle[] b) {
+        if (a == null || b == null)
+            return a == b;
+        if (a.length != b.length)
+            return false;
+        for (int i = 0; i < a.length; i++) {
+            if (((TestStyle) a[i]).id != ((TestStyle) b[i]).id)
+                return false;
+        }
+        return true;
+    }
+
+    private static RenderTheme createTheme() {
+        List<RuleBuilder> builders = new ArrayList<>();
+        int id = 0;
+        for (int i = 0; i < VALUES.length; i++) {
+            builders.add(RuleBuilder.create("highway", VALUES[i])
+                    .zoom((byte) i, (byte) (i + 10))
+                    .addStyle(new TestStyle(id++)));
+        }
+        builders.add(RuleBuilder.create("highway", null)
+                .zoom((byte) 5, (byte) 15)
+                .addStyle(new TestStyle(id)));
+
+        int[] level = {0};
+        Rule[] rules = new Rule[builders.size()];
+        for (int i = 0; i < rules.length; i++)
+            rules[i] = builders.get(i).onComplete(level);
+
+        return new RenderTheme(0, 0, 1, rules, level[0]);
+    }
+
+    static class TestStyle extends RenderStyle<TestStyle> {
+        final int id;
+
+        TestStyle(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public TestStyle current() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.oscim.theme.rule;
+
+import org.junit.Test;
+import org.oscim.core.GeometryBuffer.GeometryType;
+import org.oscim.core.Tag;
+import org.oscim.core.TagSet;
+import org.oscim.theme.RenderTheme;
+import org.oscim.theme.rule.Rule.Element;
+import org.oscim.theme.rule.Rule.Selector;
+import org.oscim.theme.styles.RenderStyle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+/**
+ * Compares the indexed matching of RenderTheme with a plain walk over all
+ * rules on random themes.
+ */
+public class RuleIndexTest {
+
+    private static final String[] KEYS = {"highway", "building", "landuse", "natural",
+            "amenity", "waterway", "railway", "area", "tunnel", "layer"};
+    private static final String[] VALUES = {"yes", "no", "primary", "secondary",
+            "residential", "forest", "water", "park", "river", "rail"};
+    private static final int[] ELEMENTS = {Element.NODE, Element.LINE, Element.POLY,
+            Element.WAY, Element.ANY};
+    private static final GeometryType[] TYPES = {GeometryType.POINT, GeometryType.LINE,
+            GeometryType.POLY};
+
+    private Random random;
+
+    @Test
+    public void shouldMatchLikeRuleWalk() {
+        int matched = 0;
+        for (int seed = 0; seed < 20; seed++) {
+            random = new Random(seed);
+
+            RuleBuilder[] builders = new RuleBuilder[30];
+            for (int i = 0; i < builders.length; i++)
+                builders[i] = randomRule(0);
+
+            int[] level = {0};
+            Rule[] rules = new Rule[builders.length];
+            for (int i = 0; i < rules.length; i++)
+                rules[i] = builders[i].onComplete(level);
+
+            RenderTheme theme = new RenderTheme(0, 0, 1, rules, level[0]);
+
+            for (int n = 0; n < 2000; n++) {
+                TagSet tags = randomTags();
+                GeometryType type = TYPES[random.nextInt(TYPES.length)];
+                int zoom = random.nextInt(20);
+
+                RenderStyle[] expected = walk(rules, type, tags.asArray(), zoom);
+                RenderStyle[] actual = theme.matchElement(type, tags, zoom);
+
+                assertThat(actual).as(tags + " " + type + " " + zoom).isEqualTo(expected);
+                if (expected != null)
+                    matched++;
+            }
+        }
+        assertThat(matched).isGreaterThan(1000);
+    }
+
+    private RuleBuilder randomRule(int depth) {
+        String k = null;
+        String v = null;
+        switch (random.nextInt(7)) {
+            case 0:
+                break;
+            case 1:
+                k = randomKey();
+                break;
+            case 2:
+                v = randomValue();
+                break;
+            case 3:
+                k = randomKey();
+                v = randomValue();
+                break;
+            case 4:
+                k = randomKey() + "|" + randomKey();
+                v = randomValue() + "|" + randomValue();
+                break;
+            case 5:
+                k = randomKey();
+                v = "~|" + randomValue();
+                break;
+            default:
+                k = randomKey() + "|" + randomKey();
+                v = "-|" + randomValue();
+                break;
+        }
+
+        RuleBuilder b = RuleBuilder.create(k, v);
+        b.element(ELEMENTS[random.nextInt(ELEMENTS.length)]);
+        int zoomMin = random.nextInt(20);
+        b.zoom((byte) zoomMin, (byte) (zoomMin + random.nextInt(10)));
+
+        int selector = Selector.ANY;
+        if (random.nextInt(4) == 0)
+            selector |= Selector.FIRST;
+        if (depth > 0 && random.nextInt(4) == 0)
+            selector |= Selector.WHEN_MATCHED;
+        b.select(selector);
+
+        if (random.nextInt(3) > 0)
+            b.addStyle(new TestStyle());
+
+        if (depth < 3 && random.nextInt(3) == 0) {
+            int n = random.nextInt(16);
+            for (int i = 0; i < n; i++)
+                b.addSubRule(randomRule(depth + 1));
+        }
+        return b;
+    }
+
+    private TagSet randomTags() {
+        TagSet tags = new TagSet();
+        int n = random.nextInt(5);
+        for (int i = 0; i < n; i++)
+            tags.add(new Tag(randomKey(), randomValue()));
+        return tags;
+    }
+
+    private String randomKey() {
+        return KEYS[random.nextInt(KEYS.length)];
+    }
+
+    private String randomValue() {
+        return VALUES[random.nextInt(VALUES.length)];
+    }
+
+    /**
+     * Matching of all rules without index, as in RenderTheme.
+     */
+    private static RenderStyle[] walk(Rule[] rules, GeometryType type, Tag[] tags, int zoom) {
+        int element = type == GeometryType.POINT ? Element.NODE
+                : type == GeometryType.LINE ? Element.LINE : Element.POLY;
+
+        List<RenderStyle> matches = new ArrayList<>();
+        for (Rule rule : rules)
+            walk(rule, element, tags, 1 << zoom, matches);
+
+        List<RenderStyle> result = new ArrayList<>();
+        for (RenderStyle style : matches)
+            if (!result.contains(style))
+                result.add(style);
+
+        return result.isEmpty() ? null : result.toArray(new RenderStyle[result.size()]);
+    }
+
+    private static boolean walk(Rule rule, int type, Tag[] tags, int zoomMask, List<RenderStyle> result) {
+        if ((rule.element & type) == 0 || (rule.zoom & zoomMask) == 0 || !rule.matchesTags(tags))
+            return false;
+
+        boolean matched = false;
+        for (Rule r : rule.subRules) {
+            if (rule.selectFirstMatch ? (matched ^ r.selectWhenMatched) : (r.selectWhenMatched && !matched))
+                continue;
+            if (walk(r, type, tags, zoomMask, result))
+                matched = true;
+        }
+
+        if (rule.styles.length == 0)
+            return matched;
+
+        result.addAll(Arrays.asList(rule.styles));
+        return true;
+    }
+
+    static class TestStyle extends RenderStyle<TestStyle> {
+        @Override
+        public TestStyle current() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package org.oscim.tiling;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.GeometryBuffer.GeometryType;
+import org.oscim.core.MapElement;
+import org.oscim.core.Tag;
+import org.oscim.core.TagSet;
+import org.oscim.core.Tile;
+import org.oscim.layers.tile.MapTile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class OverzoomTileCacheTest {
+
+    private int mTileSize;
+
+    @Before
+    public void setUp() {
+        /* other tests change the tile size, the elements are laid out for the default */
+        mTileSize = Tile.SIZE;
+        Tile.SIZE = 512;
+    }
+
+    @After
+    public void tearDown() {
+        Tile.SIZE = mTileSize;
+    }
+
+    /**
+     * Data source of a line, a polygon and a point spanning the tile.
+     */
+    private static class TestDataSource implements ITileDataSource {
+        int queries;
+
+        @Override
+        public void query(MapTile tile, ITileDataSink sink) {
+            queries++;
+            MapElement e = new MapElement();
+
+            e.startLine();
+            e.addPoint(-10, 128);
+            e.addPoint(300, 129);
+            e.tags.add(new Tag("highway", "primary"));
+            if (sink.accept(e.type, e.tags))
+                sink.process(e);
+
+            e.clear();
+            e.tags.clear();
+            e.startPolygon();
+            e.addPoint(10, 10);
+            e.addPoint(240, 10);
+            e.addPoint(240, 240);
+            e.addPoint(10, 240);
+            e.startHole();
+            e.addPoint(100, 100);
+            e.addPoint(100, 150);
+            e.addPoint(150, 150);
+            e.tags.add(new Tag("landuse", "forest"));
+            e.setLayer(3);
+            if (sink.accept(e.type, e.tags))
+                sink.process(e);
+
+            e.clear();
+            e.tags.clear();
+            e.startPoints();
+            e.addPoint(200, 60);
+            e.tags.add(new Tag("place", "city"));
+            if (sink.accept(e.type, e.tags))
+                sink.process(e);
+
+            sink.completed(QueryResult.SUCCESS);
+        }
+
+        @Override
+        public void dispose() {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    }
+
+    private static List<String> query(ITileDataSource dataSource, MapTile tile, final GeometryType skip) {
+        final List<String> elements = new ArrayList<>();
+        dataSource.query(tile, new ITileDataSink() {
+            @Override
+            public boolean accept(GeometryType type, TagSet tags) {
+                return type != skip;
+            }
+
+            @Override
+            public void process(MapElement element) {
+                elements.add(element.tags + " " + element.layer + " " + element);
+            }
+
+            @Override
+            public void setTileImage(Bitmap bitmap) {
+            }
+
+            @Override
+            public void completed(QueryResult result) {
+                elements.add(result.toString());
+            }
+        });
+        return elements;
+    }
+
+    @Test
+    public void shouldClipChildrenFromCachedParent() {
+        TestDataSource source = new TestDataSource();
+        OverzoomTileCache cache = new OverzoomTileCache(4);
+        ITileDataSource cached = new OverzoomTileDataSource(source, 10, cache);
+        ITileDataSource uncached = new OverzoomTileDataSource(new TestDataSource(), 10);
+
+        for (int x = 0; x < 2; x++) {
+            for (int y = 0; y < 2; y++) {
+                MapTile tile = new MapTile(1024 + x, 1024 + y, 11);
+                assertThat(query(cached, tile, null)).isEqualTo(query(uncached, tile, null));
+            }
+        }
+        /* elements the first child did not accept are still cached */
+        MapTile tile = new MapTile(2048, 2048, 12);
+        assertThat(query(cached, new MapTile(1024, 1024, 11), GeometryType.LINE)).hasSize(3);
+        assertThat(query(cached, tile, null)).isEqualTo(query(uncached, tile, null));
+
+        assertThat(source.queries).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(5);
+        assertThat(cache.getHitRate()).isEqualTo(5 / 6f);
+    }
+
+    @Test
+    public void shouldNotCacheFailedTiles() {
+        final int[] queries = new int[1];
+        OverzoomTileCache cache = new OverzoomTileCache(4);
+        ITileDataSource dataSource = new OverzoomTileDataSource(new ITileDataSource() {
+            @Override
+            public void query(MapTile tile, ITileDataSink sink) {
+                queries[0]++;
+                sink.completed(QueryResult.TILE_NOT_FOUND);
+            }
+
+            @Override
+            public void dispose() {
+            }
+
+            @Override
+            public void cancel() {
+            }
+        }, 10, cache);
+
+        MapTile tile = new MapTile(1024, 1024, 11);
+        assertThat(query(dataSource, tile, null)).containsExactly("TILE_NOT_FOUND");
+        assertThat(query(dataSource, tile, null)).containsExactly("TILE_NOT_FOUND");
+        assertThat(queries[0]).isEqualTo(2);
+        assertThat(cache.getHitRate()).isEqualTo(0f);
+    }
+}
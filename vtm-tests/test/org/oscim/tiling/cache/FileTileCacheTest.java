@@ -0,0 +1,168 @@
+package org.oscim.tiling.cache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.oscim.core.Tile;
+import org.oscim.tiling.ITileCache.TileReader;
+import org.oscim.tiling.ITileCache.TileWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class FileTileCacheTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("vtm", "cache");
+        dir.delete();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null)
+            for (File f : files)
+                f.delete();
+        dir.delete();
+    }
+
+    static void write(FileTileCache cache, Tile tile, byte[] data) throws IOException {
+        TileWriter writer = cache.writeTile(tile);
+        writer.getOutputStream().write(data);
+        writer.complete(true);
+    }
+
+    static byte[] read(FileTileCache cache, Tile tile) throws IOException {
+        TileReader reader = cache.getTile(tile);
+        if (reader == null)
+            return null;
+        InputStream is = reader.getInputStream();
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        byte[] buf = new byte[100];
+        int n;
+        while ((n = is.read(buf)) >= 0)
+            os.write(buf, 0, n);
+        return os.toByteArray();
+    }
+
+    static byte[] data(Tile tile, int size) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++)
+            data[i] = (byte) (tile.tileX + tile.tileY * 3 + i);
+        return data;
+    }
+
+    @Test
+    public void shouldReadWrittenTiles() throws IOException {
+        FileTileCache cache = new FileTileCache(dir, 4096);
+        Tile a = new Tile(1, 2, (byte) 3);
+        Tile b = new Tile(2, 1, (byte) 3);
+        write(cache, a, data(a, 300));
+
+        assertThat(read(cache, a)).isEqualTo(data(a, 300));
+        assertThat(read(cache, b)).isNull();
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getBytesRead()).isEqualTo(300);
+
+        /* rewritten tiles replace the old ones */
+        write(cache, a, data(b, 10));
+        assertThat(read(cache, a)).isEqualTo(data(b, 10));
+        assertThat(cache.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldSurviveRestart() throws IOException {
+        FileTileCache cache = new FileTileCache(dir, 4096);
+        for (int x = 0; x < 40; x++)
+            write(cache, new Tile(x, 7, (byte) 10), data(new Tile(x, 7, (byte) 10), 200));
+        cache.flush();
+
+        cache = new FileTileCache(dir, 4096);
+        assertThat(cache.getCount()).isEqualTo(40);
+        for (int x = 0; x < 40; x++) {
+            Tile t = new Tile(x, 7, (byte) 10);
+            assertThat(read(cache, t)).isEqualTo(data(t, 200));
+        }
+    }
+
+    @Test
+    public void shouldEvictOldTilesAndKeepRecentlyUsed() throws IOException {
+        FileTileCache cache = new FileTileCache(dir, 4096);
+        cache.setCacheSize(3 * 4096);
+        Tile hot = new Tile(0, 0, (byte) 10);
+        write(cache, hot, data(hot, 500));
+
+        for (int x = 1; x < 100; x++) {
+            Tile t = new Tile(x, 0, (byte) 10);
+            write(cache, t, data(t, 500));
+            read(cache, hot);
+        }
+
+        assertThat(cache.getSize()).isLessThanOrEqualTo(3 * 4096);
+        assertThat(read(cache, new Tile(1, 0, (byte) 10))).isNull();
+        assertThat(read(cache, new Tile(99, 0, (byte) 10))).isNotNull();
+        assertThat(read(cache, hot)).isEqualTo(data(hot, 500));
+    }
+
+    @Test
+    public void shouldKeepSpaceWhenCopyingHotTiles() throws IOException {
+        /* four tiles fill a segment */
+        FileTileCache cache = new FileTileCache(dir, 1024);
+        cache.setCacheSize(2 * 1024);
+        for (int x = 0; x < 8; x++) {
+            Tile t = new Tile(x, 0, (byte) 10);
+            write(cache, t, data(t, 200));
+        }
+        /* the tiles of the oldest segment are copied to the next one */
+        for (int x = 0; x < 4; x++)
+            read(cache, new Tile(x, 0, (byte) 10));
+
+        Tile t = new Tile(8, 0, (byte) 10);
+        write(cache, t, data(t, 200));
+
+        assertThat(read(cache, t)).isEqualTo(data(t, 200));
+        assertThat(read(cache, new Tile(0, 0, (byte) 10))).isNotNull();
+        assertThat(cache.getSize()).isLessThanOrEqualTo(3 * 1024);
+    }
+
+    @Test
+    public void shouldWriteConcurrently() throws Exception {
+        final FileTileCache cache = new FileTileCache(dir, 64 * 1024);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final int y = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int x = 0; x < 200; x++) {
+                            Tile t = new Tile(x, y, (byte) 12);
+                            write(cache, t, data(t, 100 + x));
+                        }
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread t : threads)
+            t.join();
+
+        assertThat(cache.getCount()).isEqualTo(800);
+        for (int y = 0; y < threads.length; y++) {
+            for (int x = 0; x < 200; x++) {
+                Tile t = new Tile(x, y, (byte) 12);
+                assertThat(read(cache, t)).isEqualTo(data(t, 100 + x));
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package org.oscim.tiling.source;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.oscim.core.Tile;
+import org.oscim.layers.tile.JobQueue;
+import org.oscim.layers.tile.MapTile;
+import org.oscim.tiling.source.bitmap.BitmapTileSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.api.Assertions.fail;
+import static org.oscim.layers.tile.MapTile.State.LOADING;
+
+public class OkHttpPipelineTest {
+
+    private HttpServer server;
+    private final ConcurrentHashMap<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+    private UrlTileSource tileSource;
+    private OkHttpPipeline pipeline;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String path = exchange.getRequestURI().getPath();
+                AtomicInteger cnt = new AtomicInteger();
+                AtomicInteger prev = requests.putIfAbsent(path, cnt);
+                (prev != null ? prev : cnt).incrementAndGet();
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                byte[] body = path.getBytes();
+                int code = path.startsWith("/404") ? 404 : 200;
+                exchange.sendResponseHeaders(code, body.length);
+                OutputStream os = exchange.getResponseBody();
+                os.write(body);
+                os.close();
+            }
+        });
+        server.start();
+
+        pipeline = new OkHttpPipeline();
+        tileSource = BitmapTileSource.builder()
+                .url("http://127.0.0.1:" + server.getAddress().getPort())
+                .httpFactory(pipeline)
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        gate.countDown();
+        server.stop(0);
+    }
+
+    private int requestCount(Tile tile) {
+        AtomicInteger cnt = requests.get("/" + tile.zoomLevel + "/" + tile.tileX + "/" + tile.tileY + ".png");
+        return cnt == null ? 0 : cnt.get();
+    }
+
+    static String readString(InputStream is) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        byte[] buf = new byte[256];
+        int n;
+        while ((n = is.read(buf)) >= 0)
+            os.write(buf, 0, n);
+        return os.toString();
+    }
+
+    @Test
+    public void shouldFetchTile() throws IOException {
+        HttpEngine engine = tileSource.getHttpEngine();
+        Tile tile = new Tile(1, 2, (byte) 3);
+        engine.sendRequest(tile);
+
+        assertThat(readString(engine.read())).isEqualTo("/3/1/2.png");
+        assertThat(engine.requestCompleted(true)).isTrue();
+        assertThat(pipeline.getPending()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldFailOnHttpError() throws IOException {
+        UrlTileSource source = BitmapTileSource.builder()
+                .url("http://127.0.0.1:" + server.getAddress().getPort() + "/404")
+                .httpFactory(pipeline)
+                .build();
+        HttpEngine engine = source.getHttpEngine();
+        engine.sendRequest(new Tile(1, 2, (byte) 3));
+        try {
+            engine.read();
+            fail("expected IOException");
+        } catch (IOException e) {
+            assertThat(e.getMessage()).contains("404");
+        }
+        engine.requestCompleted(false);
+    }
+
+    @Test
+    public void shouldCoalesceIdenticalRequests() throws Exception {
+        gate = new CountDownLatch(1);
+        final Tile tile = new Tile(5, 6, (byte) 7);
+        final String[] results = new String[2];
+        Thread[] threads = new Thread[2];
+        for (int i = 0; i < 2; i++) {
+            final int idx = i;
+            final HttpEngine engine = tileSource.getHttpEngine();
+            engine.sendRequest(tile);
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        results[idx] = readString(engine.read());
+                        engine.requestCompleted(true);
+                    } catch (IOException e) {
+                        results[idx] = e.toString();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        gate.countDown();
+        for (Thread t : threads)
+            t.join();
+
+        assertThat(results[0]).isEqualTo("/7/5/6.png");
+        assertThat(results[1]).isEqualTo("/7/5/6.png");
+        assertThat(requestCount(tile)).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldCancelSharedRequestWhenAllEnginesClosed() throws Exception {
+        gate = new CountDownLatch(1);
+        Tile tile = new Tile(5, 6, (byte) 7);
+        HttpEngine a = tileSource.getHttpEngine();
+        HttpEngine b = tileSource.getHttpEngine();
+        a.sendRequest(tile);
+        b.sendRequest(tile);
+        assertThat(pipeline.getPending()).isEqualTo(1);
+
+        /* b still waits for the request */
+        a.close();
+        assertThat(pipeline.getPending()).isEqualTo(1);
+        try {
+            a.read();
+            fail("expected IOException");
+        } catch (IOException e) {
+            /* closed */
+        }
+        a.requestCompleted(false);
+
+        b.close();
+        assertThat(pipeline.getPending()).isEqualTo(0);
+        b.requestCompleted(false);
+    }
+
+    @Test
+    public void shouldPrefetchQueuedJobsAndDropStaleOnes() throws Exception {
+        gate = new CountDownLatch(1);
+        JobQueue queue = new JobQueue();
+        queue.setListener(pipeline.prefetcher(tileSource, 8));
+
+        MapTile a = job(10, 10, 10);
+        MapTile b = job(11, 10, 10);
+        queue.setJobs(new MapTile[]{a, b});
+        assertThat(pipeline.getPending()).isEqualTo(2);
+
+        /* b is not requested anymore */
+        queue.setJobs(new MapTile[]{a});
+        assertThat(pipeline.getPending()).isEqualTo(1);
+
+        /* the loader takes over the prefetched request */
+        gate.countDown();
+        HttpEngine engine = tileSource.getHttpEngine();
+        engine.sendRequest(queue.poll());
+        assertThat(readString(engine.read())).isEqualTo("/10/10/10.png");
+        engine.requestCompleted(true);
+
+        assertThat(requestCount(a)).isEqualTo(1);
+        assertThat(pipeline.getPending()).isEqualTo(0);
+    }
+
+    static MapTile job(int x, int y, int z) {
+        MapTile t = new MapTile(x, y, z);
+        t.setState(LOADING);
+        return t;
+    }
+}
@@ -0,0 +1,148 @@
+package org.oscim.tiling.source;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.oscim.core.Tile;
+import org.oscim.tiling.ITileCache.Metadata;
+import org.oscim.tiling.ITileCache.TileReader;
+import org.oscim.tiling.ITileCache.TileWriter;
+import org.oscim.tiling.cache.FileTileCache;
+import org.oscim.tiling.source.bitmap.BitmapTileSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class TileRevalidatorTest {
+
+    private HttpServer server;
+    private volatile String content = "v1";
+    private final AtomicInteger notModified = new AtomicInteger();
+    private File dir;
+    private FileTileCache cache;
+    private UrlTileSource tileSource;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String etag = "\"" + content + "\"";
+                exchange.getResponseHeaders().add("ETag", etag);
+                exchange.getResponseHeaders().add("Cache-Control", "max-age=60");
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    notModified.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                byte[] body = content.getBytes();
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream os = exchange.getResponseBody();
+                os.write(body);
+                os.close();
+            }
+        });
+        server.start();
+
+        dir = File.createTempFile("vtm", "cache");
+        dir.delete();
+        cache = new FileTileCache(dir, 4096);
+
+        tileSource = BitmapTileSource.builder()
+                .url("http://127.0.0.1:" + server.getAddress().getPort())
+                .build();
+        tileSource.setCache(cache);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        File[] files = dir.listFiles();
+        if (files != null)
+            for (File f : files)
+                f.delete();
+        dir.delete();
+    }
+
+    private void putExpired(Tile tile, String data, String etag) throws IOException {
+        TileWriter writer = cache.writeTile(tile);
+        writer.getOutputStream().write(data.getBytes());
+        writer.setMetadata(new Metadata(etag, 0, 1));
+        writer.complete(true);
+    }
+
+    private String readCached(Tile tile) throws IOException {
+        TileReader reader = cache.getTile(tile);
+        InputStream is = reader.getInputStream();
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        int b;
+        while ((b = is.read()) >= 0)
+            os.write(b);
+        return os.toString();
+    }
+
+    @Test
+    public void shouldRenewMetadataWhenNotModified() throws IOException {
+        Tile tile = new Tile(1, 2, (byte) 3);
+        putExpired(tile, "v1", "\"v1\"");
+
+        TileRevalidator revalidator = new TileRevalidator(tileSource);
+        assertThat(fetch(revalidator, tile)).isFalse();
+
+        assertThat(notModified.get()).isEqualTo(1);
+        assertThat(readCached(tile)).isEqualTo("v1");
+        Metadata metadata = cache.getTile(tile).getMetadata();
+        assertThat(metadata.etag).isEqualTo("\"v1\"");
+        assertThat(metadata.isExpired(System.currentTimeMillis())).isFalse();
+    }
+
+    @Test
+    public void shouldReplaceChangedTile() throws IOException {
+        Tile tile = new Tile(1, 2, (byte) 3);
+        putExpired(tile, "v1", "\"v1\"");
+        content = "v2";
+
+        TileRevalidator revalidator = new TileRevalidator(tileSource);
+        assertThat(fetch(revalidator, tile)).isTrue();
+
+        assertThat(notModified.get()).isEqualTo(0);
+        assertThat(readCached(tile)).isEqualTo("v2");
+        assertThat(cache.getTile(tile).getMetadata().etag).isEqualTo("\"v2\"");
+    }
+
+    @Test
+    public void shouldParseCacheHeaders() {
+        Metadata m = HttpCacheHeaders.parse("\"abc\"", "Wed, 21 Oct 2015 07:28:00 GMT",
+                "public, max-age=100", null, 1000);
+        assertThat(m.etag).isEqualTo("\"abc\"");
+        assertThat(m.lastModified).isEqualTo(1445412480000L);
+        assertThat(m.expires).isEqualTo(101000);
+        assertThat(HttpCacheHeaders.formatDate(m.lastModified)).isEqualTo("Wed, 21 Oct 2015 07:28:00 GMT");
+
+        m = HttpCacheHeaders.parse(null, null, null, "0", 1000);
+        assertThat(m.isExpired(1000)).isTrue();
+        assertThat(HttpCacheHeaders.parse(null, null, null, null, 1000)).isNotNull();
+        assertThat(HttpCacheHeaders.parse(null, null, null, null, 1000).isExpired(Long.MAX_VALUE)).isFalse();
+    }
+
+    private boolean fetch(TileRevalidator revalidator, Tile tile) {
+        HttpEngine conn = tileSource.getHttpEngine();
+        try {
+            return revalidator.fetch(conn, tile, cache.getTile(tile).getMetadata());
+        } finally {
+            conn.close();
+        }
+    }
+}
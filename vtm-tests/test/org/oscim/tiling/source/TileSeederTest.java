@@ -0,0 +1,211 @@
+package org.oscim.tiling.source;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.oscim.core.BoundingBox;
+import org.oscim.core.Tile;
+import org.oscim.tiling.ITileCache;
+import org.oscim.tiling.cache.FileTileCache;
+import org.oscim.tiling.source.bitmap.BitmapTileSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class TileSeederTest {
+
+    private final Map<Tile, byte[]> cache = new ConcurrentHashMap<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private UrlTileSource tileSource;
+
+    @Before
+    public void setUp() {
+        tileSource = BitmapTileSource.builder()
+                .url("http://localhost")
+                .httpFactory(new HttpEngine.Factory() {
+                    @Override
+                    public HttpEngine create(UrlTileSource tileSource) {
+                        return new FakeEngine();
+                    }
+                })
+                .build();
+        tileSource.setCache(new MemoryCache());
+    }
+
+    @Test
+    public void shouldSeedAllTilesOfRegion() throws InterruptedException {
+        TileSeeder seeder = new TileSeeder(tileSource);
+        seeder.setThreads(3);
+        BoundingBox box = new BoundingBox(52.3, 13.2, 52.6, 13.6);
+
+        TileSeeder.Stats stats = seeder.seed(box, 8, 12);
+
+        assertThat(stats.total).isEqualTo(seeder.countTiles(box, 8, 12));
+        assertThat(stats.loaded).isEqualTo(stats.total);
+        assertThat(stats.failed).isEqualTo(0);
+        assertThat((long) cache.size()).isEqualTo(stats.total);
+        assertThat(new String(cache.get(new Tile(550, 335, (byte) 10)))).isEqualTo("10/550/335");
+
+        long bytes = 0;
+        for (byte[] data : cache.values())
+            bytes += data.length;
+        assertThat(stats.bytes).isEqualTo(bytes);
+    }
+
+    @Test
+    public void shouldSkipCachedTiles() throws InterruptedException {
+        BoundingBox box = new BoundingBox(52.3, 13.2, 52.6, 13.6);
+        new TileSeeder(tileSource).seed(box, 8, 10);
+        int fetched = requests.get();
+
+        TileSeeder.Stats stats = new TileSeeder(tileSource).seed(box, 8, 11);
+
+        assertThat(stats.skipped).isEqualTo(fetched);
+        assertThat(stats.loaded).isEqualTo(stats.total - fetched);
+        assertThat(requests.get()).isEqualTo((int) stats.total);
+    }
+
+    @Test
+    public void shouldSeedIntoFileTileCache() throws Exception {
+        File dir = File.createTempFile("vtm", "seed");
+        dir.delete();
+        try {
+            FileTileCache fileCache = new FileTileCache(dir, 4096);
+            tileSource.setCache(fileCache);
+            BoundingBox box = new BoundingBox(52.3, 13.2, 52.6, 13.6);
+
+            TileSeeder.Stats stats = new TileSeeder(tileSource).seed(box, 8, 10);
+            fileCache.flush();
+
+            /* tiles are read by a cache opened on the same directory */
+            FileTileCache reopened = new FileTileCache(dir, 4096);
+            assertThat((long) reopened.getCount()).isEqualTo(stats.total);
+            ITileCache.TileReader reader = reopened.getTile(new Tile(550, 335, (byte) 10));
+            assertThat(reader).isNotNull();
+            byte[] data = new byte[10];
+            assertThat(reader.getInputStream().read(data)).isEqualTo(data.length);
+            assertThat(new String(data)).isEqualTo("10/550/335");
+        } finally {
+            File[] files = dir.listFiles();
+            if (files != null)
+                for (File f : files)
+                    f.delete();
+            dir.delete();
+        }
+    }
+
+    class FakeEngine implements HttpEngine {
+        private byte[] data;
+        private OutputStream cacheStream;
+
+        @Override
+        public InputStream read() {
+            return new ByteArrayInputStream(data) {
+                @Override
+                public synchronized int read(byte[] b, int off, int len) {
+                    int n = super.read(b, off, len);
+                    try {
+                        if (n > 0 && cacheStream != null)
+                            cacheStream.write(b, off, n);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    return n;
+                }
+            };
+        }
+
+        @Override
+        public void sendRequest(Tile tile) {
+            requests.incrementAndGet();
+            data = (tile.zoomLevel + "/" + tile.tileX + "/" + tile.tileY).getBytes();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void setCache(OutputStream os) {
+            cacheStream = os;
+        }
+
+        @Override
+        public boolean requestCompleted(boolean success) {
+            cacheStream = null;
+            return success;
+        }
+
+        @Override
+        public void setConditional(ITileCache.Metadata metadata) {
+        }
+
+        @Override
+        public ITileCache.Metadata getMetadata() {
+            return ITileCache.Metadata.NONE;
+        }
+    }
+
+    class MemoryCache implements ITileCache {
+        @Override
+        public TileWriter writeTile(final Tile tile) {
+            final ByteArrayOutputStream os = new ByteArrayOutputStream();
+            return new TileWriter() {
+                @Override
+                public Tile getTile() {
+                    return tile;
+                }
+
+                @Override
+                public OutputStream getOutputStream() {
+                    return os;
+                }
+
+                @Override
+                public void setMetadata(Metadata metadata) {
+                }
+
+                @Override
+                public void complete(boolean success) {
+                    if (success)
+                        cache.put(tile, os.toByteArray());
+                }
+            };
+        }
+
+        @Override
+        public TileReader getTile(final Tile tile) {
+            final byte[] data = cache.get(tile);
+            if (data == null)
+                return null;
+            return new TileReader() {
+                @Override
+                public Tile getTile() {
+                    return tile;
+                }
+
+                @Override
+                public InputStream getInputStream() {
+                    return new ByteArrayInputStream(data);
+                }
+
+                @Override
+                public Metadata getMetadata() {
+                    return Metadata.NONE;
+                }
+            };
+        }
+
+        @Override
+        public void setCacheSize(long size) {
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.oscim.tiling.source.mapfile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.oscim.core.BoundingBox;
+import org.oscim.tiling.source.mapfile.header.SubFileParameter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class IndexCacheTest {
+
+    private static final int INDEX_START = 16;
+    private static final int ENTRIES_PER_BLOCK = 128;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SubFileParameter mSubFile;
+    private RandomAccessFile mFile;
+    private FileChannel mChannel;
+
+    @Before
+    public void setUp() throws Exception {
+        mSubFile = subFile((byte) 7);
+
+        /* index entry of each block is its block number */
+        byte[] data = new byte[(int) mSubFile.indexEndAddress];
+        for (long block = 0; block < mSubFile.numberOfBlocks; block++) {
+            int pos = (int) (INDEX_START + block * SubFileParameter.BYTES_PER_INDEX_ENTRY);
+            for (int i = 0; i < 5; i++)
+                data[pos + i] = (byte) (block >>> (8 * (4 - i)));
+        }
+        File file = folder.newFile("index.map");
+        FileOutputStream os = new FileOutputStream(file);
+        os.write(data);
+        os.close();
+
+        mFile = new RandomAccessFile(file, "r");
+        mChannel = mFile.getChannel();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mFile.close();
+    }
+
+    /**
+     * Sub-file covering the world, the builder is not visible here.
+     */
+    private static SubFileParameter subFile(byte baseZoomLevel) throws Exception {
+        Class<?> type = Class.forName("org.oscim.tiling.source.mapfile.header.SubFileParameterBuilder");
+        Constructor<?> constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        Object builder = constructor.newInstance();
+        set(builder, "baseZoomLevel", baseZoomLevel);
+        set(builder, "zoomLevelMin", baseZoomLevel);
+        set(builder, "zoomLevelMax", baseZoomLevel);
+        set(builder, "indexStartAddress", (long) INDEX_START);
+        set(builder, "boundingBox", new BoundingBox(-85.0, -180.0, 85.0, 180.0));
+        Method build = type.getDeclaredMethod("build");
+        build.setAccessible(true);
+        return (SubFileParameter) build.invoke(builder);
+    }
+
+    private static void set(Object obj, String name, Object value) throws Exception {
+        Field field = obj.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(obj, value);
+    }
+
+    private int numberOfIndexBlocks() {
+        return (int) ((mSubFile.numberOfBlocks + ENTRIES_PER_BLOCK - 1) / ENTRIES_PER_BLOCK);
+    }
+
+    @Test
+    public void shouldEvictWithinCapacity() {
+        IndexCache cache = new IndexCache(mChannel, 16);
+        assertThat(numberOfIndexBlocks()).isGreaterThan(16);
+
+        for (int i = 0; i < numberOfIndexBlocks(); i++) {
+            long block = (long) i * ENTRIES_PER_BLOCK + i % ENTRIES_PER_BLOCK;
+            if (block >= mSubFile.numberOfBlocks)
+                block = mSubFile.numberOfBlocks - 1;
+            assertThat(cache.getIndexEntry(mSubFile, block)).isEqualTo(block);
+            assertThat(cache.getSize()).isLessThanOrEqualTo(16);
+
+            /* other entries of the block just read are cached */
+            assertThat(cache.getIndexEntry(mSubFile, i * ENTRIES_PER_BLOCK)).isEqualTo(i * ENTRIES_PER_BLOCK);
+        }
+        assertThat(cache.getSize()).isEqualTo(16);
+        assertThat(cache.getMisses()).isEqualTo(numberOfIndexBlocks());
+        assertThat(cache.getHits()).isEqualTo(numberOfIndexBlocks());
+
+        assertThat(cache.getIndexEntry(mSubFile, mSubFile.numberOfBlocks)).isEqualTo(-1);
+    }
+
+    @Test
+    public void shouldReadWithoutCapacity() {
+        IndexCache cache = new IndexCache(mChannel, 0);
+        assertThat(cache.getIndexEntry(mSubFile, 1000)).isEqualTo(1000);
+        assertThat(cache.getIndexEntry(mSubFile, 1000)).isEqualTo(1000);
+        assertThat(cache.getSize()).isEqualTo(0);
+        assertThat(cache.getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldCountMappedLookupsAsHits() throws IOException {
+        IndexCache cache = new IndexCache(mChannel, new MappedFile(mChannel, 0), 16);
+        assertThat(cache.getIndexEntry(mSubFile, 1000)).isEqualTo(1000);
+        assertThat(cache.getIndexEntry(mSubFile, 2000)).isEqualTo(2000);
+        assertThat(cache.getHits()).isEqualTo(2);
+        assertThat(cache.getMisses()).isEqualTo(0);
+        assertThat(cache.getSize()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldLookupConcurrently() throws Exception {
+        final IndexCache cache = new IndexCache(mChannel, 32);
+        final int lookups = 20000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int n = 0; n < 8; n++) {
+            final long seed = n;
+            results.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    Random random = new Random(seed);
+                    int errors = 0;
+                    for (int i = 0; i < lookups; i++) {
+                        long block = random.nextInt((int) mSubFile.numberOfBlocks);
+                        if (cache.getIndexEntry(mSubFile, block) != block)
+                            errors++;
+                    }
+                    return errors;
+                }
+            }));
+        }
+        for (Future<Integer> result : results)
+            assertThat(result.get()).isEqualTo(0);
+        executor.shutdown();
+
+        assertThat(cache.getHits() + cache.getMisses()).isEqualTo(8L * lookups);
+        assertThat(cache.getSize()).isLessThanOrEqualTo(32);
+    }
+}
@@ -0,0 +1,187 @@
+package org.oscim.tiling.source.mapfile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.BoundingBox;
+import org.oscim.core.GeometryBuffer.GeometryType;
+import org.oscim.core.MapElement;
+import org.oscim.core.Tag;
+import org.oscim.core.TagSet;
+import org.oscim.layers.tile.MapTile;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.tiling.QueryResult;
+import org.oscim.tiling.TileDataSink;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class MultiMapFileTest {
+
+    private static final AtomicInteger running = new AtomicInteger();
+
+    /**
+     * Map file of lines with the given names, deduplicated by name like
+     * the ways of a map file.
+     */
+    private static class TestMapFile extends MapFile {
+        private final BoundingBox boundingBox;
+        private final String[] names;
+        private boolean deduplicate;
+
+        TestMapFile(File file, BoundingBox boundingBox, int priority, String... names) throws IOException {
+            super(tileSource(file));
+            this.boundingBox = boundingBox;
+            this.names = names;
+            setPriority(priority);
+        }
+
+        private static MapFileTileSource tileSource(File file) throws IOException {
+            MapFileTileSource tileSource = new MapFileTileSource();
+            tileSource.setMapFileInputStream(new FileInputStream(file));
+            return tileSource;
+        }
+
+        @Override
+        public BoundingBox getBoundingBox() {
+            return boundingBox;
+        }
+
+        @Override
+        void setDeduplicate(boolean deduplicate) {
+            this.deduplicate = deduplicate;
+        }
+
+        @Override
+        public void query(MapTile tile, ITileDataSink sink) {
+            running.incrementAndGet();
+            try {
+                MapElement e = new MapElement();
+                for (String name : names) {
+                    /* slow reads, keeping the interrupt */
+                    LockSupport.parkNanos(5000000);
+                    e.clear();
+                    e.tags.clear();
+                    e.startLine();
+                    e.addPoint(0, 0);
+                    e.addPoint(name.length(), 10);
+                    e.tags.add(new Tag("name", name));
+                    if (!sink.accept(e.type, e.tags))
+                        continue;
+                    TileDataSink dataSink = (TileDataSink) sink;
+                    if (!deduplicate || dataSink.hashWays.add(name.hashCode())) {
+                        e.level = e.isLine() ? dataSink.levels : dataSink.level;
+                        sink.process(e);
+                    }
+                }
+                sink.completed(QueryResult.SUCCESS);
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+    }
+
+    private File file;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("test", ".map");
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        file.delete();
+    }
+
+    private MultiMapFile multiMapFile(boolean deduplicate) throws IOException {
+        MultiMapFile multiMapFile = new MultiMapFile(deduplicate);
+        multiMapFile.add(new TestMapFile(file, new BoundingBox(40.0, 0.0, 50.0, 10.0), 0, "a", "b", "skip", "c"));
+        multiMapFile.add(new TestMapFile(file, new BoundingBox(45.0, 5.0, 55.0, 15.0), 1, "b", "d", "a"));
+        multiMapFile.add(new TestMapFile(file, new BoundingBox(40.0, 8.0, 50.0, 20.0), 0, "e", "c", "f"));
+        /* outside of the tiles */
+        multiMapFile.add(new TestMapFile(file, new BoundingBox(-50.0, -20.0, -40.0, -10.0), 0, "x"));
+        /* world map, not needed where tiles are filled */
+        multiMapFile.add(new TestMapFile(file, new BoundingBox(-85.0, -180.0, 85.0, 180.0), -1, "w"));
+        return multiMapFile;
+    }
+
+    private static List<String> query(MultiMapFile multiMapFile, MapTile tile) {
+        final List<String> elements = new ArrayList<>();
+        multiMapFile.query(tile, new ITileDataSink() {
+            @Override
+            public boolean accept(GeometryType type, TagSet tags) {
+                return !tags.contains("name", "skip");
+            }
+
+            @Override
+            public void process(MapElement element) {
+                elements.add(element.tags.getValue("name") + element.level);
+            }
+
+            @Override
+            public void setTileImage(Bitmap bitmap) {
+            }
+
+            @Override
+            public void completed(QueryResult result) {
+                elements.add(result.toString());
+            }
+        });
+        return elements;
+    }
+
+    @Test
+    public void shouldQueryConcurrentlyInPriorityOrder() throws IOException {
+        /* tiles covered by one, two and three map files, and by none */
+        MapTile[] tiles = {
+                new MapTile(2070, 1520, 12),
+                new MapTile(2127, 1440, 12),
+                new MapTile(2150, 1440, 12),
+                new MapTile(0, 0, 12)};
+
+        for (boolean deduplicate : new boolean[]{false, true}) {
+            MultiMapFile sequential = multiMapFile(deduplicate);
+            MultiMapFile concurrent = multiMapFile(deduplicate);
+            concurrent.setExecutor(executor);
+
+            for (MapTile tile : tiles) {
+                List<String> expected = query(sequential, tile);
+                assertThat(query(concurrent, tile)).isEqualTo(expected);
+            }
+            sequential.dispose();
+            concurrent.dispose();
+        }
+
+        MultiMapFile multiMapFile = multiMapFile(true);
+        multiMapFile.setExecutor(executor);
+        assertThat(query(multiMapFile, tiles[2])).containsExactly(
+                "b5", "d5", "a5", "c5", "e5", "f5", "SUCCESS");
+        multiMapFile.dispose();
+    }
+
+    @Test
+    public void shouldWaitForTasksWhenInterrupted() throws IOException {
+        MultiMapFile multiMapFile = multiMapFile(false);
+        multiMapFile.setExecutor(executor);
+
+        Thread.currentThread().interrupt();
+        List<String> elements = query(multiMapFile, new MapTile(2150, 1440, 12));
+        assertThat(Thread.interrupted()).isTrue();
+        assertThat(running.get()).isEqualTo(0);
+        assertThat(elements).contains("SUCCESS");
+        multiMapFile.dispose();
+    }
+}
@@ -0,0 +1,116 @@
+package org.oscim.tiling.source.mapfile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class ReadBufferTest {
+
+    private static final int OFFSET = 100;
+    private static final String[] STRINGS = {"a", "bc", "def"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private RandomAccessFile mFile;
+    private FileChannel mChannel;
+    private int mLength;
+
+    @Before
+    public void setUp() throws IOException {
+        /* a block of length prefixed strings after some padding */
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        data.write(new byte[OFFSET]);
+        for (String s : STRINGS) {
+            data.write(s.length());
+            data.write(s.getBytes("UTF-8"));
+        }
+        mLength = data.size() - OFFSET;
+
+        File file = folder.newFile("block.map");
+        FileOutputStream os = new FileOutputStream(file);
+        os.write(data.toByteArray());
+        os.close();
+
+        mFile = new RandomAccessFile(file, "r");
+        mChannel = mFile.getChannel();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mFile.close();
+    }
+
+    private int[] readPositions(ReadBuffer readBuffer) throws IOException {
+        assertThat(readBuffer.readFromFile(OFFSET, mLength)).isTrue();
+
+        int[] positions = new int[STRINGS.length];
+        for (int i = 0; i < STRINGS.length; i++)
+            positions[i] = readBuffer.getPositionAndSkip();
+        assertThat(readBuffer.getBufferPosition()).isEqualTo(mLength);
+
+        for (int i = 0; i < STRINGS.length; i++)
+            assertThat(readBuffer.readUTF8EncodedStringAt(positions[i])).isEqualTo(STRINGS[i]);
+        return positions;
+    }
+
+    @Test
+    public void shouldDecodeSameValuesWhenMapped() throws IOException {
+        int[] values = {0, 1, -1, 63, -64, 8191, -8192, 1 << 20, -(1 << 27), Integer.MAX_VALUE >> 4};
+
+        /* signed variable length ints, the last byte holds the sign */
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        for (int value : values) {
+            int v = Math.abs(value);
+            while (v > 0x3f) {
+                data.write((v & 0x7f) | 0x80);
+                v >>>= 7;
+            }
+            data.write(v | (value < 0 ? 0x40 : 0));
+        }
+        File file = folder.newFile("values.map");
+        FileOutputStream os = new FileOutputStream(file);
+        os.write(data.toByteArray());
+        os.close();
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            ReadBuffer[] readBuffers = {new ReadBuffer(channel),
+                    new ReadBuffer(channel, new MappedFile(channel, 0))};
+            for (ReadBuffer readBuffer : readBuffers) {
+                assertThat(readBuffer.readFromFile(0, data.size())).isTrue();
+                int[] decoded = new int[values.length];
+                readBuffer.readSignedInt(decoded, values.length);
+                assertThat(decoded).isEqualTo(values);
+
+                readBuffer.setBufferPosition(0);
+                for (int value : values)
+                    assertThat(readBuffer.readSignedInt()).isEqualTo(value);
+                assertThat(readBuffer.getBufferPosition()).isEqualTo(data.size());
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Test
+    public void shouldReturnBufferPositionsWhenMapped() throws IOException {
+        int[] read = readPositions(new ReadBuffer(mChannel));
+        int[] mapped = readPositions(new ReadBuffer(mChannel, new MappedFile(mChannel, 0)));
+
+        assertThat(read).isEqualTo(new int[]{0, 2, 5});
+        assertThat(mapped).isEqualTo(read);
+    }
+}
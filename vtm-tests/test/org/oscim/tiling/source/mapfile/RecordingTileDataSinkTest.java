@@ -0,0 +1,78 @@
+package org.oscim.tiling.source.mapfile;
+
+import org.junit.Test;
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.GeometryBuffer.GeometryType;
+import org.oscim.core.MapElement;
+import org.oscim.core.Tag;
+import org.oscim.core.TagSet;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.tiling.QueryResult;
+import org.oscim.tiling.TileDataSink;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class RecordingTileDataSinkTest {
+
+    private static MapElement line(String name, int level) {
+        MapElement e = new MapElement();
+        e.startLine();
+        e.addPoint(0, 0);
+        e.addPoint(10, 10);
+        e.tags.add(new Tag("name", name));
+        e.level = level;
+        return e;
+    }
+
+    @Test
+    public void shouldReplayInOrderWithoutDuplicates() {
+        RecordingTileDataSink recorder = new RecordingTileDataSink(2, 3);
+        assertThat(recorder.level).isEqualTo(2);
+        assertThat(recorder.accept(GeometryType.LINE, new TagSet())).isTrue();
+
+        /* as added by a map file with deduplication */
+        MapElement e = line("a", recorder.level);
+        assertThat(recorder.hashWays.add(1)).isTrue();
+        recorder.process(e);
+        /* the recorded element is a copy */
+        e.clear();
+        e.tags.clear();
+        recorder.hashWays.add(2);
+        recorder.process(line("b", recorder.level));
+        recorder.hashPois.add(1);
+        recorder.process(line("c", recorder.level));
+        recorder.process(line("skip", recorder.level));
+        recorder.process(line("d", recorder.level));
+
+        final List<String> processed = new ArrayList<>();
+        TileDataSink sink = new TileDataSink(new ITileDataSink() {
+            @Override
+            public boolean accept(GeometryType type, TagSet tags) {
+                return !tags.contains("name", "skip");
+            }
+
+            @Override
+            public void process(MapElement element) {
+                processed.add(element.tags.getValue("name") + element.level + element.getNumPoints());
+            }
+
+            @Override
+            public void setTileImage(Bitmap bitmap) {
+            }
+
+            @Override
+            public void completed(QueryResult result) {
+            }
+        });
+        /* way 2 was passed by a map file of higher priority */
+        sink.hashWays.add(2);
+        recorder.replay(sink);
+
+        assertThat(processed).containsExactly("a22", "c22", "d22");
+        assertThat(sink.hashWays).containsOnly(1, 2);
+        assertThat(sink.hashPois).containsOnly(1);
+    }
+}
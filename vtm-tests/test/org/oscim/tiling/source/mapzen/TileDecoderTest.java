@@ -0,0 +1,149 @@
+package org.oscim.tiling.source.mapzen;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.GeometryBuffer.GeometryType;
+import org.oscim.core.MapElement;
+import org.oscim.core.Tag;
+import org.oscim.core.TagSet;
+import org.oscim.core.Tile;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.tiling.QueryResult;
+import org.oscim.tiling.source.StringTable;
+import org.oscim.utils.ByteBufferInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class TileDecoderTest {
+
+    private final Tile tile = new Tile(0, 0, (byte) 0);
+    private byte[] data;
+
+    @Before
+    public void setUp() throws IOException {
+        InputStream is = getClass().getResourceAsStream("/mvt-test.pbf");
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = is.read(buf)) >= 0)
+            os.write(buf, 0, n);
+        is.close();
+        data = os.toByteArray();
+    }
+
+    @Test
+    public void shouldDecodeInPlaceLikeStream() throws IOException {
+        TileDecoder decoder = new TileDecoder();
+        List<String> stream = decode(decoder, new ByteArrayInputStream(data));
+        assertThat(stream).isNotEmpty();
+
+        /* heap buffer, decoded in place */
+        ByteBuffer heap = ByteBuffer.allocate(data.length + 10);
+        heap.position(10);
+        heap.put(data);
+        heap.position(10);
+        assertThat(decode(decoder, new ByteBufferInputStream(heap))).isEqualTo(stream);
+
+        /* direct buffer, copied once */
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data);
+        direct.flip();
+        assertThat(decode(decoder, new ByteBufferInputStream(direct))).isEqualTo(stream);
+
+        assertThat(decode(decoder, new ByteArrayInputStream(data))).isEqualTo(stream);
+    }
+
+    @Test
+    public void shouldShareStringsOfSource() throws IOException {
+        StringTable table = new StringTable();
+        final List<Tag> first = new ArrayList<>();
+        final List<Tag> second = new ArrayList<>();
+
+        new TileDecoder("", table).decode(tile, new Sink(first), new ByteArrayInputStream(data));
+        int size = table.size();
+        assertThat(size).isGreaterThan(0);
+
+        new TileDecoder("", table).decode(tile, new Sink(second), new ByteArrayInputStream(data));
+        assertThat(table.size()).isEqualTo(size);
+
+        assertThat(second.size()).isEqualTo(first.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertThat(second.get(i).key).isSameAs(first.get(i).key);
+            assertThat(second.get(i).value).isSameAs(first.get(i).value);
+        }
+    }
+
+    @Test
+    public void shouldInternStrings() {
+        StringTable table = new StringTable(1);
+        byte[] bytes = "xhighway".getBytes();
+
+        String s = table.get(bytes, 1, 7);
+        assertThat(s).isSameAs("highway");
+        assertThat(table.get("highway".getBytes(), 0, 7)).isSameAs(s);
+
+        /* full table still returns interned strings */
+        assertThat(table.get("building".getBytes(), 0, 8)).isSameAs("building");
+        assertThat(table.size()).isEqualTo(1);
+    }
+
+    private List<String> decode(TileDecoder decoder, InputStream is) throws IOException {
+        final List<String> elements = new ArrayList<>();
+        decoder.decode(tile, new ITileDataSink() {
+            @Override
+            public boolean accept(GeometryType type, TagSet tags) {
+                return true;
+            }
+
+            @Override
+            public void process(MapElement element) {
+                elements.add(element.toString());
+            }
+
+            @Override
+            public void setTileImage(Bitmap bitmap) {
+            }
+
+            @Override
+            public void completed(QueryResult result) {
+            }
+        }, is);
+        return elements;
+    }
+
+    private static class Sink implements ITileDataSink {
+        final List<Tag> tags;
+
+        Sink(List<Tag> tags) {
+            this.tags = tags;
+        }
+
+        @Override
+        public boolean accept(GeometryType type, TagSet tags) {
+            return true;
+        }
+
+        @Override
+        public void process(MapElement element) {
+            for (int i = 0; i < element.tags.size(); i++)
+                tags.add(element.tags.get(i));
+        }
+
+        @Override
+        public void setTileImage(Bitmap bitmap) {
+        }
+
+        @Override
+        public void completed(QueryResult result) {
+        }
+    }
+}
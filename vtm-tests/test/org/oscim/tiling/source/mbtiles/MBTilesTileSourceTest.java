@@ -0,0 +1,234 @@
+package org.oscim.tiling.source.mbtiles;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.GeometryBuffer.GeometryType;
+import org.oscim.core.MapElement;
+import org.oscim.core.TagSet;
+import org.oscim.layers.tile.MapTile;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.tiling.ITileDataSource;
+import org.oscim.tiling.QueryResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.zip.GZIPOutputStream;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class MBTilesTileSourceTest {
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("test", ".mbtiles");
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    private static byte[] readTestTile() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream is = MBTilesTileSourceTest.class.getResourceAsStream("/mvt-test.pbf");
+        byte[] b = new byte[8192];
+        int len;
+        while ((len = is.read(b)) >= 0)
+            out.write(b, 0, len);
+        is.close();
+        return out.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GZIPOutputStream gz = new GZIPOutputStream(out);
+        gz.write(data);
+        gz.close();
+        return out.toByteArray();
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + mFile.getPath());
+    }
+
+    private void createDatabase(String format) throws Exception {
+        byte[] tile = readTestTile();
+        Connection c = connect();
+        try {
+            Statement s = c.createStatement();
+            s.execute("CREATE TABLE metadata (name TEXT, value TEXT)");
+            s.execute("CREATE TABLE tiles (zoom_level INTEGER, tile_column INTEGER, tile_row INTEGER, tile_data BLOB)");
+            s.execute("CREATE UNIQUE INDEX tile_index ON tiles (zoom_level, tile_column, tile_row)");
+            s.execute("INSERT INTO metadata VALUES ('format', '" + format + "'), ('minzoom', '0'), ('maxzoom', '1')");
+            s.close();
+
+            PreparedStatement p = c.prepareStatement("INSERT INTO tiles VALUES (?, ?, ?, ?)");
+            /* gzip compressed and plain tiles, rows are numbered from south */
+            p.setInt(1, 0);
+            p.setInt(2, 0);
+            p.setInt(3, 0);
+            p.setBytes(4, gzip(tile));
+            p.execute();
+            p.setInt(1, 1);
+            p.setInt(2, 1);
+            p.setInt(3, 1);
+            p.setBytes(4, tile);
+            p.execute();
+            p.close();
+        } finally {
+            c.close();
+        }
+    }
+
+    private static QueryResult query(ITileDataSource dataSource, MapTile tile, final int[] processed) {
+        final QueryResult[] result = new QueryResult[1];
+        dataSource.query(tile, new ITileDataSink() {
+            @Override
+            public boolean accept(GeometryType type, TagSet tags) {
+                return true;
+            }
+
+            @Override
+            public void process(MapElement element) {
+                processed[0]++;
+            }
+
+            @Override
+            public void setTileImage(Bitmap bitmap) {
+            }
+
+            @Override
+            public void completed(QueryResult res) {
+                result[0] = res;
+            }
+        });
+        return result[0];
+    }
+
+    @Test
+    public void shouldDecodeVectorTiles() throws Exception {
+        createDatabase("pbf");
+        MBTilesTileSource tileSource = new MBTilesTileSource(mFile.getPath());
+        assertThat(tileSource.open().isSuccess()).isTrue();
+        assertThat(tileSource.getOverZoom()).isEqualTo(1);
+
+        ITileDataSource dataSource = tileSource.getDataSource();
+        int[] processed = new int[1];
+        assertThat(query(dataSource, new MapTile(0, 0, 0), processed)).isEqualTo(QueryResult.SUCCESS);
+        int gzipped = processed[0];
+        assertThat(gzipped).isGreaterThan(0);
+
+        assertThat(query(dataSource, new MapTile(1, 0, 1), processed)).isEqualTo(QueryResult.SUCCESS);
+        assertThat(processed[0]).isEqualTo(2 * gzipped);
+        assertThat(query(dataSource, new MapTile(0, 0, 1), processed)).isEqualTo(QueryResult.TILE_NOT_FOUND);
+
+        dataSource.dispose();
+        tileSource.close();
+    }
+
+    @Test
+    public void shouldServePrefetchedTiles() throws Exception {
+        createDatabase("pbf");
+        MBTilesTileSource tileSource = new MBTilesTileSource(mFile.getPath());
+        assertThat(tileSource.open().isSuccess()).isTrue();
+
+        long[] keys = {MBTilesTileSource.key(0, 0, 0), MBTilesTileSource.key(1, 1, 0)};
+        tileSource.prefetch(keys, keys.length);
+
+        Connection c = connect();
+        c.createStatement().execute("DELETE FROM tiles");
+        c.close();
+
+        ITileDataSource dataSource = tileSource.getDataSource();
+        int[] processed = new int[1];
+        assertThat(query(dataSource, new MapTile(1, 0, 1), processed)).isEqualTo(QueryResult.SUCCESS);
+        assertThat(query(dataSource, new MapTile(0, 0, 0), processed)).isEqualTo(QueryResult.SUCCESS);
+        /* prefetched tiles are taken once */
+        assertThat(query(dataSource, new MapTile(0, 0, 0), processed)).isEqualTo(QueryResult.TILE_NOT_FOUND);
+
+        dataSource.dispose();
+        tileSource.close();
+    }
+
+    @Test
+    public void shouldKeepPrefetchedTilesOfTakenJobs() throws Exception {
+        createDatabase("pbf");
+        MBTilesTileSource tileSource = new MBTilesTileSource(mFile.getPath());
+        assertThat(tileSource.open().isSuccess()).isTrue();
+
+        long[] keys = {MBTilesTileSource.key(0, 0, 0), MBTilesTileSource.key(1, 1, 0)};
+        tileSource.prefetch(keys, keys.length);
+        /* the job of the first tile was taken by a loader */
+        tileSource.prefetch(new long[]{keys[1]}, 1);
+        assertThat(tileSource.getPrefetchedCount()).isEqualTo(2);
+
+        Connection c = connect();
+        c.createStatement().execute("DELETE FROM tiles");
+        c.close();
+
+        ITileDataSource dataSource = tileSource.getDataSource();
+        int[] processed = new int[1];
+        assertThat(query(dataSource, new MapTile(0, 0, 0), processed)).isEqualTo(QueryResult.SUCCESS);
+
+        dataSource.dispose();
+        tileSource.close();
+    }
+
+    @Test
+    public void shouldPrefetchDuplicateKeysOnce() throws Exception {
+        createDatabase("pbf");
+        MBTilesTileSource tileSource = new MBTilesTileSource(mFile.getPath());
+        assertThat(tileSource.open().isSuccess()).isTrue();
+
+        /* overzoomed children of the same tile */
+        long key = MBTilesTileSource.key(1, 1, 0);
+        tileSource.prefetch(new long[]{key, key, key, key}, 4);
+        assertThat(tileSource.getPrefetchedCount()).isEqualTo(1);
+
+        tileSource.close();
+    }
+
+    @Test
+    public void shouldEvictOldestPrefetchedTiles() throws Exception {
+        createDatabase("pbf");
+        MBTilesTileSource tileSource = new MBTilesTileSource(mFile.getPath());
+        assertThat(tileSource.open().isSuccess()).isTrue();
+        /* keeps two tiles */
+        tileSource.prefetcher(1);
+
+        Connection c = connect();
+        c.createStatement().execute("INSERT INTO tiles VALUES (1, 0, 0, x'00')");
+        c.close();
+
+        long[] keys = {MBTilesTileSource.key(0, 0, 0),
+                MBTilesTileSource.key(1, 1, 0),
+                MBTilesTileSource.key(1, 0, 1)};
+        for (long key : keys)
+            tileSource.prefetch(new long[]{key}, 1);
+        assertThat(tileSource.getPrefetchedCount()).isEqualTo(2);
+
+        assertThat(tileSource.takePrefetched(new MapTile(0, 0, 0))).isNull();
+        assertThat(tileSource.takePrefetched(new MapTile(1, 0, 1))).isNotNull();
+
+        tileSource.close();
+    }
+
+    @Test
+    public void shouldRejectUnsupportedFormats() throws Exception {
+        createDatabase("tiff");
+        MBTilesTileSource tileSource = new MBTilesTileSource(mFile.getPath());
+        assertThat(tileSource.open().isSuccess()).isFalse();
+        assertThat(new MBTilesTileSource("/no/such/file.mbtiles").open().isSuccess()).isFalse();
+    }
+}
@@ -0,0 +1,81 @@
+package org.oscim.tiling.source.mvt;
+
+import org.junit.Test;
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.GeometryBuffer.GeometryType;
+import org.oscim.core.MapElement;
+import org.oscim.core.TagSet;
+import org.oscim.core.Tile;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.tiling.QueryResult;
+import org.oscim.tiling.source.ITileDecoder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class MvtTileDecoderTest {
+
+    /**
+     * Records the accepted and processed elements as strings.
+     */
+    static class RecordingSink implements ITileDataSink {
+        final List<String> accepted = new ArrayList<>();
+        final List<String> processed = new ArrayList<>();
+
+        @Override
+        public boolean accept(GeometryType type, TagSet tags) {
+            accepted.add(type + " " + tags);
+            return !tags.contains("layer", "water_name");
+        }
+
+        @Override
+        public void process(MapElement element) {
+            int numIndex = 0;
+            while (numIndex < element.index.length && element.index[numIndex] >= 0)
+                numIndex++;
+            processed.add(element.type + " " + element.layer + " " + element.tags
+                    + " " + Arrays.toString(Arrays.copyOf(element.index, numIndex))
+                    + " " + Arrays.toString(Arrays.copyOf(element.points, element.pointNextPos)));
+        }
+
+        @Override
+        public void setTileImage(Bitmap bitmap) {
+        }
+
+        @Override
+        public void completed(QueryResult result) {
+        }
+    }
+
+    private RecordingSink decode(ITileDecoder decoder) throws Exception {
+        RecordingSink sink = new RecordingSink();
+        Tile tile = new Tile(0, 0, (byte) 0);
+        assertThat(decoder.decode(tile, sink, getClass().getResourceAsStream("/mvt-test.pbf"))).isTrue();
+        return sink;
+    }
+
+    @Test
+    public void shouldDecodeLikeJtsDecoder() throws Exception {
+        for (String locale : new String[]{"", "en", "de"}) {
+            RecordingSink expected = decode(new TileDecoder(locale));
+            RecordingSink actual = decode(new MvtTileDecoder(locale));
+
+            assertThat(actual.processed).isNotEmpty();
+            assertThat(actual.accepted).isEqualTo(expected.accepted);
+            assertThat(actual.processed).isEqualTo(expected.processed);
+        }
+    }
+
+    @Test
+    public void shouldReuseDecoder() throws Exception {
+        MvtTileDecoder decoder = new MvtTileDecoder("en");
+        RecordingSink first = decode(decoder);
+        RecordingSink second = decode(decoder);
+
+        assertThat(second.processed).isEqualTo(first.processed);
+        assertThat(first.processed.size()).isLessThan(first.accepted.size());
+    }
+}
@@ -17,12 +17,15 @@ package org.oscim.tiling.source.mvt;
 
 import org.junit.Test;
 import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.GeometryBuffer.GeometryType;
 import org.oscim.core.MapElement;
+import org.oscim.core.TagSet;
 import org.oscim.core.Tile;
 import org.oscim.tiling.ITileDataSink;
 import org.oscim.tiling.QueryResult;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class TileDecoderTest {
 
@@ -31,6 +34,11 @@ public class TileDecoderTest {
         TileDecoder decoder = new TileDecoder();
         Tile tile = new Tile(0, 0, (byte) 0);
         ITileDataSink sink = new ITileDataSink() {
+            @Override
+            public boolean accept(GeometryType type, TagSet tags) {
+                return true;
+            }
+
             @Override
             public void process(MapElement element) {
                 if (element.tags.contains("class", "ocean"))
@@ -49,4 +57,39 @@ public class TileDecoderTest {
         };
         decoder.decode(tile, sink, getClass().getResourceAsStream("/mvt-test.pbf"));
     }
+
+    @Test
+    public void shouldSkipRejectedElements() throws Exception {
+        TileDecoder decoder = new TileDecoder();
+        Tile tile = new Tile(0, 0, (byte) 0);
+        final int[] accepted = new int[1];
+        final int[] processed = new int[1];
+        ITileDataSink sink = new ITileDataSink() {
+            @Override
+            public boolean accept(GeometryType type, TagSet tags) {
+                if (type != GeometryType.POLY || !tags.contains("layer", "water"))
+                    return false;
+                accepted[0]++;
+                return true;
+            }
+
+            @Override
+            public void process(MapElement element) {
+                assertTrue(element.isPoly());
+                assertTrue(element.tags.contains("layer", "water"));
+                processed[0]++;
+            }
+
+            @Override
+            public void setTileImage(Bitmap bitmap) {
+            }
+
+            @Override
+            public void completed(QueryResult result) {
+            }
+        };
+        decoder.decode(tile, sink, getClass().getResourceAsStream("/mvt-test.pbf"));
+        assertTrue(processed[0] > 0);
+        assertEquals(accepted[0], processed[0]);
+    }
 }
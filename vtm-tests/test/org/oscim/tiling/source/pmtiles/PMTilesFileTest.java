@@ -0,0 +1,203 @@
+package org.oscim.tiling.source.pmtiles;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.GeometryBuffer.GeometryType;
+import org.oscim.core.MapElement;
+import org.oscim.core.TagSet;
+import org.oscim.layers.tile.MapTile;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.tiling.QueryResult;
+import org.oscim.tiling.source.mvt.MvtTileDecoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.GZIPOutputStream;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class PMTilesFileTest {
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("test", ".pmtiles");
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long val) {
+        while ((val & ~0x7fL) != 0) {
+            out.write((int) (val & 0x7f) | 0x80);
+            val >>>= 7;
+        }
+        out.write((int) val);
+    }
+
+    /**
+     * @param entries tile id, run length, offset and length of each entry.
+     */
+    private static byte[] directory(long[][] entries) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarint(out, entries.length);
+        long last = 0;
+        for (long[] e : entries) {
+            writeVarint(out, e[0] - last);
+            last = e[0];
+        }
+        for (long[] e : entries)
+            writeVarint(out, e[1]);
+        for (long[] e : entries)
+            writeVarint(out, e[3]);
+        for (int i = 0; i < entries.length; i++) {
+            long[] e = entries[i];
+            if (i > 0 && e[2] == entries[i - 1][2] + entries[i - 1][3])
+                writeVarint(out, 0);
+            else
+                writeVarint(out, e[2] + 1);
+        }
+        return gzip(out.toByteArray());
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GZIPOutputStream gz = new GZIPOutputStream(out);
+        gz.write(data);
+        gz.close();
+        return out.toByteArray();
+    }
+
+    private void writeArchive(byte[] root, byte[] leaves, byte[] tiles,
+                              int tileType, int tileCompression, int maxZoom) throws IOException {
+        ByteBuffer h = ByteBuffer.allocate(127).order(ByteOrder.LITTLE_ENDIAN);
+        h.put("PMTiles".getBytes("US-ASCII"));
+        h.put((byte) 3);
+        h.putLong(8, 127);
+        h.putLong(16, root.length);
+        h.putLong(40, 127 + root.length);
+        h.putLong(48, leaves.length);
+        h.putLong(56, 127 + root.length + leaves.length);
+        h.putLong(64, tiles.length);
+        h.put(97, (byte) PMTilesFile.COMPRESSION_GZIP);
+        h.put(98, (byte) tileCompression);
+        h.put(99, (byte) tileType);
+        h.put(100, (byte) 0);
+        h.put(101, (byte) maxZoom);
+        h.putInt(102, -1800000000);
+        h.putInt(106, -850000000);
+        h.putInt(110, 1800000000);
+        h.putInt(114, 850000000);
+
+        FileOutputStream out = new FileOutputStream(mFile);
+        out.write(h.array());
+        out.write(root);
+        out.write(leaves);
+        out.write(tiles);
+        out.close();
+    }
+
+    private static String string(ByteBuffer buf) {
+        return new String(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+    }
+
+    @Test
+    public void shouldComputeHilbertTileIds() {
+        assertThat(PMTilesFile.tileId(0, 0, 0)).isEqualTo(0);
+        assertThat(PMTilesFile.tileId(1, 0, 0)).isEqualTo(1);
+        assertThat(PMTilesFile.tileId(1, 0, 1)).isEqualTo(2);
+        assertThat(PMTilesFile.tileId(1, 1, 1)).isEqualTo(3);
+        assertThat(PMTilesFile.tileId(1, 1, 0)).isEqualTo(4);
+        assertThat(PMTilesFile.tileId(2, 0, 0)).isEqualTo(5);
+        assertThat(PMTilesFile.tileId(2, 1, 0)).isEqualTo(6);
+        assertThat(PMTilesFile.tileId(12, 3423, 1763)).isEqualTo(19078479);
+    }
+
+    @Test
+    public void shouldReadTilesThroughLeafDirectories() throws IOException {
+        byte[] tiles = "abbc".getBytes("US-ASCII");
+        byte[] leaves = directory(new long[][]{{5, 1, 3, 1}});
+        byte[] root = directory(new long[][]{
+                /* one tile for all of zoom level 1 */
+                {0, 1, 0, 1}, {1, 4, 1, 2},
+                {5, 0, 0, leaves.length}});
+        writeArchive(root, leaves, tiles, PMTilesFile.TYPE_PNG, PMTilesFile.COMPRESSION_NONE, 2);
+
+        PMTilesFile file = new PMTilesFile(mFile, 1);
+        try {
+            assertThat(file.getMaxZoom()).isEqualTo(2);
+            assertThat(file.getBoundingBox().getMaxLatitude()).isEqualTo(85.0);
+
+            ByteBuffer buf = file.getTile(0, 0, 0, null);
+            assertThat(string(buf)).isEqualTo("a");
+            for (int x = 0; x < 2; x++) {
+                for (int y = 0; y < 2; y++)
+                    assertThat(string(file.getTile(1, x, y, buf))).isEqualTo("bb");
+            }
+            /* from the leaf directory, read twice */
+            assertThat(string(file.getTile(2, 0, 0, buf))).isEqualTo("c");
+            assertThat(string(file.getTile(2, 0, 0, buf))).isEqualTo("c");
+
+            assertThat(file.getTile(2, 1, 0, buf)).isNull();
+            assertThat(file.getTile(3, 0, 0, buf)).isNull();
+        } finally {
+            file.close();
+        }
+    }
+
+    @Test
+    public void shouldDecodeVectorTiles() throws IOException {
+        ByteArrayOutputStream pbf = new ByteArrayOutputStream();
+        InputStream is = getClass().getResourceAsStream("/mvt-test.pbf");
+        byte[] b = new byte[8192];
+        int len;
+        while ((len = is.read(b)) >= 0)
+            pbf.write(b, 0, len);
+        is.close();
+
+        byte[] tile = gzip(pbf.toByteArray());
+        writeArchive(directory(new long[][]{{0, 1, 0, tile.length}}), new byte[0], tile,
+                PMTilesFile.TYPE_MVT, PMTilesFile.COMPRESSION_GZIP, 0);
+
+        PMTilesFile file = new PMTilesFile(mFile);
+        final int[] processed = new int[1];
+        final QueryResult[] result = new QueryResult[1];
+        try {
+            PMTilesTileDataSource dataSource = new PMTilesTileDataSource(file, new MvtTileDecoder());
+            dataSource.query(new MapTile(0, 0, 0), new ITileDataSink() {
+                @Override
+                public boolean accept(GeometryType type, TagSet tags) {
+                    return true;
+                }
+
+                @Override
+                public void process(MapElement element) {
+                    processed[0]++;
+                }
+
+                @Override
+                public void setTileImage(Bitmap bitmap) {
+                }
+
+                @Override
+                public void completed(QueryResult res) {
+                    result[0] = res;
+                }
+            });
+        } finally {
+            file.close();
+        }
+        assertThat(result[0]).isEqualTo(QueryResult.SUCCESS);
+        assertThat(processed[0]).isGreaterThan(0);
+    }
+}
@@ -0,0 +1,136 @@
+package org.oscim.utils;
+
+import org.junit.After;
+import org.junit.Test;
+import org.oscim.core.GeometryBuffer;
+
+import java.util.Random;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class EarClipTessellatorTest {
+
+    private final EarClipTessellator tess = new EarClipTessellator();
+
+    @After
+    public void tearDown() {
+        Parameters.JAVA_TESSELLATOR = false;
+    }
+
+    @Test
+    public void shouldKeepOrientation() {
+        float[] ccw = {0, 0, 10, 0, 10, 10, 0, 10};
+        float[] cw = {0, 10, 10, 10, 10, 0, 0, 0};
+
+        assertThat(tess.tessellate(ccw, new int[]{8}, 0, 1)).isEqualTo(6);
+        assertThat(area(ccw, 0, tess.getTriangles(), 6)).isEqualTo(100);
+
+        assertThat(tess.tessellate(cw, new int[]{8}, 0, 1)).isEqualTo(6);
+        assertThat(area(cw, 0, tess.getTriangles(), 6)).isEqualTo(-100);
+    }
+
+    @Test
+    public void shouldBridgeHoles() {
+        float[] points = {
+                0, 0, 10, 0, 10, 10, 0, 10,
+                2, 2, 2, 4, 4, 4, 4, 2,
+                6, 6, 6, 8, 8, 8, 8, 6};
+        int[] index = {8, 8, 8, -1};
+
+        int n = tess.tessellate(points, index, 0, 3);
+        assertThat(n).isGreaterThan(0);
+        assertThat(area(points, 0, tess.getTriangles(), n)).isEqualTo(100 - 4 - 4);
+        checkIds(tess.getTriangles(), n, 12);
+    }
+
+    @Test
+    public void shouldTessellateFromIndexPosition() {
+        float[] points = {
+                0, 0, 1, 0, 1, 1,
+                0, 0, 10, 0, 10, 10, 0, 10};
+        int[] index = {6, 0, 8, -1};
+
+        int n = tess.tessellate(points, index, 2, 1);
+        assertThat(n).isEqualTo(6);
+        checkIds(tess.getTriangles(), n, 4);
+        assertThat(area(points, 6, tess.getTriangles(), n)).isEqualTo(100);
+    }
+
+    @Test
+    public void shouldTessellateLargePolygons() {
+        Random random = new Random(0);
+        for (int k = 0; k < 50; k++) {
+            /* star shaped, with and without z-order hashing */
+            int numPoints = 3 + random.nextInt(k < 25 ? 60 : 500);
+            float[] points = new float[numPoints * 2];
+            for (int i = 0; i < numPoints; i++) {
+                double angle = 2 * Math.PI * i / numPoints;
+                double r = 100 + random.nextInt(100);
+                points[2 * i] = (float) Math.round(Math.cos(angle) * r);
+                points[2 * i + 1] = (float) Math.round(Math.sin(angle) * r);
+            }
+            int n = tess.tessellate(points, new int[]{numPoints * 2}, 0, 1);
+            assertThat(n).isGreaterThan(0);
+            checkIds(tess.getTriangles(), n, numPoints);
+
+            double expected = 0;
+            for (int i = 0, j = numPoints - 1; i < numPoints; j = i++)
+                expected += (double) points[2 * j] * points[2 * i + 1] - (double) points[2 * i] * points[2 * j + 1];
+            assertThat(area(points, 0, tess.getTriangles(), n)).isEqualTo(expected / 2);
+        }
+    }
+
+    @Test
+    public void shouldTessellateGeometryBuffer() {
+        Parameters.JAVA_TESSELLATOR = true;
+
+        GeometryBuffer geom = new GeometryBuffer(new float[]{0, 0, 10, 0, 10, 10, 5, 5, 0, 10}, new int[]{10});
+        GeometryBuffer mesh = new GeometryBuffer(geom);
+        assertThat(Tessellator.tessellate(geom, mesh)).isEqualTo(9);
+        assertThat(mesh.index).hasSize(9);
+        assertThat(area(geom.points, 0, mesh.index, 9)).isEqualTo(75);
+    }
+
+    @Test
+    public void shouldTessellateMultipolygons() {
+        Parameters.JAVA_TESSELLATOR = true;
+
+        GeometryBuffer geom = new GeometryBuffer(new float[]{
+                0, 0, 10, 0, 10, 10, 0, 10,
+                20, 0, 30, 0, 30, 10, 20, 10}, new int[]{8, 0, 8, -1});
+        GeometryBuffer mesh = new GeometryBuffer(geom);
+        int n = Tessellator.tessellate(geom, mesh);
+        assertThat(n).isEqualTo(12);
+        checkIds(mesh.index, n, 8);
+        assertThat(area(geom.points, 0, mesh.index, n)).isEqualTo(200);
+
+        /* the second polygon with a hole */
+        geom = new GeometryBuffer(new float[]{
+                0, 0, 10, 0, 10, 10, 0, 10,
+                20, 0, 30, 0, 30, 10, 20, 10,
+                22, 2, 22, 4, 24, 4, 24, 2}, new int[]{8, 0, 8, 8});
+        n = Tessellator.tessellate(geom, mesh);
+        checkIds(mesh.index, n, 12);
+        assertThat(area(geom.points, 0, mesh.index, n)).isEqualTo(200 - 4);
+    }
+
+    private static void checkIds(int[] triangles, int n, int numPoints) {
+        for (int i = 0; i < n; i++)
+            assertThat(triangles[i]).isGreaterThanOrEqualTo(0).isLessThan(numPoints);
+    }
+
+    /**
+     * @return sum of signed triangle areas.
+     */
+    private static double area(float[] points, int offset, int[] triangles, int n) {
+        double sum = 0;
+        for (int i = 0; i < n; i += 3) {
+            int a = offset + 2 * triangles[i];
+            int b = offset + 2 * triangles[i + 1];
+            int c = offset + 2 * triangles[i + 2];
+            sum += ((double) points[b] - points[a]) * ((double) points[c + 1] - points[a + 1])
+                    - ((double) points[c] - points[a]) * ((double) points[b + 1] - points[a + 1]);
+        }
+        return sum / 2;
+    }
+}
@@ -0,0 +1,62 @@
+package org.oscim.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class PausableThreadTest {
+
+    private static class Loop extends PausableThread {
+        final AtomicInteger work = new AtomicInteger();
+        volatile boolean done;
+
+        @Override
+        protected void doWork() throws InterruptedException {
+            work.incrementAndGet();
+            Thread.sleep(1);
+        }
+
+        @Override
+        protected void afterRun() {
+            done = true;
+        }
+
+        @Override
+        protected String getThreadName() {
+            return "loop";
+        }
+
+        @Override
+        protected boolean hasWork() {
+            return true;
+        }
+    }
+
+    @Test
+    public void shouldStopLoopsQueuedOnExecutor() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Loop running = new Loop();
+        Loop queued = new Loop();
+        running.start(executor);
+        queued.start(executor);
+
+        while (running.work.get() == 0)
+            Thread.sleep(1);
+
+        running.pause();
+        queued.pause();
+        running.finish();
+        queued.finish();
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(running.done).isTrue();
+        assertThat(queued.done).isTrue();
+        assertThat(queued.work.get()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,21 @@
+package org.oscim.utils.animation;
+
+import org.junit.Test;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.fest.assertions.data.Offset.offset;
+
+public class EasingTest {
+
+    @Test
+    public void shouldEaseProgressLikeDuration() {
+        for (Easing.Type type : Easing.Type.values()) {
+            for (int millis = 0; millis <= 1000; millis += 50) {
+                assertThat(Easing.ease(millis / 1000f, type))
+                        .isEqualTo(Easing.ease(0, millis, 1000, type), offset(1E-5f));
+            }
+            assertThat(Easing.ease(-1f, type)).isEqualTo(0);
+            assertThat(Easing.ease(2f, type)).isEqualTo(1);
+        }
+    }
+}
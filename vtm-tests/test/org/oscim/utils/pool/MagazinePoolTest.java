@@ -0,0 +1,104 @@
+package org.oscim.utils.pool;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class MagazinePoolTest {
+
+    static class Item extends Inlist<Item> {
+        final AtomicBoolean used = new AtomicBoolean();
+    }
+
+    static class ItemPool extends MagazinePool<Item> {
+        ItemPool() {
+            super(4, 64);
+        }
+
+        @Override
+        protected Item createItem() {
+            return new Item();
+        }
+    }
+
+    @Test
+    public void shouldReuseItemsOfOneThread() {
+        ItemPool pool = new ItemPool();
+
+        Item a = pool.get();
+        Item b = pool.get();
+        pool.release(a);
+        pool.release(b);
+
+        assertThat(pool.get()).isSameAs(b);
+        assertThat(pool.get()).isSameAs(a);
+        assertThat(pool.getAllocations()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldPassItemsBetweenThreads() throws Exception {
+        final ItemPool pool = new ItemPool();
+
+        /* items released by one thread end up in the depot */
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                Item list = null;
+                for (int i = 0; i < 100; i++)
+                    list = Inlist.push(list, new Item());
+                pool.releaseAll(list);
+            }
+        };
+        producer.start();
+        producer.join();
+
+        assertThat(pool.getFill()).isEqualTo(64);
+        assertThat(pool.getHighWaterMark()).isEqualTo(64);
+
+        for (int i = 0; i < 64; i++)
+            pool.get();
+        assertThat(pool.getAllocations()).isEqualTo(0);
+        assertThat(pool.getFill()).isEqualTo(0);
+
+        pool.get();
+        assertThat(pool.getAllocations()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotShareItemsConcurrently() throws Exception {
+        final ItemPool pool = new ItemPool();
+        final AtomicBoolean failed = new AtomicBoolean();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        Item list = null;
+                        for (int j = 0; j < i % 20; j++) {
+                            Item it = pool.get();
+                            if (!it.used.compareAndSet(false, true))
+                                failed.set(true);
+                            list = Inlist.push(list, it);
+                        }
+                        for (Item it = list; it != null; it = it.next)
+                            it.used.set(false);
+                        pool.releaseAll(list);
+                    }
+                }
+            });
+        }
+        for (Thread t : threads)
+            t.start();
+        for (Thread t : threads)
+            t.join();
+
+        assertThat(failed.get()).isFalse();
+        assertThat(pool.getFill()).isLessThanOrEqualTo(pool.getCapacity());
+    }
+}
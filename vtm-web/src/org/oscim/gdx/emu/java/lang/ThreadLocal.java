@@ -0,0 +1,29 @@
+package java.lang;
+
+public class ThreadLocal<T> {
+
+    private T value;
+    private boolean initialized;
+
+    protected T initialValue() {
+        return null;
+    }
+
+    public T get() {
+        if (!initialized) {
+            value = initialValue();
+            initialized = true;
+        }
+        return value;
+    }
+
+    public void set(T value) {
+        this.value = value;
+        initialized = true;
+    }
+
+    public void remove() {
+        value = null;
+        initialized = false;
+    }
+}
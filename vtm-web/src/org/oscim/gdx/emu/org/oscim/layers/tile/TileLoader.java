@@ -17,7 +17,9 @@ package org.oscim.layers.tile;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.utils.Timer;
 import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.GeometryBuffer.GeometryType;
 import org.oscim.core.MapElement;
+import org.oscim.core.TagSet;
 import org.oscim.renderer.MapRenderer;
 import org.oscim.tiling.ITileDataSink;
 import org.oscim.tiling.QueryResult;
@@ -132,6 +134,14 @@ public abstract class TileLoader implements ITileDataSink {
         });
     }
 
+    /**
+     * Called by TileDataSource
+     */
+    @Override
+    public boolean accept(GeometryType type, TagSet tags) {
+        return true;
+    }
+
     /**
      * Called by TileDataSource
      */
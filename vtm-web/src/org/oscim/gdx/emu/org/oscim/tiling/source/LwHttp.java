@@ -21,6 +21,7 @@ import com.google.gwt.xhr.client.XMLHttpRequest;
 import com.google.gwt.xhr.client.XMLHttpRequest.ResponseType;
 import org.oscim.core.Tile;
 import org.oscim.layers.tile.MapTile;
+import org.oscim.tiling.ITileCache;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -125,4 +126,13 @@ public class LwHttp implements HttpEngine {
     @Override
     public void sendRequest(Tile tile) throws IOException {
     }
+
+    @Override
+    public void setConditional(ITileCache.Metadata metadata) {
+    }
+
+    @Override
+    public ITileCache.Metadata getMetadata() {
+        return ITileCache.Metadata.NONE;
+    }
 }
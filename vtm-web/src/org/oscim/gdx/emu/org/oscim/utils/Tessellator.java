@@ -11,6 +11,12 @@ import java.util.logging.Logger;
 public class Tessellator {
     private static final Logger log = Logger.getLogger(Tessellator.class.getName());
 
+    private static final EarClipTessellator earClipTessellator = new EarClipTessellator();
+
+    public static EarClipTessellator getEarClipTessellator() {
+        return earClipTessellator;
+    }
+
     public static int tessellate(GeometryBuffer geom, float scale,
                                  VertexData outPoints, VertexData outTris, int vertexOffset) {
 
@@ -6,12 +6,27 @@ uniform mat4 u_mvp;
 // uniform mat4 u_vp;
 // factor to increase line width relative to scale
 uniform float u_width;
+#ifdef COMPACT
+// xy position
+attribute vec2 a_pos;
+// extrusion vector in bytes
+attribute vec2 a_dir;
+#else
 // xy hold position, zw extrusion vector
 attribute vec4 a_pos;
+#endif
 uniform float u_height;
 varying vec2 v_st;
 
 void main() {
+#ifdef COMPACT
+    // last two bits hold the texture coordinates,
+    // remove them from the six bit extrusion vector.
+    vec2 st = mod(a_dir, 4.0);
+    vec2 dir = a_dir - st;
+    gl_Position = u_mvp * vec4(a_pos + (u_width * dir), u_height, 1.0);
+    v_st = st - 1.0;
+#else
     // scale extrusion to u_width pixel
     // just ignore the two most insignificant bits.
     vec2 dir = a_pos.zw;
@@ -19,6 +34,7 @@ void main() {
 
     // last two bits hold the texture coordinates.
     v_st = abs(mod(dir, 4.0)) - 1.0;
+#endif
 }
 
 $$
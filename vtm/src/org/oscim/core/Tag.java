@@ -142,6 +142,23 @@ public class Tag {
         this.intern = internValue;
     }
 
+    private Tag(boolean intern, String key, String value) {
+        this.key = key;
+        this.value = value;
+        this.intern = intern;
+    }
+
+    /**
+     * Create Tag from key and value which are already intern()alized,
+     * e.g. by the string table of a tile decoder.
+     *
+     * @param key   the interned key of the tag.
+     * @param value the interned value of the tag.
+     */
+    public static Tag interned(String key, String value) {
+        return new Tag(true, key, value);
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) {
@@ -16,78 +16,236 @@
  */
 package org.oscim.layers.tile;
 
+import org.oscim.core.MapPosition;
+
 import java.util.logging.Logger;
 
 import static org.oscim.layers.tile.MapTile.State.*;
 
 /**
- * A JobQueue keeps the list of pending jobs for a MapView and prioritizes them.
+ * Priority queue of tile jobs, filled by {@link TileManager} and polled by
+ * {@link TileLoader}s.
+ * <p/>
+ * Jobs are kept in a binary heap ordered by distance to the map center and
+ * zoom level, prefetched tiles are loaded after all visible tiles. The queue
+ * is not rebuilt on every map position change: queued jobs which are still
+ * requested keep their place and are only reprioritized, jobs which are not
+ * requested anymore are dropped.
+ * <p/>
+ * Can be replaced by {@link TileManager#setJobQueue(JobQueue)}.
  */
 public class JobQueue {
 
     private static final Logger log = Logger.getLogger(JobQueue.class.getName());
 
-    private int mCurrentJob = 0;
-    private MapTile[] mJobs;
+    /**
+     * Is notified when the jobs of a queue have changed, e.g. to start
+     * fetching the data of the next jobs before a loader polls them.
+     */
+    public interface Listener {
+        /**
+         * Called on the thread which updated the queue, without holding
+         * the queue lock.
+         */
+        void onJobsChanged(JobQueue queue);
+    }
+
+    private Listener mListener;
+    private MapTile[] mJobs = new MapTile[32];
+    private long[] mPriority = new long[32];
+    private int mSize;
 
     /**
+     * Replaces all jobs of this queue.
+     *
      * @param tiles the jobs to be added to this queue.
      */
-    public synchronized void setJobs(MapTile[] tiles) {
-        mJobs = tiles;
-        mCurrentJob = 0;
+    public void setJobs(MapTile[] tiles) {
+        synchronized (this) {
+            mSize = 0;
+            for (MapTile t : tiles)
+                add(t);
+            heapify();
+        }
+        if (mListener != null)
+            mListener.onJobsChanged(this);
     }
 
     /**
-     * Removes all jobs from this queue.
+     * Updates the queue for a new map position.
+     * <p/>
+     * Queued jobs which have not been requested by the update with the given
+     * serial are dropped and set to {@link MapTile.State#NONE}. New jobs are
+     * added and all jobs are reprioritized by their distance to the position.
+     *
+     * @param jobs   the new jobs.
+     * @param size   the number of new jobs.
+     * @param serial the serial of the update, see {@link MapTile#jobSerial}.
+     * @param pos    the current map position.
+     * @return true if the queue is not empty.
      */
-    public synchronized void clear() {
-        if (mJobs == null) {
-            mCurrentJob = 0;
-            return;
+    public boolean updateJobs(MapTile[] jobs, int size, int serial, MapPosition pos) {
+        boolean hasJobs;
+        synchronized (this) {
+            hasJobs = update(jobs, size, serial, pos);
         }
-        MapTile[] tiles = mJobs;
+        if (mListener != null)
+            mListener.onJobsChanged(this);
+        return hasJobs;
+    }
 
-        for (int i = mCurrentJob, n = mJobs.length; i < n; i++) {
+    private boolean update(MapTile[] jobs, int size, int serial, MapPosition pos) {
+        MapTile[] tiles = mJobs;
+        int cnt = 0;
+        for (int i = 0; i < mSize; i++) {
             MapTile t = tiles[i];
-            if (t.state(LOADING | CANCEL)) {
+            if (t.jobSerial == serial) {
+                tiles[cnt++] = t;
+                continue;
+            }
+            if (t.state(LOADING | CANCEL))
                 t.setState(NONE);
-            } else {
+            else
                 log.fine("Wrong tile in queue " + t + " " + t.state());
-            }
+        }
+        for (int i = cnt; i < mSize; i++)
             tiles[i] = null;
+        mSize = cnt;
+
+        for (int i = 0; i < size; i++)
+            add(jobs[i]);
+
+        TileManager.updateDistances(mJobs, mSize, pos);
+        heapify();
+
+        return mSize > 0;
+    }
+
+    /**
+     * Removes all jobs from this queue.
+     */
+    public void clear() {
+        synchronized (this) {
+            MapTile[] tiles = mJobs;
+
+            for (int i = 0; i < mSize; i++) {
+                MapTile t = tiles[i];
+                if (t.state(LOADING | CANCEL)) {
+                    t.setState(NONE);
+                } else {
+                    log.fine("Wrong tile in queue " + t + " " + t.state());
+                }
+                tiles[i] = null;
+            }
+            mSize = 0;
         }
-        mCurrentJob = 0;
-        mJobs = null;
+        if (mListener != null)
+            mListener.onJobsChanged(this);
+    }
+
+    /**
+     * @param listener the listener to notify when jobs were updated or
+     *                 cleared (may be null).
+     */
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Copies jobs from the head of the queue without removing them. The
+     * first job is the next one to be polled, the others are roughly, but
+     * not strictly, in order of priority.
+     *
+     * @param jobs receives the jobs.
+     * @return the number of copied jobs.
+     */
+    public synchronized int peek(MapTile[] jobs) {
+        int cnt = Math.min(jobs.length, mSize);
+        System.arraycopy(mJobs, 0, jobs, 0, cnt);
+        return cnt;
     }
 
     /**
      * @return true if this queue contains no jobs, false otherwise.
      */
     public synchronized boolean isEmpty() {
-        return (mJobs == null);
+        return mSize == 0;
+    }
+
+    /**
+     * @return the number of jobs in this queue.
+     */
+    public synchronized int size() {
+        return mSize;
     }
 
     /**
      * @return the most important job from this queue or null, if empty.
      */
     public synchronized MapTile poll() {
-        if (mJobs == null)
+        if (mSize == 0)
             return null;
 
-        if (mCurrentJob == 0) {
-            int len = mJobs.length;
-            if (len > 1)
-                TileDistanceSort.sort(mJobs, 0, len);
+        MapTile t = mJobs[0];
+
+        int last = --mSize;
+        if (last > 0) {
+            MapTile lastJob = mJobs[last];
+            long lastPriority = mPriority[last];
+            mJobs[last] = null;
+            siftDown(0, lastJob, lastPriority);
+        } else {
+            mJobs[0] = null;
         }
+        return t;
+    }
 
-        MapTile t = mJobs[mCurrentJob];
-        mJobs[mCurrentJob] = null;
+    private void add(MapTile t) {
+        if (mSize == mJobs.length) {
+            MapTile[] jobs = new MapTile[mSize * 2];
+            System.arraycopy(mJobs, 0, jobs, 0, mSize);
+            mJobs = jobs;
+            mPriority = new long[mSize * 2];
+        }
+        mJobs[mSize++] = t;
+    }
 
-        if (++mCurrentJob == mJobs.length)
-            mJobs = null;
+    /**
+     * Priority of a tile: prefetched tiles after all others, then distance to
+     * the map center and lower zoom levels first on equal distance.
+     */
+    private static long priority(MapTile t) {
+        /* bits of non-negative floats sort like the floats */
+        long distance = Float.floatToIntBits(Math.max(t.distance + t.zoomLevel * 1e-3f, 0));
+        return t.prefetch ? (1L << 32) | distance : distance;
+    }
 
-        return t;
+    private void heapify() {
+        for (int i = 0; i < mSize; i++)
+            mPriority[i] = priority(mJobs[i]);
 
+        for (int i = (mSize >> 1) - 1; i >= 0; i--)
+            siftDown(i, mJobs[i], mPriority[i]);
+    }
+
+    private void siftDown(int idx, MapTile t, long prio) {
+        MapTile[] jobs = mJobs;
+        long[] priority = mPriority;
+        int half = mSize >> 1;
+
+        while (idx < half) {
+            int c = (idx << 1) + 1;
+            if (c + 1 < mSize && priority[c + 1] < priority[c])
+                c++;
+
+            if (prio <= priority[c])
+                break;
+
+            jobs[idx] = jobs[c];
+            priority[idx] = priority[c];
+            idx = c;
+        }
+        jobs[idx] = t;
+        priority[idx] = prio;
     }
 }
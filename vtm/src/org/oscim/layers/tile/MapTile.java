@@ -112,6 +112,18 @@ public class MapTile extends Tile {
      */
     public float distance;
 
+    /**
+     * Serial of the last TileManager update which requested this tile.
+     * Used by JobQueue to drop jobs that are not requested anymore.
+     */
+    int jobSerial;
+
+    /**
+     * Tile was requested by prefetching along an animation path and
+     * has not been visible yet. Loaded after all visible tiles.
+     */
+    boolean prefetch;
+
     /**
      * Tile is in view region. Set by TileRenderer.
      */
@@ -286,8 +298,10 @@ public class MapTile extends Tile {
      */
     protected void clear() {
         while (data != null) {
+            /* dispose may return data to a pool */
+            TileData next = data.next;
             data.dispose();
-            data = data.next;
+            data = next;
         }
         setState(NONE);
     }
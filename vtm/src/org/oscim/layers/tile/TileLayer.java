@@ -25,10 +25,14 @@ import org.oscim.map.Map;
 import org.oscim.map.Map.UpdateListener;
 import org.oscim.tiling.TileSource;
 
+import java.util.concurrent.Executor;
+
 public abstract class TileLayer extends Layer implements UpdateListener {
 
     private int mNumLoaders = 4;
 
+    private Executor mLoaderExecutor;
+
     /**
      * TileManager responsible for adding visible tiles
      * to load queue and managing in-memory tile cache.
@@ -69,7 +73,10 @@ public abstract class TileLayer extends Layer implements UpdateListener {
 
         for (int i = 0; i < numLoaders; i++) {
             mTileLoader[i] = createLoader();
-            mTileLoader[i].start();
+            if (mLoaderExecutor != null)
+                mTileLoader[i].start(mLoaderExecutor);
+            else
+                mTileLoader[i].start();
         }
     }
 
@@ -87,6 +94,16 @@ public abstract class TileLayer extends Layer implements UpdateListener {
         mNumLoaders = num;
     }
 
+    /**
+     * Set executor to run the loaders on instead of dedicated threads, e.g.
+     * <code>Executors.newVirtualThreadPerTaskExecutor()</code> on JDK 21.
+     * Each loader occupies one executor thread until the layer is detached.
+     * Should be called before attaching layer to map.
+     */
+    public void setLoaderExecutor(Executor executor) {
+        mLoaderExecutor = executor;
+    }
+
     @Override
     public void onMapEvent(Event event, MapPosition mapPosition) {
 
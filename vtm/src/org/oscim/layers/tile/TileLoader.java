@@ -18,7 +18,9 @@
 package org.oscim.layers.tile;
 
 import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.GeometryBuffer.GeometryType;
 import org.oscim.core.MapElement;
+import org.oscim.core.TagSet;
 import org.oscim.tiling.ITileDataSink;
 import org.oscim.tiling.QueryResult;
 import org.oscim.utils.PausableThread;
@@ -101,6 +103,14 @@ public abstract class TileLoader extends PausableThread implements ITileDataSink
         mTile = null;
     }
 
+    /**
+     * Called by TileDataSource
+     */
+    @Override
+    public boolean accept(GeometryType type, TagSet tags) {
+        return true;
+    }
+
     /**
      * Called by TileDataSource
      */
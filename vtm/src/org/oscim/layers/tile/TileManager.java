@@ -24,6 +24,7 @@ import org.oscim.event.Event;
 import org.oscim.event.EventDispatcher;
 import org.oscim.event.EventListener;
 import org.oscim.layers.tile.MapTile.TileNode;
+import org.oscim.map.Animator;
 import org.oscim.map.Map;
 import org.oscim.map.Viewport;
 import org.oscim.renderer.BufferObject;
@@ -117,7 +118,29 @@ public class TileManager {
     /**
      * job queue filled in TileManager and polled by TileLoaders
      */
-    private final JobQueue jobQueue;
+    private JobQueue jobQueue;
+
+    /**
+     * serial of the current update, see {@link MapTile#jobSerial}
+     */
+    private int mJobSerial;
+
+    /**
+     * number of positions sampled along the animation path for prefetching
+     */
+    private static final int PREFETCH_SAMPLES = 4;
+
+    /**
+     * max number of prefetched, not yet visible tiles in cache
+     */
+    private int mPrefetchBudget;
+
+    /**
+     * number of prefetched, not yet visible tiles in cache
+     */
+    private int mPrefetchCount;
+
+    private final MapPosition mPrefetchPos = new MapPosition();
 
     private final float[] mMapPlane = new float[8];
 
@@ -166,6 +189,7 @@ public class TileManager {
         mViewport = map.viewport();
 
         jobQueue = new JobQueue();
+        mJobSerial = 0;
         mJobs = new ArrayList<MapTile>();
         mTiles = new MapTile[mCacheLimit];
 
@@ -174,6 +198,36 @@ public class TileManager {
         mUpdateSerial = 0;
     }
 
+    /**
+     * Replace the job queue, e.g. with a custom scheduling policy.
+     * Should be called before attaching the layer to the map.
+     */
+    public void setJobQueue(JobQueue jobQueue) {
+        if (this.jobQueue != null)
+            this.jobQueue.clear();
+        this.jobQueue = jobQueue;
+    }
+
+    public JobQueue getJobQueue() {
+        return jobQueue;
+    }
+
+    /**
+     * Prefetch tiles along the path of map animations, e.g. flings or
+     * animateTo, which will become visible. Prefetched tiles are loaded after
+     * all visible tiles.
+     *
+     * @param budget max number of prefetched, not yet visible tiles which may
+     *               enter the tile cache. 0 disables prefetching (default).
+     */
+    public void setPrefetchBudget(int budget) {
+        mPrefetchBudget = Math.max(budget, 0);
+    }
+
+    public int getPrefetchBudget() {
+        return mPrefetchBudget;
+    }
+
     public void setZoomTable(int[] zoomTable) {
         mZoomTable = zoomTable;
     }
@@ -194,6 +248,8 @@ public class TileManager {
     }
 
     public void init() {
+        jobQueue.clear();
+
         if (mCurrentTiles != null)
             mCurrentTiles.releaseTiles();
 
@@ -219,6 +275,7 @@ public class TileManager {
         Arrays.fill(mTiles, null);
         mTilesEnd = 0;
         mTilesCount = 0;
+        mPrefetchCount = 0;
 
         /* Set up TileSet large enough to hold current tiles.
          * Use screen size as workaround for blank tiles in #520. */
@@ -245,15 +302,13 @@ public class TileManager {
             mPrevZoomlevel = clamp(pos.zoomLevel, mMinZoom, mMaxZoom);
             init();
         }
-        /* clear JobQueue and set tiles to state == NONE.
-         * one could also append new tiles and sort in JobQueue
-         * but this has the nice side-effect that MapWorkers dont
-         * start with old jobs while new jobs are calculated, which
-         * should increase the chance that they are free when new
-         * jobs come in. */
-        jobQueue.clear();
+        /* JobQueue is not cleared: jobs requested again by this
+         * update keep their place and are reprioritized, the others
+         * are dropped in JobQueue.updateJobs(). */
+        mJobSerial++;
 
         if (pos.zoomLevel < mMinZoom) {
+            jobQueue.clear();
             if (mCurrentTiles.cnt > 0 && pos.zoomLevel < mMinZoom - 4) {
                 synchronized (mTilelock) {
                     mCurrentTiles.releaseTiles();
@@ -295,8 +350,10 @@ public class TileManager {
                 if (z <= tileZoom && z > match)
                     match = z;
             }
-            if (match == 0)
+            if (match == 0) {
+                jobQueue.clear();
                 return false;
+            }
 
             tileZoom = match;
         }
@@ -360,18 +417,17 @@ public class TileManager {
             mMap.render();
         }
 
-        /* Add tile jobs to queue */
-        if (mJobs.isEmpty())
-            return false;
-
-        MapTile[] jobs = new MapTile[mJobs.size()];
-        jobs = mJobs.toArray(jobs);
-        updateDistances(jobs, jobs.length, pos);
+        if (mPrefetchBudget > 0)
+            prefetch(tileZoom);
 
-        /* sets tiles to state == LOADING */
-        jobQueue.setJobs(jobs);
+        /* Add tile jobs to queue, drop jobs not requested anymore */
+        boolean newJobs = !mJobs.isEmpty();
+        MapTile[] jobs = mJobs.toArray(new MapTile[mJobs.size()]);
         mJobs.clear();
 
+        if (!jobQueue.updateJobs(jobs, jobs.length, mJobSerial, pos) || !newJobs)
+            return false;
+
         if (mCacheReduce < mCacheLimit / 2) {
             if (BufferObject.isMaxFill()) {
                 mCacheReduce += 10;
@@ -434,10 +490,13 @@ public class TileManager {
 
     MapTile addTile(int x, int y, int zoomLevel) {
         MapTile tile = mIndex.getTile(x, y, zoomLevel);
+        if (tile != null)
+            setRequested(tile);
 
         if (tile == null) {
             TileNode n = mIndex.add(x, y, zoomLevel);
             tile = n.item = new MapTile(n, x, y, zoomLevel);
+            tile.jobSerial = mJobSerial;
             tile.setState(LOADING);
             mJobs.add(tile);
             addToCache(tile);
@@ -452,18 +511,101 @@ public class TileManager {
             if (p == null) {
                 TileNode n = mIndex.add(x >> 1, y >> 1, zoomLevel - 1);
                 p = n.item = new MapTile(n, x >> 1, y >> 1, zoomLevel - 1);
+                p.jobSerial = mJobSerial;
                 addToCache(p);
                 /* this prevents to add tile twice to queue */
                 p.setState(LOADING);
                 mJobs.add(p);
-            } else if (!p.isActive()) {
-                p.setState(LOADING);
-                mJobs.add(p);
+            } else {
+                setRequested(p);
+                if (!p.isActive()) {
+                    p.setState(LOADING);
+                    mJobs.add(p);
+                }
             }
         }
         return tile;
     }
 
+    private void setRequested(MapTile tile) {
+        tile.jobSerial = mJobSerial;
+        if (tile.prefetch) {
+            /* prefetched tile became visible */
+            tile.prefetch = false;
+            mPrefetchCount--;
+        }
+    }
+
+    /**
+     * Add jobs for tiles which will become visible along the path of the
+     * current map animation.
+     */
+    private void prefetch(int tileZoom) {
+        Animator animator = mMap.animator();
+        if (animator == null || !animator.isActive())
+            return;
+
+        if (mPrefetchCount >= mPrefetchBudget)
+            releasePrefetchTiles();
+
+        float progress = animator.getProgress();
+        for (int i = 1; i <= PREFETCH_SAMPLES; i++) {
+            if (mPrefetchCount >= mPrefetchBudget)
+                return;
+
+            float p = progress + (1 - progress) * i / PREFETCH_SAMPLES;
+            if (!animator.predictPosition(p, mPrefetchPos))
+                return;
+
+            int zoom = tileZoom;
+            if (mZoomTable == null)
+                zoom = clamp(mPrefetchPos.zoomLevel, mMinZoom, mMaxZoom);
+
+            mPrefetchScanBox.scan(mPrefetchPos.x, mPrefetchPos.y, mPrefetchPos.scale,
+                    zoom, mMapPlane);
+        }
+    }
+
+    /**
+     * Remove prefetched tiles from cache which are not requested anymore.
+     */
+    private void releasePrefetchTiles() {
+        synchronized (mTilelock) {
+            for (int i = 0; i < mTilesEnd; i++) {
+                MapTile t = mTiles[i];
+                if (t != null && t.prefetch && t.state(NONE) && removeFromCache(t))
+                    mTiles[i] = null;
+            }
+        }
+    }
+
+    private void addPrefetchTile(int x, int y, int zoomLevel) {
+        MapTile tile = mIndex.getTile(x, y, zoomLevel);
+
+        /* already requested by this update */
+        if (tile != null && tile.jobSerial == mJobSerial)
+            return;
+
+        if (tile == null || (!tile.prefetch && !tile.isActive())) {
+            if (mPrefetchCount >= mPrefetchBudget)
+                return;
+
+            if (tile == null) {
+                TileNode n = mIndex.add(x, y, zoomLevel);
+                tile = n.item = new MapTile(n, x, y, zoomLevel);
+                addToCache(tile);
+            }
+            tile.prefetch = true;
+            mPrefetchCount++;
+        }
+
+        tile.jobSerial = mJobSerial;
+        if (!tile.isActive()) {
+            tile.setState(LOADING);
+            mJobs.add(tile);
+        }
+    }
+
     private void addToCache(MapTile tile) {
 
         if (mTilesEnd == mTiles.length) {
@@ -499,6 +641,11 @@ public class TileManager {
         if (t.state(NEW_DATA | READY))
             events.fire(TILE_REMOVED, t);
 
+        if (t.prefetch) {
+            t.prefetch = false;
+            mPrefetchCount--;
+        }
+
         t.clear();
 
         mIndex.removeItem(t);
@@ -650,7 +797,7 @@ public class TileManager {
         }
     }
 
-    private static void updateDistances(MapTile[] tiles, int size, MapPosition pos) {
+    static void updateDistances(MapTile[] tiles, int size, MapPosition pos) {
         /* TODO there is probably a better quad-tree distance function */
         int zoom = 20;
         long x = (long) (pos.x * (1 << zoom));
@@ -731,6 +878,30 @@ public class TileManager {
         }
     };
 
+    private final ScanBox mPrefetchScanBox = new ScanBox() {
+
+        @Override
+        protected void setVisible(int y, int x1, int x2) {
+            int xmax = 1 << mZoom;
+
+            for (int x = x1; x < x2; x++) {
+                int xx = x;
+
+                if (x < 0 || x >= xmax) {
+                    /* flip-around date line */
+                    if (x < 0)
+                        xx = xmax + x;
+                    else
+                        xx = x - xmax;
+
+                    if (xx < 0 || xx >= xmax)
+                        continue;
+                }
+                addPrefetchTile(xx, y, mZoom);
+            }
+        }
+    };
+
     public MapTile getTile(int tileX, int tileY, byte zoomLevel) {
         return mIndex.getTile(tileX, tileY, zoomLevel);
     }
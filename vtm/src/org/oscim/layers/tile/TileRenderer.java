@@ -23,6 +23,7 @@ import org.oscim.renderer.GLViewport;
 import org.oscim.renderer.LayerRenderer;
 import org.oscim.renderer.MapRenderer;
 import org.oscim.renderer.bucket.RenderBuckets;
+import org.oscim.utils.Parameters;
 import org.oscim.utils.ScanBox;
 
 import static org.oscim.layers.tile.MapTile.PROXY_PARENT;
@@ -149,6 +150,13 @@ public abstract class TileRenderer extends LayerRenderer {
             if (tile.state(READY))
                 continue;
 
+            if (Parameters.UPLOAD_BUDGET > 0
+                    && BufferObject.getFrameUploadBytes() >= Parameters.UPLOAD_BUDGET) {
+                /* continue in next frame */
+                MapRenderer.animate();
+                break;
+            }
+
             if (tile.state(NEW_DATA)) {
                 uploadCnt += uploadTileData(tile);
                 continue;
@@ -45,6 +45,11 @@ public class VectorTileLayer extends TileLayer {
 
     private IRenderTheme mTheme;
 
+    /**
+     * RenderBuckets of evicted tiles, reused by the loaders.
+     */
+    private final RenderBuckets.Pool mBucketsPool = new RenderBuckets.Pool(32);
+
     public VectorTileLayer(Map map, TileSource tileSource) {
         this(map, new TileManager(map,
                         100),
@@ -70,6 +75,13 @@ public class VectorTileLayer extends TileLayer {
         return new VectorTileLoader(this);
     }
 
+    /**
+     * @return pool of RenderBuckets for the tiles of this layer.
+     */
+    public RenderBuckets.Pool getBucketsPool() {
+        return mBucketsPool;
+    }
+
     /**
      * Sets the {@link TileSource} used by {@link TileLoader}.
      *
@@ -187,6 +199,14 @@ public class VectorTileLayer extends TileLayer {
         }
     }
 
+    /**
+     * @return true when process hooks are added, which may use elements
+     * without style.
+     */
+    public boolean hasProcessHooks() {
+        return mLoaderProcessHooks.head() != null;
+    }
+
     public boolean callProcessHooks(MapTile tile, RenderBuckets layers, MapElement element) {
 
         LList<TileLoaderProcessHook> ph = mLoaderProcessHooks.head();
@@ -28,6 +28,7 @@ import org.oscim.theme.styles.*;
 import org.oscim.tiling.ITileDataSource;
 import org.oscim.tiling.QueryResult;
 import org.oscim.utils.Constants;
+import org.oscim.utils.Parameters;
 
 import java.util.logging.Logger;
 
@@ -113,7 +114,7 @@ public class VectorTileLoader extends TileLoader implements RenderStyle.Callback
 
         /* scale line width relative to latitude + PI * thumb */
         mLineScale *= 0.4f + 0.6f * ((float) Math.sin(Math.abs(lat) * (Math.PI / 180)));
-        mBuckets = new RenderBuckets();
+        mBuckets = mTileLayer.getBucketsPool().get();
         tile.data = mBuckets;
 
         try {
@@ -138,6 +139,8 @@ public class VectorTileLoader extends TileLoader implements RenderStyle.Callback
 
         /* finish buckets- tessellate and cleanup on worker-thread */
         mBuckets.prepare();
+        if (ok && Parameters.PRECOMPILE_BUCKETS)
+            mBuckets.precompile(true);
         clearState();
 
         super.completed(result);
@@ -177,6 +180,25 @@ public class VectorTileLoader extends TileLoader implements RenderStyle.Callback
         return tagSet;
     }
 
+    @Override
+    public boolean accept(GeometryType type, TagSet tags) {
+        if (isCanceled() || !mTile.state(LOADING))
+            return false;
+
+        /* process hooks may use elements without style */
+        if (mTileLayer.hasProcessHooks())
+            return true;
+
+        if (type != GeometryType.POINT && type != GeometryType.LINE && type != GeometryType.POLY)
+            return true;
+
+        tags = filterTags(tags);
+        if (tags == null)
+            return false;
+
+        return renderTheme.matchElement(type, tags, mTile.zoomLevel) != null;
+    }
+
     @Override
     public void process(MapElement element) {
         if (isCanceled() || !mTile.state(LOADING))
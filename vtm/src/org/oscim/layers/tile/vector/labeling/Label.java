@@ -23,6 +23,11 @@ import org.oscim.utils.Parameters;
 final class Label extends TextItem {
     TextItem item;
 
+    // labels of the tile
+    LabelTileData data;
+    // item of data the label is placed from
+    TextItem source;
+
     //Link blocking;
     //Link blockedBy;
     // shared list of all label for a tile
@@ -35,6 +40,11 @@ final class Label extends TextItem {
     public int active;
     public OBB2D bbox;
 
+    /* insertion order and state in LabelGrid */
+    int seq;
+    int query;
+    boolean removed;
+
     public Label clone(TextItem ti) {
         this.label = ti.label;
         this.text = ti.text;
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.layers.tile.vector.labeling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Uniform grid over the labeled area for collision checks of placed labels.
+ * <p/>
+ * Labels are inserted into all cells covered by their bounding box, a search
+ * returns the labels of the covered cells in the order of the label list,
+ * i.e. the most recently inserted first. Removal only marks a label, the
+ * grid is rebuilt for each placement pass.
+ */
+final class LabelGrid {
+
+    static final float CELL_SIZE = 128;
+    static final int MAX_CELLS = 64;
+
+    private static final int MAX_CAPTION_NAMES = 256;
+
+    private Label[][] mCells = new Label[0][];
+    private int[] mCount = new int[0];
+
+    private int mCols;
+    private float mCellSize;
+    private float mMin;
+
+    private int mSeq;
+    private int mQuery;
+
+    /* captions by label, for repeat proximity */
+    private final HashMap<String, ArrayList<Label>> mCaptions = new HashMap<>();
+
+    /* search results */
+    private Label[] mResults = new Label[64];
+
+    private final float[] mBounds = new float[4];
+
+    /**
+     * Clear the grid for a new placement pass.
+     *
+     * @param extent half of the width of the labeled area around the center.
+     *               Labels beyond are kept in the border cells.
+     */
+    void clear(float extent) {
+        for (int i = 0, n = mCols * mCols; i < n; i++) {
+            if (mCount[i] > 0) {
+                Arrays.fill(mCells[i], 0, mCount[i], null);
+                mCount[i] = 0;
+            }
+        }
+        int cols = (int) Math.ceil(2 * extent / CELL_SIZE);
+        if (cols < 1)
+            cols = 1;
+        else if (cols > MAX_CELLS)
+            cols = MAX_CELLS;
+
+        mCols = cols;
+        mCellSize = Math.max(CELL_SIZE, 2 * extent / cols);
+        mMin = -cols * mCellSize / 2;
+
+        if (mCount.length < cols * cols) {
+            mCells = Arrays.copyOf(mCells, cols * cols);
+            mCount = new int[cols * cols];
+        }
+
+        if (mCaptions.size() > MAX_CAPTION_NAMES) {
+            mCaptions.clear();
+        } else {
+            for (ArrayList<Label> list : mCaptions.values())
+                list.clear();
+        }
+    }
+
+    private int cell(float v) {
+        int c = (int) Math.floor((v - mMin) / mCellSize);
+        if (c < 0)
+            return 0;
+        return c < mCols ? c : mCols - 1;
+    }
+
+    void insert(Label l) {
+        l.seq = ++mSeq;
+        l.removed = false;
+
+        float[] b = mBounds;
+        bounds(l, b);
+        if (l.text.caption) {
+            ArrayList<Label> list = mCaptions.get(l.label);
+            if (list == null) {
+                list = new ArrayList<>();
+                mCaptions.put(l.label, list);
+            }
+            list.add(l);
+        }
+        /* the way segment (or axis aligned box of captions) is
+         * checked first, see Label.bboxOverlaps() */
+        b[0] = Math.min(b[0], Math.min(l.x1, l.x2));
+        b[1] = Math.min(b[1], Math.min(l.y1, l.y2));
+        b[2] = Math.max(b[2], Math.max(l.x1, l.x2));
+        b[3] = Math.max(b[3], Math.max(l.y1, l.y2));
+
+        int x2 = cell(b[2]);
+        int y2 = cell(b[3]);
+        for (int y = cell(b[1]); y <= y2; y++) {
+            for (int x = cell(b[0]); x <= x2; x++) {
+                int i = y * mCols + x;
+                Label[] c = mCells[i];
+                if (c == null)
+                    c = mCells[i] = new Label[8];
+                else if (mCount[i] == c.length)
+                    c = mCells[i] = Arrays.copyOf(c, c.length * 2);
+                c[mCount[i]++] = l;
+            }
+        }
+    }
+
+    void remove(Label l) {
+        l.removed = true;
+    }
+
+    /**
+     * Search labels which way segment or bounding box may be within
+     * distance 'add' of the way segment of l, see Label.bboxOverlaps().
+     *
+     * @return number of labels in {@link #results()}.
+     */
+    int searchWay(Label l, float add) {
+        return search(Math.min(l.x1, l.x2) - add, Math.min(l.y1, l.y2) - add,
+                Math.max(l.x1, l.x2) + add, Math.max(l.y1, l.y2) + add, null);
+    }
+
+    /**
+     * Search labels which bounding box may overlap the bounding box of l,
+     * and the captions sharing the label of l.
+     *
+     * @return number of labels in {@link #results()}.
+     */
+    int searchCaption(Label l) {
+        float[] b = mBounds;
+        bounds(l, b);
+        return search(b[0], b[1], b[2], b[3], l.label);
+    }
+
+    /**
+     * Axis aligned bounds of the oriented bounding box.
+     */
+    private static void bounds(Label l, float[] b) {
+        float[] v = l.bbox.vec;
+        b[0] = Math.min(Math.min(v[0], v[2]), Math.min(v[4], v[6]));
+        b[1] = Math.min(Math.min(v[1], v[3]), Math.min(v[5], v[7]));
+        b[2] = Math.max(Math.max(v[0], v[2]), Math.max(v[4], v[6]));
+        b[3] = Math.max(Math.max(v[1], v[3]), Math.max(v[5], v[7]));
+    }
+
+    private int search(float xmin, float ymin, float xmax, float ymax, String caption) {
+        int query = ++mQuery;
+        int n = 0;
+
+        int x2 = cell(xmax);
+        int y2 = cell(ymax);
+        for (int y = cell(ymin); y <= y2; y++) {
+            for (int x = cell(xmin); x <= x2; x++) {
+                int i = y * mCols + x;
+                Label[] c = mCells[i];
+                for (int j = 0, cnt = mCount[i]; j < cnt; j++)
+                    n = add(c[j], query, n);
+            }
+        }
+        if (caption != null) {
+            ArrayList<Label> list = mCaptions.get(caption);
+            if (list != null) {
+                for (int j = 0, cnt = list.size(); j < cnt; j++)
+                    n = add(list.get(j), query, n);
+            }
+        }
+
+        /* insertion sort, most recent first */
+        Label[] r = mResults;
+        for (int i = 1; i < n; i++) {
+            Label l = r[i];
+            int j = i - 1;
+            for (; j >= 0 && r[j].seq < l.seq; j--)
+                r[j + 1] = r[j];
+            r[j + 1] = l;
+        }
+        return n;
+    }
+
+    private int add(Label l, int query, int n) {
+        if (l.removed || l.query == query)
+            return n;
+        l.query = query;
+        if (n == mResults.length)
+            mResults = Arrays.copyOf(mResults, n * 2);
+        mResults[n] = l;
+        return n + 1;
+    }
+
+    /**
+     * @return the results of the last search, valid until the next search.
+     */
+    Label[] results() {
+        return mResults;
+    }
+}
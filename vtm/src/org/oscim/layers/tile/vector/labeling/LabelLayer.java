@@ -78,6 +78,9 @@ public class LabelLayer extends Layer implements Map.UpdateListener, TileManager
         public boolean doWork(LabelTask t) {
 
             if (mLabelPlacer.updateLabels(t)) {
+                /* continue with labels left by the time budget */
+                if (mLabelPlacer.isPending())
+                    submit(0);
                 mMap.render();
                 return true;
             }
@@ -110,6 +113,13 @@ public class LabelLayer extends Layer implements Map.UpdateListener, TileManager
         mZoomLimiter.removeZoomLimit();
     }
 
+    /**
+     * @return the label placement, e.g. for its counters of the last update.
+     */
+    public LabelPlacement getLabelPlacement() {
+        return mLabelPlacer;
+    }
+
     public void clearLabels() {
         mWorker.cancel(true);
     }
@@ -35,7 +35,10 @@ import org.oscim.utils.FastMath;
 import org.oscim.utils.Parameters;
 import org.oscim.utils.geom.OBB2D;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import static org.oscim.layers.tile.MapTile.State.NEW_DATA;
@@ -52,11 +55,26 @@ public class LabelPlacement {
     private static final float MIN_CAPTION_DIST = 5;
     private static final float MIN_WAY_DIST = 3;
 
+    /* placement state of LabelTileData */
+    private static final int WAYS = 1;
+    private static final int CAPTIONS = 2;
+
+    /* labels to add: all, only those not visible or only those
+     * visible at the last position */
+    private static final int ALL = 0;
+    private static final int NEW = 1;
+    private static final int RETRY = 2;
+
     /**
      * thread local pool of for unused label items
      */
     private final LabelPool mPool = new LabelPool();
 
+    /**
+     * collision index of current labels
+     */
+    private final LabelGrid mGrid = new LabelGrid();
+
     private final TileSet mTileSet = new TileSet();
     private final TileRenderer mTileRenderer;
     private final Map mMap;
@@ -78,6 +96,34 @@ public class LabelPlacement {
     /* Zoom level of current tiles (initial value doesn't matter) */
     private Integer mZoom = Viewport.MIN_ZOOM_LEVEL;
 
+    /* incremental placement */
+    private volatile boolean mIncremental;
+    private volatile long mTimeBudget;
+    private boolean mPending;
+    private boolean mRetry;
+
+    /**
+     * labels of these tiles are placed (WAYS, CAPTIONS), they are
+     * only checked for newly visible labels, and for rejected labels
+     * when placed labels were dropped
+     */
+    private HashMap<LabelTileData, TileState> mTileState = new HashMap<>();
+    private HashMap<LabelTileData, TileState> mNextTileState = new HashMap<>();
+
+    /* state of the last update */
+    private int mLastZoom;
+    private double mLastScale;
+    private float mLastBearing;
+    private float mLastSquareRadius;
+    private double mLastTileX, mLastTileY;
+
+    /* counters of the last update */
+    private int mPlaced;
+    private int mRejected;
+    private int mRemoved;
+    private int mCollisionTests;
+    private long mUpdateTime;
+
     public LabelPlacement(Map map, TileRenderer tileRenderer, ZoomLimiter zoomLimiter) {
         mMap = map;
         mTileRenderer = tileRenderer;
@@ -85,27 +131,39 @@ public class LabelPlacement {
     }
 
     /**
-     * remove Label l from mLabels and return l.next
+     * remove Label l from mGrid, l is removed from mLabels
+     * at the end of the update
      */
-    private Label removeLabel(Label l) {
-        Label ret = (Label) l.next;
-        mLabels = (Label) mPool.release(mLabels, l);
-        return ret;
+    private void removeLabel(Label l) {
+        mGrid.remove(l);
+        mRemoved++;
+
+        /* try again when the label removing it is dropped */
+        TileState state = l.data == null ? null : mTileState.get(l.data);
+        if (state != null && l.source != null)
+            state.rejected.add(l.source);
     }
 
     public void addLabel(Label l) {
         l.next = mLabels;
         mLabels = l;
+        mGrid.insert(l);
     }
 
     private byte checkOverlap(Label l) {
+        int n = mGrid.searchWay(l, 100);
+        Label[] results = mGrid.results();
+
+        for (int i = 0; i < n; i++) {
+            Label o = results[i];
+            if (o.removed)
+                continue;
+
+            mCollisionTests++;
 
-        for (Label o = mLabels; o != null; ) {
             //check bounding box
-            if (!Label.bboxOverlaps(l, o, 100)) {
-                o = (Label) o.next;
+            if (!Label.bboxOverlaps(l, o, 100))
                 continue;
-            }
 
             if (Label.shareText(l, o)) {
                 // keep the label that was active earlier
@@ -114,7 +172,7 @@ public class LabelPlacement {
 
                 // keep the label with longer segment
                 if (o.length < l.length) {
-                    o = removeLabel(o);
+                    removeLabel(o);
                     continue;
                 }
                 // keep other
@@ -128,13 +186,12 @@ public class LabelPlacement {
                         && (o.text.priority > l.text.priority
                         || o.length < l.length)) {
 
-                    o = removeLabel(o);
+                    removeLabel(o);
                     continue;
                 }
                 // keep other
                 return 1;
             }
-            o = (Label) o.next;
         }
         return 0;
     }
@@ -194,14 +251,63 @@ public class LabelPlacement {
         l.y2 = l.y + h;
     }
 
-    private Label addWayLabels(MapTile t, Label l, float dx, float dy,
-                               double scale) {
+    /**
+     * Set the position of Label l for item ti of a tile at (dx, dy)
+     * relative to the view.
+     *
+     * @return true when l is visible
+     */
+    private boolean setPosition(Label l, TextItem ti, float dx, float dy, double scale) {
+        l.x = (float) ((dx + ti.x) * scale);
+        l.y = (float) ((dy + ti.y) * scale);
 
-        LabelTileData ld = getLabels(t);
-        if (ld == null)
-            return l;
+        if (l.text.caption)
+            return isVisible(l.x, l.y);
 
-        for (TextItem ti : ld.labels) {
+        placeLabelFrom(l, ti);
+        return wayIsVisible(l);
+    }
+
+    /**
+     * Move Label l of the last update to the current position.
+     *
+     * @return true when l is visible
+     */
+    private boolean reposition(Label l, int zoom, double posScale,
+                               double tileX, double tileY, int maxx) {
+        float div = FastMath.pow(l.tileZ - zoom);
+        double sscale = posScale / (1 << l.tileZ);
+
+        float dx = (float) (l.tileX * Tile.SIZE - tileX * div);
+        float dy = (float) (l.tileY * Tile.SIZE - tileY * div);
+        dx = flipLongitude(dx, maxx);
+
+        return setPosition(l, l.item, dx, dy, sscale);
+    }
+
+    private static void setWayBox(Label l) {
+        if (l.bbox == null)
+            l.bbox = new OBB2D(l.x, l.y, l.x1, l.y1,
+                    l.width + MIN_WAY_DIST,
+                    l.text.fontHeight + MIN_WAY_DIST);
+        else
+            l.bbox.set(l.x, l.y, l.x1, l.y1,
+                    l.width + MIN_WAY_DIST,
+                    l.text.fontHeight + MIN_WAY_DIST);
+    }
+
+    /**
+     * @param ld    labels of tile t
+     * @param items labels of ld to add
+     * @param mode  ALL, NEW to only add labels which were not visible
+     *              at (lastDx, lastDy) in the last update, RETRY to
+     *              only add labels which were visible
+     */
+    private Label addWayLabels(MapTile t, LabelTileData ld, TileState state,
+                               Iterable<TextItem> items, Label l, float dx, float dy,
+                               double scale, int mode, float lastDx, float lastDy) {
+
+        for (TextItem ti : items) {
             if (ti.text.caption)
                 continue;
 
@@ -214,23 +320,15 @@ public class LabelPlacement {
                 continue;
 
             l.clone(ti);
-            l.x = (float) ((dx + ti.x) * scale);
-            l.y = (float) ((dy + ti.y) * scale);
-            placeLabelFrom(l, ti);
+            if (mode != ALL && setPosition(l, ti, lastDx, lastDy, scale) == (mode == NEW))
+                continue;
 
-            if (!wayIsVisible(l))
+            if (!setPosition(l, ti, dx, dy, scale))
                 continue;
 
             byte overlaps = -1;
 
-            if (l.bbox == null)
-                l.bbox = new OBB2D(l.x, l.y, l.x1, l.y1,
-                        l.width + MIN_WAY_DIST,
-                        l.text.fontHeight + MIN_WAY_DIST);
-            else
-                l.bbox.set(l.x, l.y, l.x1, l.y1,
-                        l.width + MIN_WAY_DIST,
-                        l.text.fontHeight + MIN_WAY_DIST);
+            setWayBox(l);
 
             if (dbg || ti.width < ti.length * scale)
                 overlaps = checkOverlap(l);
@@ -241,25 +339,36 @@ public class LabelPlacement {
             if (overlaps == 0) {
                 addLabel(l);
                 l.item = TextItem.copy(ti);
+                l.source = ti;
+                l.data = ld;
                 l.tileX = t.tileX;
                 l.tileY = t.tileY;
                 l.tileZ = t.zoomLevel;
                 l.active = mRelabelCnt;
                 l = null;
+                state.rejected.remove(ti);
+            } else {
+                mRejected++;
+                state.rejected.add(ti);
             }
         }
         return l;
     }
 
-    private Label addNodeLabels(MapTile t, Label l, float dx, float dy,
-                                double scale, float cos, float sin) {
-
-        LabelTileData ld = getLabels(t);
-        if (ld == null)
-            return l;
+    /**
+     * @param ld    labels of tile t
+     * @param items labels of ld to add
+     * @param mode  ALL, NEW to only add labels which were not visible
+     *              at (lastDx, lastDy) in the last update, RETRY to
+     *              only add labels which were visible
+     */
+    private Label addNodeLabels(MapTile t, LabelTileData ld, TileState state,
+                                Iterable<TextItem> items, Label l, float dx, float dy,
+                                double scale, float cos, float sin,
+                                int mode, float lastDx, float lastDy) {
 
         O:
-        for (TextItem ti : ld.labels) {
+        for (TextItem ti : items) {
             if (!ti.text.caption)
                 continue;
 
@@ -268,45 +377,65 @@ public class LabelPlacement {
                 l = getLabel();
 
             l.clone(ti);
-            l.x = (float) ((dx + ti.x) * scale);
-            l.y = (float) ((dy + ti.y) * scale);
-            if (!isVisible(l.x, l.y))
+            if (mode != ALL && setPosition(l, ti, lastDx, lastDy, scale) == (mode == NEW))
+                continue;
+
+            if (!setPosition(l, ti, dx, dy, scale))
                 continue;
 
-            if (l.bbox == null)
-                l.bbox = new OBB2D();
+            setCaptionBox(l, cos, sin);
+
+            int n = mGrid.searchCaption(l);
+            Label[] results = mGrid.results();
+            for (int i = 0; i < n; i++) {
+                Label o = results[i];
+                if (o.removed)
+                    continue;
 
-            l.bbox.setNormalized(l.x, l.y, cos, -sin,
-                    l.width + MIN_CAPTION_DIST,
-                    l.text.fontHeight + MIN_CAPTION_DIST,
-                    l.text.dy);
+                mCollisionTests++;
 
-            for (Label o = mLabels; o != null; ) {
                 if (o.text.caption && Label.withinRepeatProximity(l, o)) {
-                    o = removeLabel(o);
+                    removeLabel(o);
                     continue;
                 }
                 if (l.bbox.overlaps(o.bbox)) {
                     if (l.text.priority < o.text.priority) {
-                        o = removeLabel(o);
+                        removeLabel(o);
                         continue;
                     }
+                    mRejected++;
+                    state.rejected.add(ti);
                     continue O;
                 }
-                o = (Label) o.next;
             }
 
             addLabel(l);
             l.item = TextItem.copy(ti);
+            l.source = ti;
+            l.data = ld;
             l.tileX = t.tileX;
             l.tileY = t.tileY;
             l.tileZ = t.zoomLevel;
             l.active = mRelabelCnt;
             l = null;
+            state.rejected.remove(ti);
         }
         return l;
     }
 
+    private static void setCaptionBox(Label l, float cos, float sin) {
+        if (l.bbox == null)
+            l.bbox = new OBB2D();
+
+        l.bbox.setNormalized(l.x, l.y, cos, -sin,
+                l.width + MIN_CAPTION_DIST,
+                l.text.fontHeight + MIN_CAPTION_DIST,
+                l.text.dy);
+
+        /* for overlap checks of way labels */
+        l.setAxisAlignedBBox();
+    }
+
     boolean updateLabels(LabelTask work) {
 
         /* get current tiles */
@@ -326,12 +455,18 @@ public class LabelPlacement {
         boolean changedPos = mMap.viewport().getMapPosition(pos);
 
         /* do not loop! */
-        if (!changedTiles && !changedPos)
+        if (!changedTiles && !changedPos && !mPending)
             return false;
 
         if (mZoom < mZoomLimiter.getMinZoom() || mZoom > mZoomLimiter.getMaxZoom())
             return false;
 
+        long time = System.nanoTime();
+        mPlaced = 0;
+        mRejected = 0;
+        mRemoved = 0;
+        mCollisionTests = 0;
+
         mRelabelCnt++;
 
         int cnt = mTileSet.cnt;
@@ -368,6 +503,7 @@ public class LabelPlacement {
             int mh = (mMap.getHeight() + Tile.SIZE) / 2;
             mSquareRadius = mw * mw + mh * mh;
         }
+        mGrid.clear((float) Math.sqrt(mSquareRadius));
 
         /* scale of tiles zoom-level relative to current position */
         double scale = pos.scale / (1 << zoom);
@@ -385,13 +521,44 @@ public class LabelPlacement {
         double tileX = (pos.x * (Tile.SIZE << zoom));
         double tileY = (pos.y * (Tile.SIZE << zoom));
 
+        boolean incremental = mIncremental
+                && zoom == mLastZoom
+                && pos.scale == mLastScale
+                && pos.bearing == mLastBearing
+                && mSquareRadius == mLastSquareRadius;
+
+        /* state of current tiles */
+        HashMap<LabelTileData, TileState> tileState = mNextTileState;
+        for (int i = 0; i < cnt; i++) {
+            MapTile t = tiles[i];
+            if (!t.state(READY | NEW_DATA))
+                continue;
+            LabelTileData ld = getLabels(t);
+            if (ld == null)
+                continue;
+            TileState state = mTileState.get(ld);
+            if (state == null)
+                state = new TileState();
+            else if (!incremental)
+                state.clear();
+            tileState.put(ld, state);
+        }
+        mNextTileState = mTileState;
+        mNextTileState.clear();
+        mTileState = tileState;
+
         /* put current label to previous label */
         Label prevLabels = mLabels;
+        int prevCnt = countLabels(prevLabels);
 
         /* new labels */
         mLabels = null;
         Label l = null;
 
+        /* keep labels of unchanged tiles */
+        if (incremental)
+            prevLabels = keepLabels(prevLabels, zoom, pos.scale, tileX, tileY, maxx, cos, sin);
+
         /* add currently active labels first */
         for (l = prevLabels; l != null; ) {
 
@@ -407,7 +574,6 @@ public class LabelPlacement {
                 continue;
             }
 
-            float div = FastMath.pow(diff);
             float sscale = (float) (pos.scale / (1 << l.tileZ));
 
             // plus 10 to rather keep label and avoid flickering
@@ -416,22 +582,12 @@ public class LabelPlacement {
                 continue;
             }
 
-            float dx = (float) (l.tileX * Tile.SIZE - tileX * div);
-            float dy = (float) (l.tileY * Tile.SIZE - tileY * div);
-
-            dx = flipLongitude(dx, maxx);
-            l.x = (float) ((dx + l.item.x) * sscale);
-            l.y = (float) ((dy + l.item.y) * sscale);
-            placeLabelFrom(l, l.item);
-
-            if (!wayIsVisible(l)) {
+            if (!reposition(l, zoom, pos.scale, tileX, tileY, maxx)) {
                 l = mPool.releaseAndGetNext(l);
                 continue;
             }
 
-            l.bbox.set(l.x, l.y, l.x1, l.y1,
-                    l.width + MIN_WAY_DIST,
-                    l.text.fontHeight + MIN_WAY_DIST);
+            setWayBox(l);
 
             byte overlaps = checkOverlap(l);
 
@@ -446,33 +602,111 @@ public class LabelPlacement {
                 addLabel(ll);
                 continue;
             }
+            mRejected++;
             l = mPool.releaseAndGetNext(l);
         }
 
+        /* labels rejected by dropped labels may fit now */
+        boolean retry = incremental && (mRetry || countLabels(mLabels) < prevCnt);
+
+        /* placing labels of new tiles may be left to the next update,
+         * at least one is placed per update to make progress */
+        long budget = incremental ? mTimeBudget : 0;
+        long start = System.nanoTime();
+        boolean progress = false;
+        mPending = false;
+
         /* add way labels */
         for (int i = 0; i < cnt; i++) {
             MapTile t = tiles[i];
             if (!t.state(READY | NEW_DATA))
                 continue;
 
+            LabelTileData ld = getLabels(t);
+            if (ld == null)
+                continue;
+
+            TileState state = mTileState.get(ld);
+            boolean placed = (state.placed & WAYS) != 0;
+            if (!placed && progress && budget > 0
+                    && System.nanoTime() - start > budget) {
+                mPending = true;
+                continue;
+            }
+
             float dx = (float) (t.tileX * Tile.SIZE - tileX);
             float dy = (float) (t.tileY * Tile.SIZE - tileY);
             dx = flipLongitude(dx, maxx);
+            float lastDx = flipLongitude((float) (t.tileX * Tile.SIZE - mLastTileX), maxx);
+            float lastDy = (float) (t.tileY * Tile.SIZE - mLastTileY);
+
+            if (placed && retry && !state.rejected.isEmpty())
+                l = addWayLabels(t, ld, state, new ArrayList<>(state.rejected), l,
+                        dx, dy, scale, RETRY, lastDx, lastDy);
 
-            l = addWayLabels(t, l, dx, dy, scale);
+            l = addWayLabels(t, ld, state, ld.labels, l, dx, dy, scale,
+                    placed ? NEW : ALL, lastDx, lastDy);
+            state.placed |= WAYS;
+            progress |= !placed;
         }
 
         /* add caption */
+        progress = false;
         for (int i = 0; i < cnt; i++) {
             MapTile t = tiles[i];
             if (!t.state(READY | NEW_DATA))
                 continue;
 
+            LabelTileData ld = getLabels(t);
+            if (ld == null)
+                continue;
+
+            TileState state = mTileState.get(ld);
+            boolean placed = (state.placed & CAPTIONS) != 0;
+            if (!placed && progress && budget > 0
+                    && System.nanoTime() - start > budget) {
+                mPending = true;
+                continue;
+            }
+
             float dx = (float) (t.tileX * Tile.SIZE - tileX);
             float dy = (float) (t.tileY * Tile.SIZE - tileY);
             dx = flipLongitude(dx, maxx);
+            float lastDx = flipLongitude((float) (t.tileX * Tile.SIZE - mLastTileX), maxx);
+            float lastDy = (float) (t.tileY * Tile.SIZE - mLastTileY);
+
+            if (placed && retry && !state.rejected.isEmpty())
+                l = addNodeLabels(t, ld, state, new ArrayList<>(state.rejected), l,
+                        dx, dy, scale, cos, sin, RETRY, lastDx, lastDy);
 
-            l = addNodeLabels(t, l, dx, dy, scale, cos, sin);
+            l = addNodeLabels(t, ld, state, ld.labels, l, dx, dy, scale, cos, sin,
+                    placed ? NEW : ALL, lastDx, lastDy);
+            state.placed |= CAPTIONS;
+            progress |= !placed;
+        }
+
+        mLastZoom = zoom;
+        mLastScale = pos.scale;
+        mLastBearing = pos.bearing;
+        mLastSquareRadius = mSquareRadius;
+        mLastTileX = tileX;
+        mLastTileY = tileY;
+        mRetry = mRemoved > 0;
+
+        /* drop labels removed by collisions */
+        Label prev = null;
+        for (Label ti = mLabels; ti != null; ) {
+            if (ti.removed) {
+                ti = mPool.releaseAndGetNext(ti);
+                if (prev == null)
+                    mLabels = ti;
+                else
+                    prev.next = ti;
+                continue;
+            }
+            mPlaced++;
+            prev = ti;
+            ti = (Label) ti.next;
         }
 
         for (Label ti = mLabels; ti != null; ti = (Label) ti.next) {
@@ -552,14 +786,154 @@ public class LabelPlacement {
         /* remove tile locks */
         mTileRenderer.releaseTiles(mTileSet);
 
+        mUpdateTime = System.nanoTime() - time;
+
         return true;
     }
 
+    /**
+     * @return number of labels placed by the last update.
+     */
+    public int getPlacedCount() {
+        return mPlaced;
+    }
+
+    /**
+     * @return number of labels rejected by collisions in the last update.
+     */
+    public int getRejectedCount() {
+        return mRejected;
+    }
+
+    /**
+     * @return number of placed labels removed again by collisions with
+     * labels of higher priority in the last update.
+     */
+    public int getRemovedCount() {
+        return mRemoved;
+    }
+
+    /**
+     * @return number of collision tests between labels in the last update.
+     */
+    public int getCollisionTests() {
+        return mCollisionTests;
+    }
+
+    /**
+     * @return duration of the last update in nanoseconds.
+     */
+    public long getUpdateTime() {
+        return mUpdateTime;
+    }
+
+    /**
+     * Reposition the labels of tiles which are placed and unchanged
+     * since the last update, without checking for collisions.
+     * Labels of other tiles are returned to be checked again.
+     */
+    private Label keepLabels(Label prevLabels, int zoom, double posScale,
+                             double tileX, double tileY, int maxx, float cos, float sin) {
+        Label others = null;
+        for (Label l = prevLabels; l != null; ) {
+            TileState state = l.data == null ? null : mTileState.get(l.data);
+            int placed = l.text.caption ? CAPTIONS : WAYS;
+            if (state == null || (state.placed & placed) == 0) {
+                /* labels of other zoom-levels are checked again */
+                Label next = (Label) l.next;
+                if (!l.text.caption && l.tileZ != zoom) {
+                    l.next = others;
+                    others = l;
+                } else {
+                    mPool.releaseAndGetNext(l);
+                }
+                l = next;
+                continue;
+            }
+
+            if (!reposition(l, zoom, posScale, tileX, tileY, maxx)) {
+                l = mPool.releaseAndGetNext(l);
+                continue;
+            }
+
+            if (l.text.caption)
+                setCaptionBox(l, cos, sin);
+            else
+                setWayBox(l);
+
+            Label next = (Label) l.next;
+            l.next = null;
+            addLabel(l);
+            l = next;
+        }
+        return others;
+    }
+
+    private static int countLabels(Label labels) {
+        int cnt = 0;
+        for (Label l = labels; l != null; l = (Label) l.next) {
+            if (!l.removed)
+                cnt++;
+        }
+        return cnt;
+    }
+
+    /**
+     * Keep the placement of labels of unchanged tiles and only place
+     * labels of new tiles and labels which became visible, as long as
+     * scale, rotation and labeled area do not change.
+     */
+    public void setIncremental(boolean incremental) {
+        mIncremental = incremental;
+    }
+
+    public boolean isIncremental() {
+        return mIncremental;
+    }
+
+    /**
+     * Limit the time of placing labels of new tiles in an incremental
+     * update, labels of remaining new tiles are placed in the next
+     * update. Labels of at least one new tile are placed per update.
+     *
+     * @param millis time budget, 0 for unlimited.
+     */
+    public void setTimeBudget(long millis) {
+        mTimeBudget = millis * 1000000;
+    }
+
+    /**
+     * @return true when labels of some tiles were left to the next update.
+     */
+    public boolean isPending() {
+        return mPending;
+    }
+
     public void cleanup() {
+        mTileState.clear();
+        mLastScale = 0;
+        mPending = false;
+        mRetry = false;
         mLabels = (Label) mPool.releaseAll(mLabels);
         mTileSet.releaseTiles();
     }
 
+    /**
+     * placement state of LabelTileData
+     */
+    private static final class TileState {
+        /* WAYS, CAPTIONS */
+        int placed;
+
+        /* labels which are rejected or removed by collisions */
+        final Set<TextItem> rejected = new LinkedHashSet<>();
+
+        void clear() {
+            placed = 0;
+            rejected.clear();
+        }
+    }
+
     /**
      * group labels by string and type
      */
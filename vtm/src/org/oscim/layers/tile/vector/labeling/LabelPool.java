@@ -11,6 +11,8 @@ final class LabelPool extends Pool<TextItem> {
         // drop references
         l.item = null;
         l.label = null;
+        l.data = null;
+        l.source = null;
         Label ret = (Label) l.next;
 
         // ignore warning
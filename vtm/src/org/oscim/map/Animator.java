@@ -53,6 +53,7 @@ public class Animator {
     private final Point mScroll = new Point();
     final Point mPivot = new Point();
     private final Point mVelocity = new Point();
+    private final Point mPredictPoint = new Point();
 
     float mDuration = 500;
     long mAnimEnd = -1;
@@ -288,7 +289,7 @@ public class Animator {
         float adv = clamp(1.0f - millisLeft / mDuration, 1E-6f, 1);
         // Avoid redundant calculations in case of linear easing
         if (mEasingType != Easing.Type.LINEAR) {
-            adv = Easing.ease(0, (long) (adv * Long.MAX_VALUE), Long.MAX_VALUE, mEasingType);
+            adv = Easing.ease(adv, mEasingType);
             adv = clamp(adv, 0, 1);
         }
 
@@ -366,6 +367,84 @@ public class Animator {
         return mState != ANIM_NONE;
     }
 
+    /**
+     * Get the progress of the current animation.
+     *
+     * @return progress from 0 (start) to 1 (end), before easing.
+     */
+    public float getProgress() {
+        if (mState == ANIM_NONE)
+            return 1;
+        long millisLeft = mAnimEnd - MapRenderer.frametime;
+        return clamp(1.0f - millisLeft / mDuration, 0, 1);
+    }
+
+    /**
+     * Predict the map position of the current animation at the given progress,
+     * e.g. to prefetch tiles along the animation path.
+     *
+     * @param progress animation progress from 0 (start) to 1 (end), before easing.
+     * @param pos      set to the predicted map position.
+     * @return false if no animation is active or its path is not predictable.
+     */
+    public synchronized boolean predictPosition(float progress, MapPosition pos) {
+        if (mState == ANIM_NONE)
+            return false;
+
+        float adv = clamp(progress, 1E-6f, 1);
+        if (mEasingType != Easing.Type.LINEAR) {
+            adv = Easing.ease(adv, mEasingType);
+            adv = clamp(adv, 0, 1);
+        }
+
+        pos.copy(mStartPos);
+
+        double scaleAdv = 1;
+        if ((mState & ANIM_SCALE) != 0) {
+            double newScale = mStartPos.scale + mDeltaPos.scale * adv;
+            pos.setScale(newScale);
+            scaleAdv = newScale / (mStartPos.scale + mDeltaPos.scale);
+        }
+
+        adv = predictAdvance(adv);
+
+        if ((mState & ANIM_MOVE) != 0) {
+            pos.x = mStartPos.x + mDeltaPos.x * (adv / scaleAdv);
+            pos.y = mStartPos.y + mDeltaPos.y * (adv / scaleAdv);
+        }
+
+        if ((mState & ANIM_FLING) != 0) {
+            float flingAdv = (float) Math.sqrt(adv);
+            Point p = mPredictPoint;
+            ViewController.applyRotation(mVelocity.x * flingAdv, mVelocity.y * flingAdv,
+                    mStartPos.bearing, p);
+            double tileScale = mStartPos.scale * Tile.SIZE;
+            pos.x = mStartPos.x - p.x / tileScale;
+            pos.y = mStartPos.y - p.y / tileScale;
+        }
+
+        if ((mState & ANIM_ROTATE) != 0) {
+            pos.bearing = mStartPos.bearing + mDeltaPos.bearing * adv;
+        }
+
+        if ((mState & ANIM_TILT) != 0) {
+            pos.tilt = mStartPos.tilt + mDeltaPos.tilt * adv;
+        }
+
+        /* clamp latitude, wrap longitude */
+        pos.y = clamp(pos.y, 0, 1);
+        pos.x -= Math.floor(pos.x);
+        return true;
+    }
+
+    /**
+     * Adjust the eased advance for movement, rotation and tilt of predicted
+     * positions.
+     */
+    float predictAdvance(float adv) {
+        return adv;
+    }
+
     /**
      * Get the map position at animation end.<br>
      * Note: valid only with animateTo methods.
@@ -22,6 +22,7 @@
 package org.oscim.map;
 
 import org.oscim.backend.CanvasAdapter;
+import org.oscim.core.MapPosition;
 import org.oscim.core.Point;
 import org.oscim.core.Tile;
 import org.oscim.renderer.MapRenderer;
@@ -242,7 +243,7 @@ public class Animator2 extends Animator {
             float adv = clamp(1.0f - millisLeft / mDuration, 1E-6f, 1);
             // Avoid redundant calculations in case of linear easing
             if (mEasingType != Easing.Type.LINEAR) {
-                adv = Easing.ease(0, (long) (adv * Long.MAX_VALUE), Long.MAX_VALUE, mEasingType);
+                adv = Easing.ease(adv, mEasingType);
                 adv = clamp(adv, 0, 1);
             }
 
@@ -341,4 +342,19 @@ public class Animator2 extends Animator {
             mMap.postDelayed(updateTask, 10);
         }
     }
+
+    @Override
+    public synchronized boolean predictPosition(float progress, MapPosition pos) {
+        /* physical flings depend on the frame times */
+        if ((mState & ANIM_FLING) != 0)
+            return false;
+        return super.predictPosition(progress, pos);
+    }
+
+    @Override
+    float predictAdvance(float adv) {
+        if ((mState & ANIM_KINETIC) != 0)
+            return (float) Math.sqrt(adv);
+        return adv;
+    }
 }
@@ -65,6 +65,9 @@ public final class BufferObject extends Inlist<BufferObject> {
 
         GLState.bindBuffer(target, id);
 
+        mFrameUploadBytes += newSize;
+        mUploadBytes += newSize;
+
         /* reuse memory allocated for vbo when possible and allocated
          * memory is less then four times the new data */
         if (!GLAdapter.NO_BUFFER_SUB_DATA && !clear &&
@@ -90,6 +93,37 @@ public final class BufferObject extends Inlist<BufferObject> {
     // bytes currently loaded in VBOs
     private static int mBufferMemoryUsage;
 
+    // bytes loaded in the current and the last frame, and in total
+    private static int mFrameUploadBytes;
+    private static int mLastFrameUploadBytes;
+    private static long mUploadBytes;
+
+    /**
+     * @return bytes loaded into buffer objects in the current frame.
+     */
+    public static int getFrameUploadBytes() {
+        return mFrameUploadBytes;
+    }
+
+    /**
+     * @return bytes loaded into buffer objects in the last frame.
+     */
+    public static int getLastFrameUploadBytes() {
+        return mLastFrameUploadBytes;
+    }
+
+    /**
+     * @return bytes loaded into buffer objects since start.
+     */
+    public static long getUploadBytes() {
+        return mUploadBytes;
+    }
+
+    static void endFrame() {
+        mLastFrameUploadBytes = mFrameUploadBytes;
+        mFrameUploadBytes = 0;
+    }
+
     public static void checkBufferUsage(boolean force) {
         // try to clear some unused vbo when exceding limit
         if (mBufferMemoryUsage < LIMIT_BUFFERS)
@@ -102,6 +102,7 @@ public class MapRenderer {
 
         mBufferPool.releaseBuffers();
         TextureItem.disposeTextures();
+        BufferObject.endFrame();
     }
 
     private void draw() {
@@ -42,6 +42,12 @@ public class CircleBucket extends RenderBucket {
         this.level = level;
     }
 
+    @Override
+    protected void reset(int level) {
+        super.reset(level);
+        circle = null;
+    }
+
     public void addCircle(GeometryBuffer geom) {
         if (!geom.isPoint()) {
             log.severe("Circle style applied to non-point geometry");
@@ -37,6 +37,12 @@ public class HairLineBucket extends RenderBucket {
         this.level = level;
     }
 
+    @Override
+    protected void reset(int level) {
+        super.reset(level);
+        line = null;
+    }
+
     public void addLine(GeometryBuffer geom) {
         short id = (short) numVertices;
 
@@ -28,7 +28,9 @@ import org.oscim.renderer.GLState;
 import org.oscim.renderer.GLUtils;
 import org.oscim.renderer.GLViewport;
 import org.oscim.theme.styles.LineStyle;
+import org.oscim.utils.Parameters;
 
+import java.nio.ByteOrder;
 import java.util.logging.Logger;
 
 import static org.oscim.backend.GLAdapter.gl;
@@ -65,6 +67,22 @@ public class LineBucket extends RenderBucket {
      */
     private static final int DIR_MASK = 0xFFFFFFFC;
 
+    /**
+     * scale factor mapping extrusion vector to byte values of compact
+     * vertices, see {@link Parameters#COMPACT_VERTICES}. Six bits remain
+     * for the vector, i.e. it is limited to 31 / 8 of the line width.
+     */
+    public static final float COMPACT_DIR_SCALE = 32;
+
+    /**
+     * Count of units needed for one compact vertex: x, y and the
+     * extrusion vector packed in two bytes.
+     */
+    public static final int COMPACT_VERTEX_CNT = 3;
+
+    private static final boolean LITTLE_ENDIAN =
+            ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
     /* lines referenced by this outline layer */
     public LineBucket outlines;
     public LineStyle line;
@@ -96,6 +114,20 @@ public class LineBucket extends RenderBucket {
         outlines = link;
     }
 
+    @Override
+    protected void reset(int level) {
+        super.reset(level);
+        outlines = null;
+        line = null;
+        scale = 1;
+        roundCap = false;
+        mMinDist = MIN_DIST;
+        mMinBevel = MIN_BEVEL;
+        heightOffset = 0;
+        tmin = Integer.MIN_VALUE;
+        tmax = Integer.MAX_VALUE;
+    }
+
     public void setExtents(int min, int max) {
         tmin = min;
         tmax = max;
@@ -225,15 +257,51 @@ public class LineBucket extends RenderBucket {
         int ddx = (int) (ux * DIR_SCALE);
         int ddy = (int) (uy * DIR_SCALE);
 
-        vi.add(ox, oy,
+        putVertex(vi, ox, oy,
                 (short) (0 | ddx & DIR_MASK),
                 (short) (1 | ddy & DIR_MASK));
 
-        vi.add(ox, oy,
+        putVertex(vi, ox, oy,
                 (short) (2 | -ddx & DIR_MASK),
                 (short) (1 | -ddy & DIR_MASK));
     }
 
+    /**
+     * Add vertex with extrusion vector scaled by DIR_SCALE, in compact
+     * format when {@link Parameters#COMPACT_VERTICES} is set.
+     */
+    private static void putVertex(VertexData vi, short x, short y, short dx, short dy) {
+        if (Parameters.COMPACT_VERTICES)
+            vi.add(x, y, packDir(dx, dy));
+        else
+            vi.add(x, y, dx, dy);
+    }
+
+    /**
+     * Pack extrusion vector with texture coordinates in the last two
+     * bits into two bytes, see {@link #COMPACT_DIR_SCALE}. Longer vectors
+     * are shortened, like a miter limit.
+     */
+    static short packDir(short dx, short dy) {
+        /* six bits signed, i.e. 1/8 resolution */
+        float scale = COMPACT_DIR_SCALE / 4 / DIR_SCALE;
+        float qx = (dx & DIR_MASK) * scale;
+        float qy = (dy & DIR_MASK) * scale;
+
+        float max = Math.max(Math.abs(qx), Math.abs(qy));
+        if (max > 31) {
+            qx *= 31 / max;
+            qy *= 31 / max;
+        }
+        int bx = (Math.round(qx) << 2 | dx & 3) & 0xff;
+        int by = (Math.round(qy) << 2 | dy & 3) & 0xff;
+
+        /* bytes in memory order of the short buffer */
+        if (LITTLE_ENDIAN)
+            return (short) (by << 8 | bx);
+        return (short) (bx << 8 | by);
+    }
+
     private void addLine(VertexData vertices, float[] points, int start, int length,
                          boolean rounded, boolean squared, boolean closed) {
 
@@ -287,13 +355,13 @@ public class LineBucket extends RenderBucket {
             dx = (short) (0 | ddx & DIR_MASK);
             dy = (short) (2 | ddy & DIR_MASK);
 
-            vertices.add(ox, oy, (short) dx, (short) dy);
-            vertices.add(ox, oy, (short) dx, (short) dy);
+            putVertex(vertices, ox, oy, (short) dx, (short) dy);
+            putVertex(vertices, ox, oy, (short) dx, (short) dy);
 
             ddx = (int) (-(ux + vPrevX) * DIR_SCALE);
             ddy = (int) (-(uy + vPrevY) * DIR_SCALE);
 
-            vertices.add(ox, oy,
+            putVertex(vertices, ox, oy,
                     (short) (2 | ddx & DIR_MASK),
                     (short) (2 | ddy & DIR_MASK));
 
@@ -301,11 +369,11 @@ public class LineBucket extends RenderBucket {
             ddx = (int) (ux * DIR_SCALE);
             ddy = (int) (uy * DIR_SCALE);
 
-            vertices.add(ox, oy,
+            putVertex(vertices, ox, oy,
                     (short) (0 | ddx & DIR_MASK),
                     (short) (1 | ddy & DIR_MASK));
 
-            vertices.add(ox, oy,
+            putVertex(vertices, ox, oy,
                     (short) (2 | -ddx & DIR_MASK),
                     (short) (1 | -ddy & DIR_MASK));
         } else {
@@ -332,13 +400,13 @@ public class LineBucket extends RenderBucket {
             dx = (short) (0 | ddx & DIR_MASK);
             dy = (short) (1 | ddy & DIR_MASK);
 
-            vertices.add(ox, oy, (short) dx, (short) dy);
-            vertices.add(ox, oy, (short) dx, (short) dy);
+            putVertex(vertices, ox, oy, (short) dx, (short) dy);
+            putVertex(vertices, ox, oy, (short) dx, (short) dy);
 
             ddx = (int) (-(ux + tx) * DIR_SCALE);
             ddy = (int) (-(uy + ty) * DIR_SCALE);
 
-            vertices.add(ox, oy,
+            putVertex(vertices, ox, oy,
                     (short) (2 | ddx & DIR_MASK),
                     (short) (1 | ddy & DIR_MASK));
         }
@@ -461,11 +529,11 @@ public class LineBucket extends RenderBucket {
             ddx = (int) (ux * DIR_SCALE);
             ddy = (int) (uy * DIR_SCALE);
 
-            vertices.add(ox, oy,
+            putVertex(vertices, ox, oy,
                     (short) (0 | ddx & DIR_MASK),
                     (short) (1 | ddy & DIR_MASK));
 
-            vertices.add(ox, oy,
+            putVertex(vertices, ox, oy,
                     (short) (2 | -ddx & DIR_MASK),
                     (short) (1 | -ddy & DIR_MASK));
 
@@ -473,7 +541,7 @@ public class LineBucket extends RenderBucket {
             ddx = (int) ((ux - vPrevX) * DIR_SCALE);
             ddy = (int) ((uy - vPrevY) * DIR_SCALE);
 
-            vertices.add(ox, oy,
+            putVertex(vertices, ox, oy,
                     (short) (0 | ddx & DIR_MASK),
                     (short) (0 | ddy & DIR_MASK));
 
@@ -498,7 +566,7 @@ public class LineBucket extends RenderBucket {
             ddx = (int) ((ux - vPrevX) * DIR_SCALE);
             ddy = (int) ((uy - vPrevY) * DIR_SCALE);
 
-            vertices.add(ox, oy,
+            putVertex(vertices, ox, oy,
                     (short) (0 | ddx & DIR_MASK),
                     (short) (1 | ddy & DIR_MASK));
 
@@ -510,15 +578,16 @@ public class LineBucket extends RenderBucket {
         }
 
         /* add last vertex twice */
-        vertices.add(ox, oy, (short) dx, (short) dy);
-        vertices.add(ox, oy, (short) dx, (short) dy);
+        putVertex(vertices, ox, oy, (short) dx, (short) dy);
+        putVertex(vertices, ox, oy, (short) dx, (short) dy);
     }
 
     static class Shader extends GLShader {
         int uMVP, uFade, uWidth, uColor, uMode, uHeight, aPos;
+        int aDir = GLState.DISABLED;
 
-        Shader(String shaderFile) {
-            if (!create(shaderFile))
+        Shader(String shaderFile, boolean compact) {
+            if (!createDirective(shaderFile, compact ? "#define COMPACT 1\n" : null))
                 return;
             uMVP = getUniform("u_mvp");
             uFade = getUniform("u_fade");
@@ -527,12 +596,14 @@ public class LineBucket extends RenderBucket {
             uMode = getUniform("u_mode");
             uHeight = getUniform("u_height");
             aPos = getAttrib("a_pos");
+            if (compact)
+                aDir = getAttrib("a_dir");
         }
 
         @Override
         public boolean useProgram() {
             if (super.useProgram()) {
-                GLState.enableVertexArrays(aPos, GLState.DISABLED);
+                GLState.enableVertexArrays(aPos, aDir);
                 return true;
             }
             return false;
@@ -546,6 +617,8 @@ public class LineBucket extends RenderBucket {
         /* factor to normalize extrusion vector and scale to coord scale */
         private static final float COORD_SCALE_BY_DIR_SCALE =
                 COORD_SCALE / LineBucket.DIR_SCALE;
+        private static final float COORD_SCALE_BY_COMPACT_DIR_SCALE =
+                COORD_SCALE / LineBucket.COMPACT_DIR_SCALE;
 
         private static final int CAP_THIN = 0;
         private static final int CAP_BUTT = 1;
@@ -556,11 +629,14 @@ public class LineBucket extends RenderBucket {
 
         public static int mTexID;
         private static Shader[] shaders = {null, null};
+        private static Shader[] compactShaders = {null, null};
 
         static boolean init() {
 
-            shaders[0] = new Shader("line_aa_proj");
-            shaders[1] = new Shader("line_aa");
+            shaders[0] = new Shader("line_aa_proj", false);
+            shaders[1] = new Shader("line_aa", false);
+            compactShaders[0] = new Shader("line_aa_proj", true);
+            compactShaders[1] = new Shader("line_aa", true);
 
             /* create lookup table as texture for 'length(0..1,0..1)'
              * using mirrored wrap mode for 'length(-1..1,-1..1)' */
@@ -591,7 +667,8 @@ public class LineBucket extends RenderBucket {
              * account. only used when tilt is 0. */
             int mode = v.pos.tilt < 1 ? 1 : 0;
 
-            Shader s = shaders[mode];
+            boolean compact = Parameters.COMPACT_VERTICES;
+            Shader s = compact ? compactShaders[mode] : shaders[mode];
             s.useProgram();
 
             GLState.blend(true);
@@ -609,8 +686,19 @@ public class LineBucket extends RenderBucket {
             int uLineWidth = s.uWidth;
             int uLineHeight = s.uHeight;
 
-            gl.vertexAttribPointer(s.aPos, 4, GL.SHORT, false, 0,
-                    buckets.offset[LINE]);
+            float dirScale;
+            if (compact) {
+                int stride = COMPACT_VERTEX_CNT * RenderBuckets.SHORT_BYTES;
+                gl.vertexAttribPointer(s.aPos, 2, GL.SHORT, false, stride,
+                        buckets.offset[LINE]);
+                gl.vertexAttribPointer(s.aDir, 2, GL.BYTE, false, stride,
+                        buckets.offset[LINE] + 2 * RenderBuckets.SHORT_BYTES);
+                dirScale = COORD_SCALE_BY_COMPACT_DIR_SCALE;
+            } else {
+                gl.vertexAttribPointer(s.aPos, 4, GL.SHORT, false, 0,
+                        buckets.offset[LINE]);
+                dirScale = COORD_SCALE_BY_DIR_SCALE;
+            }
 
             v.mvp.setAsUniform(s.uMVP);
 
@@ -681,7 +769,7 @@ public class LineBucket extends RenderBucket {
                     }
 
                     gl.uniform1f(uLineWidth,
-                            (float) (width * COORD_SCALE_BY_DIR_SCALE));
+                            (float) (width * dirScale));
 
                     /* Line-edge fade */
                     if (line.blur > 0) {
@@ -737,7 +825,7 @@ public class LineBucket extends RenderBucket {
                     }
 
                     gl.uniform1f(uLineWidth,
-                            (float) (width * COORD_SCALE_BY_DIR_SCALE));
+                            (float) (width * dirScale));
 
                     /* Line-edge fade */
                     if (line.blur > 0) {
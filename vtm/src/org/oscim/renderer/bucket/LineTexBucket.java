@@ -227,6 +227,12 @@ public final class LineTexBucket extends LineBucket {
         super.clear();
     }
 
+    @Override
+    protected void reset(int level) {
+        super.reset(level);
+        mTexRepeat = true;
+    }
+
     @Override
     protected void compile(ShortBuffer vboData, ShortBuffer iboData) {
         compileVertexItems(vboData);
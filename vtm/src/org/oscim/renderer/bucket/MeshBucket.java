@@ -29,7 +29,10 @@ import org.oscim.renderer.GLViewport;
 import org.oscim.renderer.bucket.VertexData.Chunk;
 import org.oscim.theme.styles.AreaStyle;
 import org.oscim.utils.ColorUtil;
+import org.oscim.utils.EarClipTessellator;
+import org.oscim.utils.Parameters;
 import org.oscim.utils.TessJNI;
+import org.oscim.utils.Tessellator;
 
 import java.util.logging.Logger;
 
@@ -52,7 +55,24 @@ public class MeshBucket extends RenderBucket {
         this.level = level;
     }
 
+    @Override
+    protected void reset(int level) {
+        super.reset(level);
+        area = null;
+        heightOffset = 0;
+        numPoints = 0;
+        if (tess != null) {
+            tess.dispose();
+            tess = null;
+        }
+    }
+
     public void addMesh(GeometryBuffer geom) {
+        if (Parameters.JAVA_TESSELLATOR) {
+            addEarClipMesh(geom);
+            return;
+        }
+
         numPoints += geom.pointNextPos;
         if (tess == null)
             tess = new TessJNI(8);
@@ -60,6 +80,52 @@ public class MeshBucket extends RenderBucket {
         tess.addContour2D(geom.index, geom.points);
     }
 
+    /**
+     * Tessellate each polygon of geom with the pure-Java tessellator.
+     * Unlike TessJNI, polygons are not merged with the ones added before.
+     */
+    private void addEarClipMesh(GeometryBuffer geom) {
+        int[] index = geom.index;
+        int pos = 0;
+
+        /* polygons are separated by 0 */
+        for (int ipos = 0; ipos < index.length && index[ipos] >= 0; ) {
+            int numRings = 0;
+            int length = 0;
+            while (ipos + numRings < index.length && index[ipos + numRings] > 0)
+                length += index[ipos + numRings++];
+
+            if (numRings > 0)
+                addEarClipPolygon(geom.points, pos, length, index, ipos, numRings);
+
+            pos += length;
+            ipos += numRings + 1;
+        }
+    }
+
+    private void addEarClipPolygon(float[] points, int pos, int length, int[] index, int ipos, int numRings) {
+        if (numVertices + (length >> 1) >= (1 << 16))
+            return;
+
+        EarClipTessellator tess = Tessellator.getEarClipTessellator();
+        int nelems = tess.tessellate(points, index, ipos, numRings);
+        if (nelems == 0)
+            return;
+
+        int start = numVertices;
+        for (int i = pos, end = pos + length; i < end; i += 2)
+            vertexItems.add(points[i] * COORD_SCALE, points[i + 1] * COORD_SCALE);
+
+        int[] triangles = tess.getTriangles();
+        for (int i = 0; i < nelems; i += 3)
+            indiceItems.add((short) (start + triangles[i]),
+                    (short) (start + triangles[i + 1]),
+                    (short) (start + triangles[i + 2]));
+
+        numVertices += length >> 1;
+        numIndices += nelems;
+    }
+
     public void addConvexMesh(GeometryBuffer geom) {
         short start = (short) numVertices;
 
@@ -64,6 +64,16 @@ public final class PolygonBucket extends RenderBucket {
 
     final float[] bbox = new float[8];
 
+    @Override
+    protected void reset(int level) {
+        super.reset(level);
+        area = null;
+        xmin = Short.MAX_VALUE;
+        ymin = Short.MAX_VALUE;
+        xmax = Short.MIN_VALUE;
+        ymax = Short.MIN_VALUE;
+    }
+
     public void addPolygon(float[] points, int[] index) {
         short center = (short) ((Tile.SIZE >> 1) * COORD_SCALE);
 
@@ -77,6 +77,18 @@ public abstract class RenderBucket extends Inlist<RenderBucket> {
         numIndices = 0;
     }
 
+    /**
+     * Clear all resources and restore the initial state to reuse the
+     * bucket for another level, see {@link RenderBuckets.Pool}.
+     */
+    protected void reset(int level) {
+        clear();
+        this.level = level;
+        vertexOffset = 0;
+        indiceOffset = 0;
+        next = null;
+    }
+
     /**
      * Final preparation of content before compilation
      * for stuff that should not be done on render-thread.
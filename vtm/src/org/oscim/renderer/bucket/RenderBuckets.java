@@ -24,8 +24,14 @@ import org.oscim.renderer.MapRenderer;
 import org.oscim.theme.styles.AreaStyle;
 import org.oscim.theme.styles.CircleStyle;
 import org.oscim.theme.styles.LineStyle;
+import org.oscim.utils.Parameters;
+import org.oscim.utils.pool.SyncPool;
 
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.ShortBuffer;
+import java.util.ArrayList;
 import java.util.logging.Logger;
 
 import static org.oscim.renderer.MapRenderer.COORD_SCALE;
@@ -84,7 +90,33 @@ public class RenderBuckets extends TileData {
 
     private RenderBucket mCurBucket;
 
+    /**
+     * Vertex and index data compiled by {@link #precompile(boolean)},
+     * ready to be loaded into the VBO and IBO.
+     */
+    private ByteBuffer mVboData;
+    private ByteBuffer mIboData;
+    private int mVboSize;
+    private int mIboSize;
+
+    /**
+     * Pool this instance is returned to on {@link #dispose()}, or null.
+     */
+    private final Pool mPool;
+
+    /**
+     * Cleared buckets by type, kept for reuse by pooled instances.
+     */
+    private final RenderBucket[] mFree;
+
     public RenderBuckets() {
+        mPool = null;
+        mFree = null;
+    }
+
+    RenderBuckets(Pool pool) {
+        mPool = pool;
+        mFree = new RenderBucket[CIRCLE + 1];
     }
 
     /**
@@ -235,21 +267,7 @@ public class RenderBuckets extends TileData {
 
         if (bucket == null) {
             /* add a new RenderElement */
-            if (type == LINE)
-                bucket = new LineBucket(level);
-            else if (type == POLYGON)
-                bucket = new PolygonBucket(level);
-            else if (type == TEXLINE)
-                bucket = new LineTexBucket(level);
-            else if (type == MESH)
-                bucket = new MeshBucket(level);
-            else if (type == HAIRLINE)
-                bucket = new HairLineBucket(level);
-            else if (type == CIRCLE)
-                bucket = new CircleBucket(level);
-
-            if (bucket == null)
-                throw new IllegalArgumentException();
+            bucket = newBucket(level, type);
 
             if (b == null) {
                 /** insert at start */
@@ -272,15 +290,93 @@ public class RenderBuckets extends TileData {
         return bucket;
     }
 
+    private RenderBucket newBucket(int level, int type) {
+        if (mFree != null && mFree[type] != null) {
+            RenderBucket bucket = mFree[type];
+            mFree[type] = bucket.next;
+            bucket.reset(level);
+            return bucket;
+        }
+        if (type == LINE)
+            return new LineBucket(level);
+        else if (type == POLYGON)
+            return new PolygonBucket(level);
+        else if (type == TEXLINE)
+            return new LineTexBucket(level);
+        else if (type == MESH)
+            return new MeshBucket(level);
+        else if (type == HAIRLINE)
+            return new HairLineBucket(level);
+        else if (type == CIRCLE)
+            return new CircleBucket(level);
+
+        throw new IllegalArgumentException();
+    }
+
+    /**
+     * Clear buckets and keep the ones created by {@link #getBucket(int, int)}
+     * for reuse.
+     */
+    private void recycleBuckets() {
+        RenderBucket b = buckets;
+        buckets = null;
+
+        while (b != null) {
+            RenderBucket next = b.next;
+            b.clear();
+            switch (b.type) {
+                case LINE:
+                case TEXLINE:
+                case POLYGON:
+                case MESH:
+                case HAIRLINE:
+                case CIRCLE:
+                    b.next = mFree[b.type];
+                    mFree[b.type] = b;
+                    break;
+                default:
+                    b.next = null;
+            }
+            b = next;
+        }
+    }
+
     private int countVboSize() {
         int vboSize = 0;
 
         for (RenderBucket l = buckets; l != null; l = l.next)
-            vboSize += l.numVertices * VERTEX_CNT[l.type];
+            vboSize += l.numVertices * vertexCount(l.type);
 
         return vboSize;
     }
 
+    /**
+     * @return count of units needed for one vertex of the bucket type,
+     * with {@link Parameters#COMPACT_VERTICES} applied.
+     */
+    public static int vertexCount(int type) {
+        if (type == LINE && Parameters.COMPACT_VERTICES)
+            return LineBucket.COMPACT_VERTEX_CNT;
+        return VERTEX_CNT[type];
+    }
+
+    /**
+     * Add the bytes of vertex and index data of the buckets to
+     * bytes[type], e.g. for a report of buffer memory per bucket type.
+     *
+     * @param bytes array with an entry for each bucket type.
+     * @return the sum of bytes of all buckets.
+     */
+    public int countBytes(long[] bytes) {
+        int sum = 0;
+        for (RenderBucket l = buckets; l != null; l = l.next) {
+            int b = (l.numVertices * vertexCount(l.type) + l.numIndices) * SHORT_BYTES;
+            bytes[l.type] += b;
+            sum += b;
+        }
+        return sum;
+    }
+
     private int countIboSize() {
         int numIndices = 0;
 
@@ -305,9 +401,13 @@ public class RenderBuckets extends TileData {
      * cleanup only when buckets are not used by tile or bucket anymore!
      */
     public void clear() {
-        /* NB: set null calls clear() on each bucket! */
-        set(null);
+        if (mFree != null)
+            recycleBuckets();
+        else /* NB: set null calls clear() on each bucket! */
+            set(null);
+
         mCurBucket = null;
+        releaseCompiled();
 
         vbo = BufferObject.release(vbo);
         ibo = BufferObject.release(ibo);
@@ -324,9 +424,15 @@ public class RenderBuckets extends TileData {
         mCurBucket = null;
     }
 
+    /**
+     * Clear and return to the pool, when obtained from a {@link Pool}.
+     */
     @Override
     protected void dispose() {
-        clear();
+        if (mPool != null)
+            mPool.release(this);
+        else
+            clear();
     }
 
     public void prepare() {
@@ -345,11 +451,24 @@ public class RenderBuckets extends TileData {
 
     /**
      * Compile different types of buckets in one {@link #vbo VBO}.
+     * Only loads the data when it was compiled by {@link #precompile(boolean)}.
      *
      * @param addFill fill tile (add {@link #TILE_FILL_VERTICES 4} vertices).
      * @return true if compilation succeeded.
      */
     public boolean compile(boolean addFill) {
+        if (mVboData != null) {
+            ShortBuffer vboData = mVboData.asShortBuffer();
+            vboData.limit(mVboSize);
+            ShortBuffer iboData = null;
+            if (mIboData != null) {
+                iboData = mIboData.asShortBuffer();
+                iboData.limit(mIboSize);
+            }
+            load(vboData, mVboSize, iboData, mIboSize);
+            releaseCompiled();
+            return true;
+        }
 
         int vboSize = countVboSize();
 
@@ -364,9 +483,6 @@ public class RenderBuckets extends TileData {
 
         ShortBuffer vboData = MapRenderer.getShortBuffer(vboSize);
 
-        if (addFill)
-            vboData.put(fillShortCoords, 0, TILE_FILL_VERTICES * 2);
-
         ShortBuffer iboData = null;
 
         int iboSize = countIboSize();
@@ -374,6 +490,81 @@ public class RenderBuckets extends TileData {
             iboData = MapRenderer.getShortBuffer(iboSize);
         }
 
+        if (!compileBuckets(addFill, vboData, vboSize, iboData, iboSize))
+            return false;
+
+        load(vboData.flip(), vboSize, iboData == null ? null : iboData.flip(), iboSize);
+
+        return true;
+    }
+
+    /**
+     * Compile the buckets into buffers which are loaded by the next
+     * {@link #compile(boolean)}, so that the GL thread only needs to
+     * load the data. To be used on the loader thread, after
+     * {@link #prepare()}.
+     * <p/>
+     * Buckets with textures are compiled on the GL thread.
+     *
+     * @param addFill fill tile (add {@link #TILE_FILL_VERTICES 4} vertices).
+     * @return true if compilation succeeded.
+     */
+    public boolean precompile(boolean addFill) {
+        releaseCompiled();
+
+        for (RenderBucket l = buckets; l != null; l = l.next) {
+            if (l.type == SYMBOL || l.type == BITMAP)
+                return false;
+        }
+
+        int vboSize = countVboSize();
+        if (vboSize <= 0)
+            return false;
+
+        if (addFill)
+            vboSize += TILE_FILL_VERTICES * 2;
+
+        int iboSize = countIboSize();
+
+        ByteBuffer vboBuffer = getBuffer(vboSize * SHORT_BYTES);
+        ByteBuffer iboBuffer = iboSize > 0 ? getBuffer(iboSize * SHORT_BYTES) : null;
+
+        ShortBuffer vboData = vboBuffer.asShortBuffer();
+        ShortBuffer iboData = iboBuffer != null ? iboBuffer.asShortBuffer() : null;
+
+        if (!compileBuckets(addFill, vboData, vboSize, iboData, iboSize)) {
+            releaseBuffer(vboBuffer);
+            releaseBuffer(iboBuffer);
+            return false;
+        }
+
+        mVboData = vboBuffer;
+        mVboSize = vboSize;
+        mIboData = iboBuffer;
+        mIboSize = iboSize;
+        return true;
+    }
+
+    /**
+     * @return true if data of {@link #precompile(boolean)} is waiting
+     * to be loaded.
+     */
+    public boolean isPrecompiled() {
+        return mVboData != null;
+    }
+
+    private void releaseCompiled() {
+        releaseBuffer(mVboData);
+        releaseBuffer(mIboData);
+        mVboData = null;
+        mIboData = null;
+    }
+
+    private boolean compileBuckets(boolean addFill, ShortBuffer vboData, int vboSize,
+                                   ShortBuffer iboData, int iboSize) {
+        if (addFill)
+            vboData.put(fillShortCoords, 0, TILE_FILL_VERTICES * 2);
+
         int pos = addFill ? TILE_FILL_VERTICES : 0;
 
         for (RenderBucket l = buckets; l != null; l = l.next) {
@@ -418,22 +609,57 @@ public class RenderBuckets extends TileData {
                     + " buffer fill: " + iboData.remaining());
             return false;
         }
+        return true;
+    }
 
+    private void load(Buffer vboData, int vboSize, Buffer iboData, int iboSize) {
         if (vbo == null)
             vbo = BufferObject.get(GL.ARRAY_BUFFER, vboSize);
 
         // Set VBO data to READ mode
-        vbo.loadBufferData(vboData.flip(), vboSize * SHORT_BYTES);
+        vbo.loadBufferData(vboData, vboSize * SHORT_BYTES);
 
         if (iboSize > 0) {
             if (ibo == null)
                 ibo = BufferObject.get(GL.ELEMENT_ARRAY_BUFFER, iboSize);
 
             // Set IBO data to READ mode
-            ibo.loadBufferData(iboData.flip(), iboSize * SHORT_BYTES);
+            ibo.loadBufferData(iboData, iboSize * SHORT_BYTES);
         }
+    }
 
-        return true;
+    // ---------------------------- pool ----------------------------
+    // direct buffers for precompiled data
+    private static final int MAX_BUFFERS = 16;
+    private static final ArrayList<ByteBuffer> mBuffers = new ArrayList<>();
+
+    private static ByteBuffer getBuffer(int bytes) {
+        synchronized (mBuffers) {
+            for (int i = mBuffers.size() - 1; i >= 0; i--) {
+                ByteBuffer b = mBuffers.get(i);
+                if (b.capacity() >= bytes) {
+                    mBuffers.remove(i);
+                    b.clear();
+                    return b;
+                }
+            }
+        }
+        // 32kb min size
+        int size = 1 << 15;
+        while (size < bytes)
+            size <<= 1;
+
+        return ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+    }
+
+    private static void releaseBuffer(ByteBuffer b) {
+        if (b == null)
+            return;
+
+        synchronized (mBuffers) {
+            if (mBuffers.size() < MAX_BUFFERS)
+                mBuffers.add(b);
+        }
     }
 
     private static short[] fillShortCoords;
@@ -443,6 +669,29 @@ public class RenderBuckets extends TileData {
         fillShortCoords = new short[]{0, s, s, s, 0, 0, s, 0};
     }
 
+    /**
+     * Pool of RenderBuckets, e.g. for the tiles of one layer. Disposed
+     * instances are cleared and returned to the pool together with their
+     * buckets, to avoid garbage when tiles are loaded and evicted.
+     */
+    public static class Pool extends SyncPool<RenderBuckets> {
+
+        public Pool(int maxItemsInPool) {
+            super(maxItemsInPool);
+        }
+
+        @Override
+        protected RenderBuckets createItem() {
+            return new RenderBuckets(this);
+        }
+
+        @Override
+        protected boolean clearItem(RenderBuckets item) {
+            item.clear();
+            return true;
+        }
+    }
+
     public static void initRenderer() {
         LineBucket.Renderer.init();
         LineTexBucket.Renderer.init();
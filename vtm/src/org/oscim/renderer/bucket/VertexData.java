@@ -19,7 +19,7 @@ package org.oscim.renderer.bucket;
 import org.oscim.renderer.bucket.VertexData.Chunk;
 import org.oscim.utils.FastMath;
 import org.oscim.utils.pool.Inlist;
-import org.oscim.utils.pool.SyncPool;
+import org.oscim.utils.pool.MagazinePool;
 
 import java.nio.ShortBuffer;
 
@@ -41,16 +41,21 @@ public class VertexData extends Inlist.List<Chunk> {
     /**
      * Shared chunk pool size.
      */
-    private static final int MAX_POOL = 500;
+    private static final int MAX_POOL = 512;
+
+    /**
+     * Chunks passed between a thread and the shared pool at once.
+     */
+    private static final int MAGAZINE_SIZE = 32;
 
     public static class Chunk extends Inlist<Chunk> {
         public final short[] vertices = new short[SIZE];
         public int used;
     }
 
-    private static class Pool extends SyncPool<Chunk> {
+    private static class Pool extends MagazinePool<Chunk> {
         public Pool() {
-            super(MAX_POOL);
+            super(MAGAZINE_SIZE, MAX_POOL);
         }
 
         @Override
@@ -93,6 +98,14 @@ public class VertexData extends Inlist.List<Chunk> {
 
     private static final Pool pool = new Pool();
 
+    /**
+     * @return the shared chunk pool, e.g. to set its capacity or to get
+     * allocation stats.
+     */
+    public static MagazinePool<Chunk> getPool() {
+        return pool;
+    }
+
     public void dispose() {
         pool.releaseAll(super.clear());
         used = SIZE; /* set SIZE to get new item on add */
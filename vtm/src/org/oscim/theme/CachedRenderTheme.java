@@ -0,0 +1,280 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.theme;
+
+import org.oscim.theme.IRenderTheme.ThemeException;
+import org.oscim.utils.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.logging.Logger;
+
+/**
+ * A CachedRenderTheme keeps the {@link CompiledTheme} of another theme file
+ * (e.g. a {@link ZipRenderTheme} or {@link ExternalRenderTheme}) in a cache
+ * directory, so that the theme XML is parsed only once.
+ * <p/>
+ * Cache files are named by the hash of the theme source and the format version.
+ * An entry is valid while size and modification time of the source file are
+ * unchanged, so that a cache hit does not read the theme XML at all. Themes
+ * without a source file are validated by the hash of their XML.
+ */
+public class CachedRenderTheme implements ThemeFile {
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger log = Logger.getLogger(CachedRenderTheme.class.getName());
+
+    static final String FILE_EXTENSION = ".vtmt";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File mCacheDir;
+    private final File mSource;
+    private final ThemeFile mTheme;
+
+    /**
+     * @param theme    the theme file to compile, an {@link ExternalRenderTheme}
+     *                 is validated by its file.
+     * @param cacheDir the directory for compiled themes.
+     */
+    public CachedRenderTheme(ThemeFile theme, File cacheDir) {
+        this(theme, theme instanceof ExternalRenderTheme
+                ? new File(((ExternalRenderTheme) theme).mPath) : null, cacheDir);
+    }
+
+    /**
+     * @param theme    the theme file to compile.
+     * @param source   the file the theme is read from (e.g. the zip archive),
+     *                 or null to validate by the theme XML.
+     * @param cacheDir the directory for compiled themes.
+     */
+    public CachedRenderTheme(ThemeFile theme, File source, File cacheDir) {
+        if (theme == null)
+            throw new IllegalArgumentException("theme missing");
+        mTheme = theme;
+        mSource = source;
+        mCacheDir = cacheDir;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (!(obj instanceof CachedRenderTheme)) {
+            return false;
+        }
+        CachedRenderTheme other = (CachedRenderTheme) obj;
+        return mTheme.equals(other.mTheme) && mCacheDir.equals(other.mCacheDir);
+    }
+
+    @Override
+    public int hashCode() {
+        return mTheme.hashCode();
+    }
+
+    /**
+     * @return the compiled theme from cache, compiled from the theme XML on a cache miss.
+     */
+    @Override
+    public InputStream getRenderThemeAsStream() throws ThemeException {
+        byte[] xml = null;
+        String key;
+        long size, modified;
+        if (mSource != null) {
+            key = mSource.getAbsolutePath();
+            if (mTheme instanceof ZipRenderTheme)
+                key += "!" + ((ZipRenderTheme) mTheme).mXmlTheme;
+            size = mSource.length();
+            modified = mSource.lastModified();
+        } else {
+            xml = readTheme();
+            key = hash(xml);
+            size = xml.length;
+            modified = 0;
+        }
+
+        File file = getCacheFile(key);
+
+        byte[] compiled = read(file, key, size, modified);
+        if (compiled != null)
+            return new ByteArrayInputStream(compiled);
+
+        if (xml == null)
+            xml = readTheme();
+        try {
+            compiled = CompiledTheme.compile(new ByteArrayInputStream(xml));
+        } catch (Exception e) {
+            throw new ThemeException(e.toString(), e);
+        }
+        write(file, key, size, modified, compiled);
+
+        return new ByteArrayInputStream(compiled);
+    }
+
+    private byte[] readTheme() throws ThemeException {
+        InputStream is = mTheme.getRenderThemeAsStream();
+        try {
+            return readFully(is);
+        } catch (IOException e) {
+            throw new ThemeException(e.toString(), e);
+        }
+    }
+
+    /**
+     * @return the cache file for the theme source.
+     */
+    File getCacheFile(String key) {
+        return new File(mCacheDir, hash(key.getBytes(UTF_8)) + "-" + CompiledTheme.VERSION + FILE_EXTENSION);
+    }
+
+    /**
+     * @return the compiled theme, or null when the entry is missing or stale.
+     */
+    private static byte[] read(File file, String key, long size, long modified) {
+        if (!file.isFile())
+            return null;
+
+        DataInputStream is = null;
+        try {
+            is = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (!key.equals(is.readUTF()) || is.readLong() != size || is.readLong() != modified)
+                return null;
+            byte[] compiled = readFully(is);
+            if (CompiledTheme.isCompiled(new ByteArrayInputStream(compiled)))
+                return compiled;
+        } catch (IOException e) {
+            log.fine("cache read: " + e);
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+        return null;
+    }
+
+    /**
+     * Write to a temporary file first, concurrent readers see either
+     * no or a complete file.
+     */
+    private static void write(File file, String key, long size, long modified, byte[] compiled) {
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            log.warning("cannot create cache directory: " + dir);
+            return;
+        }
+
+        File tmp = new File(dir, file.getName() + ".tmp");
+        DataOutputStream os = null;
+        try {
+            os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+            os.writeUTF(key);
+            os.writeLong(size);
+            os.writeLong(modified);
+            os.write(compiled);
+            os.close();
+            os = null;
+            if (!tmp.renameTo(file)) {
+                file.delete();
+                if (!tmp.renameTo(file))
+                    log.warning("cannot write " + file);
+            }
+        } catch (IOException e) {
+            log.warning("cache write: " + e);
+        } finally {
+            IOUtils.closeQuietly(os);
+            if (tmp.exists())
+                tmp.delete();
+        }
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        try {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = is.read(buffer)) >= 0)
+                os.write(buffer, 0, n);
+            return os.toByteArray();
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+
+    private static String hash(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(data);
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+                sb.append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the theme file to compile.
+     */
+    public ThemeFile getTheme() {
+        return mTheme;
+    }
+
+    @Override
+    public XmlRenderThemeMenuCallback getMenuCallback() {
+        return mTheme.getMenuCallback();
+    }
+
+    @Override
+    public String getRelativePathPrefix() {
+        return mTheme.getRelativePathPrefix();
+    }
+
+    @Override
+    public XmlThemeResourceProvider getResourceProvider() {
+        return mTheme.getResourceProvider();
+    }
+
+    @Override
+    public boolean isMapsforgeTheme() {
+        return mTheme.isMapsforgeTheme();
+    }
+
+    @Override
+    public void setMapsforgeTheme(boolean mapsforgeTheme) {
+        mTheme.setMapsforgeTheme(mapsforgeTheme);
+    }
+
+    @Override
+    public void setMenuCallback(XmlRenderThemeMenuCallback menuCallback) {
+        mTheme.setMenuCallback(menuCallback);
+    }
+
+    @Override
+    public void setResourceProvider(XmlThemeResourceProvider resourceProvider) {
+        mTheme.setResourceProvider(resourceProvider);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.theme;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary format of a render theme.
+ * <p/>
+ * A compiled theme holds the elements and attributes of the theme XML, i.e.
+ * rules, styles, atlas references and style menu layers, with a table of all
+ * names and values. It is read by {@link CompiledThemeParser} without XML
+ * parsing. As the style menu is kept, categories can be changed without
+ * compiling the theme again.
+ * <p/>
+ * Layout: magic, version, string table, events. Events are a start tag with
+ * name and attributes, an end tag or the end of the document. Numbers are
+ * written as varints.
+ */
+public final class CompiledTheme {
+
+    static final int MAGIC = 0x564d5448; // "VMTH"
+
+    /**
+     * Version of the format, compiled themes of other versions are not read.
+     */
+    public static final int VERSION = 1;
+
+    static final int START_TAG = 1;
+    static final int END_TAG = 2;
+    static final int END_DOCUMENT = 3;
+
+    private CompiledTheme() {
+    }
+
+    /**
+     * @param xml the theme XML.
+     * @return the compiled theme.
+     */
+    public static byte[] compile(InputStream xml) throws XmlPullParserException, IOException {
+        XmlPullParser parser = XmlThemeBuilder.getXmlPullParserFactory().newPullParser();
+        parser.setInput(xml, null);
+
+        Map<String, Integer> strings = new HashMap<>();
+        List<String> table = new ArrayList<>();
+        ByteArrayOutputStream events = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(events);
+
+        int eventType = parser.getEventType();
+        do {
+            if (eventType == XmlPullParser.START_TAG) {
+                writeVarint(out, START_TAG);
+                writeVarint(out, index(parser.getName(), strings, table));
+                int n = parser.getAttributeCount();
+                writeVarint(out, n);
+                for (int i = 0; i < n; i++) {
+                    writeVarint(out, index(parser.getAttributeName(i), strings, table));
+                    writeVarint(out, index(parser.getAttributeValue(i), strings, table));
+                }
+            } else if (eventType == XmlPullParser.END_TAG) {
+                writeVarint(out, END_TAG);
+                writeVarint(out, index(parser.getName(), strings, table));
+            }
+            eventType = parser.next();
+        } while (eventType != XmlPullParser.END_DOCUMENT);
+        writeVarint(out, END_DOCUMENT);
+        out.flush();
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream(events.size() + 16 * table.size());
+        out = new DataOutputStream(result);
+        out.writeInt(MAGIC);
+        writeVarint(out, VERSION);
+        writeVarint(out, table.size());
+        for (String s : table)
+            out.writeUTF(s);
+        events.writeTo(out);
+        out.flush();
+
+        return result.toByteArray();
+    }
+
+    /**
+     * @param is a stream supporting mark and reset.
+     * @return true if the stream starts with a compiled theme of the current version.
+     */
+    public static boolean isCompiled(InputStream is) throws IOException {
+        is.mark(8);
+        try {
+            DataInputStream in = new DataInputStream(is);
+            return in.readInt() == MAGIC && readVarint(in) == VERSION;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            is.reset();
+        }
+    }
+
+    private static int index(String s, Map<String, Integer> strings, List<String> table) {
+        if (s == null)
+            s = "";
+        Integer index = strings.get(s);
+        if (index == null) {
+            index = table.size();
+            strings.put(s, index);
+            table.add(s);
+        }
+        return index;
+    }
+
+    static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("invalid varint");
+    }
+}
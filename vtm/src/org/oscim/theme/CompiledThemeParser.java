@@ -0,0 +1,312 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.theme;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+import static org.oscim.theme.CompiledTheme.readVarint;
+
+/**
+ * XmlPullParser over a {@link CompiledTheme}, so that themes are built by
+ * the same XmlThemeBuilder as from XML.
+ * <p/>
+ * Only elements and attributes are supported, no namespaces or text.
+ */
+public class CompiledThemeParser implements XmlPullParser {
+
+    private static final String[] NO_ATTRIBUTES = new String[0];
+
+    private DataInputStream mInput;
+    private String[] mStrings;
+
+    private int mEventType = START_DOCUMENT;
+    private int mDepth;
+    private String mName;
+
+    /* names and values of the current start tag */
+    private String[] mAttributes = NO_ATTRIBUTES;
+    private int mAttributeCount;
+
+    @Override
+    public void setInput(InputStream is, String inputEncoding) throws XmlPullParserException {
+        if (!(is instanceof BufferedInputStream))
+            is = new BufferedInputStream(is);
+        mInput = new DataInputStream(is);
+        try {
+            if (mInput.readInt() != CompiledTheme.MAGIC)
+                throw new XmlPullParserException("not a compiled theme");
+            int version = readVarint(mInput);
+            if (version != CompiledTheme.VERSION)
+                throw new XmlPullParserException("unsupported version " + version);
+
+            mStrings = new String[readVarint(mInput)];
+            for (int i = 0; i < mStrings.length; i++)
+                mStrings[i] = mInput.readUTF();
+        } catch (IOException e) {
+            throw new XmlPullParserException(e.toString(), this, e);
+        }
+        mEventType = START_DOCUMENT;
+        mDepth = 0;
+        mName = null;
+        mAttributeCount = 0;
+    }
+
+    @Override
+    public void setInput(Reader in) throws XmlPullParserException {
+        throw new XmlPullParserException("compiled themes are read from streams");
+    }
+
+    @Override
+    public int next() throws XmlPullParserException, IOException {
+        if (mEventType == END_DOCUMENT)
+            throw new XmlPullParserException("end of document", this, null);
+
+        if (mEventType == END_TAG)
+            mDepth--;
+        mAttributeCount = 0;
+
+        switch (readVarint(mInput)) {
+            case CompiledTheme.START_TAG:
+                mName = string();
+                mAttributeCount = readVarint(mInput);
+                if (mAttributes.length < mAttributeCount * 2)
+                    mAttributes = new String[mAttributeCount * 2];
+                for (int i = 0; i < mAttributeCount * 2; i++)
+                    mAttributes[i] = string();
+                mDepth++;
+                mEventType = START_TAG;
+                break;
+            case CompiledTheme.END_TAG:
+                mName = string();
+                mEventType = END_TAG;
+                break;
+            case CompiledTheme.END_DOCUMENT:
+                mName = null;
+                mEventType = END_DOCUMENT;
+                break;
+            default:
+                throw new XmlPullParserException("invalid event", this, null);
+        }
+        return mEventType;
+    }
+
+    private String string() throws IOException {
+        int index = readVarint(mInput);
+        if (index >= mStrings.length)
+            throw new IOException("invalid string " + index);
+        return mStrings[index];
+    }
+
+    @Override
+    public int nextToken() throws XmlPullParserException, IOException {
+        return next();
+    }
+
+    @Override
+    public int nextTag() throws XmlPullParserException, IOException {
+        int eventType = next();
+        if (eventType != START_TAG && eventType != END_TAG)
+            throw new XmlPullParserException("expected start or end tag", this, null);
+        return eventType;
+    }
+
+    @Override
+    public String nextText() throws XmlPullParserException, IOException {
+        if (mEventType != START_TAG)
+            throw new XmlPullParserException("expected start tag", this, null);
+        if (next() != END_TAG)
+            throw new XmlPullParserException("expected end tag", this, null);
+        return "";
+    }
+
+    @Override
+    public void require(int type, String namespace, String name) throws XmlPullParserException {
+        if (type != mEventType || (name != null && !name.equals(mName)))
+            throw new XmlPullParserException("expected " + TYPES[type], this, null);
+    }
+
+    @Override
+    public int getEventType() {
+        return mEventType;
+    }
+
+    @Override
+    public String getName() {
+        return mName;
+    }
+
+    @Override
+    public int getDepth() {
+        return mDepth;
+    }
+
+    @Override
+    public boolean isEmptyElementTag() {
+        return false;
+    }
+
+    @Override
+    public int getAttributeCount() {
+        return mEventType == START_TAG ? mAttributeCount : -1;
+    }
+
+    @Override
+    public String getAttributeName(int index) {
+        checkAttribute(index);
+        return mAttributes[index * 2];
+    }
+
+    @Override
+    public String getAttributeValue(int index) {
+        checkAttribute(index);
+        return mAttributes[index * 2 + 1];
+    }
+
+    @Override
+    public String getAttributeValue(String namespace, String name) {
+        for (int i = 0; i < mAttributeCount; i++) {
+            if (mAttributes[i * 2].equals(name))
+                return mAttributes[i * 2 + 1];
+        }
+        return null;
+    }
+
+    private void checkAttribute(int index) {
+        if (index < 0 || index >= mAttributeCount)
+            throw new IndexOutOfBoundsException("attribute " + index);
+    }
+
+    @Override
+    public String getAttributeNamespace(int index) {
+        checkAttribute(index);
+        return NO_NAMESPACE;
+    }
+
+    @Override
+    public String getAttributePrefix(int index) {
+        checkAttribute(index);
+        return null;
+    }
+
+    @Override
+    public String getAttributeType(int index) {
+        checkAttribute(index);
+        return "CDATA";
+    }
+
+    @Override
+    public boolean isAttributeDefault(int index) {
+        return false;
+    }
+
+    @Override
+    public String getNamespace() {
+        return NO_NAMESPACE;
+    }
+
+    @Override
+    public String getNamespace(String prefix) {
+        return null;
+    }
+
+    @Override
+    public int getNamespaceCount(int depth) {
+        return 0;
+    }
+
+    @Override
+    public String getNamespacePrefix(int pos) {
+        throw new IndexOutOfBoundsException();
+    }
+
+    @Override
+    public String getNamespaceUri(int pos) {
+        throw new IndexOutOfBoundsException();
+    }
+
+    @Override
+    public String getPrefix() {
+        return null;
+    }
+
+    @Override
+    public String getText() {
+        return mEventType == START_TAG || mEventType == END_TAG ? null : "";
+    }
+
+    @Override
+    public char[] getTextCharacters(int[] holderForStartAndLength) {
+        holderForStartAndLength[0] = -1;
+        holderForStartAndLength[1] = -1;
+        return null;
+    }
+
+    @Override
+    public boolean isWhitespace() throws XmlPullParserException {
+        throw new XmlPullParserException("no text", this, null);
+    }
+
+    @Override
+    public String getPositionDescription() {
+        return TYPES[mEventType] + (mName != null ? " " + mName : "") + " depth " + mDepth;
+    }
+
+    @Override
+    public int getLineNumber() {
+        return -1;
+    }
+
+    @Override
+    public int getColumnNumber() {
+        return -1;
+    }
+
+    @Override
+    public String getInputEncoding() {
+        return null;
+    }
+
+    @Override
+    public void defineEntityReplacementText(String entityName, String replacementText) {
+    }
+
+    @Override
+    public void setFeature(String name, boolean state) throws XmlPullParserException {
+        if (state)
+            throw new XmlPullParserException("unsupported feature " + name);
+    }
+
+    @Override
+    public boolean getFeature(String name) {
+        return false;
+    }
+
+    @Override
+    public void setProperty(String name, Object value) throws XmlPullParserException {
+        throw new XmlPullParserException("unsupported property " + name);
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return null;
+    }
+}
@@ -25,6 +25,9 @@ class MatchingCacheKey {
     int mHash;
     Tag[] mTags;
 
+    /* last access of a cached key */
+    int mAccess;
+
     MatchingCacheKey() {
     }
 
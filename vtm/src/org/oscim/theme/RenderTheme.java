@@ -25,20 +25,27 @@ import org.oscim.core.TagSet;
 import org.oscim.theme.rule.Rule;
 import org.oscim.theme.rule.Rule.Element;
 import org.oscim.theme.rule.Rule.RuleVisitor;
+import org.oscim.theme.rule.RuleIndex;
 import org.oscim.theme.styles.RenderStyle;
 import org.oscim.utils.ArrayUtils;
-import org.oscim.utils.LRUCache;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 public class RenderTheme implements IRenderTheme {
     private static final Logger log = Logger.getLogger(RenderTheme.class.getName());
 
-    private static final int MATCHING_CACHE_SIZE = 8192;
+    /**
+     * Default number of tag sets in the matching cache per geometry type.
+     */
+    public static final int MATCHING_CACHE_SIZE = 8192;
 
     private final float mBaseTextSize;
     private final int mMapBackground;
@@ -46,42 +53,75 @@ public class RenderTheme implements IRenderTheme {
 
     private final int mLevels;
     private final Rule[] mRules;
+    private final RuleIndex mRuleIndex;
     private final boolean mMapsforgeTheme;
 
     private final Map<String, String> mTransformBackwardKeyMap, mTransformForwardKeyMap;
     private final Map<Tag, Tag> mTransformBackwardTagMap, mTransformForwardTagMap;
 
+    /**
+     * Matching cache of a geometry type, shared by all threads.
+     * <p/>
+     * Items are immutable, an update replaces the list of items of a key.
+     * Concurrent updates of the same key may lose a zoom level which is
+     * then matched again.
+     * <p/>
+     * Keys are stamped with the clock on access, the clock advances with
+     * each new key. Eviction removes the keys with the oldest stamps.
+     */
     static class RenderStyleCache {
         final int matchType;
-        final LRUCache<MatchingCacheKey, RenderStyleItem> cache;
-        final MatchingCacheKey cacheKey;
-
-        /* temporary matching instructions list */
-        final List<RenderStyle> instructionList;
-
-        RenderStyleItem prevItem;
+        final ConcurrentHashMap<MatchingCacheKey, RenderStyleItem> cache;
+        final AtomicBoolean evicting = new AtomicBoolean();
+        final AtomicInteger clock = new AtomicInteger();
 
         public RenderStyleCache(int type) {
-            cache = new LRUCache<>(MATCHING_CACHE_SIZE);
-            instructionList = new ArrayList<>(4);
-            cacheKey = new MatchingCacheKey();
+            cache = new ConcurrentHashMap<>();
             matchType = type;
         }
+    }
+
+    /**
+     * Matching state of a thread.
+     */
+    static class MatchingState {
+        final MatchingCacheKey[] cacheKey = new MatchingCacheKey[3];
+        final RenderStyleItem[] prevItem = new RenderStyleItem[3];
+
+        /* temporary matching instructions list */
+        final List<RenderStyle> instructionList = new ArrayList<>(4);
 
-        RenderStyleItem getRenderInstructions() {
-            return cache.get(cacheKey);
+        MatchingState() {
+            for (int i = 0; i < 3; i++)
+                cacheKey[i] = new MatchingCacheKey();
         }
     }
 
-    static class RenderStyleItem {
-        RenderStyleItem next;
-        int zoom;
-        RenderStyle[] list;
-        MatchingCacheKey key;
+    static final class RenderStyleItem {
+        final RenderStyleItem next;
+        final int zoom;
+        final RenderStyle<?>[] list;
+        final MatchingCacheKey key;
+
+        RenderStyleItem(RenderStyleItem next, int zoom, RenderStyle<?>[] list, MatchingCacheKey key) {
+            this.next = next;
+            this.zoom = zoom;
+            this.list = list;
+            this.key = key;
+        }
     }
 
     private final RenderStyleCache[] mStyleCache;
 
+    private final ThreadLocal<MatchingState> mMatchingState = new ThreadLocal<MatchingState>() {
+        @Override
+        protected MatchingState initialValue() {
+            return new MatchingState();
+        }
+    };
+
+    private volatile int mCacheSize = MATCHING_CACHE_SIZE;
+
     public RenderTheme(int mapBackground, int mapBackgroundOutside, float baseTextSize, Rule[] rules, int levels) {
         this(mapBackground, mapBackgroundOutside, baseTextSize, rules, levels, false);
     }
@@ -105,6 +145,7 @@ public class RenderTheme implements IRenderTheme {
         mBaseTextSize = baseTextSize;
         mLevels = levels;
         mRules = rules;
+        mRuleIndex = rules.length < RuleIndex.MIN_RULES ? null : new RuleIndex(rules);
         mMapsforgeTheme = mapsforgeTheme;
 
         mTransformForwardKeyMap = transformKeyMap;
@@ -128,6 +169,20 @@ public class RenderTheme implements IRenderTheme {
             rule.dispose();
     }
 
+    /**
+     * Set the maximum number of tag sets in the matching cache per geometry type.
+     * When exceeded, the least recently used quarter of the entries is removed.
+     */
+    public void setMatchingCacheSize(int size) {
+        if (size < 1)
+            throw new IllegalArgumentException("size " + size);
+        mCacheSize = size;
+    }
+
+    public int getMatchingCacheSize() {
+        return mCacheSize;
+    }
+
     @Override
     public int getLevels() {
         return mLevels;
@@ -172,126 +227,197 @@ public class RenderTheme implements IRenderTheme {
         }
 
         RenderStyleCache cache = mStyleCache[type - 1];
+        MatchingState state = mMatchingState.get();
+        MatchingCacheKey cacheKey = state.cacheKey[type - 1];
+        RenderStyleItem prevItem = state.prevItem[type - 1];
 
         /* NOTE: maximum zoom level supported is 32 */
         int zoomMask = 1 << zoomLevel;
 
-        synchronized (cache) {
+        if ((prevItem == null) || (prevItem.zoom & zoomMask) == 0) {
+            /* previous instructions zoom does not match */
+            cacheKey.set(tags, null);
+        } else {
+            /* compare if tags match previous instructions */
+            if (cacheKey.set(tags, prevItem.key)) {
+                ri = prevItem;
+                //log.debug(hitCount + "/" + sameCount.incrementAndGet()
+                //        + "/" + missCount + "same hit " + tags);
+            }
+        }
 
-            if ((cache.prevItem == null) || (cache.prevItem.zoom & zoomMask) == 0) {
-                /* previous instructions zoom does not match */
-                cache.cacheKey.set(tags, null);
-            } else {
-                /* compare if tags match previous instructions */
-                if (cache.cacheKey.set(tags, cache.prevItem.key)) {
-                    ri = cache.prevItem;
-                    //log.debug(hitCount + "/" + sameCount.incrementAndGet()
-                    //        + "/" + missCount + "same hit " + tags);
+        if (ri == null) {
+            /* get instruction for current cacheKey */
+            ris = cache.cache.get(cacheKey);
+
+            for (ri = ris; ri != null; ri = ri.next) {
+                if ((ri.zoom & zoomMask) != 0) {
+                    /* cache hit */
+
+                    //log.debug(hitCount.incrementAndGet()
+                    //       + "/" + sameCount + "/" + missCount
+                    //       + " cache hit " + tags);
+                    break;
                 }
             }
+        }
 
-            if (ri == null) {
-                /* get instruction for current cacheKey */
-                ris = cache.getRenderInstructions();
+        if (ri == null) {
+            /* cache miss */
+            //missCount.incrementAndGet();
 
-                for (ri = ris; ri != null; ri = ri.next) {
-                    if ((ri.zoom & zoomMask) != 0) {
-                        /* cache hit */
+            List<RenderStyle> matches = state.instructionList;
+            matches.clear();
 
-                        //log.debug(hitCount.incrementAndGet()
-                        //       + "/" + sameCount + "/" + missCount
-                        //       + " cache hit " + tags);
-                        break;
-                    }
-                }
+            Tag[] matchTags = cacheKey.mTags;
+            long[] candidates = null;
+            if (mRuleIndex != null)
+                candidates = mRuleIndex.candidates(cache.matchType, matchTags, zoomMask);
+
+            for (int i = 0; i < mRules.length; i++) {
+                if (candidates != null && !RuleIndex.contains(candidates, i))
+                    continue;
+                mRules[i].matchElement(cache.matchType, matchTags, zoomMask, matches);
             }
 
-            if (ri == null) {
-                /* cache miss */
-                //missCount.incrementAndGet();
-
-                List<RenderStyle> matches = cache.instructionList;
-                matches.clear();
-
-                for (Rule rule : mRules)
-                    rule.matchElement(cache.matchType, cache.cacheKey.mTags, zoomMask, matches);
-
-                int size = matches.size();
-                if (size > 1) {
-                    for (int i = 0; i < size - 1; i++) {
-                        RenderStyle r = matches.get(i);
-                        for (int j = i + 1; j < size; j++) {
-                            if (matches.get(j) == r) {
-                                log.fine("fix duplicate instruction! "
-                                        + Arrays.deepToString(cache.cacheKey.mTags)
-                                        + " zoom:" + zoomLevel + " "
-                                        + r.getClass().getName());
-                                matches.remove(j--);
-                                size--;
-                            }
+            int size = matches.size();
+            if (size > 1) {
+                for (int i = 0; i < size - 1; i++) {
+                    RenderStyle<?> r = matches.get(i);
+                    for (int j = i + 1; j < size; j++) {
+                        if (matches.get(j) == r) {
+                            log.fine("fix duplicate instruction! "
+                                    + Arrays.deepToString(matchTags)
+                                    + " zoom:" + zoomLevel + " "
+                                    + r.getClass().getName());
+                            matches.remove(j--);
+                            size--;
                         }
                     }
                 }
-                /* check if same instructions are used in another level */
-                for (ri = ris; ri != null; ri = ri.next) {
-                    if (size == 0) {
-                        if (ri.list != null)
-                            continue;
+            }
+            /* check if same instructions are used in another level */
+            for (ri = ris; ri != null; ri = ri.next) {
+                if (size == 0) {
+                    if (ri.list != null)
+                        continue;
 
-                        /* both matchinglists are empty */
-                        break;
-                    }
+                    /* both matchinglists are empty */
+                    break;
+                }
 
-                    if (ri.list == null)
-                        continue;
+                if (ri.list == null)
+                    continue;
 
-                    if (ri.list.length != size)
-                        continue;
+                if (ri.list.length != size)
+                    continue;
 
-                    int i = 0;
-                    for (RenderStyle r : ri.list) {
-                        if (r != matches.get(i))
-                            break;
-                        i++;
-                    }
-                    if (i == size)
-                        /* both matching lists contain the same items */
+                int i = 0;
+                for (RenderStyle<?> r : ri.list) {
+                    if (r != matches.get(i))
                         break;
+                    i++;
                 }
+                if (i == size)
+                    /* both matching lists contain the same items */
+                    break;
+            }
+
+            if (ri != null) {
+                /* we found a same matchting list on another zoomlevel add
+                 * this zoom level to a copy of the existing RenderStyleItem. */
+                RenderStyleItem same = ri;
+                ri = new RenderStyleItem(same.next, same.zoom | zoomMask, same.list, same.key);
+                cache.cache.put(ri.key, replace(ris, same, ri));
+
+                //log.debug(zoomLevel + " same instructions " + size + " "
+                //                + Arrays.deepToString(tags));
+            } else {
+                //log.debug(zoomLevel + " new instructions " + size + " "
+                //                + Arrays.deepToString(tags));
 
-                if (ri != null) {
-                    /* we found a same matchting list on another zoomlevel add
-                     * this zoom level to the existing RenderInstructionItem. */
-                    ri.zoom |= zoomMask;
+                RenderStyle<?>[] list = null;
+                if (size > 0) {
+                    list = new RenderStyle<?>[size];
+                    matches.toArray(list);
+                }
 
-                    //log.debug(zoomLevel + " same instructions " + size + " "
-                    //                + Arrays.deepToString(tags));
+                /* attach this list to the one found for MatchingKey */
+                if (ris != null) {
+                    ri = new RenderStyleItem(ris, zoomMask, list, ris.key);
+                    cache.cache.put(ri.key, ri);
                 } else {
-                    //log.debug(zoomLevel + " new instructions " + size + " "
-                    //                + Arrays.deepToString(tags));
+                    ri = new RenderStyleItem(null, zoomMask, list, new MatchingCacheKey(cacheKey));
+                    ri.key.mAccess = cache.clock.incrementAndGet();
+                    cache.cache.put(ri.key, ri);
+                    evict(cache);
+                }
+            }
+            matches.clear();
+        }
+        state.prevItem[type - 1] = ri;
 
-                    ri = new RenderStyleItem();
-                    ri.zoom = zoomMask;
+        /* only write when the clock advanced, racy updates are fine */
+        int now = cache.clock.get();
+        if (ri.key.mAccess != now)
+            ri.key.mAccess = now;
 
-                    if (size > 0) {
-                        ri.list = new RenderStyle[size];
-                        matches.toArray(ri.list);
-                    }
+        return ri.list;
+    }
 
-                    /* attach this list to the one found for MatchingKey */
-                    if (ris != null) {
-                        ri.next = ris.next;
-                        ri.key = ris.key;
-                        ris.next = ri;
-                    } else {
-                        ri.key = new MatchingCacheKey(cache.cacheKey);
-                        cache.cache.put(ri.key, ri);
-                    }
+    /**
+     * @return copy of the items up to 'item' with 'item' replaced by 'replacement'.
+     */
+    private static RenderStyleItem replace(RenderStyleItem items, RenderStyleItem item,
+                                           RenderStyleItem replacement) {
+        if (items == item)
+            return replacement;
+        return new RenderStyleItem(replace(items.next, item, replacement),
+                items.zoom, items.list, items.key);
+    }
+
+    /**
+     * Remove the least recently used quarter of the entries when the cache
+     * exceeds its size. Only one thread evicts, others continue to add
+     * entries meanwhile.
+     */
+    private void evict(RenderStyleCache cache) {
+        int size = mCacheSize;
+        if (cache.cache.size() <= size || !cache.evicting.compareAndSet(false, true))
+            return;
+
+        try {
+            int[] stamps = new int[cache.cache.size()];
+            int count = 0;
+            for (MatchingCacheKey key : cache.cache.keySet()) {
+                if (count == stamps.length)
+                    break;
+                stamps[count++] = key.mAccess;
+            }
+            int remove = count - (size - (size >> 2));
+            if (remove <= 0)
+                return;
+
+            Arrays.sort(stamps, 0, count);
+            int oldest = stamps[remove - 1];
+
+            Iterator<MatchingCacheKey> it = cache.cache.keySet().iterator();
+            while (it.hasNext() && remove > 0) {
+                if (it.next().mAccess <= oldest) {
+                    it.remove();
+                    remove--;
                 }
             }
-            cache.prevItem = ri;
+        } finally {
+            cache.evicting.set(false);
         }
-        return ri.list;
+    }
+
+    /**
+     * @return the number of tag sets in the matching cache of the geometry type.
+     */
+    int getMatchingCacheCount(GeometryType geometryType) {
+        return mStyleCache[geometryType.nativeInt - 1].cache.size();
     }
 
     @Override
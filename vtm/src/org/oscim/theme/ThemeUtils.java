@@ -34,6 +34,8 @@ public final class ThemeUtils {
      * Check if the given theme is a Mapsforge one.
      */
     public static boolean isMapsforgeTheme(ThemeFile theme) {
+        if (theme instanceof CachedRenderTheme)
+            theme = ((CachedRenderTheme) theme).getTheme();
         try {
             final AtomicBoolean isMapsforgeTheme = new AtomicBoolean(false);
             try {
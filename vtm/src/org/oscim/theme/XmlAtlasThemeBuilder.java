@@ -55,12 +55,11 @@ public class XmlAtlasThemeBuilder extends XmlThemeBuilder {
     public static IRenderTheme read(ThemeFile theme, ThemeCallback themeCallback) throws ThemeException {
         InputStream inputStream = null;
         try {
-            XmlPullParser pullParser = getXmlPullParserFactory().newPullParser();
+            inputStream = theme.getRenderThemeAsStream();
+            XmlPullParser pullParser = createPullParser(inputStream);
             Map<Object, TextureRegion> outputMap = new HashMap<>();
             List<TextureAtlas> atlasList = new ArrayList<>();
             XmlAtlasThemeBuilder renderThemeHandler = new XmlAtlasThemeBuilder(theme, pullParser, themeCallback, outputMap, atlasList);
-            inputStream = theme.getRenderThemeAsStream();
-            pullParser.setInput(inputStream, null);
             renderThemeHandler.processRenderTheme();
             TextureAtlasUtils.createTextureRegions(renderThemeHandler.bitmapMap, outputMap, atlasList,
                     true, CanvasAdapter.platform == Platform.IOS);
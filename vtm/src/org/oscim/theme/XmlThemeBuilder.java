@@ -57,6 +57,7 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 import org.xmlpull.v1.XmlPullParserFactory;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
@@ -110,10 +111,9 @@ public class XmlThemeBuilder {
     public static IRenderTheme read(ThemeFile theme, ThemeCallback themeCallback) throws ThemeException {
         InputStream inputStream = null;
         try {
-            XmlPullParser pullParser = getXmlPullParserFactory().newPullParser();
-            XmlThemeBuilder renderThemeHandler = new XmlThemeBuilder(theme, pullParser, themeCallback);
             inputStream = theme.getRenderThemeAsStream();
-            pullParser.setInput(inputStream, null);
+            XmlPullParser pullParser = createPullParser(inputStream);
+            XmlThemeBuilder renderThemeHandler = new XmlThemeBuilder(theme, pullParser, themeCallback);
             renderThemeHandler.processRenderTheme();
             return renderThemeHandler.mRenderTheme;
         } catch (Exception e) {
@@ -123,6 +123,23 @@ public class XmlThemeBuilder {
         }
     }
 
+    /**
+     * @param inputStream the theme XML or a {@link CompiledTheme}.
+     * @return a parser with the input set.
+     */
+    static XmlPullParser createPullParser(InputStream inputStream) throws XmlPullParserException, IOException {
+        if (!inputStream.markSupported())
+            inputStream = new BufferedInputStream(inputStream);
+
+        XmlPullParser pullParser;
+        if (CompiledTheme.isCompiled(inputStream))
+            pullParser = new CompiledThemeParser();
+        else
+            pullParser = getXmlPullParserFactory().newPullParser();
+        pullParser.setInput(inputStream, null);
+        return pullParser;
+    }
+
     public static XmlPullParserFactory getXmlPullParserFactory() throws XmlPullParserException {
         if (xmlPullParserFactory == null) {
             xmlPullParserFactory = XmlPullParserFactory.newInstance();
@@ -57,6 +57,9 @@ public class Rule {
     public final boolean selectFirstMatch;
     public final boolean selectWhenMatched;
 
+    /* index of subRules, null for few subRules */
+    private final RuleIndex mIndex;
+
     Rule(int element, int zoom, int selector, Rule[] subRules, RenderStyle[] styles) {
         this.element = element;
         this.zoom = zoom;
@@ -66,6 +69,15 @@ public class Rule {
 
         selectFirstMatch = (selector & Selector.FIRST) != 0;
         selectWhenMatched = (selector & Selector.WHEN_MATCHED) != 0;
+
+        mIndex = this.subRules.length < RuleIndex.MIN_RULES ? null : new RuleIndex(this.subRules);
+    }
+
+    /**
+     * Add the tag condition of this rule to the index of its sibling rules.
+     */
+    void addTo(RuleIndex index, int position) {
+        index.addAlways(position);
     }
 
     public boolean matchesTags(Tag[] tags) {
@@ -78,24 +90,38 @@ public class Rule {
 
         boolean matched = false;
         if (subRules != EMPTY_RULES) {
+            /* rules which are not candidates can not match, skipping them
+             * does not change 'matched' */
+            long[] candidates = null;
+            if (mIndex != null)
+                candidates = mIndex.candidates(type, tags, zoomLevel);
+
             if (selectFirstMatch) {
                 /* only add first matching rule and when-matched rules iff a
                  * previous rule matched */
-                for (Rule r : subRules) {
+                for (int i = 0; i < subRules.length; i++) {
+                    Rule r = subRules[i];
                     /* continue if matched xor selectWhenMatch */
                     if (matched ^ r.selectWhenMatched)
                         continue;
 
+                    if (candidates != null && !RuleIndex.contains(candidates, i))
+                        continue;
+
                     if (r.matchElement(type, tags, zoomLevel, result))
                         matched = true;
                 }
             } else {
                 /* add all rules and when-matched rules iff a previous rule
                  * matched */
-                for (Rule r : subRules) {
+                for (int i = 0; i < subRules.length; i++) {
+                    Rule r = subRules[i];
                     if (r.selectWhenMatched && !matched)
                         continue;
 
+                    if (candidates != null && !RuleIndex.contains(candidates, i))
+                        continue;
+
                     if (r.matchElement(type, tags, zoomLevel, result))
                         matched = true;
                 }
@@ -188,6 +214,11 @@ public class Rule {
             mKey = key;
         }
 
+        @Override
+        void addTo(RuleIndex index, int position) {
+            index.addKey(mKey, position);
+        }
+
         @Override
         public boolean matchesTags(Tag[] tags) {
             for (Tag tag : tags)
@@ -207,6 +238,11 @@ public class Rule {
             mValue = value;
         }
 
+        @Override
+        void addTo(RuleIndex index, int position) {
+            index.addValue(mValue, position);
+        }
+
         @Override
         public boolean matchesTags(Tag[] tags) {
             for (Tag tag : tags)
@@ -229,6 +265,11 @@ public class Rule {
             mValue = value;
         }
 
+        @Override
+        void addTo(RuleIndex index, int position) {
+            index.addKeyValue(mKey, mValue, position);
+        }
+
         @Override
         public boolean matchesTags(Tag[] tags) {
             for (Tag tag : tags)
@@ -259,6 +300,21 @@ public class Rule {
                 mValues = values;
         }
 
+        @Override
+        void addTo(RuleIndex index, int position) {
+            if (mKeys == null) {
+                for (String value : mValues)
+                    index.addValue(value, position);
+            } else if (mValues == null) {
+                for (String key : mKeys)
+                    index.addKey(key, position);
+            } else {
+                for (String key : mKeys)
+                    for (String value : mValues)
+                        index.addKeyValue(key, value, position);
+            }
+        }
+
         @Override
         public boolean matchesTags(Tag[] tags) {
             if (mKeys == null) {
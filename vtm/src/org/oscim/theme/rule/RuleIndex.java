@@ -0,0 +1,140 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.theme.rule;
+
+import org.oscim.core.Tag;
+
+import java.util.HashMap;
+
+/**
+ * Index of a list of sibling rules by the keys and key=value pairs they
+ * require, to find the candidate rules for a set of tags without testing
+ * each rule.
+ * <p/>
+ * Candidates are a superset of the matching rules, each candidate still
+ * has to be matched. Rules without an indexable condition (e.g. negative
+ * rules) are always candidates. Candidates are pruned by element type and
+ * zoom level of the rule.
+ */
+public class RuleIndex {
+
+    /**
+     * Minimum number of rules for which an index is built.
+     */
+    public static final int MIN_RULES = 8;
+
+    private static final int NUM_ZOOM = 32;
+
+    private final int mWords;
+
+    /* bitsets of rule positions */
+    private final long[] mAlways;
+    private final HashMap<String, long[]> mByKey = new HashMap<>();
+    private final HashMap<String, long[]> mByValue = new HashMap<>();
+    private final HashMap<String, HashMap<String, long[]>> mByKeyValue = new HashMap<>();
+
+    /* rules for element type and zoom level, [type][zoom] */
+    private final long[][][] mFilter;
+
+    public RuleIndex(Rule[] rules) {
+        mWords = (rules.length + 63) >>> 6;
+        mAlways = new long[mWords];
+
+        mFilter = new long[3][NUM_ZOOM][mWords];
+        for (int i = 0; i < rules.length; i++) {
+            Rule r = rules[i];
+            r.addTo(this, i);
+
+            for (int t = 0; t < 3; t++) {
+                if ((r.element & (1 << t)) == 0)
+                    continue;
+                for (int z = 0; z < NUM_ZOOM; z++) {
+                    if ((r.zoom & (1 << z)) != 0)
+                        set(mFilter[t][z], i);
+                }
+            }
+        }
+    }
+
+    void addAlways(int position) {
+        set(mAlways, position);
+    }
+
+    void addKey(String key, int position) {
+        set(get(mByKey, key), position);
+    }
+
+    void addValue(String value, int position) {
+        set(get(mByValue, value), position);
+    }
+
+    void addKeyValue(String key, String value, int position) {
+        HashMap<String, long[]> values = mByKeyValue.get(key);
+        if (values == null) {
+            values = new HashMap<>();
+            mByKeyValue.put(key, values);
+        }
+        set(get(values, value), position);
+    }
+
+    /**
+     * @param type      element type, one of {@link Rule.Element}.
+     * @param tags      tags of the element.
+     * @param zoomLevel zoom level bitmask.
+     * @return bitset of the positions of candidate rules.
+     */
+    public long[] candidates(int type, Tag[] tags, int zoomLevel) {
+        long[] result = mAlways.clone();
+
+        for (Tag tag : tags) {
+            or(result, mByKey.get(tag.key));
+            or(result, mByValue.get(tag.value));
+
+            HashMap<String, long[]> values = mByKeyValue.get(tag.key);
+            if (values != null)
+                or(result, values.get(tag.value));
+        }
+
+        long[] filter = mFilter[Integer.numberOfTrailingZeros(type)][Integer.numberOfTrailingZeros(zoomLevel)];
+        for (int i = 0; i < mWords; i++)
+            result[i] &= filter[i];
+
+        return result;
+    }
+
+    public static boolean contains(long[] candidates, int position) {
+        return (candidates[position >>> 6] & (1L << position)) != 0;
+    }
+
+    private long[] get(HashMap<String, long[]> map, String s) {
+        long[] bits = map.get(s);
+        if (bits == null) {
+            bits = new long[mWords];
+            map.put(s, bits);
+        }
+        return bits;
+    }
+
+    private static void set(long[] bits, int position) {
+        bits[position >>> 6] |= 1L << position;
+    }
+
+    private static void or(long[] result, long[] bits) {
+        if (bits == null)
+            return;
+        for (int i = 0; i < result.length; i++)
+            result[i] |= bits[i];
+    }
+}
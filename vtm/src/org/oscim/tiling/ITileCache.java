@@ -47,6 +47,11 @@ public interface ITileCache {
         Tile getTile();
 
         InputStream getInputStream();
+
+        /**
+         * @return the metadata stored with the tile, never null.
+         */
+        Metadata getMetadata();
     }
 
     public interface TileWriter {
@@ -54,6 +59,63 @@ public interface ITileCache {
 
         OutputStream getOutputStream();
 
+        /**
+         * @param metadata the metadata to store with the tile, must be set
+         *                 before {@link #complete(boolean)}.
+         */
+        void setMetadata(Metadata metadata);
+
         void complete(boolean success);
     }
+
+    /**
+     * HTTP validators and expiry time of a cached tile.
+     */
+    public final class Metadata {
+        /**
+         * No validators, never expires.
+         */
+        public static final Metadata NONE = new Metadata(null, 0, 0);
+
+        /**
+         * The entity tag, or null if unknown.
+         */
+        public final String etag;
+
+        /**
+         * The last modification time in milliseconds, or 0 if unknown.
+         */
+        public final long lastModified;
+
+        /**
+         * The expiry time in milliseconds, or 0 if the tile never expires.
+         */
+        public final long expires;
+
+        public Metadata(String etag, long lastModified, long expires) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.expires = expires;
+        }
+
+        /**
+         * @param now the current time in milliseconds.
+         * @return true if the tile should be revalidated.
+         */
+        public boolean isExpired(long now) {
+            return expires != 0 && now >= expires;
+        }
+
+        /**
+         * @return true if a conditional request can be made.
+         */
+        public boolean hasValidator() {
+            return etag != null || lastModified != 0;
+        }
+
+        @Override
+        public String toString() {
+            return "[etag=" + etag + ", lastModified=" + lastModified + ", expires=" + expires + "]";
+        }
+    }
 }
@@ -17,12 +17,27 @@
 package org.oscim.tiling;
 
 import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.GeometryBuffer.GeometryType;
 import org.oscim.core.MapElement;
+import org.oscim.core.TagSet;
 
 /**
  * ITileDataSink callbacks (implemented by MapTileLoader)
  */
 public interface ITileDataSink {
+    /**
+     * Check before decoding the geometry of an element whether it will be
+     * used at all, e.g. whether the theme has a style for it.
+     * <p/>
+     * Data sources may skip the geometry of elements rejected here and not
+     * pass them to {@link #process(MapElement)}.
+     *
+     * @param type the geometry type of the element.
+     * @param tags all tags of the element.
+     * @return false when the element is not needed.
+     */
+    boolean accept(GeometryType type, TagSet tags);
+
     /**
      * Pass read MapElement data to loader.
      * <p/>
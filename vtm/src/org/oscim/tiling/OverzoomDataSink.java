@@ -17,7 +17,9 @@ package org.oscim.tiling;
 
 import org.oscim.backend.CanvasAdapter;
 import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.GeometryBuffer.GeometryType;
 import org.oscim.core.MapElement;
+import org.oscim.core.TagSet;
 import org.oscim.core.Tile;
 import org.oscim.utils.geom.TileClipper;
 import org.oscim.utils.geom.TileSeparator;
@@ -44,6 +46,11 @@ public class OverzoomDataSink implements ITileDataSink {
                 (dx + Tile.SIZE) / scale, (dy + Tile.SIZE) / scale);
     }
 
+    @Override
+    public boolean accept(GeometryType type, TagSet tags) {
+        return sink.accept(type, tags);
+    }
+
     @Override
     public void process(MapElement element) {
         if (element.isBuilding() || element.isBuildingPart() || element.isPoint()) {
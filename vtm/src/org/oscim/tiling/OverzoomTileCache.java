@@ -0,0 +1,271 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling;
+
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.GeometryBuffer.GeometryType;
+import org.oscim.core.MapElement;
+import org.oscim.core.PointF;
+import org.oscim.core.Tag;
+import org.oscim.core.TagSet;
+import org.oscim.core.Tile;
+import org.oscim.utils.LRUCache;
+
+import java.util.Arrays;
+
+/**
+ * A cache of decoded parent tiles for {@link OverzoomTileDataSource}.
+ * <p/>
+ * Overzoomed tiles are clipped from their parent tile at the overzoom level,
+ * so the parent is decoded once for each of its 4, 16 or 64 children.
+ * With the cache the elements of the parent are decoded once and kept as
+ * coordinate and tag arrays, the children are clipped from those.
+ * <p/>
+ * The cache is shared by the data sources of one tile source. Only vector
+ * tiles are cached.
+ */
+public class OverzoomTileCache {
+
+    private final LRUCache<Tile, Elements> mCache;
+
+    private long mHits;
+    private long mMisses;
+
+    /**
+     * @param capacity maximum number of parent tiles in the cache.
+     */
+    public OverzoomTileCache(int capacity) {
+        mCache = new LRUCache<>(capacity);
+    }
+
+    synchronized Elements get(Tile tile) {
+        Elements elements = mCache.get(tile);
+        if (elements != null)
+            mHits++;
+        else
+            mMisses++;
+        return elements;
+    }
+
+    synchronized void put(Tile tile, Elements elements) {
+        mCache.put(new Tile(tile.tileX, tile.tileY, tile.zoomLevel), elements);
+    }
+
+    public synchronized long getHits() {
+        return mHits;
+    }
+
+    public synchronized long getMisses() {
+        return mMisses;
+    }
+
+    /**
+     * @return the share of overzoomed tiles that were clipped from a cached
+     * parent tile, 0 when no tile was queried yet.
+     */
+    public synchronized float getHitRate() {
+        long total = mHits + mMisses;
+        return total == 0 ? 0 : (float) mHits / total;
+    }
+
+    /**
+     * Remove all parent tiles, e.g. after the data of the tile source has
+     * changed.
+     */
+    public synchronized void clear() {
+        mCache.clear();
+    }
+
+    public synchronized void resetStatistics() {
+        mHits = 0;
+        mMisses = 0;
+    }
+
+    /**
+     * The elements of one parent tile.
+     * <p/>
+     * Records all elements of the parent while it is decoded, regardless of
+     * what the sink of the child would accept, and replays them into the sink
+     * of each child.
+     */
+    static final class Elements implements ITileDataSink {
+        /* layer, level, indexCurrentPos and the end of the points, index
+         * and tags of each element */
+        private static final int INFO = 6;
+        /* label and centroid position, NaN when not set */
+        private static final int POSITIONS = 4;
+
+        private final ITileDataSink mSink;
+
+        private GeometryType[] mTypes = new GeometryType[64];
+        private int[] mInfo = new int[64 * INFO];
+        private float[] mPositions = new float[64 * POSITIONS];
+        private float[] mPoints = new float[4096];
+        private int[] mIndex = new int[256];
+        private Tag[] mTags = new Tag[256];
+
+        private int mCount;
+        private int mPointPos;
+        private int mIndexPos;
+        private int mTagPos;
+
+        private boolean mImage;
+        QueryResult result = QueryResult.FAILED;
+
+        /**
+         * @param sink receives tile images, which are not cached.
+         */
+        Elements(ITileDataSink sink) {
+            mSink = sink;
+        }
+
+        /**
+         * @return true when the parent was decoded to vector elements.
+         */
+        boolean isCacheable() {
+            return result == QueryResult.SUCCESS && !mImage;
+        }
+
+        @Override
+        public boolean accept(GeometryType type, TagSet tags) {
+            return true;
+        }
+
+        @Override
+        public void process(MapElement element) {
+            if (mCount == mTypes.length) {
+                mTypes = Arrays.copyOf(mTypes, mCount * 2);
+                mInfo = Arrays.copyOf(mInfo, mCount * 2 * INFO);
+                mPositions = Arrays.copyOf(mPositions, mCount * 2 * POSITIONS);
+            }
+
+            int numPoints = element.pointNextPos;
+            if (mPointPos + numPoints > mPoints.length)
+                mPoints = Arrays.copyOf(mPoints, Math.max(mPoints.length * 2, mPointPos + numPoints));
+            System.arraycopy(element.points, 0, mPoints, mPointPos, numPoints);
+            mPointPos += numPoints;
+
+            int numIndex = 0;
+            while (numIndex < element.index.length && element.index[numIndex] != -1)
+                numIndex++;
+            if (mIndexPos + numIndex > mIndex.length)
+                mIndex = Arrays.copyOf(mIndex, Math.max(mIndex.length * 2, mIndexPos + numIndex));
+            System.arraycopy(element.index, 0, mIndex, mIndexPos, numIndex);
+            mIndexPos += numIndex;
+
+            int numTags = element.tags.size();
+            if (mTagPos + numTags > mTags.length)
+                mTags = Arrays.copyOf(mTags, Math.max(mTags.length * 2, mTagPos + numTags));
+            for (int i = 0; i < numTags; i++)
+                mTags[mTagPos++] = element.tags.get(i);
+
+            mTypes[mCount] = element.type;
+
+            int info = mCount * INFO;
+            mInfo[info] = element.layer;
+            mInfo[info + 1] = element.level;
+            mInfo[info + 2] = element.indexCurrentPos;
+            mInfo[info + 3] = mPointPos;
+            mInfo[info + 4] = mIndexPos;
+            mInfo[info + 5] = mTagPos;
+
+            int pos = mCount * POSITIONS;
+            setPosition(pos, element.labelPosition);
+            setPosition(pos + 2, element.centroidPosition);
+
+            mCount++;
+        }
+
+        private void setPosition(int pos, PointF p) {
+            mPositions[pos] = p != null ? p.x : Float.NaN;
+            mPositions[pos + 1] = p != null ? p.y : Float.NaN;
+        }
+
+        private PointF getPosition(int pos) {
+            if (Float.isNaN(mPositions[pos]))
+                return null;
+            return new PointF(mPositions[pos], mPositions[pos + 1]);
+        }
+
+        @Override
+        public void setTileImage(Bitmap bitmap) {
+            mImage = true;
+            mSink.setTileImage(bitmap);
+        }
+
+        @Override
+        public void completed(QueryResult result) {
+            this.result = result;
+            if (!isCacheable())
+                return;
+
+            /* trim to the recorded size, the elements are kept as they are */
+            mTypes = Arrays.copyOf(mTypes, mCount);
+            mInfo = Arrays.copyOf(mInfo, mCount * INFO);
+            mPositions = Arrays.copyOf(mPositions, mCount * POSITIONS);
+            mPoints = Arrays.copyOf(mPoints, mPointPos);
+            mIndex = Arrays.copyOf(mIndex, mIndexPos);
+            mTags = Arrays.copyOf(mTags, mTagPos);
+        }
+
+        /**
+         * Pass a copy of each element that the sink accepts to the sink.
+         * May be called by several threads at once.
+         *
+         * @param element buffer for the copies.
+         */
+        void replay(ITileDataSink sink, MapElement element) {
+            int pointPos = 0;
+            int indexPos = 0;
+            int tagPos = 0;
+
+            for (int i = 0; i < mCount; i++) {
+                int info = i * INFO;
+                int pointEnd = mInfo[info + 3];
+                int indexEnd = mInfo[info + 4];
+                int tagEnd = mInfo[info + 5];
+
+                element.clear();
+                element.tags.clear();
+                for (int t = tagPos; t < tagEnd; t++)
+                    element.tags.add(mTags[t]);
+
+                if (sink.accept(mTypes[i], element.tags)) {
+                    int numPoints = pointEnd - pointPos;
+                    element.ensurePointSize(numPoints >> 1, false);
+                    System.arraycopy(mPoints, pointPos, element.points, 0, numPoints);
+                    element.pointNextPos = numPoints;
+
+                    int numIndex = indexEnd - indexPos;
+                    element.ensureIndexSize(numIndex + 1, false);
+                    System.arraycopy(mIndex, indexPos, element.index, 0, numIndex);
+                    element.index[numIndex] = -1;
+                    element.indexCurrentPos = mInfo[info + 2];
+
+                    element.type = mTypes[i];
+                    element.setLayer(mInfo[info]);
+                    element.level = mInfo[info + 1];
+                    element.labelPosition = getPosition(i * POSITIONS);
+                    element.centroidPosition = getPosition(i * POSITIONS + 2);
+
+                    sink.process(element);
+                }
+                pointPos = pointEnd;
+                indexPos = indexEnd;
+                tagPos = tagEnd;
+            }
+        }
+    }
+}
@@ -14,6 +14,7 @@
  */
 package org.oscim.tiling;
 
+import org.oscim.core.MapElement;
 import org.oscim.layers.tile.MapTile;
 
 import java.util.logging.Logger;
@@ -24,10 +25,22 @@ public class OverzoomTileDataSource implements ITileDataSource {
 
     private final ITileDataSource tileDataSource;
     private final int overZoom;
+    private final OverzoomTileCache cache;
+
+    private MapElement element;
 
     public OverzoomTileDataSource(ITileDataSource tileDataSource, int overZoom) {
+        this(tileDataSource, overZoom, null);
+    }
+
+    /**
+     * @param cache the decoded parent tiles shared with the other data sources
+     *              of the tile source, may be null.
+     */
+    public OverzoomTileDataSource(ITileDataSource tileDataSource, int overZoom, OverzoomTileCache cache) {
         this.tileDataSource = tileDataSource;
         this.overZoom = overZoom;
+        this.cache = cache;
     }
 
     public ITileDataSource getDataSource() {
@@ -43,6 +56,10 @@ public class OverzoomTileDataSource implements ITileDataSource {
             if (diff > 0) {
                 mapTile = new MapTile(tile.node, tile.tileX >> diff, tile.tileY >> diff, overZoom);
                 dataSink = new OverzoomDataSink(sink, mapTile, tile);
+                if (cache != null) {
+                    queryCached(mapTile, dataSink);
+                    return;
+                }
             }
             tileDataSource.query(mapTile, dataSink);
         } catch (Throwable t) {
@@ -50,6 +67,24 @@ public class OverzoomTileDataSource implements ITileDataSource {
         }
     }
 
+    private void queryCached(MapTile mapTile, ITileDataSink sink) {
+        OverzoomTileCache.Elements elements = cache.get(mapTile);
+        if (elements == null) {
+            /* a parent may be decoded twice when its children are loaded at once */
+            elements = new OverzoomTileCache.Elements(sink);
+            tileDataSource.query(mapTile, elements);
+            if (!elements.isCacheable()) {
+                sink.completed(elements.result);
+                return;
+            }
+            cache.put(mapTile, elements);
+        }
+        if (element == null)
+            element = new MapElement();
+        elements.replay(sink, element);
+        sink.completed(QueryResult.SUCCESS);
+    }
+
     @Override
     public void dispose() {
         tileDataSource.dispose();
@@ -15,28 +15,45 @@
 package org.oscim.tiling;
 
 import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.GeometryBuffer.GeometryType;
 import org.oscim.core.MapElement;
+import org.oscim.core.TagSet;
 
 import java.util.HashSet;
 import java.util.Set;
 
 public class TileDataSink implements ITileDataSink {
 
-    public final Set<Integer> hashPois = new HashSet<>();
-    public final Set<Integer> hashWays = new HashSet<>();
+    public final Set<Integer> hashPois;
+    public final Set<Integer> hashWays;
 
     public int level, levels;
     private QueryResult result;
     private final ITileDataSink sink;
 
     public TileDataSink(ITileDataSink sink) {
+        this(sink, new HashSet<Integer>(), new HashSet<Integer>());
+    }
+
+    /**
+     * @param hashPois hashes of the POIs passed to the sink, for deduplication.
+     * @param hashWays hashes of the ways passed to the sink, for deduplication.
+     */
+    protected TileDataSink(ITileDataSink sink, Set<Integer> hashPois, Set<Integer> hashWays) {
         this.sink = sink;
+        this.hashPois = hashPois;
+        this.hashWays = hashWays;
     }
 
     public QueryResult getResult() {
         return result;
     }
 
+    @Override
+    public boolean accept(GeometryType type, TagSet tags) {
+        return sink.accept(type, tags);
+    }
+
     @Override
     public void process(MapElement element) {
         sink.process(element);
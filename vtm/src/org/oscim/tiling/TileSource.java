@@ -92,6 +92,7 @@ public abstract class TileSource {
 
     protected final Options options = new Options();
     public ITileCache tileCache;
+    protected OverzoomTileCache mOverzoomCache;
 
     protected TileSource() {
     }
@@ -133,6 +134,19 @@ public abstract class TileSource {
         tileCache = cache;
     }
 
+    /**
+     * Cache of the decoded parent tiles of overzoomed tiles, null to decode
+     * the parent for each tile.
+     * Cache MUST be set before TileSource is added to a TileLayer!
+     */
+    public void setOverzoomCache(OverzoomTileCache cache) {
+        mOverzoomCache = cache;
+    }
+
+    public OverzoomTileCache getOverzoomCache() {
+        return mOverzoomCache;
+    }
+
     public int getZoomLevelMax() {
         return mZoomMax;
     }
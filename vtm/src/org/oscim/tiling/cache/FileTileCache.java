@@ -0,0 +1,621 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.cache;
+
+import org.oscim.core.Tile;
+import org.oscim.tiling.ITileCache;
+import org.oscim.utils.ByteBufferInputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent {@link ITileCache} in plain Java, for desktop and server.
+ * <p/>
+ * Tiles are appended to memory mapped segment files of a fixed size in the
+ * cache directory. An in-memory open addressing hash index maps the packed
+ * tile coordinates to the latest record of each tile, it is rebuilt from the
+ * segments when the cache is opened again. Tiles are read as slices of the
+ * mapped segments without copying. The {@link Metadata} of a tile is stored
+ * in front of its data.
+ * <p/>
+ * When the cache exceeds its size, the oldest segment is dropped. Tiles of
+ * this segment which were used recently are copied to the current segment
+ * before, which approximates LRU eviction without random writes.
+ * <p/>
+ * {@link TileWriter}s can be used from any number of threads: space for a tile
+ * is reserved under the index lock, the tile itself is written without it.
+ */
+public class FileTileCache implements ITileCache {
+
+    private static final Logger log = Logger.getLogger(FileTileCache.class.getName());
+
+    public static final int DEFAULT_SEGMENT_SIZE = 32 * 1024 * 1024;
+    public static final long DEFAULT_CACHE_SIZE = 256 * 1024 * 1024;
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    /* record: magic, key, length, crc, payload */
+    private static final int MAGIC = 0x76746d32;
+    private static final int HEADER_SIZE = 20;
+
+    /* payload: expires, last modified, etag length, etag, tile data */
+    private static final int METADATA_SIZE = 18;
+    private static final int MAX_ETAG_LENGTH = 0xffff;
+    private static final byte[] NO_METADATA = new byte[0];
+
+    private static final long EMPTY = -1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File mDirectory;
+    private final int mSegmentSize;
+    private long mMaxSize = DEFAULT_CACHE_SIZE;
+
+    /* segments, oldest first. the last one is written to */
+    private final List<Segment> mSegments = new ArrayList<>();
+    private int mNextSegmentId;
+
+    /* index */
+    private long[] mKeys;
+    private Segment[] mRecordSegments;
+    private int[] mOffsets;
+    private int[] mLengths;
+    private long[] mAccess;
+    private int mCount;
+    private long mClock;
+
+    /* statistics */
+    private long mHits;
+    private long mMisses;
+    private long mBytesRead;
+    private long mBytesWritten;
+
+    /**
+     * @param directory the cache directory, created if missing.
+     * @throws IOException if the cache cannot be opened.
+     */
+    public FileTileCache(File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param directory   the cache directory, created if missing.
+     * @param segmentSize the size of one segment file, which limits the size
+     *                    of a single tile.
+     * @throws IOException if the cache cannot be opened.
+     */
+    public FileTileCache(File directory, int segmentSize) throws IOException {
+        if (segmentSize <= HEADER_SIZE)
+            throw new IllegalArgumentException("segment size too small: " + segmentSize);
+
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("cannot create " + directory);
+
+        mDirectory = directory;
+        mSegmentSize = segmentSize;
+        allocateIndex(1024);
+        open();
+    }
+
+    /**
+     * Packs the tile coordinates into the index key.
+     */
+    static long key(Tile tile) {
+        return ((long) tile.zoomLevel << 58) | ((long) tile.tileX << 29) | tile.tileY;
+    }
+
+    @Override
+    public TileWriter writeTile(Tile tile) {
+        return new CacheTileWriter(tile);
+    }
+
+    @Override
+    public TileReader getTile(final Tile tile) {
+        final ByteBuffer data;
+        final Metadata metadata;
+        synchronized (this) {
+            int slot = find(key(tile));
+            if (slot < 0) {
+                mMisses++;
+                return null;
+            }
+            mHits++;
+            mAccess[slot] = ++mClock;
+
+            int offset = mOffsets[slot] + HEADER_SIZE;
+            ByteBuffer buf = mRecordSegments[slot].buffer.duplicate();
+            long expires = buf.getLong(offset);
+            long lastModified = buf.getLong(offset + 8);
+            int etagLength = buf.getShort(offset + 16) & 0xffff;
+            String etag = null;
+            if (etagLength > 0) {
+                byte[] b = new byte[etagLength];
+                buf.position(offset + METADATA_SIZE);
+                buf.get(b);
+                etag = new String(b, UTF_8);
+            }
+            metadata = (etag == null && lastModified == 0 && expires == 0)
+                    ? Metadata.NONE : new Metadata(etag, lastModified, expires);
+
+            buf.limit(offset + mLengths[slot]);
+            buf.position(offset + METADATA_SIZE + etagLength);
+            data = buf.slice();
+            mBytesRead += data.remaining();
+        }
+
+        return new TileReader() {
+            @Override
+            public Tile getTile() {
+                return tile;
+            }
+
+            @Override
+            public InputStream getInputStream() {
+                return new ByteBufferInputStream(data);
+            }
+
+            @Override
+            public Metadata getMetadata() {
+                return metadata;
+            }
+        };
+    }
+
+    /**
+     * @param size the maximum size of the cache in bytes, at least two
+     *             segments are kept.
+     */
+    @Override
+    public synchronized void setCacheSize(long size) {
+        mMaxSize = size;
+        evict(0);
+    }
+
+    /**
+     * @return the number of tiles in the cache.
+     */
+    public synchronized int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return the size of the segment files in bytes.
+     */
+    public synchronized long getSize() {
+        return (long) mSegments.size() * mSegmentSize;
+    }
+
+    public synchronized long getHits() {
+        return mHits;
+    }
+
+    public synchronized long getMisses() {
+        return mMisses;
+    }
+
+    /**
+     * @return the ratio of cache hits to all lookups.
+     */
+    public synchronized double getHitRate() {
+        long lookups = mHits + mMisses;
+        return lookups > 0 ? (double) mHits / lookups : 0;
+    }
+
+    /**
+     * @return the number of tile bytes served from the cache.
+     */
+    public synchronized long getBytesRead() {
+        return mBytesRead;
+    }
+
+    /**
+     * @return the number of tile bytes written to the cache.
+     */
+    public synchronized long getBytesWritten() {
+        return mBytesWritten;
+    }
+
+    /**
+     * Writes all segments to the storage device.
+     */
+    public synchronized void flush() {
+        for (Segment segment : mSegments)
+            segment.buffer.force();
+    }
+
+    /*
+     * segments
+     */
+
+    private static final class Segment {
+        final int id;
+        final File file;
+        final MappedByteBuffer buffer;
+        int position;
+        boolean deleted;
+
+        Segment(int id, File file, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+
+    private File segmentFile(int id) {
+        return new File(mDirectory, String.format("%08d", id) + SEGMENT_SUFFIX);
+    }
+
+    private Segment mapSegment(int id) throws IOException {
+        File file = segmentFile(id);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(mSegmentSize);
+            /* the mapping stays valid after closing the file */
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, mSegmentSize);
+            return new Segment(id, file, buffer);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Rebuilds the index from the segment files.
+     */
+    private void open() throws IOException {
+        String[] names = mDirectory.list(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        int[] ids = new int[names == null ? 0 : names.length];
+        int cnt = 0;
+        for (int i = 0; i < ids.length; i++) {
+            try {
+                ids[cnt] = Integer.parseInt(names[i].substring(0, names[i].length() - SEGMENT_SUFFIX.length()));
+                cnt++;
+            } catch (NumberFormatException e) {
+                log.fine("ignoring " + names[i]);
+            }
+        }
+        Arrays.sort(ids, 0, cnt);
+
+        for (int i = 0; i < cnt; i++) {
+            if (segmentFile(ids[i]).length() != mSegmentSize) {
+                log.fine("dropping segment of different size " + ids[i]);
+                segmentFile(ids[i]).delete();
+                continue;
+            }
+            Segment segment = mapSegment(ids[i]);
+            scan(segment);
+            mSegments.add(segment);
+            mNextSegmentId = ids[i] + 1;
+        }
+        if (mSegments.isEmpty())
+            mSegments.add(mapSegment(mNextSegmentId++));
+
+        evict(0);
+    }
+
+    /**
+     * Adds the valid records of a segment to the index. The segment ends at
+     * the first invalid record, e.g. one which was not completely written.
+     */
+    private void scan(Segment segment) {
+        ByteBuffer buf = segment.buffer;
+        CRC32 crc = new CRC32();
+        byte[] data = new byte[0];
+        int pos = 0;
+        while (pos + HEADER_SIZE <= mSegmentSize) {
+            if (buf.getInt(pos) != MAGIC)
+                break;
+            long key = buf.getLong(pos + 4);
+            int length = buf.getInt(pos + 12);
+            if (length < METADATA_SIZE || length > mSegmentSize - pos - HEADER_SIZE)
+                break;
+
+            if (data.length < length)
+                data = new byte[length];
+            ByteBuffer d = buf.duplicate();
+            d.position(pos + HEADER_SIZE);
+            d.get(data, 0, length);
+            crc.reset();
+            crc.update(data, 0, length);
+            if ((int) crc.getValue() != buf.getInt(pos + 16))
+                break;
+
+            put(key, segment, pos, length);
+            pos += HEADER_SIZE + length;
+        }
+        segment.position = pos;
+    }
+
+    /**
+     * Reserves space for a record in the current segment.
+     *
+     * @return the segment, its position is the end of the reserved space, or
+     * null if the record is too large.
+     */
+    private synchronized Segment reserve(int length) throws IOException {
+        if (length > mSegmentSize - HEADER_SIZE)
+            return null;
+
+        Segment segment = mSegments.get(mSegments.size() - 1);
+        while (segment.position + HEADER_SIZE + length > mSegmentSize) {
+            segment = mapSegment(mNextSegmentId++);
+            mSegments.add(segment);
+            /* tiles copied by evict must leave space for the record */
+            evict(HEADER_SIZE + length);
+        }
+        segment.position += HEADER_SIZE + length;
+        return segment;
+    }
+
+    /**
+     * Writes a record, its payload is the metadata followed by the data.
+     */
+    private static void writeRecord(Segment segment, int offset, long key, byte[] metadata,
+                                    byte[] data, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(metadata, 0, metadata.length);
+        crc.update(data, 0, length);
+
+        ByteBuffer buf = segment.buffer.duplicate();
+        buf.position(offset + HEADER_SIZE);
+        buf.put(metadata);
+        buf.put(data, 0, length);
+        buf.putLong(offset + 4, key);
+        buf.putInt(offset + 12, metadata.length + length);
+        buf.putInt(offset + 16, (int) crc.getValue());
+        /* record becomes valid last */
+        buf.putInt(offset, MAGIC);
+    }
+
+    /**
+     * Drops the oldest segments until the cache fits its size.
+     *
+     * @param free the space to keep free in the current segment.
+     */
+    private void evict(int free) {
+        while (mSegments.size() > 2 && (long) mSegments.size() * mSegmentSize > mMaxSize) {
+            Segment oldest = mSegments.remove(0);
+            Segment current = mSegments.get(mSegments.size() - 1);
+
+            /* tiles used by the recent half of all accesses are kept */
+            long recent = mClock - mCount / 2;
+            ByteBuffer src = oldest.buffer.duplicate();
+            byte[] data = new byte[0];
+
+            for (int i = 0; i < mKeys.length; i++) {
+                if (mKeys[i] == EMPTY || mRecordSegments[i] != oldest)
+                    continue;
+
+                int length = mLengths[i];
+                if (mAccess[i] > recent && current.position + HEADER_SIZE + length <= mSegmentSize - free) {
+                    if (data.length < length)
+                        data = new byte[length];
+                    src.position(mOffsets[i] + HEADER_SIZE);
+                    src.get(data, 0, length);
+
+                    int offset = current.position;
+                    current.position += HEADER_SIZE + length;
+                    writeRecord(current, offset, mKeys[i], NO_METADATA, data, length);
+                    mRecordSegments[i] = current;
+                    mOffsets[i] = offset;
+                } else {
+                    remove(i);
+                    /* an entry was shifted into this slot */
+                    i--;
+                }
+            }
+
+            oldest.deleted = true;
+            if (!oldest.file.delete()) {
+                log.fine("cannot delete " + oldest.file);
+                oldest.file.deleteOnExit();
+            }
+        }
+    }
+
+    /*
+     * open addressing index with linear probing
+     */
+
+    private void allocateIndex(int capacity) {
+        mKeys = new long[capacity];
+        Arrays.fill(mKeys, EMPTY);
+        mRecordSegments = new Segment[capacity];
+        mOffsets = new int[capacity];
+        mLengths = new int[capacity];
+        mAccess = new long[capacity];
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private int find(long key) {
+        int mask = mKeys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            if (mKeys[i] == key)
+                return i;
+            if (mKeys[i] == EMPTY)
+                return -1;
+        }
+    }
+
+    private void put(long key, Segment segment, int offset, int length) {
+        if ((mCount + 1) * 2 > mKeys.length)
+            grow();
+
+        int mask = mKeys.length - 1;
+        int i = hash(key) & mask;
+        while (mKeys[i] != EMPTY && mKeys[i] != key)
+            i = (i + 1) & mask;
+
+        if (mKeys[i] == EMPTY)
+            mCount++;
+        mKeys[i] = key;
+        mRecordSegments[i] = segment;
+        mOffsets[i] = offset;
+        mLengths[i] = length;
+        mAccess[i] = ++mClock;
+    }
+
+    /**
+     * Removes the entry of a slot and shifts back following entries of the
+     * probe sequence.
+     */
+    private void remove(int slot) {
+        int mask = mKeys.length - 1;
+        int i = slot;
+        for (int j = (i + 1) & mask; mKeys[j] != EMPTY; j = (j + 1) & mask) {
+            int home = hash(mKeys[j]) & mask;
+            /* move entry j to i if i lies cyclically between home and j */
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                mKeys[i] = mKeys[j];
+                mRecordSegments[i] = mRecordSegments[j];
+                mOffsets[i] = mOffsets[j];
+                mLengths[i] = mLengths[j];
+                mAccess[i] = mAccess[j];
+                i = j;
+            }
+        }
+        mKeys[i] = EMPTY;
+        mRecordSegments[i] = null;
+        mCount--;
+    }
+
+    private void grow() {
+        long[] keys = mKeys;
+        Segment[] segments = mRecordSegments;
+        int[] offsets = mOffsets;
+        int[] lengths = mLengths;
+        long[] access = mAccess;
+
+        allocateIndex(keys.length * 2);
+        int mask = mKeys.length - 1;
+        for (int j = 0; j < keys.length; j++) {
+            if (keys[j] == EMPTY)
+                continue;
+            int i = hash(keys[j]) & mask;
+            while (mKeys[i] != EMPTY)
+                i = (i + 1) & mask;
+            mKeys[i] = keys[j];
+            mRecordSegments[i] = segments[j];
+            mOffsets[i] = offsets[j];
+            mLengths[i] = lengths[j];
+            mAccess[i] = access[j];
+        }
+    }
+
+    private synchronized void publish(long key, Segment segment, int offset, int payload, int length) {
+        /* segment was evicted while the tile was written */
+        if (segment.deleted)
+            return;
+        put(key, segment, offset, payload);
+        mBytesWritten += length;
+    }
+
+    /**
+     * @return the metadata as stored in front of the tile data.
+     */
+    static byte[] encode(Metadata metadata) {
+        byte[] etag = metadata.etag == null ? NO_METADATA : metadata.etag.getBytes(UTF_8);
+        if (etag.length > MAX_ETAG_LENGTH)
+            etag = NO_METADATA;
+
+        ByteBuffer buf = ByteBuffer.allocate(METADATA_SIZE + etag.length);
+        buf.putLong(metadata.expires);
+        buf.putLong(metadata.lastModified);
+        buf.putShort((short) etag.length);
+        buf.put(etag);
+        return buf.array();
+    }
+
+    private final class CacheTileWriter implements TileWriter {
+        private final Tile mTile;
+        private final Buffer mBuffer = new Buffer();
+        private Metadata mMetadata = Metadata.NONE;
+
+        CacheTileWriter(Tile tile) {
+            mTile = tile;
+        }
+
+        @Override
+        public Tile getTile() {
+            return mTile;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return mBuffer;
+        }
+
+        @Override
+        public void setMetadata(Metadata metadata) {
+            mMetadata = metadata;
+        }
+
+        @Override
+        public void complete(boolean success) {
+            if (!success)
+                return;
+
+            byte[] metadata = encode(mMetadata);
+            int length = mBuffer.size();
+            int payload = metadata.length + length;
+            try {
+                Segment segment;
+                int offset;
+                synchronized (FileTileCache.this) {
+                    segment = reserve(payload);
+                    if (segment == null) {
+                        log.fine(mTile + " too large for cache: " + length);
+                        return;
+                    }
+                    offset = segment.position - HEADER_SIZE - payload;
+                }
+                writeRecord(segment, offset, key(mTile), metadata, mBuffer.array(), length);
+                publish(key(mTile), segment, offset, payload, length);
+            } catch (IOException e) {
+                log.log(Level.SEVERE, mTile.toString(), e);
+            }
+        }
+    }
+
+    private static final class Buffer extends ByteArrayOutputStream {
+        byte[] array() {
+            return buf;
+        }
+    }
+}
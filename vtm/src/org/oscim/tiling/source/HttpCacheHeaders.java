@@ -0,0 +1,108 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source;
+
+import org.oscim.tiling.ITileCache.Metadata;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Conversion between HTTP caching headers and tile cache {@link Metadata},
+ * for {@link HttpEngine} implementations.
+ */
+public final class HttpCacheHeaders {
+
+    public static final String IF_NONE_MATCH = "If-None-Match";
+    public static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    private HttpCacheHeaders() {
+    }
+
+    private static SimpleDateFormat dateFormat() {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format;
+    }
+
+    /**
+     * @return the time in milliseconds formatted as HTTP date.
+     */
+    public static String formatDate(long time) {
+        return dateFormat().format(new Date(time));
+    }
+
+    /**
+     * @return the HTTP date in milliseconds, or 0 if null or invalid.
+     */
+    public static long parseDate(String date) {
+        if (date == null)
+            return 0;
+        try {
+            return dateFormat().parse(date.trim()).getTime();
+        } catch (ParseException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Creates the metadata of a response from its header values, each may
+     * be null. The expiry time is taken from the 'max-age' of Cache-Control,
+     * else from Expires.
+     *
+     * @param now the time of the response in milliseconds.
+     */
+    public static Metadata parse(String etag, String lastModified, String cacheControl,
+                                 String expires, long now) {
+        long expiry = 0;
+        if (cacheControl != null) {
+            for (String directive : cacheControl.split(",")) {
+                directive = directive.trim().toLowerCase(Locale.US);
+                if (directive.equals("no-cache")) {
+                    expiry = now;
+                    break;
+                } else if (directive.startsWith("max-age=")) {
+                    try {
+                        expiry = now + Long.parseLong(directive.substring(8).trim()) * 1000;
+                    } catch (NumberFormatException e) {
+                        expiry = now;
+                    }
+                    break;
+                }
+            }
+        }
+        if (expiry == 0 && expires != null) {
+            /* invalid dates like "0" mean already expired */
+            expiry = Math.max(parseDate(expires), 1);
+        }
+        if (etag != null)
+            etag = etag.trim();
+
+        return new Metadata(etag, parseDate(lastModified), expiry);
+    }
+
+    /**
+     * Merges the metadata of a 304 response into the cached metadata, the
+     * validators may be omitted in the response.
+     */
+    public static Metadata merge(Metadata cached, Metadata response) {
+        return new Metadata(response.etag != null ? response.etag : cached.etag,
+                response.lastModified != 0 ? response.lastModified : cached.lastModified,
+                response.expires);
+    }
+}
@@ -17,6 +17,7 @@
 package org.oscim.tiling.source;
 
 import org.oscim.core.Tile;
+import org.oscim.tiling.ITileCache;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -24,10 +25,27 @@ import java.io.OutputStream;
 
 public interface HttpEngine {
 
+    /**
+     * @return the response content, or null if the request was conditional
+     * and the tile was not modified.
+     */
     InputStream read() throws IOException;
 
     void sendRequest(Tile tile) throws IOException;
 
+    /**
+     * Makes the next request conditional on the validators of a cached tile.
+     *
+     * @param metadata the metadata of the cached tile, or null for an
+     *                 unconditional request.
+     */
+    void setConditional(ITileCache.Metadata metadata);
+
+    /**
+     * @return the cache metadata of the last response, never null.
+     */
+    ITileCache.Metadata getMetadata();
+
     void close();
 
     void setCache(OutputStream os);
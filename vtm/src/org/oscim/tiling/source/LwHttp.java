@@ -18,6 +18,7 @@
 package org.oscim.tiling.source;
 
 import org.oscim.core.Tile;
+import org.oscim.tiling.ITileCache;
 import org.oscim.utils.ArrayUtils;
 import org.oscim.utils.IOUtils;
 
@@ -42,6 +43,11 @@ public class LwHttp implements HttpEngine {
     static final boolean dbg = false;
 
     private static final byte[] HEADER_HTTP_OK = "200 OK".getBytes();
+    private static final byte[] HEADER_HTTP_NOT_MODIFIED = "304".getBytes();
+    private static final byte[] HEADER_ETAG = "ETag:".getBytes();
+    private static final byte[] HEADER_LAST_MODIFIED = "Last-Modified:".getBytes();
+    private static final byte[] HEADER_CACHE_CONTROL = "Cache-Control:".getBytes();
+    private static final byte[] HEADER_EXPIRES = "Expires:".getBytes();
     private static final byte[] HEADER_CONTENT_LENGTH = "Content-Length".getBytes();
     private static final byte[] HEADER_CONNECTION_CLOSE = "Connection: close".getBytes();
     private static final byte[] HEADER_ENCODING_GZIP = "Content-Encoding: gzip".getBytes();
@@ -77,6 +83,9 @@ public class LwHttp implements HttpEngine {
     private final byte[][] mTilePath;
     private final UrlTileSource mTileSource;
 
+    private ITileCache.Metadata mConditional;
+    private ITileCache.Metadata mMetadata = ITileCache.Metadata.NONE;
+
     //private boolean mUseGZIP;
 
     private LwHttp(UrlTileSource tileSource, byte[][] tilePath) {
@@ -272,6 +281,8 @@ public class LwHttp implements HttpEngine {
         int len = 0;
 
         int contentLength = -1;
+        boolean notModified = false;
+        String etag = null, lastModified = null, cacheControl = null, expires = null;
 
         /* header may not be larger than BUFFER_SIZE for this to work */
         for (; (pos < read) || ((read < BUFFER_SIZE) &&
@@ -298,17 +309,27 @@ public class LwHttp implements HttpEngine {
             if (first) {
                 first = false;
                 /* check only for OK ("HTTP/1.? ".length == 9) */
-                if (!check(HEADER_HTTP_OK, buf, pos + 9, end)) {
+                if (check(HEADER_HTTP_NOT_MODIFIED, buf, pos + 9, end)) {
+                    notModified = true;
+                } else if (!check(HEADER_HTTP_OK, buf, pos + 9, end)) {
                     throw new IOException("HTTP Error: "
                             + new String(buf, pos, end - pos - 1));
                 }
-            } else if (check(HEADER_CONTENT_LENGTH, buf, pos, end)) {
+            } else if (checkIgnoreCase(HEADER_ETAG, buf, pos, end)) {
+                etag = headerValue(HEADER_ETAG, buf, pos, end);
+            } else if (checkIgnoreCase(HEADER_LAST_MODIFIED, buf, pos, end)) {
+                lastModified = headerValue(HEADER_LAST_MODIFIED, buf, pos, end);
+            } else if (checkIgnoreCase(HEADER_CACHE_CONTROL, buf, pos, end)) {
+                cacheControl = headerValue(HEADER_CACHE_CONTROL, buf, pos, end);
+            } else if (checkIgnoreCase(HEADER_EXPIRES, buf, pos, end)) {
+                expires = headerValue(HEADER_EXPIRES, buf, pos, end);
+            } else if (checkIgnoreCase(HEADER_CONTENT_LENGTH, buf, pos, end)) {
                 /* parse Content-Length */
                 contentLength = parseInt(buf, pos +
                         HEADER_CONTENT_LENGTH.length + 2, end - 1);
-            } else if (check(HEADER_ENCODING_GZIP, buf, pos, end)) {
+            } else if (checkIgnoreCase(HEADER_ENCODING_GZIP, buf, pos, end)) {
                 gzip = true;
-            } else if (check(HEADER_CONNECTION_CLOSE, buf, pos, end)) {
+            } else if (checkIgnoreCase(HEADER_CONNECTION_CLOSE, buf, pos, end)) {
                 mMustCloseConnection = true;
             }
 
@@ -321,10 +342,19 @@ public class LwHttp implements HttpEngine {
             end = pos;
         }
 
+        mMetadata = HttpCacheHeaders.parse(etag, lastModified, cacheControl, expires,
+                System.currentTimeMillis());
+
         /* back to start of content */
         is.reset();
         is.mark(0);
         is.skip(end);
+
+        if (notModified) {
+            /* no content */
+            is.start(Math.max(contentLength, 0));
+            return null;
+        }
         is.start(contentLength);
 
         if (gzip) {
@@ -369,6 +399,7 @@ public class LwHttp implements HttpEngine {
         pos = formatTilePath(tile, mRequestBuffer, pos);
         System.arraycopy(REQUEST_GET_END, 0, mRequestBuffer, pos, len);
         len += pos;
+        len = appendConditional(len);
 
         if (dbg)
             log.fine("request: " + new String(mRequestBuffer, 0, len));
@@ -384,6 +415,47 @@ public class LwHttp implements HttpEngine {
         }
     }
 
+    @Override
+    public synchronized void setConditional(ITileCache.Metadata metadata) {
+        mConditional = metadata;
+    }
+
+    @Override
+    public synchronized ITileCache.Metadata getMetadata() {
+        return mMetadata;
+    }
+
+    /**
+     * Adds the validator headers of a conditional request before the final
+     * empty line, if they fit into the request buffer.
+     *
+     * @return new request length
+     */
+    private int appendConditional(int len) {
+        ITileCache.Metadata metadata = mConditional;
+        mConditional = null;
+        if (metadata == null || !metadata.hasValidator())
+            return len;
+
+        StringBuilder sb = new StringBuilder();
+        if (metadata.etag != null)
+            sb.append(HttpCacheHeaders.IF_NONE_MATCH).append(": ").append(metadata.etag).append("\r\n");
+        if (metadata.lastModified != 0)
+            sb.append(HttpCacheHeaders.IF_MODIFIED_SINCE).append(": ")
+                    .append(HttpCacheHeaders.formatDate(metadata.lastModified)).append("\r\n");
+        sb.append("\r\n");
+
+        byte[] b = sb.toString().getBytes();
+        /* replace final empty line */
+        int pos = len - 2;
+        if (pos + b.length > mRequestBuffer.length) {
+            log.fine("conditional headers too large");
+            return len;
+        }
+        System.arraycopy(b, 0, mRequestBuffer, pos, b.length);
+        return pos + b.length;
+    }
+
     private void writeRequest(int length) throws IOException {
         mCommandStream.write(mRequestBuffer, 0, length);
         //mCommandStream.flush();
@@ -487,6 +559,28 @@ public class LwHttp implements HttpEngine {
         return true;
     }
 
+    private static boolean checkIgnoreCase(byte[] string, byte[] buffer,
+                                           int position, int available) {
+
+        int length = string.length;
+
+        if (available - position < length)
+            return false;
+
+        for (int i = 0; i < length; i++)
+            if (Character.toLowerCase(buffer[position + i]) != Character.toLowerCase(string[i]))
+                return false;
+
+        return true;
+    }
+
+    /**
+     * @return the trimmed value of the header line from position to end
+     */
+    private static String headerValue(byte[] name, byte[] buffer, int position, int end) {
+        return new String(buffer, position + name.length, end - position - name.length).trim();
+    }
+
     /**
      * @param tile the Tile
      * @param buf  to write url string
@@ -17,10 +17,12 @@
 package org.oscim.tiling.source;
 
 import org.oscim.core.GeometryBuffer;
+import org.oscim.utils.ByteBufferInputStream;
 import org.oscim.utils.UTF8Decoder;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.logging.Logger;
 
 public abstract class PbfDecoder implements ITileDecoder {
@@ -62,6 +64,9 @@ public abstract class PbfDecoder implements ITileDecoder {
     private static final int BUFFER_SIZE = 1 << 15; // 32kb
     protected byte[] buffer = new byte[BUFFER_SIZE];
 
+    // own buffer, replaced by the message array while decoding in place
+    private byte[] mReadBuffer = buffer;
+
     // position in buffer
     protected int bufferPos;
 
@@ -78,12 +83,35 @@ public abstract class PbfDecoder implements ITileDecoder {
 
     private final UTF8Decoder mStringDecoder;
 
+    private StringTable mStringTable;
+
     public PbfDecoder() {
         mStringDecoder = new UTF8Decoder();
     }
 
+    /**
+     * Decode strings through a table shared by the decoders of a tile source.
+     * Repeated keys and values then return the same intern()alized instance.
+     */
+    public void setStringTable(StringTable stringTable) {
+        mStringTable = stringTable;
+    }
+
+    public StringTable getStringTable() {
+        return mStringTable;
+    }
+
+    /**
+     * Set the message to decode. When the stream holds the whole message in
+     * a {@link ByteBufferInputStream} it is decoded without copying in chunks.
+     */
     public void setInputStream(InputStream is) {
+        if (is instanceof ByteBufferInputStream) {
+            setInput(((ByteBufferInputStream) is).getByteBuffer());
+            return;
+        }
         mInputStream = is;
+        buffer = mReadBuffer;
 
         bufferFill = 0;
         bufferPos = 0;
@@ -92,6 +120,36 @@ public abstract class PbfDecoder implements ITileDecoder {
         mMsgPos = 0;
     }
 
+    /**
+     * Decode the message in place from an array holding all of it.
+     */
+    public void setInput(byte[] data, int offset, int length) {
+        mInputStream = null;
+        buffer = data;
+
+        bufferPos = offset;
+        bufferFill = offset + length;
+        mBufferOffset = -offset;
+
+        mMsgPos = length;
+    }
+
+    /**
+     * Decode the remaining bytes of a ByteBuffer, in place when the buffer
+     * is backed by an array. Direct buffers are copied once as a whole.
+     */
+    public void setInput(ByteBuffer data) {
+        int length = data.remaining();
+        if (data.hasArray()) {
+            setInput(data.array(), data.arrayOffset() + data.position(), length);
+            return;
+        }
+        if (mReadBuffer.length < length)
+            mReadBuffer = new byte[length];
+        data.duplicate().get(mReadBuffer, 0, length);
+        setInput(mReadBuffer, 0, length);
+    }
+
     protected int decodeVarint32() throws IOException {
 
         int bytesLeft = 0;
@@ -140,7 +198,9 @@ public abstract class PbfDecoder implements ITileDecoder {
         final int size = decodeVarint32();
         fillBuffer(size);
 
-        if (mStringDecoder == null)
+        if (mStringTable != null)
+            result = mStringTable.get(buffer, bufferPos, size);
+        else if (mStringDecoder == null)
             result = new String(buffer, bufferPos, size, "UTF-8");
         else
             result = mStringDecoder.decode(buffer, bufferPos, size);
@@ -477,6 +537,10 @@ public abstract class PbfDecoder implements ITileDecoder {
         if (bytesLeft >= size)
             return bytesLeft;
 
+        // decoding in place, all bytes of the message are in buffer
+        if (mInputStream == null)
+            return bytesLeft;
+
         int maxSize = buffer.length;
 
         if (size > maxSize) {
@@ -488,6 +552,7 @@ public abstract class PbfDecoder implements ITileDecoder {
 
             byte[] tmp = buffer;
             buffer = new byte[maxSize];
+            mReadBuffer = buffer;
             System.arraycopy(tmp, bufferPos, buffer, 0, bytesLeft);
 
             mBufferOffset += bufferPos;
@@ -538,6 +603,14 @@ public abstract class PbfDecoder implements ITileDecoder {
         return bufferFill - bufferPos;
     }
 
+    /**
+     * Read the 4 byte length prefix of a message. Uses the own read buffer,
+     * {@link #buffer} may still reference the previous message.
+     */
+    protected int readMessageLength(InputStream is) throws IOException {
+        return readUnsignedInt(is, mReadBuffer);
+    }
+
     protected static int readUnsignedInt(InputStream is, byte[] buf) throws IOException {
         // check 4 bytes available..
         int read = 0;
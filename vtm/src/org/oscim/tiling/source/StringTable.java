@@ -0,0 +1,153 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source;
+
+import java.nio.charset.Charset;
+
+/**
+ * Table of UTF-8 encoded strings shared by the decoders of a tile source.
+ * <p/>
+ * Keys and values repeat in every tile, a lookup compares the encoded bytes
+ * and returns the string decoded the first time, so no new String is
+ * allocated for known tags. All returned strings are intern()alized.
+ * <p/>
+ * Lookups do not lock, only new strings are added under the table monitor.
+ * When the table is full further strings are decoded but not added.
+ */
+public class StringTable {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    public static final int DEFAULT_MAX_SIZE = 1 << 15;
+
+    /**
+     * Strings longer than this (e.g. descriptions) are not added.
+     */
+    static final int MAX_LENGTH = 64;
+
+    private static final class Entry {
+        final byte[] bytes;
+        final int hash;
+        final String string;
+        final Entry next;
+
+        Entry(byte[] bytes, int hash, String string, Entry next) {
+            this.bytes = bytes;
+            this.hash = hash;
+            this.string = string;
+            this.next = next;
+        }
+    }
+
+    private final int mMaxSize;
+
+    private volatile Entry[] mTable = new Entry[256];
+    private int mSize;
+
+    public StringTable() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize maximum number of strings in the table.
+     */
+    public StringTable(int maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * @return the string of the UTF-8 bytes from offset to offset + length.
+     */
+    public String get(byte[] data, int offset, int length) {
+        int hash = hash(data, offset, length);
+
+        Entry[] table = mTable;
+        for (Entry e = table[hash & (table.length - 1)]; e != null; e = e.next) {
+            if (e.hash == hash && equals(e.bytes, data, offset, length))
+                return e.string;
+        }
+
+        if (length > MAX_LENGTH)
+            return new String(data, offset, length, UTF8).intern();
+
+        return add(data, offset, length, hash);
+    }
+
+    private synchronized String add(byte[] data, int offset, int length, int hash) {
+        /* check again, might have been added by another decoder */
+        Entry[] table = mTable;
+        int slot = hash & (table.length - 1);
+        for (Entry e = table[slot]; e != null; e = e.next) {
+            if (e.hash == hash && equals(e.bytes, data, offset, length))
+                return e.string;
+        }
+
+        String string = new String(data, offset, length, UTF8).intern();
+        if (mSize >= mMaxSize)
+            return string;
+
+        byte[] bytes = new byte[length];
+        System.arraycopy(data, offset, bytes, 0, length);
+        table[slot] = new Entry(bytes, hash, string, table[slot]);
+
+        if (++mSize > (table.length >> 1) + (table.length >> 2))
+            mTable = grow(table);
+        else
+            mTable = table;
+
+        return string;
+    }
+
+    private static Entry[] grow(Entry[] table) {
+        Entry[] grown = new Entry[table.length << 1];
+        int mask = grown.length - 1;
+        for (Entry e : table) {
+            for (; e != null; e = e.next) {
+                int slot = e.hash & mask;
+                grown[slot] = new Entry(e.bytes, e.hash, e.string, grown[slot]);
+            }
+        }
+        return grown;
+    }
+
+    /**
+     * @return the number of strings in the table.
+     */
+    public synchronized int size() {
+        return mSize;
+    }
+
+    public synchronized void clear() {
+        mTable = new Entry[256];
+        mSize = 0;
+    }
+
+    private static int hash(byte[] data, int offset, int length) {
+        int h = length;
+        for (int i = offset, end = offset + length; i < end; i++)
+            h = 31 * h + data[i];
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equals(byte[] bytes, byte[] data, int offset, int length) {
+        if (bytes.length != length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] != data[offset + i])
+                return false;
+        }
+        return true;
+    }
+}
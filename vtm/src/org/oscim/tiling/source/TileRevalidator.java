@@ -0,0 +1,174 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source;
+
+import org.oscim.core.Tile;
+import org.oscim.tiling.ITileCache;
+import org.oscim.tiling.ITileCache.Metadata;
+import org.oscim.tiling.ITileCache.TileReader;
+import org.oscim.tiling.ITileCache.TileWriter;
+import org.oscim.utils.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Revalidates expired cached tiles of an {@link UrlTileSource} in the
+ * background with conditional requests.
+ * <p/>
+ * When the server answers 'not modified', only the metadata of the cached
+ * tile is renewed. Otherwise the new tile replaces the cached one and the
+ * {@link UrlTileSource.RevalidationListener} is notified.
+ */
+class TileRevalidator implements Runnable {
+
+    private static final Logger log = Logger.getLogger(TileRevalidator.class.getName());
+
+    /**
+     * Maximum number of pending revalidations, further ones are dropped.
+     */
+    static final int MAX_PENDING = 256;
+
+    private final UrlTileSource mTileSource;
+    private final LinkedHashMap<Tile, Metadata> mPending = new LinkedHashMap<>();
+    private final byte[] mBuffer = new byte[8192];
+
+    private Thread mThread;
+    private boolean mStopped;
+
+    TileRevalidator(UrlTileSource tileSource) {
+        mTileSource = tileSource;
+    }
+
+    /**
+     * Schedules the revalidation of a cached tile.
+     *
+     * @param tile     the tile.
+     * @param metadata the metadata of the cached tile.
+     */
+    synchronized void revalidate(Tile tile, Metadata metadata) {
+        if (mStopped || mPending.size() >= MAX_PENDING || mPending.containsKey(tile))
+            return;
+
+        mPending.put(tile, metadata);
+        if (mThread == null) {
+            mThread = new Thread(this, "TileRevalidator");
+            mThread.setDaemon(true);
+            mThread.setPriority(Thread.MIN_PRIORITY);
+            mThread.start();
+        }
+        notifyAll();
+    }
+
+    synchronized void stop() {
+        mStopped = true;
+        mPending.clear();
+        notifyAll();
+    }
+
+    @Override
+    public void run() {
+        HttpEngine conn = mTileSource.getHttpEngine();
+        try {
+            while (true) {
+                Tile tile;
+                Metadata metadata;
+                synchronized (this) {
+                    while (mPending.isEmpty() && !mStopped)
+                        wait();
+                    if (mStopped)
+                        break;
+                    Iterator<Map.Entry<Tile, Metadata>> it = mPending.entrySet().iterator();
+                    Map.Entry<Tile, Metadata> e = it.next();
+                    it.remove();
+                    tile = e.getKey();
+                    metadata = e.getValue();
+                }
+                if (fetch(conn, tile, metadata)) {
+                    UrlTileSource.RevalidationListener listener = mTileSource.getRevalidationListener();
+                    if (listener != null)
+                        listener.onTileChanged(tile);
+                }
+            }
+        } catch (InterruptedException e) {
+            log.fine("interrupted");
+        } finally {
+            conn.close();
+        }
+    }
+
+    /**
+     * Revalidates one cached tile.
+     *
+     * @return true if the tile has changed.
+     */
+    boolean fetch(HttpEngine conn, Tile tile, Metadata metadata) {
+        ITileCache cache = mTileSource.tileCache;
+        if (cache == null)
+            return false;
+
+        boolean ok = false;
+        boolean changed = false;
+        TileWriter cacheWriter = null;
+        try {
+            conn.setConditional(metadata);
+            conn.sendRequest(tile);
+            InputStream is = conn.read();
+            if (is == null) {
+                /* not modified, renew the cached tile */
+                cacheWriter = cache.writeTile(tile);
+                cacheWriter.setMetadata(HttpCacheHeaders.merge(metadata, conn.getMetadata()));
+                ok = copyCached(cache, tile, cacheWriter.getOutputStream());
+            } else {
+                cacheWriter = cache.writeTile(tile);
+                conn.setCache(cacheWriter.getOutputStream());
+                while (is.read(mBuffer) >= 0) ;
+                cacheWriter.setMetadata(conn.getMetadata());
+                ok = changed = true;
+            }
+        } catch (IOException e) {
+            log.fine(tile + " Revalidation failed: " + e);
+        } catch (Exception e) {
+            log.fine(tile + " Error: " + e);
+        } finally {
+            if (!conn.requestCompleted(ok))
+                ok = false;
+
+            if (cacheWriter != null)
+                cacheWriter.complete(ok);
+        }
+        return ok && changed;
+    }
+
+    private boolean copyCached(ITileCache cache, Tile tile, OutputStream os) throws IOException {
+        TileReader reader = cache.getTile(tile);
+        if (reader == null)
+            return false;
+        InputStream is = reader.getInputStream();
+        try {
+            int n;
+            while ((n = is.read(mBuffer)) >= 0)
+                os.write(mBuffer, 0, n);
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source;
+
+import org.oscim.core.BoundingBox;
+import org.oscim.core.MercatorProjection;
+import org.oscim.core.Tile;
+import org.oscim.tiling.ITileCache;
+import org.oscim.tiling.ITileCache.TileReader;
+import org.oscim.tiling.ITileCache.TileWriter;
+import org.oscim.utils.IOUtils;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Fills the {@link ITileCache} of an {@link UrlTileSource} ahead of time with
+ * all tiles of a {@link BoundingBox} over a range of zoom levels.
+ * <p/>
+ * Tiles are fetched by a bounded number of worker threads, each with its own
+ * {@link HttpEngine}. Tiles which are already in the cache are skipped, so an
+ * interrupted run is resumed by seeding the same region again.
+ */
+public class TileSeeder {
+
+    private static final Logger log = Logger.getLogger(TileSeeder.class.getName());
+
+    public static final int DEFAULT_THREADS = 4;
+
+    /**
+     * Receives the progress of a running {@link TileSeeder}.
+     * <p/>
+     * Called from the thread running {@link #seed(BoundingBox, int, int)}.
+     */
+    public interface Listener {
+        void onProgress(Stats stats);
+    }
+
+    /**
+     * Snapshot of the progress of a seeding run.
+     */
+    public static final class Stats {
+        /**
+         * Number of tiles in the region.
+         */
+        public final long total;
+        /**
+         * Number of tiles fetched and written to the cache.
+         */
+        public final long loaded;
+        /**
+         * Number of tiles which were already in the cache.
+         */
+        public final long skipped;
+        /**
+         * Number of tiles which could not be fetched.
+         */
+        public final long failed;
+        /**
+         * Number of bytes written to the cache.
+         */
+        public final long bytes;
+        /**
+         * Time since the start of the run in nanoseconds.
+         */
+        public final long elapsed;
+
+        Stats(long total, long loaded, long skipped, long failed, long bytes, long elapsed) {
+            this.total = total;
+            this.loaded = loaded;
+            this.skipped = skipped;
+            this.failed = failed;
+            this.bytes = bytes;
+            this.elapsed = elapsed;
+        }
+
+        /**
+         * @return the number of processed tiles.
+         */
+        public long getDone() {
+            return loaded + skipped + failed;
+        }
+
+        public double getTilesPerSecond() {
+            return elapsed > 0 ? loaded * 1e9 / elapsed : 0;
+        }
+
+        public double getBytesPerSecond() {
+            return elapsed > 0 ? bytes * 1e9 / elapsed : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d/%d tiles (%d loaded, %d skipped, %d failed), %.1f tiles/s, %.1f kB/s",
+                    getDone(), total, loaded, skipped, failed,
+                    getTilesPerSecond(), getBytesPerSecond() / 1024);
+        }
+    }
+
+    private final UrlTileSource mTileSource;
+    private final ITileCache mCache;
+
+    private int mThreads = DEFAULT_THREADS;
+    private int mRetries = 1;
+    private long mProgressInterval = 1000;
+    private Listener mListener;
+
+    private volatile boolean mCanceled;
+
+    /* current region, guarded by this */
+    private int mZoom, mZoomEnd;
+    private int mX, mY;
+    private int mMaxX, mMaxY;
+    private BoundingBox mBox;
+
+    private final AtomicLong mLoaded = new AtomicLong();
+    private final AtomicLong mSkipped = new AtomicLong();
+    private final AtomicLong mFailed = new AtomicLong();
+    private final AtomicLong mBytes = new AtomicLong();
+
+    /**
+     * @param tileSource the tile source to fetch tiles from, its
+     *                   {@link UrlTileSource#tileCache} is filled.
+     * @throws IllegalArgumentException if the tile source has no cache.
+     */
+    public TileSeeder(UrlTileSource tileSource) {
+        if (tileSource.tileCache == null)
+            throw new IllegalArgumentException("tile source has no cache");
+
+        mTileSource = tileSource;
+        mCache = tileSource.tileCache;
+    }
+
+    /**
+     * @param threads the maximum number of parallel fetches.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        mThreads = threads;
+    }
+
+    public int getThreads() {
+        return mThreads;
+    }
+
+    /**
+     * @param retries the number of retries of a failed fetch.
+     */
+    public void setRetries(int retries) {
+        mRetries = Math.max(retries, 0);
+    }
+
+    /**
+     * @param listener the listener to report progress to (may be null).
+     * @param interval the interval between reports in milliseconds.
+     */
+    public void setListener(Listener listener, long interval) {
+        mListener = listener;
+        mProgressInterval = Math.max(interval, 1);
+    }
+
+    /**
+     * Stops a running {@link #seed(BoundingBox, int, int)} after the tiles
+     * which are currently fetched.
+     */
+    public void cancel() {
+        mCanceled = true;
+    }
+
+    /**
+     * @return the number of tiles in the region, limited to the zoom levels
+     * of the tile source.
+     */
+    public long countTiles(BoundingBox box, int zoomMin, int zoomMax) {
+        long count = 0;
+        zoomMin = Math.max(zoomMin, mTileSource.getZoomLevelMin());
+        zoomMax = Math.min(zoomMax, mTileSource.getZoomLevelMax());
+        for (int z = zoomMin; z <= zoomMax; z++) {
+            long w = maxTileX(box, z) - minTileX(box, z) + 1;
+            long h = maxTileY(box, z) - minTileY(box, z) + 1;
+            count += w * h;
+        }
+        return count;
+    }
+
+    /**
+     * Fetches all tiles of the region which are not in the cache yet and
+     * blocks until done, canceled or interrupted.
+     *
+     * @param box     the region.
+     * @param zoomMin the first zoom level.
+     * @param zoomMax the last zoom level.
+     * @return the final statistics.
+     * @throws InterruptedException if the calling thread was interrupted,
+     *                              running fetches are completed before.
+     */
+    public Stats seed(BoundingBox box, int zoomMin, int zoomMax) throws InterruptedException {
+        long start = System.nanoTime();
+        long total = countTiles(box, zoomMin, zoomMax);
+
+        synchronized (this) {
+            mBox = box;
+            mZoom = Math.max(zoomMin, mTileSource.getZoomLevelMin()) - 1;
+            mZoomEnd = Math.min(zoomMax, mTileSource.getZoomLevelMax());
+            mX = mMaxX = 0;
+            mY = mMaxY = 0;
+        }
+        mLoaded.set(0);
+        mSkipped.set(0);
+        mFailed.set(0);
+        mBytes.set(0);
+        mCanceled = false;
+
+        int threads = (int) Math.min(mThreads, Math.max(total, 1));
+        CountDownLatch done = new CountDownLatch(threads);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(new Worker(done), "TileSeeder-" + i);
+            workers[i].start();
+        }
+
+        try {
+            while (!done.await(mProgressInterval, TimeUnit.MILLISECONDS)) {
+                if (mListener != null)
+                    mListener.onProgress(stats(total, start));
+            }
+        } catch (InterruptedException e) {
+            mCanceled = true;
+            for (Thread worker : workers)
+                worker.join();
+            throw e;
+        }
+
+        Stats stats = stats(total, start);
+        if (mListener != null)
+            mListener.onProgress(stats);
+        return stats;
+    }
+
+    private Stats stats(long total, long start) {
+        return new Stats(total, mLoaded.get(), mSkipped.get(), mFailed.get(),
+                mBytes.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * @return the next tile of the region, or null when done.
+     */
+    private synchronized Tile nextTile() {
+        if (mCanceled)
+            return null;
+
+        if (++mX > mMaxX) {
+            if (++mY > mMaxY) {
+                if (++mZoom > mZoomEnd)
+                    return null;
+                mY = minTileY(mBox, mZoom);
+                mMaxY = maxTileY(mBox, mZoom);
+            }
+            mX = minTileX(mBox, mZoom);
+            mMaxX = maxTileX(mBox, mZoom);
+        }
+        return new Tile(mX, mY, (byte) mZoom);
+    }
+
+    private static int minTileX(BoundingBox box, int zoom) {
+        return MercatorProjection.longitudeToTileX(box.getMinLongitude(), (byte) zoom);
+    }
+
+    private static int maxTileX(BoundingBox box, int zoom) {
+        return MercatorProjection.longitudeToTileX(box.getMaxLongitude(), (byte) zoom);
+    }
+
+    /* tile y grows to the south */
+    private static int minTileY(BoundingBox box, int zoom) {
+        return MercatorProjection.latitudeToTileY(box.getMaxLatitude(), (byte) zoom);
+    }
+
+    private static int maxTileY(BoundingBox box, int zoom) {
+        return MercatorProjection.latitudeToTileY(box.getMinLatitude(), (byte) zoom);
+    }
+
+    /**
+     * @return true if the tile is in the cache.
+     */
+    private boolean isCached(Tile tile) {
+        TileReader reader = mCache.getTile(tile);
+        if (reader == null)
+            return false;
+        IOUtils.closeQuietly(reader.getInputStream());
+        return true;
+    }
+
+    /**
+     * Fetches one tile into the cache.
+     *
+     * @return true on success.
+     */
+    private boolean fetch(HttpEngine conn, Tile tile, byte[] buffer) {
+        boolean ok = false;
+        TileWriter cacheWriter = null;
+        CountingOutputStream os = null;
+        try {
+            conn.sendRequest(tile);
+            InputStream is = conn.read();
+            if (is == null)
+                return false;
+
+            cacheWriter = mCache.writeTile(tile);
+            os = new CountingOutputStream(cacheWriter.getOutputStream());
+            conn.setCache(os);
+
+            /* the engine writes the response to the cache while it is read */
+            while (is.read(buffer) >= 0) ;
+            cacheWriter.setMetadata(conn.getMetadata());
+            ok = true;
+        } catch (IOException e) {
+            log.fine(tile + " Network Error: " + e);
+        } catch (Exception e) {
+            log.fine(tile + " Error: " + e);
+        } finally {
+            ok = conn.requestCompleted(ok) && ok;
+
+            if (cacheWriter != null)
+                cacheWriter.complete(ok);
+        }
+        if (ok)
+            mBytes.addAndGet(os.count);
+        return ok;
+    }
+
+    private final class Worker implements Runnable {
+        private final CountDownLatch mDone;
+
+        Worker(CountDownLatch done) {
+            mDone = done;
+        }
+
+        @Override
+        public void run() {
+            HttpEngine conn = mTileSource.getHttpEngine();
+            byte[] buffer = new byte[8192];
+            try {
+                Tile tile;
+                while ((tile = nextTile()) != null) {
+                    if (isCached(tile)) {
+                        mSkipped.incrementAndGet();
+                        continue;
+                    }
+                    boolean ok = false;
+                    for (int i = 0; i <= mRetries && !ok && !mCanceled; i++)
+                        ok = fetch(conn, tile, buffer);
+
+                    if (ok)
+                        mLoaded.incrementAndGet();
+                    else
+                        mFailed.incrementAndGet();
+                }
+            } catch (Throwable t) {
+                log.severe(t.toString());
+            } finally {
+                conn.close();
+                mDone.countDown();
+            }
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -59,11 +59,20 @@ public class UrlTileDataSource implements ITileDataSource {
                 InputStream is = c.getInputStream();
                 try {
                     if (mTileDecoder.decode(tile, sink, is)) {
+                        /* serve stale tiles and revalidate in background */
+                        ITileCache.Metadata metadata = c.getMetadata();
+                        if (mTileSource.isRevalidate()
+                                && metadata.isExpired(System.currentTimeMillis()))
+                            mTileSource.revalidate(tile, metadata);
+
                         sink.completed(QueryResult.SUCCESS);
                         return;
                     }
                 } catch (IOException e) {
                     log.fine(tile + " Cache read: " + e);
+                } catch (Exception e) {
+                    /* truncated entries decoded in place */
+                    log.fine(tile + " Cache error: " + e);
                 } finally {
                     IOUtils.closeQuietly(is);
                 }
@@ -82,6 +91,8 @@ public class UrlTileDataSource implements ITileDataSource {
             }
             if (mTileDecoder.decode(tile, sink, is))
                 res = QueryResult.SUCCESS;
+            if (cacheWriter != null)
+                cacheWriter.setMetadata(mConn.getMetadata());
         } catch (SocketException e) {
             log.fine(tile + " Socket Error: " + e);
         } catch (SocketTimeoutException e) {
@@ -20,6 +20,7 @@ package org.oscim.tiling.source;
 
 import org.oscim.core.Tile;
 import org.oscim.map.Viewport;
+import org.oscim.tiling.ITileCache;
 import org.oscim.tiling.TileSource;
 import org.oscim.tiling.source.LwHttp.LwHttpFactory;
 
@@ -90,10 +91,22 @@ public abstract class UrlTileSource extends TileSource {
     private String mKeyName = "key";
     private String mApiKey;
 
+    private boolean mRevalidate = true;
+    private RevalidationListener mRevalidationListener;
+    private TileRevalidator mRevalidator;
+
     public interface TileUrlFormatter {
         String formatTilePath(UrlTileSource tileSource, Tile tile);
     }
 
+    /**
+     * Is notified when a background revalidation found a changed tile, the
+     * new tile is in the cache then. Called on the revalidation thread.
+     */
+    public interface RevalidationListener {
+        void onTileChanged(Tile tile);
+    }
+
     protected UrlTileSource(Builder<?> builder) {
         super(builder);
         mKeyName = builder.keyName;
@@ -139,7 +152,42 @@ public abstract class UrlTileSource extends TileSource {
 
     @Override
     public void close() {
+        synchronized (this) {
+            if (mRevalidator != null)
+                mRevalidator.stop();
+            mRevalidator = null;
+        }
+    }
+
+    /**
+     * @param revalidate true to revalidate expired cached tiles in the
+     *                   background, while serving them from the cache.
+     *                   Otherwise cached tiles are used regardless of their
+     *                   expiry time. Default is true.
+     */
+    public void setRevalidate(boolean revalidate) {
+        mRevalidate = revalidate;
+    }
+
+    public boolean isRevalidate() {
+        return mRevalidate;
+    }
+
+    public void setRevalidationListener(RevalidationListener listener) {
+        mRevalidationListener = listener;
+    }
+
+    public RevalidationListener getRevalidationListener() {
+        return mRevalidationListener;
+    }
 
+    /**
+     * Schedules the background revalidation of an expired cached tile.
+     */
+    synchronized void revalidate(Tile tile, ITileCache.Metadata metadata) {
+        if (mRevalidator == null)
+            mRevalidator = new TileRevalidator(this);
+        mRevalidator.revalidate(tile, metadata);
     }
 
     public void setApiKey(String apiKey) {
@@ -150,9 +198,15 @@ public abstract class UrlTileSource extends TileSource {
         return mUrls[mRandom.nextInt(mUrls.length)];
     }
 
+    /**
+     * @return the url of the tile. With several urls, a tile is always
+     * requested from the same one, so identical requests can be merged
+     * and cached.
+     */
     public String getTileUrl(Tile tile) {
+        URL url = mUrls[(tile.tileX + tile.tileY) % mUrls.length];
         StringBuilder sb = new StringBuilder();
-        sb.append(getUrl()).append(mTileUrlFormatter.formatTilePath(this, tile));
+        sb.append(url).append(mTileUrlFormatter.formatTilePath(this, tile));
         if (mApiKey != null) {
             sb.append("?").append(mKeyName).append("=").append(mApiKey);
         }
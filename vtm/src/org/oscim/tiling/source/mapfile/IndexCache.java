@@ -18,18 +18,22 @@
 package org.oscim.tiling.source.mapfile;
 
 import org.oscim.tiling.source.mapfile.header.SubFileParameter;
-import org.oscim.utils.LRUCache;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.util.Collections;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * A cache for database index blocks with a fixed size and LRU policy.
+ * A cache for database index blocks with a fixed size.
+ * <p/>
+ * The cache is split into lock stripes, each holding its blocks in one
+ * preallocated array and evicting with the CLOCK (second chance) policy.
+ * Blocks are keyed by their file position, which identifies both the sub-file
+ * and the index block, so lookups allocate no objects. Loader threads only
+ * contend when they access the same stripe.
  */
 class IndexCache {
     /**
@@ -45,8 +49,25 @@ class IndexCache {
     private static final int SIZE_OF_INDEX_BLOCK = INDEX_ENTRIES_PER_BLOCK
             * SubFileParameter.BYTES_PER_INDEX_ENTRY;
 
-    private final Map<IndexCacheEntryKey, byte[]> map;
+    /**
+     * Maximum number of lock stripes.
+     */
+    private static final int MAX_STRIPES = 16;
+
+    /**
+     * Minimum number of blocks of each lock stripe, unless the capacity is smaller.
+     */
+    private static final int MIN_STRIPE_BLOCKS = 4;
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
     private final FileChannel fileChannel;
+    private final MappedFile mappedFile;
+
+    /**
+     * Lookups served from the mapped file, counted as hits.
+     */
+    private final AtomicLong mappedHits = new AtomicLong();
 
     /**
      * @param inputChannel the map file from which the index should be read and cached.
@@ -54,15 +75,73 @@ class IndexCache {
      * @throws IllegalArgumentException if the capacity is negative.
      */
     IndexCache(FileChannel inputChannel, int capacity) {
+        this(inputChannel, null, capacity);
+    }
+
+    /**
+     * @param inputChannel the map file from which the index should be read and cached.
+     * @param mappedFile   the memory mapped map file, index entries are then read
+     *                     directly from the mapping without caching (may be null).
+     * @param capacity     the maximum number of entries in the cache.
+     * @throws IllegalArgumentException if the capacity is negative.
+     */
+    IndexCache(FileChannel inputChannel, MappedFile mappedFile, int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+
         this.fileChannel = inputChannel;
-        this.map = Collections.synchronizedMap(new LRUCache<IndexCacheEntryKey, byte[]>(capacity));
+        this.mappedFile = mappedFile;
+
+        // power of two number of stripes, each holding at least MIN_STRIPE_BLOCKS
+        int numStripes = 1;
+        while (numStripes < MAX_STRIPES && (numStripes << 1) * MIN_STRIPE_BLOCKS <= capacity)
+            numStripes <<= 1;
+
+        this.stripes = new Stripe[numStripes];
+        this.stripeMask = numStripes - 1;
+        for (int i = 0; i < numStripes; i++) {
+            int stripeCapacity = capacity / numStripes + (i < capacity % numStripes ? 1 : 0);
+            this.stripes[i] = new Stripe(mappedFile == null ? stripeCapacity : 0);
+        }
     }
 
     /**
      * Destroy the cache at the end of its lifetime.
      */
     void destroy() {
-        this.map.clear();
+        for (Stripe stripe : this.stripes)
+            stripe.clear();
+    }
+
+    /**
+     * @return the number of cached index blocks.
+     */
+    int getSize() {
+        int size = 0;
+        for (Stripe stripe : this.stripes)
+            size += stripe.getSize();
+        return size;
+    }
+
+    /**
+     * @return the number of index lookups served from the cache or the
+     * mapped file.
+     */
+    long getHits() {
+        long hits = this.mappedHits.get();
+        for (Stripe stripe : this.stripes)
+            hits += stripe.getHits();
+        return hits;
+    }
+
+    /**
+     * @return the number of index lookups which required reading the map file.
+     */
+    long getMisses() {
+        long misses = 0;
+        for (Stripe stripe : this.stripes)
+            misses += stripe.getMisses();
+        return misses;
     }
 
     /**
@@ -75,53 +154,164 @@ class IndexCache {
      * @param blockNumber      the number of the block in the map file.
      * @return the index entry or -1 if the block number is invalid.
      */
-    synchronized long getIndexEntry(SubFileParameter subFileParameter, long blockNumber) {
-        try {
-            // check if the block number is out of bounds
-            if (blockNumber >= subFileParameter.numberOfBlocks) {
+    long getIndexEntry(SubFileParameter subFileParameter, long blockNumber) {
+        // check if the block number is out of bounds
+        if (blockNumber >= subFileParameter.numberOfBlocks) {
+            return -1;
+        }
+
+        if (this.mappedFile != null) {
+            // read the index entry directly from the mapped file, no lock required
+            long indexEntryPosition = subFileParameter.indexStartAddress + blockNumber
+                    * SubFileParameter.BYTES_PER_INDEX_ENTRY;
+            if (!this.mappedFile.contains(indexEntryPosition, SubFileParameter.BYTES_PER_INDEX_ENTRY)) {
+                LOG.warning("invalid index entry position: " + indexEntryPosition);
                 return -1;
             }
+            this.mappedHits.incrementAndGet();
+            return this.mappedFile.getFiveBytesLong(indexEntryPosition);
+        }
 
-            // calculate the index block number
-            long indexBlockNumber = blockNumber / INDEX_ENTRIES_PER_BLOCK;
+        // calculate the index block number and its position in the file
+        long indexBlockNumber = blockNumber / INDEX_ENTRIES_PER_BLOCK;
+        long indexBlockPosition = subFileParameter.indexStartAddress + indexBlockNumber
+                * SIZE_OF_INDEX_BLOCK;
 
-            // create the cache entry key for this request
-            IndexCacheEntryKey indexCacheEntryKey = new IndexCacheEntryKey(subFileParameter,
-                    indexBlockNumber);
+        int remainingIndexSize = (int) (subFileParameter.indexEndAddress - indexBlockPosition);
+        int indexBlockSize = Math.min(SIZE_OF_INDEX_BLOCK, remainingIndexSize);
 
+        // calculate the address of the index entry inside the index block
+        long indexEntryInBlock = blockNumber % INDEX_ENTRIES_PER_BLOCK;
+        int addressInIndexBlock = (int) (indexEntryInBlock * SubFileParameter.BYTES_PER_INDEX_ENTRY);
+
+        Stripe stripe = this.stripes[hash(indexBlockPosition) & this.stripeMask];
+        return stripe.getIndexEntry(indexBlockPosition, indexBlockSize, addressInIndexBlock);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * One lock stripe of the cache.
+     */
+    private final class Stripe {
+        private final long[] keys;
+        private final boolean[] referenced;
+        private final byte[] blocks;
+        private final ByteBuffer blocksWrapper;
+        private int size;
+        private int hand;
+
+        private long hits;
+        private long misses;
+
+        Stripe(int capacity) {
+            this.keys = new long[capacity];
+            this.referenced = new boolean[capacity];
+            this.blocks = new byte[capacity * SIZE_OF_INDEX_BLOCK];
+            this.blocksWrapper = ByteBuffer.wrap(this.blocks);
+        }
+
+        synchronized void clear() {
+            this.size = 0;
+            this.hand = 0;
+        }
+
+        synchronized int getSize() {
+            return this.size;
+        }
+
+        synchronized long getHits() {
+            return this.hits;
+        }
+
+        synchronized long getMisses() {
+            return this.misses;
+        }
+
+        synchronized long getIndexEntry(long indexBlockPosition, int indexBlockSize, int addressInIndexBlock) {
             // check for cached index block
-            byte[] indexBlock = this.map.get(indexCacheEntryKey);
-            if (indexBlock == null) {
-                // cache miss, seek to the correct index block in the file and read it
-                long indexBlockPosition = subFileParameter.indexStartAddress + indexBlockNumber
-                        * SIZE_OF_INDEX_BLOCK;
-
-                int remainingIndexSize = (int) (subFileParameter.indexEndAddress - indexBlockPosition);
-                int indexBlockSize = Math.min(SIZE_OF_INDEX_BLOCK, remainingIndexSize);
-                indexBlock = new byte[indexBlockSize];
-                ByteBuffer indexBlockWrapper = ByteBuffer.wrap(indexBlock, 0, indexBlockSize);
-
-                synchronized (this.fileChannel) {
-                    this.fileChannel.position(indexBlockPosition);
-                    if (this.fileChannel.read(indexBlockWrapper) != indexBlockSize) {
-                        LOG.warning("reading the current index block has failed");
-                        return -1;
-                    }
+            int slot = -1;
+            for (int i = 0; i < this.size; i++) {
+                if (this.keys[i] == indexBlockPosition) {
+                    slot = i;
+                    break;
                 }
-
-                // put the index block in the map
-                this.map.put(indexCacheEntryKey, indexBlock);
             }
 
-            // calculate the address of the index entry inside the index block
-            long indexEntryInBlock = blockNumber % INDEX_ENTRIES_PER_BLOCK;
-            int addressInIndexBlock = (int) (indexEntryInBlock * SubFileParameter.BYTES_PER_INDEX_ENTRY);
+            if (slot >= 0) {
+                this.hits++;
+                this.referenced[slot] = true;
+            } else {
+                this.misses++;
+                if (this.keys.length == 0)
+                    return readIndexEntry(indexBlockPosition, addressInIndexBlock);
+
+                slot = evict();
+                // cache miss, read the index block from the file into the slot
+                this.blocksWrapper.limit(slot * SIZE_OF_INDEX_BLOCK + indexBlockSize);
+                this.blocksWrapper.position(slot * SIZE_OF_INDEX_BLOCK);
+                if (!read(this.blocksWrapper, indexBlockPosition, indexBlockSize)) {
+                    // slot is invalid now
+                    this.keys[slot] = -1;
+                    return -1;
+                }
+                this.keys[slot] = indexBlockPosition;
+                this.referenced[slot] = false;
+            }
 
             // return the real index entry
-            return Deserializer.getFiveBytesLong(indexBlock, addressInIndexBlock);
+            return Deserializer.getFiveBytesLong(this.blocks,
+                    slot * SIZE_OF_INDEX_BLOCK + addressInIndexBlock);
+        }
+
+        /**
+         * @return a free slot, or the first slot without reference bit
+         * found by the clock hand.
+         */
+        private int evict() {
+            if (this.size < this.keys.length)
+                return this.size++;
+
+            while (this.referenced[this.hand]) {
+                this.referenced[this.hand] = false;
+                this.hand = (this.hand + 1) % this.keys.length;
+            }
+            int slot = this.hand;
+            this.hand = (this.hand + 1) % this.keys.length;
+            return slot;
+        }
+
+        /**
+         * Reads a single index entry without caching, for zero capacity.
+         */
+        private long readIndexEntry(long indexBlockPosition, int addressInIndexBlock) {
+            byte[] indexEntry = new byte[SubFileParameter.BYTES_PER_INDEX_ENTRY];
+            if (!read(ByteBuffer.wrap(indexEntry), indexBlockPosition + addressInIndexBlock, indexEntry.length))
+                return -1;
+            return Deserializer.getFiveBytesLong(indexEntry, 0);
+        }
+    }
+
+    private boolean read(ByteBuffer buffer, long position, int length) {
+        try {
+            int read = 0;
+            while (read < length) {
+                int n = this.fileChannel.read(buffer, position + read);
+                if (n < 0)
+                    break;
+                read += n;
+            }
+            if (read != length) {
+                LOG.warning("reading the current index block has failed");
+                return false;
+            }
+            return true;
         } catch (IOException e) {
             LOG.log(Level.SEVERE, null, e);
-            return -1;
+            return false;
         }
     }
 }
@@ -203,6 +203,8 @@ public class MapFile implements ITileDataSource {
 
     private final MapElement mElem = new MapElement();
 
+    private ReadBuffer mReadBuffer;
+
     private int minDeltaLat, minDeltaLon;
 
     private final TileProjection mTileProjection;
@@ -326,6 +328,7 @@ public class MapFile implements ITileDataSource {
                 log.severe(e.toString());
             }
         }
+        mReadBuffer = null;
     }
 
     @Override
@@ -608,7 +611,9 @@ public class MapFile implements ITileDataSource {
 
                 /* seek to the current block in the map file */
                 /* read the current block into the buffer */
-                ReadBuffer readBuffer = new ReadBuffer(mInputChannel);
+                if (mReadBuffer == null)
+                    mReadBuffer = new ReadBuffer(mInputChannel, mTileSource.mappedFile);
+                ReadBuffer readBuffer = mReadBuffer;
                 if (!readBuffer.readFromFile(subFileParameter.startAddress + blockPointer, blockSize)) {
                     /* skip the current block */
                     log.warning("reading current block has failed: " + blockSize);
@@ -716,6 +721,10 @@ public class MapFile implements ITileDataSource {
                 String str = Integer.toString(readBuffer.readSignedInt());
                 e.tags.add(new Tag(Tag.KEY_ELE, str, false));
             }
+
+            if (pois == null && mapDataSink != null && !mapDataSink.accept(GeometryType.POINT, e.tags))
+                continue;
+
             mTileProjection.projectPoint(latitude, longitude, e);
 
             if (!mTileSeparator.separate(e))
@@ -872,6 +881,18 @@ public class MapFile implements ITileDataSource {
         return cnt;
     }
 
+    /**
+     * Closed ways which are not linear features become polygons, open ones
+     * lines. The nodes are not decoded yet, so both are checked.
+     */
+    private static boolean acceptWay(ITileDataSink mapDataSink, TagSet tags, boolean linearFeature) {
+        if (linearFeature)
+            return mapDataSink.accept(GeometryType.LINE, tags);
+
+        return mapDataSink.accept(GeometryType.POLY, tags)
+                || mapDataSink.accept(GeometryType.LINE, tags);
+    }
+
     private int stringOffset = -1;
 
     /**
@@ -891,6 +912,7 @@ public class MapFile implements ITileDataSource {
         MapElement e = mElem;
 
         int wayDataBlocks;
+        int wayEndPosition;
 
         // skip string block
         int stringsSize = 0;
@@ -928,6 +950,8 @@ public class MapFile implements ITileDataSource {
                 if (elementCounter < 0)
                     return false;
 
+                wayEndPosition = readBuffer.lastWayEndPosition;
+
                 if (mTileSource.experimental && readBuffer.lastTagPosition > 0) {
                     int pos = readBuffer.getBufferPosition();
                     readBuffer.setBufferPosition(readBuffer.lastTagPosition);
@@ -949,6 +973,7 @@ public class MapFile implements ITileDataSource {
                     log.severe("BUG way 2");
                     return false;
                 }
+                wayEndPosition = readBuffer.getBufferPosition() + wayDataSize;
 
                 /* ignore the way tile bitmask (2 bytes) */
                 readBuffer.skipBytes(2);
@@ -1009,6 +1034,15 @@ public class MapFile implements ITileDataSource {
                 }
             }
 
+            /* some guessing if feature is a line or a polygon */
+            boolean linearFeature = !OSMUtils.isArea(e);
+
+            /* skip the way nodes of ways which would be thrown away */
+            if (ways == null && mapDataSink != null && !acceptWay(mapDataSink, e.tags, linearFeature)) {
+                readBuffer.setBufferPosition(wayEndPosition);
+                continue;
+            }
+
             int[] labelPosition = null;
             if ((featureByte & WAY_FEATURE_LABEL_POSITION) != 0) {
                 labelPosition = readOptionalLabelPosition(readBuffer);
@@ -1026,9 +1060,6 @@ public class MapFile implements ITileDataSource {
                 wayDataBlocks = 1;
             }
 
-            /* some guessing if feature is a line or a polygon */
-            boolean linearFeature = !OSMUtils.isArea(e);
-
             for (int wayDataBlock = 0; wayDataBlock < wayDataBlocks; wayDataBlock++) {
                 e.clear();
 
@@ -1261,6 +1292,13 @@ public class MapFile implements ITileDataSource {
         this.zoomLevelMin = minZoom;
     }
 
+    /**
+     * @return the bounding box of the map file.
+     */
+    public BoundingBox getBoundingBox() {
+        return mTileSource.getMapInfo().boundingBox;
+    }
+
     /**
      * Returns true if MapFile contains tile.
      *
@@ -1289,7 +1327,7 @@ public class MapFile implements ITileDataSource {
      * @return true if area is part of the database.
      */
     public boolean supportsArea(BoundingBox boundingBox, int zoomLevel) {
-        return boundingBox.intersects(mTileSource.getMapInfo().boundingBox)
+        return boundingBox.intersects(getBoundingBox())
                 && (zoomLevel >= this.zoomLevelMin && zoomLevel <= this.zoomLevelMax);
     }
 
@@ -1301,7 +1339,7 @@ public class MapFile implements ITileDataSource {
      * @return true if complete area is part of the database.
      */
     public boolean supportsFullArea(BoundingBox boundingBox, int zoomLevel) {
-        final BoundingBox bbox1 = mTileSource.getMapInfo().boundingBox;
+        final BoundingBox bbox1 = getBoundingBox();
         final BoundingBox bbox2 = boundingBox;
         return bbox1.intersects(bbox2)
                 && zoomLevel >= this.zoomLevelMin
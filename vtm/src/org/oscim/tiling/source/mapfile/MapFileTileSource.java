@@ -25,6 +25,7 @@ import org.oscim.tiling.OverzoomTileDataSource;
 import org.oscim.tiling.TileSource;
 import org.oscim.tiling.source.mapfile.header.MapFileHeader;
 import org.oscim.tiling.source.mapfile.header.MapFileInfo;
+import org.oscim.utils.Parameters;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -36,9 +37,9 @@ public class MapFileTileSource extends TileSource implements IMapFileTileSource
     private static final Logger log = Logger.getLogger(MapFileTileSource.class.getName());
 
     /**
-     * Amount of cache blocks that the index cache should store.
+     * Default amount of cache blocks that the index cache should store.
      */
-    private static final int INDEX_CACHE_SIZE = 64;
+    public static final int INDEX_CACHE_SIZE = 64;
 
     MapFileHeader fileHeader;
     MapFileInfo fileInfo;
@@ -46,8 +47,19 @@ public class MapFileTileSource extends TileSource implements IMapFileTileSource
     boolean experimental;
     File mapFile;
     FileInputStream mapFileInputStream;
+    MappedFile mappedFile;
     private FileChannel inputChannel;
 
+    /**
+     * Read the map file through a memory mapping.
+     */
+    private boolean memoryMapped;
+
+    /**
+     * Amount of cache blocks that the index cache should store.
+     */
+    private int indexCacheSize = INDEX_CACHE_SIZE;
+
     /**
      * The preferred language when extracting labels from this tile source.
      */
@@ -109,6 +121,59 @@ public class MapFileTileSource extends TileSource implements IMapFileTileSource
         this.mapFileInputStream = fileInputStream;
     }
 
+    /**
+     * Returns if the map file is read through a memory mapping.
+     */
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    /**
+     * Enables reading the map file through a read-only memory mapping.
+     * <p/>
+     * Blocks are then decoded directly from the mapped region and index
+     * lookups need no locking, which scales better with multiple tile loader
+     * threads. Files larger than 2 GB are mapped in segments.
+     * Must be set before {@link #open()}.
+     */
+    public void setMemoryMapped(boolean memoryMapped) {
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * Returns the amount of blocks that the index cache stores.
+     */
+    public int getIndexCacheSize() {
+        return indexCacheSize;
+    }
+
+    /**
+     * Sets the amount of blocks that the index cache stores, one block holds
+     * the index entries of 128 map blocks. Must be set before {@link #open()}.
+     */
+    public void setIndexCacheSize(int indexCacheSize) {
+        if (indexCacheSize < 0)
+            throw new IllegalArgumentException("index cache size must not be negative: " + indexCacheSize);
+        this.indexCacheSize = indexCacheSize;
+    }
+
+    /**
+     * Returns the number of index lookups served from the index cache, or
+     * from the mapping when memory mapped.
+     */
+    public long getIndexCacheHits() {
+        IndexCache indexCache = databaseIndexCache;
+        return indexCache != null ? indexCache.getHits() : 0;
+    }
+
+    /**
+     * Returns the number of index lookups which required reading the map file.
+     */
+    public long getIndexCacheMisses() {
+        IndexCache indexCache = databaseIndexCache;
+        return indexCache != null ? indexCache.getMisses() : 0;
+    }
+
     @Override
     public void setPreferredLanguage(String preferredLanguage) {
         this.preferredLanguage = preferredLanguage;
@@ -180,7 +245,9 @@ public class MapFileTileSource extends TileSource implements IMapFileTileSource
             }
             fileInfo = fileHeader.getMapFileInfo();
             mapFile = file;
-            databaseIndexCache = new IndexCache(inputChannel, INDEX_CACHE_SIZE);
+            if (memoryMapped)
+                mappedFile = new MappedFile(inputChannel, Parameters.MAXIMUM_BUFFER_SIZE);
+            databaseIndexCache = new IndexCache(inputChannel, mappedFile, indexCacheSize);
 
             if (fileInfo != null)
                 log.fine("File version: " + fileInfo.fileVersion);
@@ -196,7 +263,7 @@ public class MapFileTileSource extends TileSource implements IMapFileTileSource
     @Override
     public ITileDataSource getDataSource() {
         try {
-            return new OverzoomTileDataSource(new MapFile(this), mOverZoom);
+            return new OverzoomTileDataSource(new MapFile(this), mOverZoom, mOverzoomCache);
         } catch (IOException e) {
             log.fine(e.toString());
         }
@@ -216,6 +283,8 @@ public class MapFileTileSource extends TileSource implements IMapFileTileSource
         fileHeader = null;
         fileInfo = null;
         mapFile = null;
+        // the mapping is released by the garbage collector
+        mappedFile = null;
 
         if (databaseIndexCache != null) {
             databaseIndexCache.destroy();
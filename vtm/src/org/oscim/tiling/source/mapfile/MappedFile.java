@@ -0,0 +1,97 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.mapfile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only memory mapping of a map file.
+ * <p/>
+ * The file is mapped in segments of {@link #SEGMENT_SIZE} bytes, so files
+ * larger than 2 GB can be mapped. Consecutive segments overlap by the maximum
+ * block size, hence every block which starts in a segment is contained in it.
+ * <p/>
+ * Only absolute reads are performed on the segments, they can be shared by
+ * all threads without locking.
+ */
+final class MappedFile {
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private final ByteBuffer[] mSegments;
+    private final long mFileSize;
+
+    /**
+     * @param inputChannel the map file to be mapped.
+     * @param overlap      the maximum length of a single read.
+     * @throws IOException if the file cannot be mapped.
+     */
+    MappedFile(FileChannel inputChannel, int overlap) throws IOException {
+        mFileSize = inputChannel.size();
+        overlap = (int) Math.min(Math.max(overlap, 0), Integer.MAX_VALUE - SEGMENT_SIZE);
+
+        int count = (int) ((mFileSize + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+        mSegments = new ByteBuffer[Math.max(count, 1)];
+        for (int i = 0; i < count; i++) {
+            long start = i * SEGMENT_SIZE;
+            long length = Math.min(SEGMENT_SIZE + overlap, mFileSize - start);
+            mSegments[i] = inputChannel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        }
+        if (count == 0)
+            mSegments[0] = ByteBuffer.allocate(0);
+    }
+
+    /**
+     * @return true if the given range is inside the file and contained in a
+     * single segment.
+     */
+    boolean contains(long position, int length) {
+        if (position < 0 || length < 0 || position + length > mFileSize)
+            return false;
+        return getSegmentOffset(position) + length <= getSegment(position).limit();
+    }
+
+    /**
+     * @return the segment in which the given file position starts.
+     */
+    ByteBuffer getSegment(long position) {
+        return mSegments[(int) (position >>> SEGMENT_SHIFT)];
+    }
+
+    /**
+     * @return the offset of the given file position in its segment.
+     */
+    static int getSegmentOffset(long position) {
+        return (int) (position & SEGMENT_MASK);
+    }
+
+    /**
+     * Converts five bytes at the given file position to an unsigned long.
+     * <p/>
+     * The byte order is big-endian.
+     *
+     * @return the long value.
+     */
+    long getFiveBytesLong(long position) {
+        ByteBuffer segment = getSegment(position);
+        int offset = getSegmentOffset(position);
+        return (segment.get(offset) & 0xffL) << 32 | (segment.get(offset + 1) & 0xffL) << 24
+                | (segment.get(offset + 2) & 0xffL) << 16
+                | (segment.get(offset + 3) & 0xffL) << 8 | (segment.get(offset + 4) & 0xffL);
+    }
+}
@@ -15,17 +15,22 @@
 package org.oscim.tiling.source.mapfile;
 
 import org.oscim.core.BoundingBox;
+import org.oscim.core.Box;
 import org.oscim.core.Tile;
 import org.oscim.layers.tile.MapTile;
 import org.oscim.tiling.ITileDataSink;
 import org.oscim.tiling.ITileDataSource;
 import org.oscim.tiling.QueryResult;
 import org.oscim.tiling.TileDataSink;
+import org.oscim.utils.RTree;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 public class MultiMapFile implements ITileDataSource {
@@ -35,6 +40,15 @@ public class MultiMapFile implements ITileDataSource {
     private final boolean deduplicate;
     private final List<MapFile> mapFiles = new ArrayList<>();
 
+    /**
+     * Bounding boxes of the map files, to the position in mapFiles.
+     */
+    private final RTree<Integer> index = new RTree<>();
+    private final List<Integer> found = new ArrayList<>();
+    private int[] candidates = new int[8];
+
+    private ExecutorService executor;
+
     public MultiMapFile() {
         this(false);
     }
@@ -55,41 +69,76 @@ public class MultiMapFile implements ITileDataSource {
                 return -Integer.compare(md1.getPriority(), md2.getPriority());
             }
         });
+
+        index.clear();
+        for (int i = 0, n = mapFiles.size(); i < n; i++) {
+            BoundingBox bbox = mapFiles.get(i).getBoundingBox();
+            index.insert(new Box(bbox.getMinLongitude(), bbox.getMinLatitude(),
+                    bbox.getMaxLongitude(), bbox.getMaxLatitude()), i);
+        }
         return true;
     }
 
+    /**
+     * Query the map files overlapping a tile concurrently on the executor
+     * and pass their elements to the sink in priority order.
+     * The executor is shared by the tile loaders, its tasks do not block.
+     *
+     * @param executor the executor, null to query the map files in sequence.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Find the map files to query for a tile, in priority order.
+     *
+     * @return the number of map files, their positions are in candidates.
+     */
+    private int findMapFiles(BoundingBox bbox, int zoomLevel) {
+        found.clear();
+        index.search(new Box(bbox.getMinLongitude(), bbox.getMinLatitude(),
+                bbox.getMaxLongitude(), bbox.getMaxLatitude()), found);
+        Collections.sort(found);
+
+        if (candidates.length < found.size())
+            candidates = new int[found.size()];
+
+        int n = 0;
+        boolean isTileFilled = false;
+        for (int i = 0, size = found.size(); i < size; i++) {
+            int pos = found.get(i);
+            MapFile mapFile = mapFiles.get(pos);
+            if (isTileFilled && mapFile.getPriority() < 0) {
+                break;
+            }
+            if (mapFile.supportsArea(bbox, zoomLevel)) {
+                candidates[n++] = pos;
+            }
+            if (mapFile.supportsFullArea(bbox, zoomLevel)) {
+                isTileFilled = true;
+            }
+        }
+        return n;
+    }
+
     @Override
     public void query(MapTile tile, ITileDataSink sink) {
         try {
-            boolean deduplicate = this.deduplicate;
-            if (deduplicate) {
-                int n = 0;
-                for (MapFile mapFile : mapFiles) {
-                    if (mapFile.supportsTile(tile)) {
-                        if (++n > 1) {
-                            break;
-                        }
-                    }
-                }
-                deduplicate = n > 1;
-            }
+            int n = findMapFiles(tile.getBoundingBox(), tile.zoomLevel);
+            boolean deduplicate = this.deduplicate && n > 1;
 
             TileDataSink dataSink = new TileDataSink(sink);
-            boolean isTileFilled = false;
-            for (int i = 0, n = mapFiles.size(); i < n; i++) {
-                MapFile mapFile = mapFiles.get(i);
-                if (isTileFilled && mapFile.getPriority() < 0) {
-                    break;
-                }
-                if (mapFile.supportsTile(tile)) {
+            if (executor != null && n > 1) {
+                queryConcurrently(tile, n, deduplicate, dataSink);
+            } else {
+                for (int i = 0; i < n; i++) {
+                    MapFile mapFile = mapFiles.get(candidates[i]);
                     mapFile.setDeduplicate(deduplicate);
-                    dataSink.level = i + 1;
-                    dataSink.levels = n;
+                    dataSink.level = candidates[i] + 1;
+                    dataSink.levels = mapFiles.size();
                     mapFile.query(tile, dataSink);
                 }
-                if (mapFile.supportsFullTile(tile)) {
-                    isTileFilled = true;
-                }
             }
             sink.completed(QueryResult.SUCCESS);
         } catch (Throwable t) {
@@ -98,6 +147,70 @@ public class MultiMapFile implements ITileDataSource {
         }
     }
 
+    private void queryConcurrently(final MapTile tile, int n, boolean deduplicate,
+                                   TileDataSink dataSink) throws Exception {
+        int levels = mapFiles.size();
+        RecordingTileDataSink[] sinks = new RecordingTileDataSink[n];
+        List<Future<?>> futures = new ArrayList<>(n);
+        try {
+            /* the first map file is read by the loader thread */
+            for (int i = 1; i < n; i++) {
+                final MapFile mapFile = mapFiles.get(candidates[i]);
+                final RecordingTileDataSink recorder = new RecordingTileDataSink(candidates[i] + 1, levels);
+                mapFile.setDeduplicate(deduplicate);
+                sinks[i] = recorder;
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        mapFile.query(tile, recorder);
+                    }
+                }));
+            }
+
+            MapFile mapFile = mapFiles.get(candidates[0]);
+            mapFile.setDeduplicate(deduplicate);
+            dataSink.level = candidates[0] + 1;
+            dataSink.levels = levels;
+            mapFile.query(tile, dataSink);
+
+            for (int i = 1; i < n; i++) {
+                await(futures.get(i - 1));
+                sinks[i].replay(dataSink);
+            }
+        } finally {
+            /* the map files must not be in use when the loader continues,
+             * e.g. with the next tile or dispose */
+            for (Future<?> future : futures) {
+                try {
+                    await(future);
+                } catch (ExecutionException e) {
+                    log.fine(e.toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait for the task without being interrupted, as the loaders are
+     * interrupted when paused. The interrupt is kept for the loader.
+     */
+    private static void await(Future<?> future) throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    future.get();
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
     @Override
     public void dispose() {
         for (MapFile mapFile : mapFiles) {
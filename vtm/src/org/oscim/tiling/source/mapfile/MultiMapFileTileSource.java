@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Logger;
 
 public class MultiMapFileTileSource extends TileSource implements IMapFileTileSource {
@@ -33,6 +34,7 @@ public class MultiMapFileTileSource extends TileSource implements IMapFileTileSo
     private static final Logger log = Logger.getLogger(MultiMapFileTileSource.class.getName());
 
     private boolean deduplicate;
+    private ExecutorService executor;
     private final List<MapFileTileSource> mapFileTileSources = new ArrayList<>();
     private final Map<MapFileTileSource, int[]> zoomsByTileSource = new HashMap<>();
 
@@ -73,6 +75,7 @@ public class MultiMapFileTileSource extends TileSource implements IMapFileTileSo
     @Override
     public ITileDataSource getDataSource() {
         MultiMapFile multiMapFile = new MultiMapFile(deduplicate);
+        multiMapFile.setExecutor(executor);
         for (MapFileTileSource mapFileTileSource : mapFileTileSources) {
             try {
                 MapFile mapFile = new MapFile(mapFileTileSource);
@@ -85,7 +88,7 @@ public class MultiMapFileTileSource extends TileSource implements IMapFileTileSo
                 log.fine(e.toString());
             }
         }
-        return new OverzoomTileDataSource(multiMapFile, mOverZoom);
+        return new OverzoomTileDataSource(multiMapFile, mOverZoom, mOverzoomCache);
     }
 
     @Override
@@ -117,6 +120,16 @@ public class MultiMapFileTileSource extends TileSource implements IMapFileTileSo
         this.deduplicate = deduplicate;
     }
 
+    /**
+     * Query the map files overlapping a tile concurrently, e.g. on a
+     * fixed thread pool. Must be set before the data sources are created.
+     *
+     * @param executor the executor, null to query the map files in sequence.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
     @Override
     public void setPreferredLanguage(String preferredLanguage) {
         for (MapFileTileSource mapFileTileSource : mapFileTileSources) {
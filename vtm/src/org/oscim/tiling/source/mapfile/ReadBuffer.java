@@ -34,20 +34,46 @@ import java.util.logging.Logger;
 
 /**
  * Reads from a {@link RandomAccessFile} into a buffer and decodes the data.
+ * <p/>
+ * When created with a {@link MappedFile} the data is decoded directly from
+ * the memory mapped region without copying it into the buffer.
  */
 public class ReadBuffer {
     private static final String CHARSET_UTF8 = "UTF-8";
     private static final Logger LOG = Logger.getLogger(ReadBuffer.class.getName());
 
     private byte[] mBufferData;
-    private int mBufferPosition;
     private ByteBuffer mBufferWrapper;
     private final FileChannel mInputChannel;
+    private final MappedFile mMappedFile;
+
+    /**
+     * The buffer currently decoded from, either the wrapper of the read buffer
+     * or a segment of the mapped file.
+     */
+    private ByteBuffer mBuffer;
+
+    /**
+     * The read buffer when decoding from it, null when decoding from the
+     * mapped file. Decoding from the array avoids the bounds checks of the
+     * ByteBuffer on the default path.
+     */
+    private byte[] mData;
+    private int mBufferOffset;
+    private int mBufferLength;
+    private int mBufferPosition;
+
+    private byte[] mStringBuffer;
 
     private final List<Integer> mTagIds = new ArrayList<>();
 
     ReadBuffer(FileChannel inputChannel) {
+        this(inputChannel, null);
+    }
+
+    ReadBuffer(FileChannel inputChannel, MappedFile mappedFile) {
         mInputChannel = inputChannel;
+        mMappedFile = mappedFile;
     }
 
     /**
@@ -56,7 +82,14 @@ public class ReadBuffer {
      * @return the byte value.
      */
     public byte readByte() {
-        return mBufferData[mBufferPosition++];
+        if (mData == null)
+            return readByteMapped();
+
+        return mData[mBufferPosition++];
+    }
+
+    private byte readByteMapped() {
+        return mBuffer.get(mBufferOffset + mBufferPosition++);
     }
 
     /**
@@ -81,24 +114,8 @@ public class ReadBuffer {
      * @throws IOException if an error occurs while reading the file.
      */
     public boolean readFromFile(int length) throws IOException {
-        // ensure that the read buffer is large enough
-        if (mBufferData == null || mBufferData.length < length) {
-            // ensure that the read buffer is not too large
-            if (length > Parameters.MAXIMUM_BUFFER_SIZE) {
-                LOG.warning("invalid read length: " + length);
-                return false;
-            }
-            try {
-                mBufferData = new byte[length];
-            } catch (Throwable t) {
-                LOG.log(Level.SEVERE, t.toString(), t);
-                return false;
-            }
-            mBufferWrapper = ByteBuffer.wrap(mBufferData, 0, length);
-        }
-
-        mBufferPosition = 0;
-        mBufferWrapper.clear();
+        if (!prepareBuffer(length))
+            return false;
 
         // reset the buffer position and read the data into the buffer
         // bufferPosition = 0;
@@ -117,6 +134,37 @@ public class ReadBuffer {
      * @throws IOException if an error occurs while reading the file.
      */
     public boolean readFromFile(long offset, int length) throws IOException {
+        // decode directly from the mapped region when possible
+        if (mMappedFile != null && mMappedFile.contains(offset, length)) {
+            mBuffer = mMappedFile.getSegment(offset);
+            mData = null;
+            mBufferOffset = MappedFile.getSegmentOffset(offset);
+            mBufferLength = length;
+            mBufferPosition = 0;
+            return true;
+        }
+
+        if (!prepareBuffer(length))
+            return false;
+
+        // positional read, does not modify the position of the shared channel
+        int read = 0;
+        while (read < length) {
+            int n = mInputChannel.read(mBufferWrapper, offset + read);
+            if (n < 0)
+                break;
+            read += n;
+        }
+        return read == length;
+    }
+
+    /**
+     * Ensures that the read buffer is large enough for the given amount of
+     * bytes and resets the internal buffer position.
+     *
+     * @return false if the buffer could not be allocated.
+     */
+    private boolean prepareBuffer(int length) {
         // ensure that the read buffer is large enough
         if (mBufferData == null || mBufferData.length < length) {
             // ensure that the read buffer is not too large
@@ -130,18 +178,17 @@ public class ReadBuffer {
                 LOG.log(Level.SEVERE, t.toString(), t);
                 return false;
             }
-            mBufferWrapper = ByteBuffer.wrap(mBufferData, 0, length);
+            mBufferWrapper = ByteBuffer.wrap(mBufferData);
         }
 
+        mBuffer = mBufferWrapper;
+        mData = mBufferData;
+        mBufferOffset = 0;
+        mBufferLength = length;
         mBufferPosition = 0;
         mBufferWrapper.clear();
-
-        // reset the buffer position and read the data into the buffer
-        // bufferPosition = 0;
-        synchronized (mInputChannel) {
-            mInputChannel.position(offset);
-            return mInputChannel.read(mBufferWrapper) == length;
-        }
+        mBufferWrapper.limit(length);
+        return true;
     }
 
     /**
@@ -152,8 +199,11 @@ public class ReadBuffer {
      * @return the int value.
      */
     public int readInt() {
+        if (mData == null)
+            return readIntMapped();
+
         int pos = mBufferPosition;
-        byte[] data = mBufferData;
+        byte[] data = mData;
         mBufferPosition += 4;
 
         return data[pos] << 24
@@ -162,6 +212,17 @@ public class ReadBuffer {
                 | (data[pos + 3] & 0xff);
     }
 
+    private int readIntMapped() {
+        int pos = mBufferOffset + mBufferPosition;
+        ByteBuffer data = mBuffer;
+        mBufferPosition += 4;
+
+        return data.get(pos) << 24
+                | (data.get(pos + 1) & 0xff) << 16
+                | (data.get(pos + 2) & 0xff) << 8
+                | (data.get(pos + 3) & 0xff);
+    }
+
     /**
      * Converts eight bytes from the read buffer to a signed long.
      * <p/>
@@ -170,8 +231,11 @@ public class ReadBuffer {
      * @return the long value.
      */
     public long readLong() {
+        if (mData == null)
+            return readLongMapped();
+
         int pos = mBufferPosition;
-        byte[] data = mBufferData;
+        byte[] data = mData;
         mBufferPosition += 8;
 
         return (data[pos] & 0xffL) << 56
@@ -185,6 +249,22 @@ public class ReadBuffer {
 
     }
 
+    private long readLongMapped() {
+        int pos = mBufferOffset + mBufferPosition;
+        ByteBuffer data = mBuffer;
+        mBufferPosition += 8;
+
+        return (data.get(pos) & 0xffL) << 56
+                | (data.get(pos + 1) & 0xffL) << 48
+                | (data.get(pos + 2) & 0xffL) << 40
+                | (data.get(pos + 3) & 0xffL) << 32
+                | (data.get(pos + 4) & 0xffL) << 24
+                | (data.get(pos + 5) & 0xffL) << 16
+                | (data.get(pos + 6) & 0xffL) << 8
+                | (data.get(pos + 7) & 0xffL);
+
+    }
+
     /**
      * Converts two bytes from the read buffer to a signed int.
      * <p/>
@@ -193,8 +273,18 @@ public class ReadBuffer {
      * @return the int value.
      */
     public int readShort() {
+        if (mData == null)
+            return readShortMapped();
+
+        int pos = mBufferPosition;
         mBufferPosition += 2;
-        return mBufferData[mBufferPosition - 2] << 8 | (mBufferData[mBufferPosition - 1] & 0xff);
+        return mData[pos] << 8 | (mData[pos + 1] & 0xff);
+    }
+
+    private int readShortMapped() {
+        int pos = mBufferOffset + mBufferPosition;
+        mBufferPosition += 2;
+        return mBuffer.get(pos) << 8 | (mBuffer.get(pos + 1) & 0xff);
     }
 
     /**
@@ -207,8 +297,11 @@ public class ReadBuffer {
      * @return the value.
      */
     public int readSignedInt() {
+        if (mData == null)
+            return readSignedIntMapped();
+
         int pos = mBufferPosition;
-        byte[] data = mBufferData;
+        byte[] data = mData;
         int flag;
 
         if ((data[pos] & 0x80) == 0) {
@@ -258,6 +351,58 @@ public class ReadBuffer {
 
     }
 
+    private int readSignedIntMapped() {
+        int pos = mBufferOffset + mBufferPosition;
+        ByteBuffer data = mBuffer;
+        int flag;
+
+        if ((data.get(pos) & 0x80) == 0) {
+            mBufferPosition += 1;
+            flag = ((data.get(pos) & 0x40) >> 6);
+
+            return ((data.get(pos) & 0x3f) ^ -flag) + flag;
+        }
+
+        if ((data.get(pos + 1) & 0x80) == 0) {
+            mBufferPosition += 2;
+            flag = ((data.get(pos + 1) & 0x40) >> 6);
+
+            return (((data.get(pos) & 0x7f)
+                    | (data.get(pos + 1) & 0x3f) << 7) ^ -flag) + flag;
+
+        }
+
+        if ((data.get(pos + 2) & 0x80) == 0) {
+            mBufferPosition += 3;
+            flag = ((data.get(pos + 2) & 0x40) >> 6);
+
+            return (((data.get(pos) & 0x7f)
+                    | (data.get(pos + 1) & 0x7f) << 7
+                    | (data.get(pos + 2) & 0x3f) << 14) ^ -flag) + flag;
+
+        }
+
+        if ((data.get(pos + 3) & 0x80) == 0) {
+            mBufferPosition += 4;
+            flag = ((data.get(pos + 3) & 0x40) >> 6);
+
+            return (((data.get(pos) & 0x7f)
+                    | ((data.get(pos + 1) & 0x7f) << 7)
+                    | ((data.get(pos + 2) & 0x7f) << 14)
+                    | ((data.get(pos + 3) & 0x3f) << 21)) ^ -flag) + flag;
+        }
+
+        mBufferPosition += 5;
+        flag = ((data.get(pos + 4) & 0x40) >> 6);
+
+        return ((((data.get(pos) & 0x7f)
+                | (data.get(pos + 1) & 0x7f) << 7
+                | (data.get(pos + 2) & 0x7f) << 14
+                | (data.get(pos + 3) & 0x7f) << 21
+                | (data.get(pos + 4) & 0x3f) << 28)) ^ -flag) + flag;
+
+    }
+
     /**
      * Converts a variable amount of bytes from the read buffer to a signed int
      * array.
@@ -270,8 +415,13 @@ public class ReadBuffer {
      * @param length number of values to read
      */
     public void readSignedInt(int[] values, int length) {
+        if (mData == null) {
+            readSignedIntMapped(values, length);
+            return;
+        }
+
         int pos = mBufferPosition;
-        byte[] data = mBufferData;
+        byte[] data = mData;
         int flag;
 
         for (int i = 0; i < length; i++) {
@@ -326,6 +476,63 @@ public class ReadBuffer {
         mBufferPosition = pos;
     }
 
+    private void readSignedIntMapped(int[] values, int length) {
+        int pos = mBufferOffset + mBufferPosition;
+        ByteBuffer data = mBuffer;
+        int flag;
+
+        for (int i = 0; i < length; i++) {
+
+            if ((data.get(pos) & 0x80) == 0) {
+
+                flag = ((data.get(pos) & 0x40) >> 6);
+
+                values[i] = ((data.get(pos) & 0x3f) ^ -flag) + flag;
+                pos += 1;
+
+            } else if ((data.get(pos + 1) & 0x80) == 0) {
+
+                flag = ((data.get(pos + 1) & 0x40) >> 6);
+
+                values[i] = (((data.get(pos) & 0x7f)
+                        | ((data.get(pos + 1) & 0x3f) << 7)) ^ -flag) + flag;
+                pos += 2;
+
+            } else if ((data.get(pos + 2) & 0x80) == 0) {
+
+                flag = ((data.get(pos + 2) & 0x40) >> 6);
+
+                values[i] = (((data.get(pos) & 0x7f)
+                        | ((data.get(pos + 1) & 0x7f) << 7)
+                        | ((data.get(pos + 2) & 0x3f) << 14)) ^ -flag) + flag;
+                pos += 3;
+
+            } else if ((data.get(pos + 3) & 0x80) == 0) {
+
+                flag = ((data.get(pos + 3) & 0x40) >> 6);
+
+                values[i] = (((data.get(pos) & 0x7f)
+                        | ((data.get(pos + 1) & 0x7f) << 7)
+                        | ((data.get(pos + 2) & 0x7f) << 14)
+                        | ((data.get(pos + 3) & 0x3f) << 21)) ^ -flag) + flag;
+
+                pos += 4;
+            } else {
+                flag = ((data.get(pos + 4) & 0x40) >> 6);
+
+                values[i] = ((((data.get(pos) & 0x7f)
+                        | ((data.get(pos + 1) & 0x7f) << 7)
+                        | ((data.get(pos + 2) & 0x7f) << 14)
+                        | ((data.get(pos + 3) & 0x7f) << 21)
+                        | ((data.get(pos + 4) & 0x3f) << 28))) ^ -flag) + flag;
+
+                pos += 5;
+            }
+        }
+
+        mBufferPosition = pos - mBufferOffset;
+    }
+
     /**
      * Converts a variable amount of bytes from the read buffer to an unsigned
      * int.
@@ -336,8 +543,11 @@ public class ReadBuffer {
      * @return the int value.
      */
     public int readUnsignedInt() {
+        if (mData == null)
+            return readUnsignedIntMapped();
+
         int pos = mBufferPosition;
-        byte[] data = mBufferData;
+        byte[] data = mData;
 
         if ((data[pos] & 0x80) == 0) {
             mBufferPosition += 1;
@@ -373,6 +583,44 @@ public class ReadBuffer {
                 | ((data[pos + 4] & 0x7f) << 28);
     }
 
+    private int readUnsignedIntMapped() {
+        int pos = mBufferOffset + mBufferPosition;
+        ByteBuffer data = mBuffer;
+
+        if ((data.get(pos) & 0x80) == 0) {
+            mBufferPosition += 1;
+            return (data.get(pos) & 0x7f);
+        }
+
+        if ((data.get(pos + 1) & 0x80) == 0) {
+            mBufferPosition += 2;
+            return (data.get(pos) & 0x7f)
+                    | (data.get(pos + 1) & 0x7f) << 7;
+        }
+
+        if ((data.get(pos + 2) & 0x80) == 0) {
+            mBufferPosition += 3;
+            return (data.get(pos) & 0x7f)
+                    | ((data.get(pos + 1) & 0x7f) << 7)
+                    | ((data.get(pos + 2) & 0x7f) << 14);
+        }
+
+        if ((data.get(pos + 3) & 0x80) == 0) {
+            mBufferPosition += 4;
+            return (data.get(pos) & 0x7f)
+                    | ((data.get(pos + 1) & 0x7f) << 7)
+                    | ((data.get(pos + 2) & 0x7f) << 14)
+                    | ((data.get(pos + 3) & 0x7f) << 21);
+        }
+
+        mBufferPosition += 5;
+        return (data.get(pos) & 0x7f)
+                | ((data.get(pos + 1) & 0x7f) << 7)
+                | ((data.get(pos + 2) & 0x7f) << 14)
+                | ((data.get(pos + 3) & 0x7f) << 21)
+                | ((data.get(pos + 4) & 0x7f) << 28);
+    }
+
     /**
      * Decodes a variable amount of bytes from the read buffer to a string.
      *
@@ -383,7 +631,10 @@ public class ReadBuffer {
     }
 
     /**
-     * @return ...
+     * Skips a variable amount of bytes, e.g. a string.
+     *
+     * @return the buffer position of the skipped bytes, as used by
+     * {@link #readUTF8EncodedStringAt(int)}.
      */
     public int getPositionAndSkip() {
         int pos = mBufferPosition;
@@ -399,11 +650,20 @@ public class ReadBuffer {
      * @return the UTF-8 decoded string (may be null).
      */
     public String readUTF8EncodedString(int stringLength) {
-        if (stringLength > 0 && mBufferPosition + stringLength <= mBufferData.length) {
+        if (stringLength > 0 && mBufferPosition + stringLength <= mBufferLength) {
+            int pos = mBufferOffset + mBufferPosition;
             mBufferPosition += stringLength;
             try {
-                return new String(mBufferData, mBufferPosition - stringLength, stringLength,
-                        CHARSET_UTF8);
+                if (mBuffer.hasArray())
+                    return new String(mBuffer.array(), mBuffer.arrayOffset() + pos, stringLength,
+                            CHARSET_UTF8);
+
+                // mapped region, copy the string bytes only
+                if (mStringBuffer == null || mStringBuffer.length < stringLength)
+                    mStringBuffer = new byte[Math.max(stringLength, 256)];
+                for (int i = 0; i < stringLength; i++)
+                    mStringBuffer[i] = mBuffer.get(pos + i);
+                return new String(mStringBuffer, 0, stringLength, CHARSET_UTF8);
             } catch (UnsupportedEncodingException e) {
                 throw new IllegalStateException(e);
             }
@@ -437,7 +697,7 @@ public class ReadBuffer {
      * @return the current size of the read buffer.
      */
     int getBufferSize() {
-        return mBufferData.length;
+        return mBufferLength;
     }
 
     /**
@@ -504,9 +764,17 @@ public class ReadBuffer {
     private static final int WAY_NUMBER_OF_TAGS_BITMASK = 0x0f;
     int lastTagPosition;
 
+    /**
+     * End position of the way found by the last call to skipWays().
+     */
+    int lastWayEndPosition;
+
     int skipWays(int queryTileBitmask, int elements) {
+        if (mData == null)
+            return skipWaysMapped(queryTileBitmask, elements);
+
         int pos = mBufferPosition;
-        byte[] data = mBufferData;
+        byte[] data = mData;
         int cnt = elements;
         int skip;
 
@@ -556,6 +824,7 @@ public class ReadBuffer {
                 pos += skip;
                 cnt--;
             } else {
+                lastWayEndPosition = pos + skip;
                 pos += 2;
                 break;
             }
@@ -563,4 +832,65 @@ public class ReadBuffer {
         mBufferPosition = pos;
         return cnt;
     }
+
+    private int skipWaysMapped(int queryTileBitmask, int elements) {
+        int pos = mBufferOffset + mBufferPosition;
+        ByteBuffer data = mBuffer;
+        int cnt = elements;
+        int skip;
+
+        lastTagPosition = -1;
+
+        while (cnt > 0) {
+            // read way size (unsigned int)
+            if ((data.get(pos) & 0x80) == 0) {
+                skip = (data.get(pos) & 0x7f);
+                pos += 1;
+            } else if ((data.get(pos + 1) & 0x80) == 0) {
+                skip = (data.get(pos) & 0x7f)
+                        | (data.get(pos + 1) & 0x7f) << 7;
+                pos += 2;
+            } else if ((data.get(pos + 2) & 0x80) == 0) {
+                skip = (data.get(pos) & 0x7f)
+                        | ((data.get(pos + 1) & 0x7f) << 7)
+                        | ((data.get(pos + 2) & 0x7f) << 14);
+                pos += 3;
+            } else if ((data.get(pos + 3) & 0x80) == 0) {
+                skip = (data.get(pos) & 0x7f)
+                        | ((data.get(pos + 1) & 0x7f) << 7)
+                        | ((data.get(pos + 2) & 0x7f) << 14)
+                        | ((data.get(pos + 3) & 0x7f) << 21);
+                pos += 4;
+            } else {
+                skip = (data.get(pos) & 0x7f)
+                        | ((data.get(pos + 1) & 0x7f) << 7)
+                        | ((data.get(pos + 2) & 0x7f) << 14)
+                        | ((data.get(pos + 3) & 0x7f) << 21)
+                        | ((data.get(pos + 4) & 0x7f) << 28);
+                pos += 5;
+            }
+            // invalid way size
+            if (skip < 0) {
+                mBufferPosition = pos - mBufferOffset;
+                return -1;
+            }
+
+            // check if way matches queryTileBitmask
+            if ((((data.get(pos) << 8) | (data.get(pos + 1) & 0xff)) & queryTileBitmask) == 0) {
+
+                // remember last tags position
+                if ((data.get(pos + 2) & WAY_NUMBER_OF_TAGS_BITMASK) != 0)
+                    lastTagPosition = pos + 2 - mBufferOffset;
+
+                pos += skip;
+                cnt--;
+            } else {
+                lastWayEndPosition = pos + skip - mBufferOffset;
+                pos += 2;
+                break;
+            }
+        }
+        mBufferPosition = pos - mBufferOffset;
+        return cnt;
+    }
 }
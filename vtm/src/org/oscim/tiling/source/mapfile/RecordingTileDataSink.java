@@ -0,0 +1,136 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.mapfile;
+
+import org.oscim.backend.canvas.Bitmap;
+import org.oscim.core.GeometryBuffer.GeometryType;
+import org.oscim.core.MapElement;
+import org.oscim.core.TagSet;
+import org.oscim.tiling.TileDataSink;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Keeps copies of the elements of a map file, which is queried concurrently
+ * with the other map files of a {@link MultiMapFile}, to pass them to the
+ * sink of the tile in priority order.
+ * <p/>
+ * All elements are accepted, as the sink of the tile is used by the loader
+ * thread only. The deduplication hash of each element is kept, so that
+ * duplicates of elements of map files with higher priority are dropped on
+ * replay.
+ */
+class RecordingTileDataSink extends TileDataSink {
+
+    private static final int HASH_NONE = 0;
+    private static final int HASH_POI = 1;
+    private static final int HASH_WAY = 2;
+
+    /**
+     * Keeps the last hash added by the map file.
+     */
+    private static final class HashRecorder extends AbstractSet<Integer> {
+        boolean added;
+        int hash;
+
+        @Override
+        public boolean add(Integer hash) {
+            this.added = true;
+            this.hash = hash;
+            return true;
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return Collections.<Integer>emptyList().iterator();
+        }
+
+        @Override
+        public int size() {
+            return 0;
+        }
+    }
+
+    private final HashRecorder pois;
+    private final HashRecorder ways;
+
+    private final List<MapElement> elements = new ArrayList<>();
+    private byte[] hashTypes = new byte[64];
+    private int[] hashes = new int[64];
+
+    RecordingTileDataSink(int level, int levels) {
+        this(new HashRecorder(), new HashRecorder(), level, levels);
+    }
+
+    private RecordingTileDataSink(HashRecorder pois, HashRecorder ways, int level, int levels) {
+        super(null, pois, ways);
+        this.pois = pois;
+        this.ways = ways;
+        this.level = level;
+        this.levels = levels;
+    }
+
+    @Override
+    public boolean accept(GeometryType type, TagSet tags) {
+        return true;
+    }
+
+    @Override
+    public void process(MapElement element) {
+        int n = elements.size();
+        if (n == hashes.length) {
+            hashTypes = Arrays.copyOf(hashTypes, n * 2);
+            hashes = Arrays.copyOf(hashes, n * 2);
+        }
+        if (pois.added) {
+            hashTypes[n] = HASH_POI;
+            hashes[n] = pois.hash;
+        } else if (ways.added) {
+            hashTypes[n] = HASH_WAY;
+            hashes[n] = ways.hash;
+        } else {
+            hashTypes[n] = HASH_NONE;
+        }
+        pois.added = false;
+        ways.added = false;
+
+        elements.add(new MapElement(element));
+    }
+
+    @Override
+    public void setTileImage(Bitmap bitmap) {
+    }
+
+    /**
+     * Pass the elements accepted by the sink and not passed to it before.
+     */
+    void replay(TileDataSink sink) {
+        for (int i = 0, n = elements.size(); i < n; i++) {
+            MapElement element = elements.get(i);
+            if (!sink.accept(element.type, element.tags))
+                continue;
+            if (hashTypes[i] == HASH_POI && !sink.hashPois.add(hashes[i]))
+                continue;
+            if (hashTypes[i] == HASH_WAY && !sink.hashWays.add(hashes[i]))
+                continue;
+            sink.process(element);
+        }
+    }
+}
@@ -24,6 +24,7 @@ import org.oscim.core.Tag;
 import org.oscim.core.Tile;
 import org.oscim.tiling.ITileDataSink;
 import org.oscim.tiling.source.PbfDecoder;
+import org.oscim.tiling.source.StringTable;
 import org.oscim.utils.FastMath;
 import org.oscim.utils.pool.Inlist;
 import org.oscim.utils.pool.Pool;
@@ -77,7 +78,16 @@ public class TileDecoder extends PbfDecoder {
     }
 
     public TileDecoder(String locale) {
+        this(locale, new StringTable());
+    }
+
+    /**
+     * @param stringTable table of keys and values shared with the other
+     *                    decoders of the tile source.
+     */
+    public TileDecoder(String locale, StringTable stringTable) {
         mLocale = locale;
+        setStringTable(stringTable);
     }
 
     @Override
@@ -244,7 +254,7 @@ public class TileDecoder extends PbfDecoder {
                     if (key.startsWith(Tag.KEY_NAME))
                         continue;
 
-                    f.elem.tags.add(new Tag(key, val));
+                    f.elem.tags.add(Tag.interned(key, val));
                 }
             }
 
@@ -350,8 +360,9 @@ public class TileDecoder extends PbfDecoder {
 
             switch (tag) {
                 case TAG_FEATURE_ID:
+                    // uint64
                     //id =
-                    decodeVarint32();
+                    decodeVarint64();
                     break;
 
                 case TAG_FEATURE_TAGS:
@@ -599,6 +610,7 @@ public class TileDecoder extends PbfDecoder {
             }
 
         }
-        return value;
+        /* intern once per layer instead of for each feature tag */
+        return value == null ? null : value.intern();
     }
 }
@@ -19,6 +19,7 @@ package org.oscim.tiling.source.oscimap4;
 
 import org.oscim.tiling.ITileDataSource;
 import org.oscim.tiling.OverzoomTileDataSource;
+import org.oscim.tiling.source.StringTable;
 import org.oscim.tiling.source.UrlTileDataSource;
 import org.oscim.tiling.source.UrlTileSource;
 
@@ -27,6 +28,8 @@ public class OSciMap4TileSource extends UrlTileSource {
     private static final String DEFAULT_URL = "https://oscim.ogiqvo.com/tiles/vtm";
     private static final String DEFAULT_PATH = "/{Z}/{X}/{Y}.vtm";
 
+    private final StringTable mStringTable = new StringTable();
+
     public static class Builder<T extends Builder<T>> extends UrlTileSource.Builder<T> {
 
         public Builder() {
@@ -59,6 +62,6 @@ public class OSciMap4TileSource extends UrlTileSource {
 
     @Override
     public ITileDataSource getDataSource() {
-        return new OverzoomTileDataSource(new UrlTileDataSource(this, new TileDecoder(), getHttpEngine()), mOverZoom);
+        return new OverzoomTileDataSource(new UrlTileDataSource(this, new TileDecoder(mStringTable), getHttpEngine()), mOverZoom, mOverzoomCache);
     }
 }
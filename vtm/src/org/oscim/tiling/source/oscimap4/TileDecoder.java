@@ -25,6 +25,7 @@ import org.oscim.core.TagSet;
 import org.oscim.core.Tile;
 import org.oscim.tiling.ITileDataSink;
 import org.oscim.tiling.source.PbfDecoder;
+import org.oscim.tiling.source.StringTable;
 import org.oscim.utils.FastMath;
 
 import java.io.IOException;
@@ -81,15 +82,24 @@ public class TileDecoder extends PbfDecoder {
     private final float mScaleFactor = REF_TILE_SIZE / Tile.SIZE;
 
     public TileDecoder() {
+        this(new StringTable());
+    }
+
+    /**
+     * @param stringTable table of keys and values shared with the other
+     *                    decoders of the tile source.
+     */
+    public TileDecoder(StringTable stringTable) {
         mElem = new MapElement();
         mTileTags = new TagSet(100);
+        setStringTable(stringTable);
     }
 
     @Override
     public boolean decode(Tile tile, ITileDataSink sink, InputStream is)
             throws IOException {
 
-        readUnsignedInt(is, buffer);
+        readMessageLength(is);
         setInputStream(is);
 
         mTile = tile;
@@ -126,7 +136,7 @@ public class TileDecoder extends PbfDecoder {
                         log.fine(mTile + " wrong number of keys " + numKeys);
                         return false;
                     }
-                    keys[curKey++] = decodeString().intern();
+                    keys[curKey++] = decodeString();
                     break;
 
                 case TAG_TILE_TAG_VALUES:
@@ -226,7 +236,7 @@ public class TileDecoder extends PbfDecoder {
                 // Reformat values to established meters in OSM
                 tag = new Tag(key, String.valueOf(FastMath.round2(Float.valueOf(val) / 100)), false);
             } else
-                tag = new Tag(key, val, false, true);
+                tag = Tag.interned(key, val);
 
             mTileTags.add(tag);
         }
@@ -262,7 +272,7 @@ public class TileDecoder extends PbfDecoder {
         int numIndices = 1;
         int numTags = 1;
 
-        //boolean skip = false;
+        boolean skip = false;
         boolean fail = false;
 
         int coordCnt = 0;
@@ -285,6 +295,7 @@ public class TileDecoder extends PbfDecoder {
                 case TAG_ELEM_TAGS:
                     if (!decodeElementTags(numTags))
                         return false;
+                    skip = !mMapDataSink.accept(getGeometryType(type), mElem.tags);
                     break;
 
                 case TAG_ELEM_NUM_INDICES:
@@ -309,6 +320,12 @@ public class TileDecoder extends PbfDecoder {
                     break;
 
                 case TAG_ELEM_COORDS:
+                    if (skip) {
+                        int len = decodeVarint32();
+                        fillBuffer(len);
+                        bufferPos += len;
+                        break;
+                    }
                     if (coordCnt == 0) {
                         log.fine(mTile + " no coordinates");
                     }
@@ -347,24 +364,28 @@ public class TileDecoder extends PbfDecoder {
             return false;
         }
 
+        if (skip)
+            return true;
+
+        mElem.type = getGeometryType(type);
+
+        mMapDataSink.process(mElem);
+
+        return true;
+    }
+
+    private static GeometryType getGeometryType(int type) {
         switch (type) {
             case TAG_TILE_LINE:
-                mElem.type = GeometryType.LINE;
-                break;
+                return GeometryType.LINE;
             case TAG_TILE_POLY:
-                mElem.type = GeometryType.POLY;
-                break;
+                return GeometryType.POLY;
             case TAG_TILE_POINT:
-                mElem.type = GeometryType.POINT;
-                break;
+                return GeometryType.POINT;
             case TAG_TILE_MESH:
-                mElem.type = GeometryType.TRIS;
-                break;
+                return GeometryType.TRIS;
         }
-
-        mMapDataSink.process(mElem);
-
-        return true;
+        return GeometryType.NONE;
     }
 
     private boolean decodeElementTags(int numTags) throws IOException {
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.pmtiles;
+
+import org.oscim.tiling.source.ITileDecoder;
+import org.oscim.tiling.source.bitmap.BitmapTileSource;
+
+/**
+ * A tile source for PMTiles raster archives.
+ */
+public class PMTilesBitmapTileSource extends PMTilesTileSource {
+
+    /**
+     * @param path the path to the PMTiles archive.
+     */
+    public PMTilesBitmapTileSource(String path) {
+        super(path);
+    }
+
+    @Override
+    protected boolean isSupported(int tileType) {
+        return tileType == PMTilesFile.TYPE_PNG
+                || tileType == PMTilesFile.TYPE_JPEG
+                || tileType == PMTilesFile.TYPE_WEBP;
+    }
+
+    @Override
+    protected ITileDecoder createDecoder() {
+        return new BitmapTileSource.TileDecoder();
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.pmtiles;
+
+import org.oscim.core.BoundingBox;
+import org.oscim.utils.LRUCache;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reader of PMTiles version 3 archives.
+ * <p/>
+ * Header, directories and tiles are read with positional reads of one
+ * FileChannel, so that the loader threads can share the archive without
+ * locking. The root directory is kept, leaf directories are kept in a LRU
+ * cache.
+ * <p/>
+ * See https://github.com/protomaps/PMTiles/blob/main/spec/v3/spec.md
+ */
+public class PMTilesFile implements Closeable {
+
+    public static final int COMPRESSION_UNKNOWN = 0;
+    public static final int COMPRESSION_NONE = 1;
+    public static final int COMPRESSION_GZIP = 2;
+
+    public static final int TYPE_UNKNOWN = 0;
+    public static final int TYPE_MVT = 1;
+    public static final int TYPE_PNG = 2;
+    public static final int TYPE_JPEG = 3;
+    public static final int TYPE_WEBP = 4;
+
+    /**
+     * Default number of leaf directories in the cache.
+     */
+    public static final int LEAF_CACHE_SIZE = 64;
+
+    private static final int HEADER_SIZE = 127;
+    private static final int MAX_DEPTH = 4;
+    private static final int MAX_ZOOM = 26;
+
+    /**
+     * Entries of a directory, sorted by tile id.
+     */
+    static final class Directory {
+        final long[] tileIds;
+        final long[] offsets;
+        final int[] lengths;
+        /* 0 for entries of leaf directories */
+        final int[] runLengths;
+
+        Directory(int size) {
+            tileIds = new long[size];
+            offsets = new long[size];
+            lengths = new int[size];
+            runLengths = new int[size];
+        }
+
+        /**
+         * @return index of the tile or leaf directory entry containing
+         * the tile, or -1.
+         */
+        int find(long tileId) {
+            int lo = 0;
+            int hi = tileIds.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                long id = tileIds[mid];
+                if (id < tileId)
+                    lo = mid + 1;
+                else if (id > tileId)
+                    hi = mid - 1;
+                else
+                    return mid;
+            }
+            if (hi < 0)
+                return -1;
+            if (runLengths[hi] == 0 || tileId - tileIds[hi] < runLengths[hi])
+                return hi;
+            return -1;
+        }
+    }
+
+    private final RandomAccessFile mFile;
+    private final FileChannel mChannel;
+
+    private final Directory mRootDirectory;
+    private final LRUCache<Long, Directory> mLeafCache;
+
+    private final long mLeafDirectoryOffset;
+    private final long mTileDataOffset;
+
+    private final int mInternalCompression;
+    private final int mTileCompression;
+    private final int mTileType;
+    private final int mMinZoom;
+    private final int mMaxZoom;
+    private final BoundingBox mBoundingBox;
+
+    /**
+     * @param file the archive to open.
+     * @throws IOException when the file is not a PMTiles version 3 archive
+     *                     or its directories are compressed with an
+     *                     unsupported method.
+     */
+    public PMTilesFile(File file) throws IOException {
+        this(file, LEAF_CACHE_SIZE);
+    }
+
+    /**
+     * @param file          the archive to open.
+     * @param leafCacheSize maximum number of leaf directories in the cache.
+     */
+    public PMTilesFile(File file, int leafCacheSize) throws IOException {
+        mFile = new RandomAccessFile(file, "r");
+        mChannel = mFile.getChannel();
+        try {
+            ByteBuffer h = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            read(0, h);
+
+            byte[] magic = new byte[7];
+            h.get(magic);
+            if (!"PMTiles".equals(new String(magic, "US-ASCII")))
+                throw new IOException("not a PMTiles archive: " + file);
+            int version = h.get();
+            if (version != 3)
+                throw new IOException("unsupported PMTiles version " + version);
+
+            long rootOffset = h.getLong(8);
+            long rootLength = h.getLong(16);
+            mLeafDirectoryOffset = h.getLong(40);
+            mTileDataOffset = h.getLong(56);
+
+            mInternalCompression = h.get(97) & 0xff;
+            mTileCompression = h.get(98) & 0xff;
+            mTileType = h.get(99) & 0xff;
+            mMinZoom = h.get(100) & 0xff;
+            mMaxZoom = h.get(101) & 0xff;
+
+            mBoundingBox = new BoundingBox(h.getInt(106) / 1e7, h.getInt(102) / 1e7,
+                    h.getInt(114) / 1e7, h.getInt(110) / 1e7);
+
+            if (mInternalCompression != COMPRESSION_NONE
+                    && mInternalCompression != COMPRESSION_GZIP)
+                throw new IOException("unsupported directory compression " + mInternalCompression);
+
+            mRootDirectory = readDirectory(rootOffset, (int) rootLength);
+        } catch (IOException e) {
+            mFile.close();
+            throw e;
+        }
+        mLeafCache = new LRUCache<>(leafCacheSize);
+    }
+
+    /**
+     * @return compression of the tiles, one of the COMPRESSION_ constants.
+     */
+    public int getTileCompression() {
+        return mTileCompression;
+    }
+
+    /**
+     * @return type of the tiles, one of the TYPE_ constants.
+     */
+    public int getTileType() {
+        return mTileType;
+    }
+
+    public int getMinZoom() {
+        return mMinZoom;
+    }
+
+    public int getMaxZoom() {
+        return mMaxZoom;
+    }
+
+    public BoundingBox getBoundingBox() {
+        return mBoundingBox;
+    }
+
+    /**
+     * Read the tile into buffer, or into a larger buffer when it does not
+     * fit.
+     *
+     * @param buffer heap buffer to read into, may be null.
+     * @return the buffer holding the tile from position to limit, or null
+     * when the archive has no such tile.
+     */
+    public ByteBuffer getTile(int zoom, int x, int y, ByteBuffer buffer) throws IOException {
+        if (zoom < mMinZoom || zoom > mMaxZoom)
+            return null;
+
+        long tileId = tileId(zoom, x, y);
+        Directory dir = mRootDirectory;
+
+        for (int depth = 0; depth < MAX_DEPTH; depth++) {
+            int i = dir.find(tileId);
+            if (i < 0)
+                return null;
+
+            if (dir.runLengths[i] > 0) {
+                int length = dir.lengths[i];
+                if (buffer == null || buffer.capacity() < length)
+                    buffer = ByteBuffer.allocate(length);
+                buffer.clear().limit(length);
+                read(mTileDataOffset + dir.offsets[i], buffer);
+                return buffer;
+            }
+            dir = getLeafDirectory(mLeafDirectoryOffset + dir.offsets[i], dir.lengths[i]);
+        }
+        return null;
+    }
+
+    private Directory getLeafDirectory(long offset, int length) throws IOException {
+        synchronized (mLeafCache) {
+            Directory dir = mLeafCache.get(offset);
+            if (dir != null)
+                return dir;
+        }
+        /* read outside of the lock, a directory may be read twice */
+        Directory dir = readDirectory(offset, length);
+        synchronized (mLeafCache) {
+            mLeafCache.put(offset, dir);
+        }
+        return dir;
+    }
+
+    private Directory readDirectory(long offset, int length) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(length);
+        read(offset, buf);
+
+        byte[] data = buf.array();
+        if (mInternalCompression == COMPRESSION_GZIP)
+            data = inflate(data);
+
+        VarintReader in = new VarintReader(data);
+        int size = (int) in.next();
+        Directory dir = new Directory(size);
+
+        long tileId = 0;
+        for (int i = 0; i < size; i++) {
+            tileId += in.next();
+            dir.tileIds[i] = tileId;
+        }
+        for (int i = 0; i < size; i++)
+            dir.runLengths[i] = (int) in.next();
+        for (int i = 0; i < size; i++)
+            dir.lengths[i] = (int) in.next();
+        for (int i = 0; i < size; i++) {
+            long v = in.next();
+            /* 0: directly after the previous entry */
+            if (v == 0 && i > 0)
+                dir.offsets[i] = dir.offsets[i - 1] + dir.lengths[i - 1];
+            else
+                dir.offsets[i] = v - 1;
+        }
+        return dir;
+    }
+
+    private static byte[] inflate(byte[] data) throws IOException {
+        InputStream is = new GZIPInputStream(new ByteArrayInputStream(data));
+        byte[] out = new byte[data.length * 4];
+        int n = 0;
+        try {
+            int len;
+            while ((len = is.read(out, n, out.length - n)) >= 0) {
+                n += len;
+                if (n == out.length)
+                    out = Arrays.copyOf(out, n * 2);
+            }
+        } finally {
+            is.close();
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private void read(long position, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            int len = mChannel.read(buf, position);
+            if (len < 0)
+                throw new EOFException("unexpected end of PMTiles archive");
+            position += len;
+        }
+        buf.flip();
+    }
+
+    private static final class VarintReader {
+        private final byte[] mData;
+        private int mPos;
+
+        VarintReader(byte[] data) {
+            mData = data;
+        }
+
+        long next() throws IOException {
+            long val = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (mPos == mData.length)
+                    throw new EOFException("truncated PMTiles directory");
+                byte b = mData[mPos++];
+                val |= (long) (b & 0x7f) << shift;
+                if (b >= 0)
+                    return val;
+            }
+            throw new IOException("invalid varint");
+        }
+    }
+
+    /**
+     * @return the id of the tile, its position on the Hilbert curves of
+     * all zoom levels.
+     */
+    public static long tileId(int zoom, int x, int y) {
+        if (zoom > MAX_ZOOM)
+            throw new IllegalArgumentException("zoom level " + zoom);
+
+        /* tiles of the lower zoom levels */
+        long id = ((1L << (2 * zoom)) - 1) / 3;
+
+        int n = 1 << zoom;
+        for (int s = n >> 1; s > 0; s >>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            id += (long) s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return id;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mFile.close();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.pmtiles;
+
+import org.oscim.layers.tile.MapTile;
+import org.oscim.tiling.ITileDataSink;
+import org.oscim.tiling.ITileDataSource;
+import org.oscim.tiling.QueryResult;
+import org.oscim.tiling.source.ITileDecoder;
+import org.oscim.utils.ByteBufferInputStream;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the tiles of a PMTiles archive for one tile loader.
+ * <p/>
+ * Tiles are read into a buffer of the data source and decoded from there,
+ * uncompressed tiles are passed to the decoder without copying.
+ */
+public class PMTilesTileDataSource implements ITileDataSource {
+
+    private static final Logger log = Logger.getLogger(PMTilesTileDataSource.class.getName());
+
+    private final PMTilesFile mFile;
+    private final ITileDecoder mTileDecoder;
+
+    private ByteBuffer mBuffer;
+
+    public PMTilesTileDataSource(PMTilesFile file, ITileDecoder tileDecoder) {
+        mFile = file;
+        mTileDecoder = tileDecoder;
+    }
+
+    @Override
+    public void query(MapTile tile, ITileDataSink sink) {
+        QueryResult res = QueryResult.FAILED;
+        try {
+            ByteBuffer data = mFile.getTile(tile.zoomLevel, tile.tileX, tile.tileY, mBuffer);
+            if (data == null) {
+                res = QueryResult.TILE_NOT_FOUND;
+            } else {
+                mBuffer = data;
+
+                InputStream is = new ByteBufferInputStream(data);
+                if (mFile.getTileCompression() == PMTilesFile.COMPRESSION_GZIP)
+                    is = new GZIPInputStream(is);
+
+                if (mTileDecoder.decode(tile, sink, is))
+                    res = QueryResult.SUCCESS;
+            }
+        } catch (Exception e) {
+            log.severe(tile + " " + e);
+        } finally {
+            sink.completed(res);
+        }
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    @Override
+    public void cancel() {
+    }
+}
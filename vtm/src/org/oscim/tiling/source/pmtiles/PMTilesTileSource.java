@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.tiling.source.pmtiles;
+
+import org.oscim.core.BoundingBox;
+import org.oscim.tiling.ITileDataSource;
+import org.oscim.tiling.OverzoomTileDataSource;
+import org.oscim.tiling.TileSource;
+import org.oscim.tiling.source.ITileDecoder;
+import org.oscim.utils.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Logger;
+
+/**
+ * A tile source for PMTiles archives.
+ * <p/>
+ * Tiles beyond the maximum zoom level of the archive are overzoomed.
+ */
+public abstract class PMTilesTileSource extends TileSource {
+
+    private static final Logger log = Logger.getLogger(PMTilesTileSource.class.getName());
+
+    private final File mPath;
+    private int mLeafCacheSize = PMTilesFile.LEAF_CACHE_SIZE;
+
+    private PMTilesFile mFile;
+
+    /**
+     * @param path the path to the PMTiles archive.
+     */
+    public PMTilesTileSource(String path) {
+        mPath = new File(path);
+    }
+
+    /**
+     * Sets the number of leaf directories kept in memory.
+     * Must be set before {@link #open()}.
+     */
+    public void setLeafCacheSize(int leafCacheSize) {
+        if (leafCacheSize < 0)
+            throw new IllegalArgumentException("leaf cache size must not be negative: " + leafCacheSize);
+        mLeafCacheSize = leafCacheSize;
+    }
+
+    /**
+     * @return true when tiles of the type can be decoded.
+     */
+    protected abstract boolean isSupported(int tileType);
+
+    /**
+     * @return a new decoder for a tile loader.
+     */
+    protected abstract ITileDecoder createDecoder();
+
+    /**
+     * @return the opened archive, or null.
+     */
+    public PMTilesFile getFile() {
+        return mFile;
+    }
+
+    public BoundingBox getBoundingBox() {
+        return mFile != null ? mFile.getBoundingBox() : null;
+    }
+
+    @Override
+    public ITileDataSource getDataSource() {
+        if (mFile == null)
+            throw new IllegalStateException("not open: " + mPath);
+        return new OverzoomTileDataSource(new PMTilesTileDataSource(mFile, createDecoder()), mOverZoom, mOverzoomCache);
+    }
+
+    @Override
+    public OpenResult open() {
+        if (mFile != null)
+            return OpenResult.SUCCESS;
+
+        PMTilesFile file;
+        try {
+            file = new PMTilesFile(mPath, mLeafCacheSize);
+        } catch (IOException e) {
+            log.severe(e.toString());
+            return new OpenResult(e.toString());
+        }
+
+        int compression = file.getTileCompression();
+        String error = null;
+        if (!isSupported(file.getTileType()))
+            error = "unsupported tile type " + file.getTileType();
+        else if (compression != PMTilesFile.COMPRESSION_NONE && compression != PMTilesFile.COMPRESSION_GZIP)
+            error = "unsupported tile compression " + compression;
+
+        if (error != null) {
+            IOUtils.closeQuietly(file);
+            return new OpenResult(error);
+        }
+
+        mZoomMin = file.getMinZoom();
+        mOverZoom = file.getMaxZoom();
+        mFile = file;
+        return OpenResult.SUCCESS;
+    }
+
+    @Override
+    public void close() {
+        if (mFile != null) {
+            IOUtils.closeQuietly(mFile);
+            mFile = null;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.utils;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * InputStream over the remaining bytes of a ByteBuffer.
+ * <p/>
+ * Decoders can take the whole buffer with {@link #getByteBuffer()} instead
+ * of copying it chunk by chunk.
+ */
+public class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer mData;
+
+    public ByteBufferInputStream(ByteBuffer data) {
+        mData = data;
+    }
+
+    /**
+     * @return the bytes not read yet, the stream is not advanced.
+     */
+    public ByteBuffer getByteBuffer() {
+        return mData.slice();
+    }
+
+    @Override
+    public int read() {
+        return mData.hasRemaining() ? mData.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0)
+            return 0;
+        if (!mData.hasRemaining())
+            return -1;
+        len = Math.min(len, mData.remaining());
+        mData.get(b, off, len);
+        return len;
+    }
+
+    @Override
+    public long skip(long n) {
+        int skip = (int) Math.min(Math.max(n, 0), mData.remaining());
+        mData.position(mData.position() + skip);
+        return skip;
+    }
+
+    @Override
+    public int available() {
+        return mData.remaining();
+    }
+}
@@ -0,0 +1,775 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.utils;
+
+import java.util.Arrays;
+
+/**
+ * Pure-Java polygon triangulation by ear clipping, following the earcut
+ * algorithm: holes are bridged into the outer ring, large polygons use a
+ * z-order curve to find points in ears, and self-intersections are cured
+ * or split in later passes.
+ * <p/>
+ * Vertices are kept in arrays of linked nodes which are reused, so an
+ * instance does not allocate once grown. Instances are not thread-safe.
+ * <p/>
+ * The first ring is the outer ring, all others are holes. Triangles have the
+ * orientation of the outer ring, like the TessJNI output, and refer to the
+ * input vertices: no vertices are added.
+ */
+public class EarClipTessellator {
+
+    /**
+     * Polygons with more points use z-order hashing.
+     */
+    private static final int HASH_POINTS = 80;
+
+    private static final int NONE = -1;
+
+    /* nodes */
+    private int mSize;
+    private int[] mId = new int[64];
+    private double[] mX = new double[64];
+    private double[] mY = new double[64];
+    private int[] mPrev = new int[64];
+    private int[] mNext = new int[64];
+    private int[] mZ = new int[64];
+    private int[] mPrevZ = new int[64];
+    private int[] mNextZ = new int[64];
+    private boolean[] mSteiner = new boolean[64];
+
+    /* leftmost nodes of holes */
+    private int[] mHoles = new int[8];
+
+    private int[] mTriangles = new int[192];
+    private int mNumIndices;
+
+    private double mMinX, mMinY, mInvSize;
+
+    /**
+     * Triangulate a polygon with holes.
+     *
+     * @param points   the coordinates, the outer ring starts at the sum of the ring sizes before ipos.
+     * @param index    the number of coordinates of each ring.
+     * @param ipos     the position of the outer ring in index.
+     * @param numRings the number of rings.
+     * @return the number of indices in {@link #getTriangles()}, 0 if tessellation failed.
+     */
+    public int tessellate(float[] points, int[] index, int ipos, int numRings) {
+        mSize = 0;
+        mNumIndices = 0;
+
+        int start = 0;
+        for (int i = 0; i < ipos; i++) {
+            if (index[i] < 0)
+                return 0;
+            start += index[i];
+        }
+
+        int outerLen = index[ipos];
+        if (outerLen < 6 || start + outerLen > points.length)
+            return 0;
+
+        int outer = linkedList(points, start, start + outerLen, start, true);
+        if (outer == NONE || mNext[outer] == mPrev[outer])
+            return 0;
+
+        boolean clockwise = signedArea(points, start, start + outerLen) < 0;
+
+        if (numRings > 1)
+            outer = eliminateHoles(points, index, ipos, numRings, start, outer);
+
+        mInvSize = 0;
+        int numPoints = 0;
+        for (int i = 0; i < numRings; i++)
+            numPoints += index[ipos + i] >> 1;
+
+        if (numPoints > HASH_POINTS) {
+            double minX = points[start], maxX = minX;
+            double minY = points[start + 1], maxY = minY;
+            for (int i = start + 2; i < start + outerLen; i += 2) {
+                double x = points[i];
+                double y = points[i + 1];
+                if (x < minX) minX = x;
+                if (y < minY) minY = y;
+                if (x > maxX) maxX = x;
+                if (y > maxY) maxY = y;
+            }
+            mMinX = minX;
+            mMinY = minY;
+            double size = Math.max(maxX - minX, maxY - minY);
+            mInvSize = size != 0 ? 32767 / size : 0;
+        }
+
+        earcutLinked(outer, 0);
+
+        /* same orientation as the outer ring */
+        if (clockwise) {
+            for (int i = 0; i < mNumIndices; i += 3) {
+                int tmp = mTriangles[i + 1];
+                mTriangles[i + 1] = mTriangles[i + 2];
+                mTriangles[i + 2] = tmp;
+            }
+        }
+        return mNumIndices;
+    }
+
+    /**
+     * @return the vertex indices of the triangles, relative to the first point of the outer ring.
+     */
+    public int[] getTriangles() {
+        return mTriangles;
+    }
+
+    public int getNumIndices() {
+        return mNumIndices;
+    }
+
+    /**
+     * Create a circular list of the ring in counter-clockwise order.
+     */
+    private int linkedList(float[] points, int start, int end, int offset, boolean outer) {
+        int last = NONE;
+        if (outer == (signedArea(points, start, end) > 0)) {
+            for (int i = start; i < end; i += 2)
+                last = insertNode((i - offset) >> 1, points[i], points[i + 1], last);
+        } else {
+            for (int i = end - 2; i >= start; i -= 2)
+                last = insertNode((i - offset) >> 1, points[i], points[i + 1], last);
+        }
+
+        if (last != NONE && equals(last, mNext[last])) {
+            removeNode(last);
+            last = mNext[last];
+        }
+        return last;
+    }
+
+    /**
+     * @return positive area for counter-clockwise rings.
+     */
+    private static double signedArea(float[] points, int start, int end) {
+        double sum = 0;
+        for (int i = start, j = end - 2; i < end; i += 2) {
+            sum += ((double) points[j] - points[i]) * ((double) points[i + 1] + points[j + 1]);
+            j = i;
+        }
+        return sum;
+    }
+
+    /**
+     * Remove duplicate and collinear points.
+     */
+    private int filterPoints(int start, int end) {
+        if (start == NONE)
+            return start;
+        if (end == NONE)
+            end = start;
+
+        int p = start;
+        boolean again;
+        do {
+            again = false;
+            if (!mSteiner[p] && (equals(p, mNext[p]) || area(mPrev[p], p, mNext[p]) == 0)) {
+                removeNode(p);
+                p = end = mPrev[p];
+                if (p == mNext[p])
+                    break;
+                again = true;
+            } else {
+                p = mNext[p];
+            }
+        } while (again || p != end);
+
+        return end;
+    }
+
+    private void earcutLinked(int ear, int pass) {
+        if (ear == NONE)
+            return;
+
+        if (pass == 0 && mInvSize != 0)
+            indexCurve(ear);
+
+        int stop = ear;
+        while (mPrev[ear] != mNext[ear]) {
+            int prev = mPrev[ear];
+            int next = mNext[ear];
+
+            if (mInvSize != 0 ? isEarHashed(ear) : isEar(ear)) {
+                addTriangle(prev, ear, next);
+                removeNode(ear);
+
+                /* skipping the next vertex leads to less sliver triangles */
+                ear = mNext[next];
+                stop = mNext[next];
+                continue;
+            }
+
+            ear = next;
+
+            if (ear == stop) {
+                if (pass == 0) {
+                    /* try again after removing duplicate points */
+                    earcutLinked(filterPoints(ear, NONE), 1);
+                } else if (pass == 1) {
+                    ear = cureLocalIntersections(filterPoints(ear, NONE));
+                    earcutLinked(ear, 2);
+                } else {
+                    splitEarcut(ear);
+                }
+                break;
+            }
+        }
+    }
+
+    private boolean isEar(int ear) {
+        int a = mPrev[ear], b = ear, c = mNext[ear];
+        if (area(a, b, c) >= 0)
+            return false; // reflex
+
+        double ax = mX[a], bx = mX[b], cx = mX[c];
+        double ay = mY[a], by = mY[b], cy = mY[c];
+
+        double x0 = Math.min(ax, Math.min(bx, cx));
+        double y0 = Math.min(ay, Math.min(by, cy));
+        double x1 = Math.max(ax, Math.max(bx, cx));
+        double y1 = Math.max(ay, Math.max(by, cy));
+
+        for (int p = mNext[c]; p != a; p = mNext[p]) {
+            if (mX[p] >= x0 && mX[p] <= x1 && mY[p] >= y0 && mY[p] <= y1
+                    && pointInTriangle(ax, ay, bx, by, cx, cy, mX[p], mY[p])
+                    && area(mPrev[p], p, mNext[p]) >= 0)
+                return false;
+        }
+        return true;
+    }
+
+    private boolean isEarHashed(int ear) {
+        int a = mPrev[ear], b = ear, c = mNext[ear];
+        if (area(a, b, c) >= 0)
+            return false; // reflex
+
+        double ax = mX[a], bx = mX[b], cx = mX[c];
+        double ay = mY[a], by = mY[b], cy = mY[c];
+
+        double x0 = Math.min(ax, Math.min(bx, cx));
+        double y0 = Math.min(ay, Math.min(by, cy));
+        double x1 = Math.max(ax, Math.max(bx, cx));
+        double y1 = Math.max(ay, Math.max(by, cy));
+
+        int minZ = zOrder(x0, y0);
+        int maxZ = zOrder(x1, y1);
+
+        /* look for points inside the triangle in both directions */
+        int p = mPrevZ[ear];
+        int n = mNextZ[ear];
+        while (p != NONE && mZ[p] >= minZ && n != NONE && mZ[n] <= maxZ) {
+            if (isInEar(p, a, c, x0, y0, x1, y1))
+                return false;
+            p = mPrevZ[p];
+
+            if (isInEar(n, a, c, x0, y0, x1, y1))
+                return false;
+            n = mNextZ[n];
+        }
+
+        while (p != NONE && mZ[p] >= minZ) {
+            if (isInEar(p, a, c, x0, y0, x1, y1))
+                return false;
+            p = mPrevZ[p];
+        }
+
+        while (n != NONE && mZ[n] <= maxZ) {
+            if (isInEar(n, a, c, x0, y0, x1, y1))
+                return false;
+            n = mNextZ[n];
+        }
+        return true;
+    }
+
+    private boolean isInEar(int p, int a, int c, double x0, double y0, double x1, double y1) {
+        int b = mNext[a];
+        return mX[p] >= x0 && mX[p] <= x1 && mY[p] >= y0 && mY[p] <= y1 && p != a && p != c
+                && pointInTriangle(mX[a], mY[a], mX[b], mY[b], mX[c], mY[c], mX[p], mY[p])
+                && area(mPrev[p], p, mNext[p]) >= 0;
+    }
+
+    /**
+     * Go through all polygon nodes and cure small local self-intersections.
+     */
+    private int cureLocalIntersections(int start) {
+        int p = start;
+        do {
+            int a = mPrev[p];
+            int b = mNext[mNext[p]];
+
+            if (!equals(a, b) && intersects(a, p, mNext[p], b)
+                    && locallyInside(a, b) && locallyInside(b, a)) {
+                addTriangle(a, p, b);
+
+                /* remove two nodes involved */
+                removeNode(p);
+                removeNode(mNext[p]);
+
+                p = start = b;
+            }
+            p = mNext[p];
+        } while (p != start);
+
+        return filterPoints(p, NONE);
+    }
+
+    /**
+     * Try splitting polygon into two and triangulate them independently.
+     */
+    private void splitEarcut(int start) {
+        int a = start;
+        do {
+            int b = mNext[mNext[a]];
+            while (b != mPrev[a]) {
+                if (mId[a] != mId[b] && isValidDiagonal(a, b)) {
+                    int c = splitPolygon(a, b);
+
+                    a = filterPoints(a, mNext[a]);
+                    c = filterPoints(c, mNext[c]);
+
+                    earcutLinked(a, 0);
+                    earcutLinked(c, 0);
+                    return;
+                }
+                b = mNext[b];
+            }
+            a = mNext[a];
+        } while (a != start);
+    }
+
+    /**
+     * Link every hole into the outer loop, producing a single-ring polygon
+     * without holes.
+     */
+    private int eliminateHoles(float[] points, int[] index, int ipos, int numRings,
+                               int offset, int outer) {
+        int numHoles = 0;
+        int start = offset + index[ipos];
+
+        if (mHoles.length < numRings)
+            mHoles = new int[numRings];
+
+        for (int i = ipos + 1, end = ipos + numRings; i < end; i++) {
+            int len = index[i];
+            if (len >= 6 && start + len <= points.length) {
+                int list = linkedList(points, start, start + len, offset, false);
+                if (list != NONE) {
+                    if (list == mNext[list])
+                        mSteiner[list] = true;
+                    mHoles[numHoles++] = getLeftmost(list);
+                }
+            }
+            start += len;
+        }
+
+        /* sort holes by x, insertion sort as there are few */
+        for (int i = 1; i < numHoles; i++) {
+            int h = mHoles[i];
+            int j = i - 1;
+            for (; j >= 0 && mX[mHoles[j]] > mX[h]; j--)
+                mHoles[j + 1] = mHoles[j];
+            mHoles[j + 1] = h;
+        }
+
+        for (int i = 0; i < numHoles; i++)
+            outer = eliminateHole(mHoles[i], outer);
+
+        return outer;
+    }
+
+    private int eliminateHole(int hole, int outer) {
+        int bridge = findHoleBridge(hole, outer);
+        if (bridge == NONE)
+            return outer;
+
+        int bridgeReverse = splitPolygon(bridge, hole);
+
+        /* filter collinear points around the cuts */
+        filterPoints(bridgeReverse, mNext[bridgeReverse]);
+        return filterPoints(bridge, mNext[bridge]);
+    }
+
+    /**
+     * David Eberly's algorithm for finding a bridge between hole and outer polygon.
+     */
+    private int findHoleBridge(int hole, int outer) {
+        int p = outer;
+        double hx = mX[hole];
+        double hy = mY[hole];
+        double qx = Double.NEGATIVE_INFINITY;
+        int m = NONE;
+
+        /* find a segment intersected by a ray from the hole's leftmost point to the left;
+         * segment's endpoint with lesser x will be potential connection point */
+        do {
+            int n = mNext[p];
+            if (hy <= mY[p] && hy >= mY[n] && mY[n] != mY[p]) {
+                double x = mX[p] + (hy - mY[p]) * (mX[n] - mX[p]) / (mY[n] - mY[p]);
+                if (x <= hx && x > qx) {
+                    qx = x;
+                    m = mX[p] < mX[n] ? p : n;
+                    if (x == hx)
+                        return m; // hole touches outer segment
+                }
+            }
+            p = n;
+        } while (p != outer);
+
+        if (m == NONE)
+            return NONE;
+
+        /* look for points inside the triangle of hole point, segment intersection
+         * and endpoint; if there are no points found, we have a valid connection;
+         * otherwise choose the point of the minimum angle with the ray as
+         * connection point */
+        int stop = m;
+        double mx = mX[m];
+        double my = mY[m];
+        double tanMin = Double.POSITIVE_INFINITY;
+
+        p = m;
+        do {
+            if (hx >= mX[p] && mX[p] >= mx && hx != mX[p]
+                    && pointInTriangle(hy < my ? hx : qx, hy, mx, my,
+                    hy < my ? qx : hx, hy, mX[p], mY[p])) {
+
+                double tan = Math.abs(hy - mY[p]) / (hx - mX[p]);
+
+                if (locallyInside(p, hole) && (tan < tanMin || (tan == tanMin
+                        && (mX[p] > mX[m] || (mX[p] == mX[m] && sectorContainsSector(m, p)))))) {
+                    m = p;
+                    tanMin = tan;
+                }
+            }
+            p = mNext[p];
+        } while (p != stop);
+
+        return m;
+    }
+
+    /**
+     * Whether sector in vertex m contains sector in vertex p in the same coordinates.
+     */
+    private boolean sectorContainsSector(int m, int p) {
+        return area(mPrev[m], m, mPrev[p]) < 0 && area(mNext[p], m, mNext[m]) < 0;
+    }
+
+    /**
+     * Interlink polygon nodes in z-order.
+     */
+    private void indexCurve(int start) {
+        int p = start;
+        do {
+            if (mZ[p] == 0)
+                mZ[p] = zOrder(mX[p], mY[p]);
+            mPrevZ[p] = mPrev[p];
+            mNextZ[p] = mNext[p];
+            p = mNext[p];
+        } while (p != start);
+
+        mNextZ[mPrevZ[p]] = NONE;
+        mPrevZ[p] = NONE;
+
+        sortLinked(p);
+    }
+
+    /**
+     * Simon Tatham's linked list merge sort.
+     */
+    private int sortLinked(int list) {
+        int inSize = 1;
+        int numMerges;
+        do {
+            int p = list;
+            int tail = NONE;
+            list = NONE;
+            numMerges = 0;
+
+            while (p != NONE) {
+                numMerges++;
+                int q = p;
+                int pSize = 0;
+                for (int i = 0; i < inSize; i++) {
+                    pSize++;
+                    q = mNextZ[q];
+                    if (q == NONE)
+                        break;
+                }
+                int qSize = inSize;
+
+                while (pSize > 0 || (qSize > 0 && q != NONE)) {
+                    int e;
+                    if (pSize != 0 && (qSize == 0 || q == NONE || mZ[p] <= mZ[q])) {
+                        e = p;
+                        p = mNextZ[p];
+                        pSize--;
+                    } else {
+                        e = q;
+                        q = mNextZ[q];
+                        qSize--;
+                    }
+
+                    if (tail != NONE)
+                        mNextZ[tail] = e;
+                    else
+                        list = e;
+
+                    mPrevZ[e] = tail;
+                    tail = e;
+                }
+                p = q;
+            }
+            mNextZ[tail] = NONE;
+            inSize *= 2;
+        } while (numMerges > 1);
+
+        return list;
+    }
+
+    /**
+     * z-order of a point given coords and inverse of the longer side of data bbox.
+     */
+    private int zOrder(double px, double py) {
+        /* coords are transformed into non-negative 15-bit integer range */
+        int x = (int) ((px - mMinX) * mInvSize);
+        int y = (int) ((py - mMinY) * mInvSize);
+
+        x = (x | (x << 8)) & 0x00FF00FF;
+        x = (x | (x << 4)) & 0x0F0F0F0F;
+        x = (x | (x << 2)) & 0x33333333;
+        x = (x | (x << 1)) & 0x55555555;
+
+        y = (y | (y << 8)) & 0x00FF00FF;
+        y = (y | (y << 4)) & 0x0F0F0F0F;
+        y = (y | (y << 2)) & 0x33333333;
+        y = (y | (y << 1)) & 0x55555555;
+
+        return x | (y << 1);
+    }
+
+    private int getLeftmost(int start) {
+        int p = start;
+        int leftmost = start;
+        do {
+            if (mX[p] < mX[leftmost] || (mX[p] == mX[leftmost] && mY[p] < mY[leftmost]))
+                leftmost = p;
+            p = mNext[p];
+        } while (p != start);
+
+        return leftmost;
+    }
+
+    private static boolean pointInTriangle(double ax, double ay, double bx, double by,
+                                           double cx, double cy, double px, double py) {
+        return (cx - px) * (ay - py) >= (ax - px) * (cy - py)
+                && (ax - px) * (by - py) >= (bx - px) * (ay - py)
+                && (bx - px) * (cy - py) >= (cx - px) * (by - py);
+    }
+
+    /**
+     * Whether a diagonal between two polygon nodes lies within the polygon interior.
+     */
+    private boolean isValidDiagonal(int a, int b) {
+        return mId[mNext[a]] != mId[b] && mId[mPrev[a]] != mId[b] && !intersectsPolygon(a, b)
+                && ((locallyInside(a, b) && locallyInside(b, a) && middleInside(a, b)
+                && (area(mPrev[a], a, mPrev[b]) != 0 || area(a, mPrev[b], b) != 0))
+                || (equals(a, b) && area(mPrev[a], a, mNext[a]) > 0
+                && area(mPrev[b], b, mNext[b]) > 0));
+    }
+
+    /**
+     * Signed area of a triangle, negative for counter-clockwise.
+     */
+    private double area(int p, int q, int r) {
+        return (mY[q] - mY[p]) * (mX[r] - mX[q]) - (mX[q] - mX[p]) * (mY[r] - mY[q]);
+    }
+
+    private boolean equals(int p1, int p2) {
+        return mX[p1] == mX[p2] && mY[p1] == mY[p2];
+    }
+
+    /**
+     * Whether segments p1q1 and p2q2 intersect.
+     */
+    private boolean intersects(int p1, int q1, int p2, int q2) {
+        int o1 = sign(area(p1, q1, p2));
+        int o2 = sign(area(p1, q1, q2));
+        int o3 = sign(area(p2, q2, p1));
+        int o4 = sign(area(p2, q2, q1));
+
+        if (o1 != o2 && o3 != o4)
+            return true;
+
+        /* collinear and on segment */
+        if (o1 == 0 && onSegment(p1, p2, q1))
+            return true;
+        if (o2 == 0 && onSegment(p1, q2, q1))
+            return true;
+        if (o3 == 0 && onSegment(p2, p1, q2))
+            return true;
+        return o4 == 0 && onSegment(p2, q1, q2);
+    }
+
+    /**
+     * For collinear points p, q, r, whether q lies on segment pr.
+     */
+    private boolean onSegment(int p, int q, int r) {
+        return mX[q] <= Math.max(mX[p], mX[r]) && mX[q] >= Math.min(mX[p], mX[r])
+                && mY[q] <= Math.max(mY[p], mY[r]) && mY[q] >= Math.min(mY[p], mY[r]);
+    }
+
+    private static int sign(double v) {
+        return v > 0 ? 1 : v < 0 ? -1 : 0;
+    }
+
+    /**
+     * Whether a polygon diagonal intersects any polygon segments.
+     */
+    private boolean intersectsPolygon(int a, int b) {
+        int p = a;
+        do {
+            int n = mNext[p];
+            if (mId[p] != mId[a] && mId[n] != mId[a] && mId[p] != mId[b] && mId[n] != mId[b]
+                    && intersects(p, n, a, b))
+                return true;
+            p = n;
+        } while (p != a);
+
+        return false;
+    }
+
+    /**
+     * Whether a polygon diagonal is locally inside the polygon.
+     */
+    private boolean locallyInside(int a, int b) {
+        return area(mPrev[a], a, mNext[a]) < 0
+                ? area(a, b, mNext[a]) >= 0 && area(a, mPrev[a], b) >= 0
+                : area(a, b, mPrev[a]) < 0 || area(a, mNext[a], b) < 0;
+    }
+
+    /**
+     * Whether the middle point of a polygon diagonal is inside the polygon.
+     */
+    private boolean middleInside(int a, int b) {
+        int p = a;
+        boolean inside = false;
+        double px = (mX[a] + mX[b]) / 2;
+        double py = (mY[a] + mY[b]) / 2;
+        do {
+            int n = mNext[p];
+            if (((mY[p] > py) != (mY[n] > py)) && mY[n] != mY[p]
+                    && (px < (mX[n] - mX[p]) * (py - mY[p]) / (mY[n] - mY[p]) + mX[p]))
+                inside = !inside;
+            p = n;
+        } while (p != a);
+
+        return inside;
+    }
+
+    /**
+     * Link two polygon vertices with a bridge; if the vertices belong to the
+     * same ring, it splits polygon into two; if one belongs to the outer ring
+     * and another to a hole, it merges it into a single ring.
+     */
+    private int splitPolygon(int a, int b) {
+        int a2 = newNode(mId[a], mX[a], mY[a]);
+        int b2 = newNode(mId[b], mX[b], mY[b]);
+        int an = mNext[a];
+        int bp = mPrev[b];
+
+        mNext[a] = b;
+        mPrev[b] = a;
+
+        mNext[a2] = an;
+        mPrev[an] = a2;
+
+        mNext[b2] = a2;
+        mPrev[a2] = b2;
+
+        mNext[bp] = b2;
+        mPrev[b2] = bp;
+
+        return b2;
+    }
+
+    private int insertNode(int id, float x, float y, int last) {
+        int p = newNode(id, x, y);
+
+        if (last == NONE) {
+            mPrev[p] = p;
+            mNext[p] = p;
+        } else {
+            mNext[p] = mNext[last];
+            mPrev[p] = last;
+            mPrev[mNext[last]] = p;
+            mNext[last] = p;
+        }
+        return p;
+    }
+
+    private void removeNode(int p) {
+        mPrev[mNext[p]] = mPrev[p];
+        mNext[mPrev[p]] = mNext[p];
+
+        if (mPrevZ[p] != NONE)
+            mNextZ[mPrevZ[p]] = mNextZ[p];
+        if (mNextZ[p] != NONE)
+            mPrevZ[mNextZ[p]] = mPrevZ[p];
+    }
+
+    private int newNode(int id, double x, double y) {
+        if (mSize == mId.length)
+            grow();
+
+        int p = mSize++;
+        mId[p] = id;
+        mX[p] = x;
+        mY[p] = y;
+        mZ[p] = 0;
+        mPrevZ[p] = NONE;
+        mNextZ[p] = NONE;
+        mSteiner[p] = false;
+        return p;
+    }
+
+    private void grow() {
+        int size = mId.length << 1;
+        mId = Arrays.copyOf(mId, size);
+        mX = Arrays.copyOf(mX, size);
+        mY = Arrays.copyOf(mY, size);
+        mPrev = Arrays.copyOf(mPrev, size);
+        mNext = Arrays.copyOf(mNext, size);
+        mZ = Arrays.copyOf(mZ, size);
+        mPrevZ = Arrays.copyOf(mPrevZ, size);
+        mNextZ = Arrays.copyOf(mNextZ, size);
+        mSteiner = Arrays.copyOf(mSteiner, size);
+    }
+
+    private void addTriangle(int a, int b, int c) {
+        if (mNumIndices + 3 > mTriangles.length)
+            mTriangles = Arrays.copyOf(mTriangles, mTriangles.length << 1);
+
+        mTriangles[mNumIndices++] = mId[a];
+        mTriangles[mNumIndices++] = mId[b];
+        mTriangles[mNumIndices++] = mId[c];
+    }
+}
@@ -28,6 +28,13 @@ public final class Parameters {
      */
     public static boolean ANIMATOR2 = true;
 
+    /**
+     * If true line vertices hold the extrusion vector in bytes, 6 instead
+     * of 8 bytes per vertex. Miters are limited to about 4 times the line
+     * width. Must be set before the map is created.
+     */
+    public static boolean COMPACT_VERTICES = false;
+
     /**
      * Allow custom scale factor for short vertices instead of the calculated one.
      */
@@ -48,6 +55,11 @@ public final class Parameters {
      */
     public static boolean MAP_EVENT_LAYER2 = false;
 
+    /**
+     * If true the pure-Java <code>EarClipTessellator</code> is used instead of native <code>TessJNI</code>.
+     */
+    public static boolean JAVA_TESSELLATOR = false;
+
     /**
      * If true the markers are sorted in y-axis.
      */
@@ -72,6 +84,12 @@ public final class Parameters {
      */
     public static boolean POLY_CENTROID = true;
 
+    /**
+     * If true tile buckets are compiled on the loader thread,
+     * the GL thread only loads the data into buffer objects.
+     */
+    public static boolean PRECOMPILE_BUCKETS = false;
+
     /**
      * Repeat proximity (distance squared) for labels with same text
      */
@@ -118,6 +136,13 @@ public final class Parameters {
      */
     public static boolean THREADED_INIT = false;
 
+    /**
+     * Maximum bytes of tile data loaded into buffer objects per frame,
+     * remaining tiles are loaded in the next frames.
+     * e.g. 0 (unlimited), 1 << 20, ...
+     */
+    public static int UPLOAD_BUDGET = 0;
+
     private Parameters() {
         throw new IllegalStateException();
     }
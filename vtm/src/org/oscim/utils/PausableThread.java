@@ -17,10 +17,13 @@
  */
 package org.oscim.utils;
 
+import java.util.concurrent.Executor;
 import java.util.logging.Logger;
 
 /**
  * An abstract base class for threads which support pausing and resuming.
+ * <p/>
+ * The thread loop can also run on an {@link Executor}, see {@link #start(Executor)}.
  */
 public abstract class PausableThread extends Thread {
     private static final Logger log = Logger.getLogger(PausableThread.class.getName());
@@ -31,6 +34,39 @@ public abstract class PausableThread extends Thread {
     private boolean mShouldPause = false;
     private boolean mShouldStop = false;
 
+    /**
+     * The thread running the loop, differs from this thread when
+     * started on an Executor.
+     */
+    private volatile Thread mRunner;
+
+    /**
+     * Runs the thread loop on the given executor instead of starting this
+     * thread, e.g. on virtual threads with
+     * <code>Executors.newVirtualThreadPerTaskExecutor()</code> on JDK 21.
+     * The executor must provide one thread for the whole lifetime of the loop.
+     */
+    public final void start(Executor executor) {
+        executor.execute(this);
+    }
+
+    @Override
+    public void interrupt() {
+        Thread runner = mRunner;
+        if (runner != null && runner != this)
+            runner.interrupt();
+        else
+            super.interrupt();
+    }
+
+    @Override
+    public boolean isInterrupted() {
+        Thread runner = mRunner;
+        if (runner != null && runner != this)
+            return runner.isInterrupted();
+        return super.isInterrupted();
+    }
+
     /**
      * Causes the current thread to wait until this thread is pausing.
      */
@@ -52,13 +88,18 @@ public abstract class PausableThread extends Thread {
         }
     }
 
+    /**
+     * The thread should stop its work. Also applies when the loop has not
+     * started yet, e.g. while it is queued on an {@link Executor}.
+     */
     public synchronized void finish() {
+        mShouldStop = true;
+
         if (!mRunning)
             return;
 
         log.fine("Finish " + getThreadName());
 
-        mShouldStop = true;
         this.interrupt();
     }
 
@@ -95,9 +136,21 @@ public abstract class PausableThread extends Thread {
 
     @Override
     public final void run() {
-        mRunning = true;
-        setName(getThreadName());
-        setPriority(getThreadPriority());
+        synchronized (this) {
+            /* finished before the loop started */
+            if (mShouldStop) {
+                mRunning = false;
+                afterRun();
+                return;
+            }
+            mRunning = true;
+        }
+        Thread runner = Thread.currentThread();
+        if (runner == this) {
+            setName(getThreadName());
+            setPriority(getThreadPriority());
+        }
+        mRunner = runner;
 
         O:
         while (!mShouldStop) {
@@ -146,6 +199,12 @@ public abstract class PausableThread extends Thread {
         mPausing = true;
         mRunning = false;
 
+        if (runner != this) {
+            /* do not leak interrupt to the executor */
+            mRunner = null;
+            Thread.interrupted();
+        }
+
         afterRun();
     }
 
@@ -27,6 +27,20 @@ import java.util.logging.Logger;
 public class Tessellator {
     private static final Logger log = Logger.getLogger(Tessellator.class.getName());
 
+    private static final ThreadLocal<EarClipTessellator> earClipTessellator = new ThreadLocal<EarClipTessellator>() {
+        @Override
+        protected EarClipTessellator initialValue() {
+            return new EarClipTessellator();
+        }
+    };
+
+    /**
+     * @return the pure-Java tessellator of the current thread.
+     */
+    public static EarClipTessellator getEarClipTessellator() {
+        return earClipTessellator.get();
+    }
+
     /**
      * Special version for ExtrusionLayer to match indices with vertex positions.
      * Tessellates polygon in tris elements.
@@ -44,6 +58,14 @@ public class Tessellator {
     public static int tessellate(float[] points, int ppos, int numPoints, int[] index,
                                  int ipos, int numRings, int vertexOffset, VertexData outTris) {
 
+        if (Parameters.JAVA_TESSELLATOR) {
+            EarClipTessellator tess = getEarClipTessellator();
+            int nelems = tess.tessellate(points, index, ipos, numRings);
+            if (nelems == 0)
+                return 0;
+            return addIndices(null, tess.getTriangles(), nelems, index, ipos, numRings, vertexOffset, outTris);
+        }
+
         int buckets = FastMath.log2(MathUtils.nextPowerOfTwo(numPoints));
         buckets -= 2;
         //log.debug("tess use {}", buckets);
@@ -67,6 +89,19 @@ public class Tessellator {
             return 0;
         }
 
+        int sumIndices = addIndices(tess, null, nelems, index, ipos, numRings, vertexOffset, outTris);
+
+        tess.dispose();
+
+        return sumIndices;
+    }
+
+    /**
+     * Add the triangles of TessJNI, or the given triangles when tess is null,
+     * to outTris.
+     */
+    private static int addIndices(TessJNI tess, int[] triangles, int nelems, int[] index, int ipos,
+                                  int numRings, int vertexOffset, VertexData outTris) {
         int sumIndices = 0;
 
         VertexData.Chunk vd = outTris.obtainChunk();
@@ -81,7 +116,12 @@ public class Tessellator {
             if (size > VertexData.SIZE - vd.used)
                 size = VertexData.SIZE - vd.used;
 
-            tess.getElementsWithInputVertexIds(vd.vertices, vd.used, offset, size);
+            if (tess != null) {
+                tess.getElementsWithInputVertexIds(vd.vertices, vd.used, offset, size);
+            } else {
+                for (int i = 0; i < size; i++)
+                    vd.vertices[vd.used + i] = (short) triangles[offset + i];
+            }
 
             int start = vd.used;
             int end = start + size;
@@ -124,8 +164,6 @@ public class Tessellator {
             offset += size;
         }
 
-        tess.dispose();
-
         return sumIndices;
     }
 
@@ -138,6 +176,9 @@ public class Tessellator {
      * @return number of indices of out3D (0 if tessellation failed)
      */
     public static int tessellate(GeometryBuffer geom, GeometryBuffer outMesh) {
+        if (Parameters.JAVA_TESSELLATOR)
+            return tessellateEarClip(geom, outMesh);
+
         int[] index = geom.index;
         float[] points = geom.points;
         int ipos = 0;
@@ -182,6 +223,42 @@ public class Tessellator {
         return nelems;
     }
 
+    /**
+     * Tessellates each polygon of geom with the pure-Java tessellator.
+     */
+    private static int tessellateEarClip(GeometryBuffer geom, GeometryBuffer outMesh) {
+        int[] index = geom.index;
+        EarClipTessellator tess = getEarClipTessellator();
+        int[] triangles = new int[0];
+        int nelems = 0;
+        int pos = 0;
+
+        /* polygons are separated by 0 */
+        for (int ipos = 0; ipos < index.length && index[ipos] >= 0; ) {
+            int numRings = 0;
+            int length = 0;
+            while (ipos + numRings < index.length && index[ipos + numRings] > 0)
+                length += index[ipos + numRings++];
+
+            int n = numRings > 0 ? tess.tessellate(geom.points, index, ipos, numRings) : 0;
+            if (n > 0) {
+                if (nelems + n > triangles.length)
+                    triangles = Arrays.copyOf(triangles, Math.max(nelems + n, triangles.length * 2));
+                /* relative to the first point of geom */
+                int[] t = tess.getTriangles();
+                for (int i = 0; i < n; i++)
+                    triangles[nelems++] = t[i] + (pos >> 1);
+            }
+            pos += length;
+            ipos += numRings + 1;
+        }
+        if (nelems == 0)
+            return 0;
+
+        outMesh.index = nelems == triangles.length ? triangles : Arrays.copyOf(triangles, nelems);
+        return nelems;
+    }
+
     //    private static final int RESULT_VERTICES = 0;
     //    private static final int RESULT_TRIANGLES = 1;
     //
@@ -38,10 +38,21 @@ public class Easing {
             return 1;
         }
         float x = (float) millisElapsed / duration;
-        float t = millisElapsed;
+        return ease(x, millisElapsed, duration, easingType);
+    }
+
+    /**
+     * @param progress the normalized progress in 0..1.
+     * @return the eased progress in 0..1.
+     */
+    public static float ease(float progress, Type easingType) {
+        float x = clamp(progress, 0, 1);
+        return ease(x, x, 1, easingType);
+    }
+
+    private static float ease(float x, float t, float d, Type easingType) {
         float b = 0;
         float c = 1;
-        float d = duration;
 
         float adv = 0;
         switch (easingType) {
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2026 mapsforge.org
+ *
+ * This program is free software: you can redistribute it and/or modify it under the
+ * terms of the GNU Lesser General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY
+ * WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A
+ * PARTICULAR PURPOSE. See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along with
+ * this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.oscim.utils.pool;
+
+import javax.annotation.CheckReturnValue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pool for items which are taken and returned by different threads, without
+ * locking.
+ * <p/>
+ * Each thread keeps up to two magazines of items. When the thread has no
+ * items left, it takes a full magazine from the shared depot, when it has
+ * too many, it passes a magazine to the depot. The depot is a lock-free
+ * stack of magazines; items are dropped when the depot is full.
+ */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public abstract class MagazinePool<T extends Inlist<?>> {
+
+    /**
+     * Full magazine in the depot. Magazines are not reused, so that the
+     * depot cannot see the same magazine twice (ABA).
+     */
+    private static final class Magazine {
+        final Inlist items;
+        final int count;
+        Magazine next;
+
+        Magazine(Inlist items, int count) {
+            this.items = items;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Items of one thread.
+     */
+    private static final class Local {
+        Inlist items;
+        int count;
+        /* pool hits not yet added to mHits */
+        int hits;
+    }
+
+    private final int mMagazineSize;
+    private volatile int mMaxMagazines;
+
+    private final AtomicReference<Magazine> mDepot = new AtomicReference<>();
+    private final AtomicInteger mDepotMagazines = new AtomicInteger();
+
+    private final AtomicLong mAllocations = new AtomicLong();
+    private final AtomicLong mHits = new AtomicLong();
+    private final AtomicInteger mHighWater = new AtomicInteger();
+
+    private final ThreadLocal<Local> mLocal = new ThreadLocal<Local>() {
+        @Override
+        protected Local initialValue() {
+            return new Local();
+        }
+    };
+
+    /**
+     * @param magazineSize items passed between a thread and the depot at once.
+     * @param maxItems     maximum number of items in the depot.
+     */
+    public MagazinePool(int magazineSize, int maxItems) {
+        if (magazineSize < 1)
+            throw new IllegalArgumentException("magazine size " + magazineSize);
+        mMagazineSize = magazineSize;
+        setCapacity(maxItems);
+    }
+
+    /**
+     * @param maxItems maximum number of items in the depot, items of
+     *                 threads are not included.
+     */
+    public void setCapacity(int maxItems) {
+        mMaxMagazines = Math.max(0, maxItems / mMagazineSize);
+    }
+
+    /**
+     * @return maximum number of items in the depot.
+     */
+    public int getCapacity() {
+        return mMaxMagazines * mMagazineSize;
+    }
+
+    /**
+     * Creates the item. To be implemented by subclass.
+     *
+     * @return the item
+     */
+    protected abstract T createItem();
+
+    /**
+     * @param item set initial state
+     * @return 'true' when item should be added back to pool.
+     */
+    protected boolean clearItem(T item) {
+        return true;
+    }
+
+    /**
+     * Gets an 'item' from pool, if pool is empty a new
+     * item will be created by createItem().
+     *
+     * @return the item
+     */
+    public T get() {
+        Local local = mLocal.get();
+
+        if (local.count == 0 && !load(local)) {
+            mAllocations.incrementAndGet();
+            return createItem();
+        }
+
+        local.hits++;
+        local.count--;
+        T ret = (T) local.items;
+        local.items = ret.next;
+        ret.next = null;
+        return ret;
+    }
+
+    /**
+     * Release 'item' to pool.
+     * <p/>
+     * Usage item = pool.release(item), to ensure to not keep a reference to
+     * item!
+     */
+    @CheckReturnValue
+    public T release(T item) {
+        if (item == null)
+            return null;
+
+        Local local = mLocal.get();
+        put(local, item);
+        return null;
+    }
+
+    /**
+     * Release 'list' to pool.
+     * <p/>
+     * Usage list = pool.releaseAll(list), to ensure to not keep a reference to
+     * list!
+     */
+    @CheckReturnValue
+    public T releaseAll(T list) {
+        if (list == null)
+            return null;
+
+        Local local = mLocal.get();
+        while (list != null) {
+            T next = (T) list.next;
+            put(local, list);
+            list = next;
+        }
+        return null;
+    }
+
+    private void put(Local local, T item) {
+        if (!clearItem(item))
+            return;
+
+        ((Inlist) item).next = local.items;
+        local.items = item;
+        local.count++;
+
+        if (local.count >= 2 * mMagazineSize)
+            unload(local);
+    }
+
+    /**
+     * Take a magazine from the depot.
+     */
+    private boolean load(Local local) {
+        mHits.addAndGet(local.hits);
+        local.hits = 0;
+
+        Magazine m;
+        do {
+            m = mDepot.get();
+            if (m == null)
+                return false;
+        } while (!mDepot.compareAndSet(m, m.next));
+
+        mDepotMagazines.decrementAndGet();
+
+        local.items = m.items;
+        local.count = m.count;
+        return true;
+    }
+
+    /**
+     * Pass a magazine to the depot, or drop it when the depot is full.
+     */
+    private void unload(Local local) {
+        mHits.addAndGet(local.hits);
+        local.hits = 0;
+
+        /* split off a magazine */
+        Inlist head = local.items;
+        Inlist last = head;
+        for (int i = 1; i < mMagazineSize; i++)
+            last = last.next;
+        local.items = last.next;
+        local.count -= mMagazineSize;
+        last.next = null;
+
+        int magazines = mDepotMagazines.incrementAndGet();
+        if (magazines > mMaxMagazines) {
+            mDepotMagazines.decrementAndGet();
+            return;
+        }
+
+        int items = magazines * mMagazineSize;
+        int highWater;
+        while (items > (highWater = mHighWater.get())) {
+            if (mHighWater.compareAndSet(highWater, items))
+                break;
+        }
+
+        Magazine m = new Magazine(head, mMagazineSize);
+        do {
+            m.next = mDepot.get();
+        } while (!mDepot.compareAndSet(m.next, m));
+    }
+
+    /**
+     * Drop the items of the depot and of the calling thread.
+     */
+    public void clear() {
+        Local local = mLocal.get();
+        local.items = null;
+        local.count = 0;
+
+        mDepot.set(null);
+        mDepotMagazines.set(0);
+    }
+
+    /**
+     * @return number of items in the depot.
+     */
+    public int getFill() {
+        return mDepotMagazines.get() * mMagazineSize;
+    }
+
+    /**
+     * @return number of items created because the pool was empty.
+     */
+    public long getAllocations() {
+        return mAllocations.get();
+    }
+
+    /**
+     * @return number of items taken from the pool. Hits of a thread are
+     * added when it exchanges a magazine with the depot.
+     */
+    public long getHits() {
+        return mHits.get();
+    }
+
+    /**
+     * @return maximum number of items in the depot.
+     */
+    public int getHighWaterMark() {
+        return mHighWater.get();
+    }
+}